@@ -0,0 +1,299 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.internal.DefaultModelConfiguration;
+import org.xwiki.model.internal.reference.DefaultEntityReferenceProvider;
+import org.xwiki.model.internal.reference.DefaultStringEntityReferenceResolver;
+import org.xwiki.model.internal.reference.DefaultStringEntityReferenceSerializer;
+import org.xwiki.model.internal.reference.DefaultSymbolScheme;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.DefaultSecurityReferenceFactory;
+import org.xwiki.security.GroupSecurityReference;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.DefaultAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.security.authorization.RuleState;
+import org.xwiki.security.authorization.SecurityEntryReader;
+import org.xwiki.security.authorization.SecurityRule;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+import org.xwiki.security.authorization.cache.SecurityCacheRulesInvalidator;
+import org.xwiki.security.authorization.cache.internal.DefaultSecurityCache;
+import org.xwiki.security.authorization.cache.internal.DefaultSecurityCacheLoader;
+import org.xwiki.security.authorization.cache.internal.GroupMembershipIndex;
+import org.xwiki.security.authorization.cache.internal.SecurityCache;
+import org.xwiki.security.authorization.internal.AbstractSecurityRuleEntry;
+import org.xwiki.security.authorization.internal.DefaultAuthorizationSettler;
+import org.xwiki.security.internal.UserBridge;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Base class of the authorization benchmarks: a user member of a chain of nested groups, the outermost group being
+ * allowed to view the documents of a space.
+ * <p>
+ * The real authorization components (cache, loader, settler and manager) are used, but the rules and the groups are
+ * provided by in-memory implementations of the bridges and the cache is stored in a map.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public abstract class AbstractSecurityBenchmark
+{
+    /**
+     * The components to register.
+     */
+    @ComponentList({ DefaultSecurityCache.class, DefaultStringEntityReferenceResolver.class,
+        DefaultStringEntityReferenceSerializer.class, DefaultEntityReferenceProvider.class,
+        DefaultModelConfiguration.class, DefaultSecurityReferenceFactory.class, DefaultSecurityCacheLoader.class,
+        GroupMembershipIndex.class, DefaultAuthorizationSettler.class, DefaultAuthorizationManager.class,
+        DefaultSymbolScheme.class })
+    public static class Components
+    {
+    }
+
+    private static final WikiReference WIKI = new WikiReference("xwiki");
+
+    private static final String SPACE = "Benchmark";
+
+    private static final String USERS_SPACE = "XWiki";
+
+    /**
+     * The number of groups between the user and the group which is granted the view right.
+     */
+    @Param({ "1", "5", "20" })
+    public int groupDepth;
+
+    protected final MockitoComponentManager componentManager = new MockitoComponentManager();
+
+    protected AuthorizationManager authorizationManager;
+
+    protected SecurityCache securityCache;
+
+    protected SecurityReferenceFactory securityReferenceFactory;
+
+    protected final DocumentReference userReference = new DocumentReference("BenchmarkUser", USERS_SPACE, WIKI);
+
+    protected final DocumentReference documentReference = new DocumentReference("Document", SPACE, WIKI);
+
+    protected GroupSecurityReference outermostGroup;
+
+    private final Map<DocumentReference, Collection<GroupSecurityReference>> memberships = new HashMap<>();
+
+    private final List<SecurityRule> spaceRules = new ArrayList<>();
+
+    /**
+     * Allow a group to view.
+     */
+    private static final class ViewRule implements SecurityRule
+    {
+        private final GroupSecurityReference group;
+
+        ViewRule(GroupSecurityReference group)
+        {
+            this.group = group;
+        }
+
+        @Override
+        public boolean match(Right right)
+        {
+            return right == Right.VIEW;
+        }
+
+        @Override
+        public boolean match(GroupSecurityReference group)
+        {
+            return this.group.equals(group);
+        }
+
+        @Override
+        public boolean match(UserSecurityReference user)
+        {
+            return false;
+        }
+
+        @Override
+        public RuleState getState()
+        {
+            return RuleState.ALLOW;
+        }
+    }
+
+    /**
+     * The rules of an entity.
+     */
+    private static final class RuleEntry extends AbstractSecurityRuleEntry
+    {
+        private final SecurityReference reference;
+
+        private final Collection<SecurityRule> rules;
+
+        RuleEntry(SecurityReference reference, Collection<SecurityRule> rules)
+        {
+            this.reference = reference;
+            this.rules = rules;
+        }
+
+        @Override
+        public SecurityReference getReference()
+        {
+            return this.reference;
+        }
+
+        @Override
+        public Collection<SecurityRule> getRules()
+        {
+            return this.rules;
+        }
+    }
+
+    /**
+     * Initialize the authorization components and warm the cache.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager.initializeTest(new Components());
+
+        // The cache itself is not measured
+        CacheManager cacheManager = this.componentManager.registerMockComponent(CacheManager.class);
+        when(cacheManager.createNewCache(any(CacheConfiguration.class))).thenReturn(new MapCache<>());
+
+        // Avoid mocks in the measured code since they record all their invocations
+        this.componentManager.registerComponent(XWikiBridge.class, new XWikiBridge()
+        {
+            @Override
+            public WikiReference getMainWikiReference()
+            {
+                return WIKI;
+            }
+
+            @Override
+            public boolean isWikiReadOnly()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean needsAuthentication(Right right)
+            {
+                return false;
+            }
+
+            @Override
+            public EntityReference toCompatibleEntityReference(EntityReference reference)
+            {
+                return reference;
+            }
+        });
+        this.componentManager.registerComponent(SecurityCacheRulesInvalidator.class,
+            new SecurityCacheRulesInvalidator()
+            {
+                @Override
+                public void suspend()
+                {
+                    // Rules are never modified during the benchmark
+                }
+
+                @Override
+                public void resume()
+                {
+                    // Rules are never modified during the benchmark
+                }
+            });
+        this.componentManager.registerComponent(UserBridge.class, (UserBridge) (user,
+            wiki) -> this.memberships.getOrDefault(user.getOriginalReference(), Collections.emptyList()));
+        this.componentManager.registerComponent(SecurityEntryReader.class,
+            (SecurityEntryReader) reference -> new RuleEntry(reference,
+                reference.getType() == EntityType.SPACE && SPACE.equals(reference.getName()) ? this.spaceRules
+                    : Collections.emptyList()));
+
+        this.securityReferenceFactory = this.componentManager.getInstance(SecurityReferenceFactory.class);
+        this.securityCache = this.componentManager.getInstance(SecurityCache.class);
+        this.authorizationManager = this.componentManager.getInstance(AuthorizationManager.class);
+
+        // The user is member of the first group, which is member of the second group, etc.
+        DocumentReference member = this.userReference;
+        for (int i = 1; i <= this.groupDepth; ++i) {
+            DocumentReference groupReference = new DocumentReference("BenchmarkGroup" + i, USERS_SPACE, WIKI);
+            this.outermostGroup = this.securityReferenceFactory.newGroupReference(groupReference);
+            this.memberships.put(member, Collections.singletonList(this.outermostGroup));
+            member = groupReference;
+        }
+        this.spaceRules.add(new ViewRule(this.outermostGroup));
+
+        // Load the cache
+        if (!this.authorizationManager.hasAccess(Right.VIEW, this.userReference, this.documentReference)) {
+            throw new IllegalStateException("The benchmark user should be allowed to view the benchmark document");
+        }
+
+        initialize();
+    }
+
+    /**
+     * Called at the end of the setup, to initialize the state specific to the benchmark.
+     */
+    protected void initialize()
+    {
+        // Nothing to initialize by default
+    }
+
+    /**
+     * Release the components.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        this.componentManager.dispose();
+    }
+
+    /**
+     * Invalidate the outermost group, which evicts all the nested groups, the user and its accesses from the cache,
+     * like when the outermost group is modified.
+     */
+    protected void invalidateGroups()
+    {
+        this.securityCache.remove(this.outermostGroup);
+    }
+}
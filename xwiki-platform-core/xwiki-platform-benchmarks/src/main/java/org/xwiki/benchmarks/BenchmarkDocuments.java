@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.rendering.syntax.Syntax;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.BaseClass;
+
+/**
+ * Create the documents manipulated by the benchmarks.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public final class BenchmarkDocuments
+{
+    /**
+     * The reference of the class of the benchmark objects.
+     */
+    public static final LocalDocumentReference CLASS_REFERENCE = new LocalDocumentReference("Benchmark", "Class");
+
+    /**
+     * The name of the text property of the benchmark class.
+     */
+    public static final String TITLE = "title";
+
+    /**
+     * The name of the number property of the benchmark class.
+     */
+    public static final String COUNT = "count";
+
+    /**
+     * The name of the text area property of the benchmark class.
+     */
+    public static final String DESCRIPTION = "description";
+
+    private static final String CONTENT = "= Benchmark =\n\nSome **bold** and //italic// content with a "
+        + "[[link>>Main.WebHome]] and a macro:\n\n{{info}}\nInformation\n{{/info}}\n";
+
+    private BenchmarkDocuments()
+    {
+        // Utility class
+    }
+
+    /**
+     * Create and save the benchmark class.
+     *
+     * @param xcontext the XWiki context
+     * @return the benchmark class
+     * @throws XWikiException when failing to save the class
+     */
+    public static BaseClass createClass(XWikiContext xcontext) throws XWikiException
+    {
+        XWikiDocument classDocument =
+            new XWikiDocument(new DocumentReference(CLASS_REFERENCE, xcontext.getWikiReference()));
+
+        BaseClass xclass = classDocument.getXClass();
+        xclass.addTextField(TITLE, "Title", 30);
+        xclass.addNumberField(COUNT, "Count", 10, "long");
+        xclass.addTextAreaField(DESCRIPTION, "Description", 40, 5);
+
+        xcontext.getWiki().saveDocument(classDocument, xcontext);
+
+        return xclass;
+    }
+
+    /**
+     * Create a document holding the passed number of benchmark objects (the benchmark class should already exist).
+     *
+     * @param name the name of the document
+     * @param objects the number of objects to add to the document
+     * @param xcontext the XWiki context
+     * @return the new document
+     * @throws XWikiException when failing to create the objects
+     */
+    public static XWikiDocument createDocument(String name, int objects, XWikiContext xcontext)
+        throws XWikiException
+    {
+        XWikiDocument document = new XWikiDocument(new DocumentReference(xcontext.getWikiId(), "Benchmark", name));
+        document.setSyntax(Syntax.XWIKI_2_1);
+        document.setTitle(name);
+        document.setContent(CONTENT);
+
+        for (int i = 0; i < objects; ++i) {
+            BaseObject xobject = document.newXObject(CLASS_REFERENCE, xcontext);
+            xobject.setStringValue(TITLE, "Title " + i);
+            xobject.setLongValue(COUNT, i);
+            xobject.setLargeStringValue(DESCRIPTION, "Description of the object " + i);
+        }
+
+        return document;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.security.authorization.AccessDeniedException;
+import org.xwiki.security.authorization.Right;
+
+/**
+ * Measure {@link org.xwiki.security.authorization.AuthorizationManager#checkAccess} depending on the number of
+ * concurrent threads and on the depth of the nested groups of the user.
+ * <p>
+ * The {@code checkAccess*} benchmarks only hit the cache, while the {@code reload} benchmark evicts the groups of the
+ * user before each check so that they are loaded again. The {@code contended} group executes checks while a thread
+ * keeps evicting and reloading the groups, to measure the impact of the cache modifications on the readers.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckAccessBenchmark extends AbstractSecurityBenchmark
+{
+    /**
+     * @throws AccessDeniedException when the user is not allowed to view the document (should never happen)
+     */
+    @Benchmark
+    @Threads(1)
+    public void checkAccess() throws AccessDeniedException
+    {
+        check();
+    }
+
+    /**
+     * @throws AccessDeniedException when the user is not allowed to view the document (should never happen)
+     */
+    @Benchmark
+    @Threads(4)
+    public void checkAccess4Threads() throws AccessDeniedException
+    {
+        check();
+    }
+
+    /**
+     * @throws AccessDeniedException when the user is not allowed to view the document (should never happen)
+     */
+    @Benchmark
+    @Threads(16)
+    public void checkAccess16Threads() throws AccessDeniedException
+    {
+        check();
+    }
+
+    /**
+     * @throws AccessDeniedException when the user is not allowed to view the document (should never happen)
+     */
+    @Benchmark
+    @Threads(1)
+    public void reload() throws AccessDeniedException
+    {
+        invalidateGroups();
+        check();
+    }
+
+    /**
+     * @throws AccessDeniedException when the user is not allowed to view the document (should never happen)
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void contendedCheckAccess() throws AccessDeniedException
+    {
+        check();
+    }
+
+    /**
+     * @throws AccessDeniedException when the user is not allowed to view the document (should never happen)
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void contendedReload() throws AccessDeniedException
+    {
+        invalidateGroups();
+        check();
+    }
+
+    private void check() throws AccessDeniedException
+    {
+        this.authorizationManager.checkAccess(Right.VIEW, this.userReference, this.documentReference);
+    }
+}
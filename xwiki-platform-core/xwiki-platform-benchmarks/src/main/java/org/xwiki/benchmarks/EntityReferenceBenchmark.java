@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.internal.DefaultModelConfiguration;
+import org.xwiki.model.internal.reference.DefaultEntityReferenceProvider;
+import org.xwiki.model.internal.reference.DefaultStringEntityReferenceResolver;
+import org.xwiki.model.internal.reference.DefaultStringEntityReferenceSerializer;
+import org.xwiki.model.internal.reference.DefaultSymbolScheme;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+/**
+ * Measure the parsing and the serialization of string entity references with
+ * {@link DefaultStringEntityReferenceResolver} and {@link DefaultStringEntityReferenceSerializer}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityReferenceBenchmark
+{
+    /**
+     * The components to register.
+     */
+    @ComponentList({ DefaultStringEntityReferenceResolver.class, DefaultStringEntityReferenceSerializer.class,
+        DefaultEntityReferenceProvider.class, DefaultModelConfiguration.class, DefaultSymbolScheme.class })
+    public static class Components
+    {
+    }
+
+    /**
+     * The serialized document reference to resolve.
+     */
+    @Param({ "wiki:Space.Page", "wiki:Space1.Space2.Space3.Page", "wiki:Space\\.With\\.Dots.Page\\:With\\:Colons" })
+    public String reference;
+
+    private final MockitoComponentManager componentManager = new MockitoComponentManager();
+
+    private EntityReferenceResolver<String> resolver;
+
+    private EntityReferenceSerializer<String> serializer;
+
+    private EntityReference documentReference;
+
+    /**
+     * Initialize the resolver and the serializer.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager.initializeTest(new Components());
+
+        this.resolver = this.componentManager.getInstance(EntityReferenceResolver.TYPE_STRING);
+        this.serializer = this.componentManager.getInstance(EntityReferenceSerializer.TYPE_STRING);
+
+        this.documentReference = this.resolver.resolve(this.reference, EntityType.DOCUMENT);
+    }
+
+    /**
+     * Release the components.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        this.componentManager.dispose();
+    }
+
+    /**
+     * @return the resolved reference
+     */
+    @Benchmark
+    public EntityReference resolve()
+    {
+        return this.resolver.resolve(this.reference, EntityType.DOCUMENT);
+    }
+
+    /**
+     * @return the serialized reference
+     */
+    @Benchmark
+    public String serialize()
+    {
+        return this.serializer.serialize(this.documentReference);
+    }
+
+    /**
+     * @return the serialization of the resolved reference
+     */
+    @Benchmark
+    public String roundTrip()
+    {
+        return this.serializer.serialize(this.resolver.resolve(this.reference, EntityType.DOCUMENT));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
+import org.xwiki.skin.Skin;
+import org.xwiki.skin.SkinManager;
+import org.xwiki.template.TemplateManager;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.github.sommeri.less4j.Less4jException;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measure the compilation of LESS code with {@link Less4jCompiler}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LESSBenchmark
+{
+    /**
+     * The components to register.
+     */
+    @ComponentList(Less4jCompiler.class)
+    public static class Components
+    {
+    }
+
+    private static final String SKIN = "benchmark";
+
+    private static final String LESS = "@primary: #337ab7;\n"
+        + "@padding: 4px;\n"
+        + ".bordered(@width: 1px) {\n"
+        + "  border: @width solid darken(@primary, 10%);\n"
+        + "  border-radius: (@width * 2);\n"
+        + "}\n"
+        + ".generate(@index) when (@index > 0) {\n"
+        + "  .col-@{index} {\n"
+        + "    width: percentage((@index / 12));\n"
+        + "    padding: (@padding * @index);\n"
+        + "  }\n"
+        + "  .generate((@index - 1));\n"
+        + "}\n"
+        + ".generate(12);\n"
+        + ".panel {\n"
+        + "  .bordered(2px);\n"
+        + "  color: lighten(@primary, 20%);\n"
+        + "  .panel-heading {\n"
+        + "    background-color: fade(@primary, 50%);\n"
+        + "    &:hover { background-color: @primary; }\n"
+        + "    a { color: contrast(@primary); }\n"
+        + "  }\n"
+        + "}\n";
+
+    private final MockitoComponentManager componentManager = new MockitoComponentManager();
+
+    private Less4jCompiler compiler;
+
+    /**
+     * Initialize the compiler.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager.initializeTest(new Components());
+
+        // Stub only mocks don't record the invocations
+        SkinManager skinManager = mock(SkinManager.class, withSettings().stubOnly());
+        when(skinManager.getSkin(SKIN)).thenReturn(mock(Skin.class, withSettings().stubOnly()));
+        this.componentManager.registerComponent(SkinManager.class, skinManager);
+        this.componentManager.registerComponent(TemplateManager.class,
+            mock(TemplateManager.class, withSettings().stubOnly()));
+
+        this.compiler = this.componentManager.getInstance(Less4jCompiler.class);
+    }
+
+    /**
+     * Release the components.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        this.componentManager.dispose();
+    }
+
+    /**
+     * @return the compiled CSS
+     * @throws Less4jException when failing to compile the LESS code
+     */
+    @Benchmark
+    public String compile() throws Less4jException
+    {
+        return this.compiler.compile(LESS, SKIN, false);
+    }
+}
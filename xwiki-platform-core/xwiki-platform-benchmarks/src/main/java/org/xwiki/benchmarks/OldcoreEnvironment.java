@@ -0,0 +1,76 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.test.MockitoOldcore;
+
+/**
+ * An in-memory oldcore (documents are stored in a map, no database) to execute the benchmarks against.
+ * <p>
+ * The components to register are indicated by the annotations ({@code AllComponents}, {@code ComponentList}, etc.) of
+ * the passed descriptor object, the same way they are indicated on a test class, since the benchmark classes
+ * themselves are extended by the JMH generated code.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class OldcoreEnvironment
+{
+    private final MockitoComponentManager componentManager = new MockitoComponentManager();
+
+    private MockitoOldcore oldcore;
+
+    /**
+     * @param descriptor the object holding the annotations indicating the components to register
+     * @return the initialized oldcore
+     * @throws Exception when failing to initialize the oldcore
+     */
+    public MockitoOldcore start(Object descriptor) throws Exception
+    {
+        this.oldcore = new MockitoOldcore(this.componentManager);
+
+        this.componentManager.initializeTest(descriptor, this.componentManager, this.oldcore);
+
+        this.oldcore.before(descriptor.getClass());
+
+        return this.oldcore;
+    }
+
+    /**
+     * @return the component manager of the oldcore
+     */
+    public MockitoComponentManager getComponentManager()
+    {
+        return this.componentManager;
+    }
+
+    /**
+     * Release the oldcore.
+     *
+     * @throws Exception when failing to release the oldcore
+     */
+    public void stop() throws Exception
+    {
+        this.oldcore.after();
+        this.componentManager.dispose();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.security.GroupSecurityReference;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+
+/**
+ * Measure the lookups of the entries of the
+ * {@link org.xwiki.security.authorization.cache.internal.DefaultSecurityCache}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecurityCacheBenchmark extends AbstractSecurityBenchmark
+{
+    private UserSecurityReference user;
+
+    private SecurityReference document;
+
+    private SecurityReference space;
+
+    @Override
+    protected void initialize()
+    {
+        this.user = this.securityReferenceFactory.newUserReference(this.userReference);
+        this.document = this.securityReferenceFactory.newEntityReference(this.documentReference);
+        this.space = this.document.getParentSecurityReference();
+    }
+
+    /**
+     * @return the access entry of the user on the document
+     */
+    @Benchmark
+    public SecurityAccessEntry getAccessEntry()
+    {
+        return this.securityCache.get(this.user, this.document);
+    }
+
+    /**
+     * @return the rule entry of the space
+     */
+    @Benchmark
+    public SecurityRuleEntry getRuleEntry()
+    {
+        return this.securityCache.get(this.space);
+    }
+
+    /**
+     * @return all the groups of the user, which requires to traverse the nested groups entries
+     */
+    @Benchmark
+    public Collection<GroupSecurityReference> getGroups()
+    {
+        return this.securityCache.getGroupsFor(this.user, null);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateContent;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.internal.template.VelocityTemplateEvaluator;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measure the evaluation of a Velocity template with {@link VelocityTemplateEvaluator}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VelocityTemplateBenchmark
+{
+    /**
+     * The components to register.
+     */
+    @AllComponents
+    public static class Components
+    {
+    }
+
+    private static final String CONTENT = "#macro (displayItem $item)\n"
+        + "  <li class=\"item-$item\">Item $item: $item.toString().length() $escapetool.xml('<value>')</li>\n"
+        + "#end\n"
+        + "#set ($items = [1..50])\n"
+        + "<ul>\n"
+        + "#foreach ($item in $items)\n"
+        + "  #if ($foreach.count % 2 == 0)\n"
+        + "    #displayItem($item)\n"
+        + "  #else\n"
+        + "    <li>$stringtool.upperCase(\"odd\") $foreach.index</li>\n"
+        + "  #end\n"
+        + "#end\n"
+        + "</ul>\n";
+
+    private final OldcoreEnvironment environment = new OldcoreEnvironment();
+
+    private VelocityTemplateEvaluator evaluator;
+
+    private Template template;
+
+    private TemplateContent content;
+
+    /**
+     * Initialize the oldcore and the template.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.environment.start(new Components());
+
+        this.evaluator = this.environment.getComponentManager().getInstance(VelocityTemplateEvaluator.class);
+
+        // Stub only mocks don't record the invocations
+        this.template = mock(Template.class, withSettings().stubOnly());
+        this.content = mock(TemplateContent.class, withSettings().stubOnly());
+        when(this.template.getId()).thenReturn("benchmark.vm");
+        when(this.template.getContent()).thenReturn(this.content);
+        when(this.content.getContent()).thenReturn(CONTENT);
+    }
+
+    /**
+     * Release the oldcore.
+     *
+     * @throws Exception when failing to release the oldcore
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.environment.stop();
+    }
+
+    /**
+     * @return the result of the evaluation
+     * @throws Exception when failing to evaluate the template
+     */
+    @Benchmark
+    public String evaluate() throws Exception
+    {
+        StringWriter writer = new StringWriter();
+
+        this.evaluator.evaluateContent(this.template, this.content, writer);
+
+        return writer.toString();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.filter.input.BeanInputFilterStreamFactory;
+import org.xwiki.filter.input.DefaultByteArrayInputSource;
+import org.xwiki.filter.input.InputFilterStream;
+import org.xwiki.filter.input.InputFilterStreamFactory;
+import org.xwiki.filter.type.FilterStreamType;
+import org.xwiki.filter.xar.input.XARInputProperties;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Measure the parsing of a XAR package with the XAR input filter stream.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XARBenchmark
+{
+    /**
+     * The components to register.
+     */
+    @AllComponents
+    public static class Components
+    {
+    }
+
+    /**
+     * The number of documents in the package.
+     */
+    @Param({ "10", "100" })
+    public int documents;
+
+    private final OldcoreEnvironment environment = new OldcoreEnvironment();
+
+    private BeanInputFilterStreamFactory<XARInputProperties> factory;
+
+    private byte[] xar;
+
+    /**
+     * Initialize the oldcore and generate the package.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        XWikiContext xcontext = this.environment.start(new Components()).getXWikiContext();
+
+        this.factory = this.environment.getComponentManager().getInstance(InputFilterStreamFactory.class,
+            FilterStreamType.XWIKI_XAR_CURRENT.serialize());
+
+        BenchmarkDocuments.createClass(xcontext);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(stream)) {
+            for (int i = 0; i < this.documents; ++i) {
+                XWikiDocument document = BenchmarkDocuments.createDocument("Document" + i, 5, xcontext);
+
+                zip.putNextEntry(new ZipEntry("Benchmark/Document" + i + ".xml"));
+                zip.write(document.toXML(true, false, false, false, xcontext).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        this.xar = stream.toByteArray();
+    }
+
+    /**
+     * Release the oldcore.
+     *
+     * @throws Exception when failing to release the oldcore
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.environment.stop();
+    }
+
+    /**
+     * Read the whole package.
+     *
+     * @throws Exception when failing to read the package
+     */
+    @Benchmark
+    public void read() throws Exception
+    {
+        XARInputProperties properties = new XARInputProperties();
+        properties.setSource(new DefaultByteArrayInputSource(this.xar));
+
+        InputFilterStream stream = this.factory.createInputFilterStream(properties);
+        try {
+            // The events are ignored so that only the parsing is measured
+            stream.read(new Object());
+        } finally {
+            stream.close();
+        }
+    }
+}
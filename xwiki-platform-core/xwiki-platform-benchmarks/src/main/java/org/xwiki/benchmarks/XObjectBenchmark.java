@@ -0,0 +1,133 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.PropertyInterface;
+
+/**
+ * Measure the access to the properties of a {@link BaseObject} and of its
+ * {@link com.xpn.xwiki.objects.classes.BaseClass}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XObjectBenchmark
+{
+    /**
+     * The components to register.
+     */
+    @AllComponents
+    public static class Components
+    {
+    }
+
+    private final OldcoreEnvironment environment = new OldcoreEnvironment();
+
+    private XWikiContext xcontext;
+
+    private BaseObject xobject;
+
+    private long counter;
+
+    /**
+     * Initialize the oldcore and the object.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.xcontext = this.environment.start(new Components()).getXWikiContext();
+
+        BenchmarkDocuments.createClass(this.xcontext);
+        this.xobject = BenchmarkDocuments.createDocument("Object", 1, this.xcontext)
+            .getXObject(BenchmarkDocuments.CLASS_REFERENCE);
+    }
+
+    /**
+     * Release the oldcore.
+     *
+     * @throws Exception when failing to release the oldcore
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.environment.stop();
+    }
+
+    /**
+     * @return the value of the string property
+     */
+    @Benchmark
+    public String getStringValue()
+    {
+        return this.xobject.getStringValue(BenchmarkDocuments.TITLE);
+    }
+
+    /**
+     * @return the value of the number property
+     */
+    @Benchmark
+    public long getLongValue()
+    {
+        return this.xobject.getLongValue(BenchmarkDocuments.COUNT);
+    }
+
+    /**
+     * Update the value of the number property.
+     */
+    @Benchmark
+    public void setLongValue()
+    {
+        this.xobject.setLongValue(BenchmarkDocuments.COUNT, this.counter++);
+    }
+
+    /**
+     * @return the definition of the string property, resolved through the class of the object
+     */
+    @Benchmark
+    public PropertyInterface getClassProperty()
+    {
+        return this.xobject.getXClass(this.xcontext).get(BenchmarkDocuments.TITLE);
+    }
+}
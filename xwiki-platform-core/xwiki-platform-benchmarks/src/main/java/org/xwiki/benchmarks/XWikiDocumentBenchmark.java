@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Measure the cloning and the XML serialization of a {@link XWikiDocument}, depending on the number of objects it
+ * holds.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XWikiDocumentBenchmark
+{
+    /**
+     * The components to register.
+     */
+    @AllComponents
+    public static class Components
+    {
+    }
+
+    /**
+     * The number of objects in the document.
+     */
+    @Param({ "0", "10", "100" })
+    public int objects;
+
+    private final OldcoreEnvironment environment = new OldcoreEnvironment();
+
+    private XWikiContext xcontext;
+
+    private XWikiDocument document;
+
+    /**
+     * Initialize the oldcore and the document.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.xcontext = this.environment.start(new Components()).getXWikiContext();
+
+        BenchmarkDocuments.createClass(this.xcontext);
+        this.document = BenchmarkDocuments.createDocument("Document", this.objects, this.xcontext);
+    }
+
+    /**
+     * Release the oldcore.
+     *
+     * @throws Exception when failing to release the oldcore
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.environment.stop();
+    }
+
+    /**
+     * @return the cloned document
+     */
+    @Benchmark
+    public XWikiDocument cloneDocument()
+    {
+        return this.document.clone();
+    }
+
+    /**
+     * @return the XML serialization of the document, with its objects
+     * @throws XWikiException when failing to serialize the document
+     */
+    @Benchmark
+    public String toXML() throws XWikiException
+    {
+        return this.document.toXML(true, false, false, false, this.xcontext);
+    }
+}
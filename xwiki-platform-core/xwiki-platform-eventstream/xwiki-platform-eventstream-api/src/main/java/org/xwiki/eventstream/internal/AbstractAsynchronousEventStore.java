@@ -29,6 +29,7 @@
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -193,6 +194,10 @@ public EventStoreTaskType getType()
 
     private boolean disposed;
 
+    private int batchSize = Integer.MAX_VALUE;
+
+    private long batchLatency;
+
     /**
      * Give an estimation of the number of events that are going to be added to the store. Can be negative if there is
      * more deletes than add.
@@ -332,17 +337,23 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
 
         List<EventStoreTask<?, ?>> tasks = new ArrayList<>();
         try {
-            for (EventStoreTask<?, ?> task = firstTask; task != null; task = this.queue.poll()) {
+            List<EventStoreTask<?, ?>> saveTasks = new ArrayList<>();
+            long deadline = System.currentTimeMillis() + this.batchLatency;
+            for (EventStoreTask<?, ?> task = firstTask; task != null; task = pollTask(tasks.size(), deadline)) {
                 if (task != EventStoreTask.STOP) {
-                    try {
-                        processTask(task);
-                    } catch (Exception e) {
-                        task.future.completeExceptionally(e);
+                    // Group consecutive events to save to write them all at once
+                    if (task.type == EventStoreTaskType.SAVE_EVENT) {
+                        saveTasks.add(task);
+                    } else {
+                        processSaveTasks(saveTasks);
+                        processTaskSafe(task);
                     }
 
                     tasks.add(task);
                 }
             }
+
+            processSaveTasks(saveTasks);
         } finally {
             afterTasks(tasks);
 
@@ -350,6 +361,66 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
         }
     }
 
+    private EventStoreTask<?, ?> pollTask(int batchCount, long deadline)
+    {
+        if (batchCount >= this.batchSize) {
+            return null;
+        }
+
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining > 0) {
+            try {
+                return this.queue.poll(remaining, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return null;
+            }
+        }
+
+        return this.queue.poll();
+    }
+
+    private void processTaskSafe(EventStoreTask<?, ?> task)
+    {
+        try {
+            processTask(task);
+        } catch (Exception e) {
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    private void processSaveTasks(List<EventStoreTask<?, ?>> saveTasks)
+    {
+        if (saveTasks.size() == 1) {
+            processTaskSafe(saveTasks.get(0));
+        } else if (!saveTasks.isEmpty()) {
+            List<Event> events = new ArrayList<>(saveTasks.size());
+            for (EventStoreTask<?, ?> task : saveTasks) {
+                events.add((Event) task.input);
+            }
+
+            List<Event> savedEvents;
+            try {
+                savedEvents = syncSaveEvents(events);
+            } catch (Exception e) {
+                this.logger.debug("Failed to save [{}] events at once, saving them one by one", events.size(), e);
+
+                // Find out which events are failing
+                savedEvents = null;
+                saveTasks.forEach(this::processTaskSafe);
+            }
+
+            if (savedEvents != null) {
+                for (int i = 0; i < saveTasks.size(); ++i) {
+                    processTaskOutput((EventStoreTask<Event, Event>) saveTasks.get(i), savedEvents.get(i));
+                }
+            }
+        }
+
+        saveTasks.clear();
+    }
+
     private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamException
     {
         switch (task.type) {
@@ -482,6 +553,25 @@ private <O, I> void complete(EventStoreTask<O, I> task, O output)
      */
     protected abstract Event syncSaveEvent(Event event) throws EventStreamException;
 
+    /**
+     * Save several events at once. The default implementation save the events one by one, it's expected to be
+     * overwritten by stores which support a more efficient batch write.
+     * 
+     * @param events the events to save
+     * @return the saved events, in the same order
+     * @throws EventStreamException when failing to save the events (in which case they are saved again one by one)
+     * @since 14.4RC1
+     */
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        List<Event> savedEvents = new ArrayList<>(events.size());
+        for (Event event : events) {
+            savedEvents.add(syncSaveEvent(event));
+        }
+
+        return savedEvents;
+    }
+
     /**
      * @param event the event to save update
      * @since 12.6
@@ -527,6 +617,24 @@ protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
 
     protected void initialize(int queueCapacity, boolean notifyEach, boolean notifyAll)
     {
+        initialize(queueCapacity, notifyEach, notifyAll, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * @param queueCapacity the maximum number of tasks waiting to be processed
+     * @param notifyEach true if the tasks should be completed as soon as they are processed
+     * @param notifyAll true if the tasks should be completed all together after each batch
+     * @param batchSize the maximum number of tasks processed in a batch
+     * @param batchLatency the maximum time in milliseconds to wait for the next task before closing a batch, 0 to only
+     *            include in a batch the tasks already queued
+     * @since 14.4RC1
+     */
+    protected void initialize(int queueCapacity, boolean notifyEach, boolean notifyAll, int batchSize,
+        long batchLatency)
+    {
+        this.batchSize = batchSize > 0 ? batchSize : Integer.MAX_VALUE;
+        this.batchLatency = batchLatency;
+
         this.notifyEach = notifyEach;
         this.notifyAll = !notifyEach && notifyAll;
 
@@ -0,0 +1,77 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.eventstream.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.MetricSource;
+
+/**
+ * Expose the number of events waiting to be stored by the configured asynchronous event store.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Named("eventstream")
+@Singleton
+public class EventStoreMetricSource implements MetricSource
+{
+    @Inject
+    private EventStreamConfiguration configuration;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public void bindTo(MetricRegistry registry)
+    {
+        if (this.configuration.isEventStoreEnabled()) {
+            String hint = this.configuration.getEventStore();
+
+            if (this.componentManager.hasComponent(EventStore.class, hint)) {
+                try {
+                    EventStore store = this.componentManager.getInstance(EventStore.class, hint);
+
+                    if (store instanceof AbstractAsynchronousEventStore) {
+                        registry.registerGauge("xwiki_eventstream_queue_size",
+                            "The estimated number of events waiting to be added to the store",
+                            ((AbstractAsynchronousEventStore) store)::getQueueSize);
+                    }
+                } catch (ComponentLookupException e) {
+                    this.logger.warn("Failed to get the event store [{}]: {}", hint,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+    }
+}
@@ -64,4 +64,22 @@ public boolean isEventStoreEnabled()
     {
         return this.configuration.getProperty("eventstream.store.enabled", true);
     }
+
+    /**
+     * @return the maximum number of tasks the {@link EventStore} writes in a batch
+     * @since 14.4RC1
+     */
+    public int getEventStoreBatchSize()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.size", 1000);
+    }
+
+    /**
+     * @return the maximum time in milliseconds the {@link EventStore} waits for more tasks before writing a batch
+     * @since 14.4RC1
+     */
+    public long getEventStoreBatchLatency()
+    {
+        return this.configuration.getProperty("eventstream.store.batch.latency", 0L);
+    }
 }
@@ -20,10 +20,13 @@
 package org.xwiki.eventstream.internal;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -54,6 +57,8 @@
 @ComponentTest
 public class AsynchronousEventStoreTest
 {
+    private static final String BLOCKING_ID = "blocking";
+
     public static class TestAbstractAsynchronousEventStore extends AbstractAsynchronousEventStore
     {
         class EventEntry
@@ -81,6 +86,12 @@ EventEntry getEventEntry(String eventId, boolean create)
 
         ReentrantLock lock = new ReentrantLock();
 
+        List<Integer> batches = new CopyOnWriteArrayList<>();
+
+        CountDownLatch blockingStarted = new CountDownLatch(1);
+
+        CountDownLatch blockingReleased = new CountDownLatch(1);
+
         @Override
         public Optional<Event> getEvent(String eventId) throws EventStreamException
         {
@@ -140,6 +151,17 @@ protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStr
         @Override
         protected Event syncSaveEvent(Event event) throws EventStreamException
         {
+            if (BLOCKING_ID.equals(event.getId())) {
+                // Block the store thread until the test is ready
+                this.blockingStarted.countDown();
+                try {
+                    this.blockingReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new EventStreamException(e);
+                }
+            }
+
             this.lock.lock();
 
             try {
@@ -151,6 +173,14 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
             }
         }
 
+        @Override
+        protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+        {
+            this.batches.add(events.size());
+
+            return super.syncSaveEvents(events);
+        }
+
         @Override
         protected Event syncPrefilterEvent(Event event) throws EventStreamException
         {
@@ -421,4 +451,31 @@ void prefilter() throws InterruptedException, ExecutionException, EventStreamExc
         assertTrue(this.store.getEvent(event1.getId()).get().isPrefiltered());
         assertFalse(this.store.getEvent(event2.getId()).get().isPrefiltered());
     }
+
+    @Test
+    void saveEventsInBatch() throws InterruptedException, ExecutionException, EventStreamException
+    {
+        DefaultEvent event1 = event("id1");
+        DefaultEvent event2 = event("id2");
+        DefaultEvent event3 = event("id3");
+
+        // Add an event and wait for the store thread to be blocked while saving it
+        this.store.saveEvent(event(BLOCKING_ID));
+        this.store.blockingStarted.await();
+
+        try {
+            this.store.saveEvent(event1);
+            this.store.saveEvent(event2);
+            this.store.saveEvent(event3);
+        } finally {
+            this.store.blockingReleased.countDown();
+        }
+
+        this.store.deleteEvent(event1).get();
+
+        assertEquals(List.of(3), this.store.batches);
+        assertFalse(this.store.getEvent(event1.getId()).isPresent());
+        assertSame(event2, this.store.getEvent(event2.getId()).get());
+        assertSame(event3, this.store.getEvent(event3.getId()).get());
+    }
 }
@@ -36,7 +36,6 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.Execution;
 import org.xwiki.eventstream.events.AbstractEventStreamEvent;
-import org.xwiki.observation.AbstractEventListener;
 import org.xwiki.observation.ObservationContext;
 import org.xwiki.observation.event.BeginFoldEvent;
 import org.xwiki.observation.event.Event;
@@ -45,13 +44,17 @@
 import com.xpn.xwiki.internal.event.AttachmentAddedEvent;
 import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
 import com.xpn.xwiki.internal.event.AttachmentUpdatedEvent;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.event.CommentAddedEvent;
 import com.xpn.xwiki.internal.event.CommentDeletedEvent;
 import com.xpn.xwiki.internal.event.CommentUpdatedEvent;
+import com.xpn.xwiki.internal.observation.AbstractAsyncEventListener;
 
 /**
  * Store the recordable event inside the event stream (except events that are already handled by the Activity Stream
  * implementation).
+ * <p>
+ * Since 14.4RC1 the events are recorded outside of the thread which produced them.
  *
  * @version $Id$
  * @since 11.1RC1
@@ -59,7 +62,7 @@
 @Component
 @Singleton
 @Named("EventStreamStoreListener")
-public class DocumentEventListener extends AbstractEventListener
+public class DocumentEventListener extends AbstractAsyncEventListener
 {
     /**
      * The events to match.
@@ -108,13 +111,22 @@ public DocumentEventListener()
     }
 
     @Override
-    public void onEvent(Event event, Object source, Object data)
+    protected boolean accept(Event event, Object source, Object data)
     {
-        if (remoteObservationManagerContext.isRemoteState() || observationContext.isIn(IGNORED_EVENTS)
-            || execution.getContext().hasProperty(AbstractEventStreamEvent.EVENT_LOOP_CONTEXT_LOCK_PROPERTY)) {
-            return;
-        }
+        return !(remoteObservationManagerContext.isRemoteState() || observationContext.isIn(IGNORED_EVENTS)
+            || execution.getContext().hasProperty(AbstractEventStreamEvent.EVENT_LOOP_CONTEXT_LOCK_PROPERTY));
+    }
+
+    @Override
+    protected Object snapshotSource(Event event, Object source, Object data)
+    {
+        // The document can be modified or saved again by the current thread while the event is being recorded
+        return this.documentEventRecorder.snapshot((XWikiDocument) source);
+    }
 
+    @Override
+    public void onAsyncEvent(Event event, Object source, Object data)
+    {
         try {
             this.execution.getContext().setProperty(AbstractEventStreamEvent.EVENT_LOOP_CONTEXT_LOCK_PROPERTY, true);
 
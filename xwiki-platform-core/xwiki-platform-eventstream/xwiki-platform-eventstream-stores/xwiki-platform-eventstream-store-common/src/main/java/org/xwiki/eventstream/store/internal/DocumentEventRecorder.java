@@ -76,6 +76,19 @@
     @Named("document")
     private UserReferenceSerializer<DocumentReference> userReferenceSerializer;
 
+    /**
+     * Copy a document passed with an event, so that the event can be recorded in another thread while the document is
+     * still modified by the thread which produced the event.
+     *
+     * @param document the source of the event
+     * @return a copy of the document, sharing the same original document
+     * @since 14.4RC1
+     */
+    public XWikiDocument snapshot(XWikiDocument document)
+    {
+        return document.clone();
+    }
+
     /**
      * Record the given event.
      * 
@@ -98,6 +111,8 @@ public void recordEvent(Event event, Object source) throws EventStreamException,
         }
 
         String eventType;
+        String version = currentDoc.getVersion();
+        boolean hidden = currentDoc.isHidden();
 
         if (event instanceof DocumentCreatedEvent) {
             eventType = EventType.CREATE;
@@ -107,8 +122,8 @@ public void recordEvent(Event event, Object source) throws EventStreamException,
             eventType = EventType.DELETE;
             // When we receive a DELETE event, the given document is blank and does not have version & hidden tag
             // properly set.
-            currentDoc.setVersion(originalDoc.getVersion());
-            currentDoc.setHidden(originalDoc.isHidden());
+            version = originalDoc.getVersion();
+            hidden = originalDoc.isHidden();
         } else if (event instanceof CommentAddedEvent) {
             eventType = EventType.ADD_COMMENT;
         } else if (event instanceof CommentDeletedEvent) {
@@ -132,10 +147,10 @@ public void recordEvent(Event event, Object source) throws EventStreamException,
             return;
         }
 
-        recordEvent(streamName, currentDoc, eventType, eventType);
+        recordEvent(streamName, currentDoc, version, hidden, eventType);
     }
 
-    private void recordEvent(String streamName, XWikiDocument doc, String type, String title)
+    private void recordEvent(String streamName, XWikiDocument doc, String version, boolean hidden, String type)
     {
         final String msgPrefix = "activitystream.event.";
 
@@ -145,14 +160,14 @@ private void recordEvent(String streamName, XWikiDocument doc, String type, Stri
         event.setDate(doc.getDate());
         event.setImportance(org.xwiki.eventstream.Event.Importance.MEDIUM);
         event.setType(type);
-        event.setTitle(msgPrefix + title);
-        event.setBody(msgPrefix + title);
-        event.setDocumentVersion(doc.getVersion());
+        event.setTitle(msgPrefix + type);
+        event.setBody(msgPrefix + type);
+        event.setDocumentVersion(version);
         // This might be wrong once non-altering events will be logged.
         DocumentReference originalAuthor =
             this.userReferenceSerializer.serialize(doc.getAuthors().getOriginalMetadataAuthor());
         event.setUser(originalAuthor);
-        event.setHidden(doc.isHidden());
+        event.setHidden(hidden);
         event.setDocumentTitle(doc.getRenderedTitle(Syntax.PLAIN_1_0, contextProvider.get()));
 
         this.eventStore.saveEvent(event);
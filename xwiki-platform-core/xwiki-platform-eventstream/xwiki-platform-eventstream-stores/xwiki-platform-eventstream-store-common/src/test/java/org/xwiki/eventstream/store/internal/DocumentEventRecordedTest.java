@@ -28,6 +28,7 @@
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.eventstream.EventStore;
 import org.xwiki.eventstream.EventStreamException;
@@ -45,7 +46,11 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -122,4 +127,27 @@ void recordUpdateEvent() throws EventStreamException, ExecutionException, Interr
         this.documentEventRecorder.recordEvent(new DocumentUpdatedEvent(), source);
         verify(this.eventStore).saveEvent(expectedEvent);
     }
+
+    @Test
+    void recordDeleteEvent() throws EventStreamException, ExecutionException, InterruptedException
+    {
+        XWikiDocument source = mock(XWikiDocument.class);
+        XWikiDocument originalDocument = mock(XWikiDocument.class);
+        DocumentReference reference = new DocumentReference("foo", "Space", "PageName");
+        when(this.serializer.serialize(reference.getLastSpaceReference())).thenReturn("Space");
+        when(source.getDocumentReference()).thenReturn(reference);
+        when(source.getOriginalDocument()).thenReturn(originalDocument);
+        when(source.getAuthors()).thenReturn(mock(DocumentAuthors.class));
+        when(originalDocument.getVersion()).thenReturn("3.1");
+        when(originalDocument.isHidden()).thenReturn(true);
+
+        this.documentEventRecorder.recordEvent(new DocumentDeletedEvent(), source);
+
+        // The version and hidden flag of the deleted document are taken from the original document without modifying
+        // the event source, which may be shared with the thread which produced the event
+        verify(this.eventStore).saveEvent(argThat(event -> event instanceof DefaultEvent
+            && "3.1".equals(event.getDocumentVersion()) && event.getHidden() && "delete".equals(event.getType())));
+        verify(source, never()).setVersion(any());
+        verify(source, never()).setHidden(anyBoolean());
+    }
 }
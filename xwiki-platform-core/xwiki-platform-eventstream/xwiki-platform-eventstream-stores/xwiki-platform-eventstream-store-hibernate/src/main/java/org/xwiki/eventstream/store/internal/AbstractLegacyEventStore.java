@@ -20,6 +20,7 @@
 package org.xwiki.eventstream.store.internal;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -36,6 +37,7 @@
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.internal.AbstractAsynchronousEventStore;
 import org.xwiki.eventstream.internal.EmptyEventSearchResult;
+import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.query.QueryException;
 
 /**
@@ -52,6 +54,23 @@ public abstract class AbstractLegacyEventStore extends AbstractAsynchronousEvent
     @Inject
     private EventStatusManager eventStatusManager;
 
+    @Inject
+    private LegacyEventSaver eventSaver;
+
+    @Inject
+    private EventStreamConfiguration configuration;
+
+    /**
+     * @param notifyEach true if the tasks should be completed as soon as they are processed
+     * @param notifyAll true if the tasks should be completed all together after each batch
+     * @since 14.4RC1
+     */
+    protected void initialize(boolean notifyEach, boolean notifyAll)
+    {
+        initialize(100, notifyEach, notifyAll, this.configuration.getEventStoreBatchSize(),
+            this.configuration.getEventStoreBatchLatency());
+    }
+
     @Override
     protected Event syncSaveEvent(Event event) throws EventStreamException
     {
@@ -60,6 +79,23 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
         return event;
     }
 
+    @Override
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        // Write directly in the legacy store only when it's the one used by the event stream
+        if (this.eventStream instanceof LegacyEventStream) {
+            try {
+                this.eventSaver.saveEvents(events);
+            } catch (Exception e) {
+                throw new EventStreamException("Failed to save the events in the old event store", e);
+            }
+
+            return events;
+        }
+
+        return super.syncSaveEvents(events);
+    }
+
     @Override
     protected Optional<Event> syncDeleteEvent(String eventId) throws EventStreamException
     {
@@ -19,6 +19,11 @@
  */
 package org.xwiki.eventstream.store.internal;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -91,6 +96,74 @@ public void saveEvent(Event event)
         }
     }
 
+    /**
+     * Add several events to the storage, using a single transaction per database. The events of a database which
+     * cannot be saved at once are saved again one by one in that database only, so that the events already committed
+     * in the other databases are not duplicated.
+     *
+     * @param events the events to store
+     * @throws Exception when failing to convert the events (in which case none of them is saved)
+     * @since 14.4RC1
+     */
+    public void saveEvents(List<Event> events) throws Exception
+    {
+        // Group the events per target database
+        Map<String, List<LegacyEvent>> eventsByWiki = new LinkedHashMap<>();
+        for (Event event : events) {
+            LegacyEvent legacyEvent = eventConverter.convertEventToLegacyActivity(event);
+
+            boolean isSavedOnMainStore = false;
+
+            if (configuration.useLocalStore()) {
+                eventsByWiki.computeIfAbsent(legacyEvent.getWiki(), k -> new ArrayList<>()).add(legacyEvent);
+                isSavedOnMainStore = wikiDescriptorManager.isMainWiki(legacyEvent.getWiki());
+            }
+
+            if (configuration.useMainStore() && !isSavedOnMainStore) {
+                eventsByWiki.computeIfAbsent(wikiDescriptorManager.getMainWikiId(), k -> new ArrayList<>())
+                    .add(legacyEvent);
+            }
+        }
+
+        for (Map.Entry<String, List<LegacyEvent>> entry : eventsByWiki.entrySet()) {
+            try {
+                saveLegacyEvents(entry.getValue(), entry.getKey());
+            } catch (Exception e) {
+                logger.debug("Failed to save [{}] events at once in wiki [{}], saving them one by one",
+                    entry.getValue().size(), entry.getKey(), e);
+
+                for (LegacyEvent legacyEvent : entry.getValue()) {
+                    try {
+                        saveLegacyEvent(legacyEvent, entry.getKey());
+                    } catch (Exception eventException) {
+                        logger.error("Failed to save an event in the event stream.", eventException);
+                    }
+                }
+            }
+        }
+    }
+
+    private void saveLegacyEvents(List<LegacyEvent> events, String wikiId) throws Exception
+    {
+        namespaceContextExecutor.execute(new WikiNamespace(wikiId), () -> {
+            XWikiContext context = contextProvider.get();
+            XWikiHibernateStore hibernateStore = context.getWiki().getHibernateStore();
+            boolean commit = false;
+            try {
+                hibernateStore.beginTransaction(context);
+                Session session = hibernateStore.getSession(context);
+                for (LegacyEvent event : events) {
+                    session.save(event);
+                }
+                commit = true;
+            } finally {
+                hibernateStore.endTransaction(context, commit);
+            }
+
+            return null;
+        });
+    }
+
     private void saveLegacyEvent(LegacyEvent event, String wikiId) throws Exception
     {
         namespaceContextExecutor.execute(new WikiNamespace(wikiId), () -> {
@@ -40,6 +40,6 @@ public class LegacyEventStore extends AbstractLegacyEventStore
     @Override
     public void initialize() throws InitializationException
     {
-        initialize(100, false, false);
+        initialize(false, false);
     }
 }
@@ -40,6 +40,6 @@ public class VerboseLegacyEventStore extends AbstractLegacyEventStore
     public void initialize() throws InitializationException
     {
         // Enable events
-        initialize(100, true, false);
+        initialize(true, false);
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.eventstream.store.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.inject.Provider;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.namespace.NamespaceContextExecutor;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.namespace.WikiNamespace;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link LegacyEventSaver}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class LegacyEventSaverTest
+{
+    @InjectMockComponents
+    private LegacyEventSaver saver;
+
+    @MockComponent
+    private LegacyEventConverter eventConverter;
+
+    @MockComponent
+    private LegacyEventStreamStoreConfiguration configuration;
+
+    @MockComponent
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @MockComponent
+    private Provider<XWikiContext> contextProvider;
+
+    @MockComponent
+    private NamespaceContextExecutor namespaceContextExecutor;
+
+    private String currentWiki;
+
+    /**
+     * The events saved (possibly in a transaction which failed later) in each wiki.
+     */
+    private final List<String> saves = new ArrayList<>();
+
+    private boolean failMainBatch;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.configuration.useLocalStore()).thenReturn(true);
+        when(this.configuration.useMainStore()).thenReturn(true);
+        when(this.wikiDescriptorManager.getMainWikiId()).thenReturn("main");
+        when(this.wikiDescriptorManager.isMainWiki("main")).thenReturn(true);
+
+        when(this.namespaceContextExecutor.execute(any(), any())).thenAnswer(invocation -> {
+            this.currentWiki = ((WikiNamespace) invocation.getArgument(0)).getValue();
+            return ((Callable<?>) invocation.getArgument(1)).call();
+        });
+
+        XWikiContext context = mock(XWikiContext.class);
+        when(this.contextProvider.get()).thenReturn(context);
+        XWiki xwiki = mock(XWiki.class);
+        when(context.getWiki()).thenReturn(xwiki);
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        when(xwiki.getHibernateStore()).thenReturn(hibernateStore);
+        Session session = mock(Session.class);
+        when(hibernateStore.getSession(context)).thenReturn(session);
+        when(session.save(any())).thenAnswer(invocation -> {
+            LegacyEvent legacyEvent = invocation.getArgument(0);
+            this.saves.add(this.currentWiki + ':' + legacyEvent.getEventId());
+
+            if (this.failMainBatch && this.currentWiki.equals("main")) {
+                // Only fail the first attempt
+                this.failMainBatch = false;
+                throw new HibernateException("error");
+            }
+
+            return legacyEvent.getEventId();
+        });
+    }
+
+    private Event event(String id, String wiki)
+    {
+        Event event = mock(Event.class, id);
+
+        LegacyEvent legacyEvent = new LegacyEvent();
+        legacyEvent.setEventId(id);
+        legacyEvent.setWiki(wiki);
+        when(this.eventConverter.convertEventToLegacyActivity(event)).thenReturn(legacyEvent);
+
+        return event;
+    }
+
+    @Test
+    void saveEvents() throws Exception
+    {
+        this.saver.saveEvents(Arrays.asList(event("id1", "wiki"), event("id2", "main")));
+
+        assertEquals(Arrays.asList("wiki:id1", "main:id1", "main:id2"), this.saves);
+    }
+
+    @Test
+    void saveEventsWhenOneWikiFails() throws Exception
+    {
+        this.failMainBatch = true;
+
+        this.saver.saveEvents(Arrays.asList(event("id1", "wiki"), event("id2", "main")));
+
+        // The events are saved again one by one only in the wiki which failed
+        assertEquals(Arrays.asList("wiki:id1", "main:id1", "main:id1", "main:id2"), this.saves);
+    }
+}
@@ -22,6 +22,7 @@
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -58,6 +59,7 @@
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.internal.AbstractAsynchronousEventStore;
 import org.xwiki.eventstream.internal.DefaultEvent;
+import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.internal.StreamEventSearchResult;
 import org.xwiki.eventstream.query.AbstractPropertyQueryCondition;
 import org.xwiki.eventstream.query.CompareQueryCondition;
@@ -130,6 +132,9 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
     @Inject
     private Solr solr;
 
+    @Inject
+    private EventStreamConfiguration configuration;
+
     @Inject
     private SolrUtils utils;
 
@@ -149,7 +154,8 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
     @Override
     public void initialize() throws InitializationException
     {
-        initialize(100, false, true);
+        initialize(100, false, true, this.configuration.getEventStoreBatchSize(),
+            this.configuration.getEventStoreBatchLatency());
 
         try {
             this.client = this.solr.getClient(EventsSolrCoreInitializer.NAME);
@@ -182,6 +188,23 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
         return event;
     }
 
+    @Override
+    protected List<Event> syncSaveEvents(List<Event> events) throws EventStreamException
+    {
+        List<SolrInputDocument> documents = new ArrayList<>(events.size());
+        for (Event event : events) {
+            documents.add(toSolrInputDocument(event));
+        }
+
+        try {
+            this.client.add(documents);
+        } catch (Exception e) {
+            throw new EventStreamException("Failed to save events", e);
+        }
+
+        return events;
+    }
+
     @Override
     protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStreamException
     {
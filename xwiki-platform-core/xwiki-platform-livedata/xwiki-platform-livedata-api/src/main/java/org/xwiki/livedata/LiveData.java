@@ -25,6 +25,7 @@
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.xwiki.stability.Unstable;
 
 /**
  * The live data to display.
@@ -45,6 +46,11 @@
      */
     private final List<Map<String, Object>> entries = new LinkedList<>();
 
+    /**
+     * The continuation token that can be used to fetch the next page of entries.
+     */
+    private String cursor;
+
     /**
      * @return the total number of entries available
      */
@@ -71,10 +77,32 @@ public List<Map<String, Object>> getEntries()
         return entries;
     }
 
+    /**
+     * @return the opaque continuation token to pass to the next query (see {@link LiveDataQuery#setCursor(String)}) in
+     *         order to fetch the page of entries that follows, or {@code null} if there are no more entries or if the
+     *         live data source doesn't support this
+     * @since 14.4RC1
+     */
+    @Unstable
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * @param cursor the continuation token that can be used to fetch the next page of entries
+     * @since 14.4RC1
+     */
+    @Unstable
+    public void setCursor(String cursor)
+    {
+        this.cursor = cursor;
+    }
+
     @Override
     public int hashCode()
     {
-        return new HashCodeBuilder().append(getCount()).append(getEntries()).build();
+        return new HashCodeBuilder().append(getCount()).append(getEntries()).append(getCursor()).build();
     }
 
     @Override
@@ -87,7 +115,7 @@ public boolean equals(Object obj)
         if (obj instanceof LiveData) {
             LiveData liveData = (LiveData) obj;
             return new EqualsBuilder().append(getCount(), liveData.getCount())
-                .append(getEntries(), liveData.getEntries()).build();
+                .append(getEntries(), liveData.getEntries()).append(getCursor(), liveData.getCursor()).build();
         }
 
         return false;
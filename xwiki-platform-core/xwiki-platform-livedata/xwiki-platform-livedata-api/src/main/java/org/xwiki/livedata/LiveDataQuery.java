@@ -23,6 +23,8 @@
 import java.util.List;
 import java.util.stream.Stream;
 
+import org.xwiki.stability.Unstable;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
@@ -382,6 +384,11 @@ public void setDescending(boolean descending)
      */
     private Integer limit;
 
+    /**
+     * The continuation token returned along with the previous page of entries.
+     */
+    private String cursor;
+
     /**
      * @return the index where the current page of entries starts
      */
@@ -418,6 +425,33 @@ public void setLimit(Integer limit)
         this.limit = limit;
     }
 
+    /**
+     * @return the opaque continuation token returned by the live data source along with the previous page of entries
+     *         (see {@link LiveData#getCursor()}), or {@code null} if the current page should be located only using the
+     *         offset
+     * @since 14.4RC1
+     */
+    @Unstable
+    public String getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * Sets the continuation token returned along with the previous page of entries. Live data sources that support it
+     * use this token to resume right after the last entry of the previous page instead of skipping {@link #getOffset()}
+     * entries, which keeps the cost of a page constant whatever its position. The token is ignored if it doesn't match
+     * this query (e.g. the filters or the sort have changed in the mean time) or the offset.
+     * 
+     * @param cursor the continuation token
+     * @since 14.4RC1
+     */
+    @Unstable
+    public void setCursor(String cursor)
+    {
+        this.cursor = cursor;
+    }
+
     /**
      * @return the list of properties whose values we want to fetch
      */
@@ -0,0 +1,92 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+
+/**
+ * Keeps the number of entries matched by the live table queries for a short time, so that browsing the pages of a
+ * large live table doesn't count all its entries again for each page. The cached counts are approximate since they
+ * don't take into account the changes made during their (short) lifespan.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = LiveTableCountCache.class)
+@Singleton
+public class LiveTableCountCache implements Initializable, Disposable
+{
+    /**
+     * The number of seconds a count is kept in the cache.
+     */
+    private static final int LIFESPAN = 60;
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private Cache<Long> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        LRUCacheConfiguration configuration = new LRUCacheConfiguration("livedata.livetable.count", 1000);
+        configuration.getLRUEvictionConfiguration().setLifespan(LIFESPAN);
+        try {
+            this.cache = this.cacheManager.createNewCache(configuration);
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the live table count cache.", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.cache.dispose();
+    }
+
+    /**
+     * @param key the key identifying the query shape (statement, bound values, query filters, user, wiki)
+     * @return the cached count, or {@code null} if the count is not cached or has expired
+     */
+    public Long get(String key)
+    {
+        return this.cache.get(key);
+    }
+
+    /**
+     * @param key the key identifying the query shape (statement, bound values, query filters, user, wiki)
+     * @param count the number of entries matched by the query
+     */
+    public void set(String key, long count)
+    {
+        this.cache.set(key, count);
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.xwiki.livedata.internal.livetable;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -90,6 +91,9 @@ public class LiveTableLiveDataEntryStore extends WithParameters implements LiveD
     @Named(ROLE_HINT)
     private Provider<LiveDataConfiguration> liveDataConfigurationProvider;
 
+    @Inject
+    private Provider<XObjectLiveDataEntryStore> xobjectEntryStoreProvider;
+
     @Override
     public Optional<Map<String, Object>> get(Object entryId)
     {
@@ -99,6 +103,13 @@ public Optional<Map<String, Object>> get(Object entryId)
     @Override
     public LiveData get(LiveDataQuery query) throws LiveDataException
     {
+        // Compute the entries in Java, without rendering the default live table results page, when this page would
+        // produce the same result.
+        XObjectLiveDataEntryStore xobjectEntryStore = getXObjectEntryStore(query);
+        if (xobjectEntryStore != null) {
+            return xobjectEntryStore.get(query);
+        }
+
         try {
             // We need to allow backslash escaping because some live table sources are generating the JSON by hand
             // instead of serializing a map.
@@ -117,6 +128,24 @@ public LiveData get(LiveDataQuery query) throws LiveDataException
         }
     }
 
+    private XObjectLiveDataEntryStore getXObjectEntryStore(LiveDataQuery query) throws LiveDataException
+    {
+        Map<String, Object> parameters = new HashMap<>(getParameters());
+        if (query.getSource() != null) {
+            parameters.putAll(query.getSource().getParameters());
+        }
+
+        // The default live table results page is used only when no template and no result page is specified.
+        if (parameters.containsKey(LiveTableRequestHandler.TEMPLATE)
+            || parameters.containsKey(LiveTableRequestHandler.RESULT_PAGE)) {
+            return null;
+        }
+
+        XObjectLiveDataEntryStore xobjectEntryStore = this.xobjectEntryStoreProvider.get();
+        xobjectEntryStore.getParameters().putAll(parameters);
+        return xobjectEntryStore.isSupported(query) ? xobjectEntryStore : null;
+    }
+
     private ObjectNode getLiveTableResultsJSON(LiveDataQuery query, ObjectMapper objectMapper) throws Exception
     {
         // Merge the parameters of this live data source with the parameters from the given query.
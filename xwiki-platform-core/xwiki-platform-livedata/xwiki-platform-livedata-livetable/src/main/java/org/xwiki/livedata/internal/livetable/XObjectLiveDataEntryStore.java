@@ -0,0 +1,915 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.livedata.LiveData;
+import org.xwiki.livedata.LiveDataEntryStore;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Constraint;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.livedata.WithParameters;
+import org.xwiki.localization.ContextualLocalizationManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.BooleanClass;
+import com.xpn.xwiki.objects.classes.DBListClass;
+import com.xpn.xwiki.objects.classes.DateClass;
+import com.xpn.xwiki.objects.classes.LevelsClass;
+import com.xpn.xwiki.objects.classes.ListClass;
+import com.xpn.xwiki.objects.classes.NumberClass;
+import com.xpn.xwiki.objects.classes.PasswordClass;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+/**
+ * {@link LiveDataEntryStore} implementation that produces the same entries as the default live table results page
+ * ({@code XWiki.LiveTableResults}) for the documents holding an object of a given class, but without rendering any
+ * Velocity and without serializing the entries to JSON: the HQL query is built and executed directly and the access
+ * rights of the returned documents are checked in batch. Only the queries that the default live table results page
+ * would handle in the same way are supported, see {@link #isSupported(LiveDataQuery)}.
+ * <p>
+ * When the entries are sorted on a document field that is always set (or not sorted at all) the requested page is
+ * retrieved by seeking after the last entry of the previous page, whose sort values are encoded in the cursor returned
+ * along with the entries, instead of skipping all the previous entries. The count of entries can also be cached for a
+ * short time per query shape, by setting the {@code approximateCount} source parameter to {@code true}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = XObjectLiveDataEntryStore.class)
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+public class XObjectLiveDataEntryStore extends WithParameters implements LiveDataEntryStore
+{
+    private static final String CLASS_NAME_PARAMETER = "className";
+
+    private static final String TRANSLATION_PREFIX_PARAMETER = "translationPrefix";
+
+    private static final String QUERY_FILTERS_PARAMETER = "queryFilters";
+
+    private static final String APPROXIMATE_COUNT_PARAMETER = "approximateCount";
+
+    private static final Set<String> SUPPORTED_PARAMETERS = new HashSet<>(Arrays.asList(CLASS_NAME_PARAMETER,
+        TRANSLATION_PREFIX_PARAMETER, QUERY_FILTERS_PARAMETER, APPROXIMATE_COUNT_PARAMETER));
+
+    private static final String LANGUAGE_QUERY_FILTER = "language";
+
+    /**
+     * The query filters that only add constraints to the query and thus can be used when seeking the requested page.
+     */
+    private static final Set<String> KEYSET_QUERY_FILTERS =
+        new HashSet<>(Arrays.asList("hidden", "currentlanguage", LANGUAGE_QUERY_FILTER));
+
+    private static final String DOC_PREFIX = "doc.";
+
+    private static final String DOC_FULL_NAME = "doc.fullName";
+
+    private static final String DOC_LOCATION = "doc.location";
+
+    private static final String DOC_VIEWABLE = "doc.viewable";
+
+    /**
+     * The document fields that can be used to filter and sort.
+     */
+    private static final Set<String> DOC_FIELDS = new HashSet<>(
+        Arrays.asList("name", "fullName", "space", "title", "author", "creator", "hidden", "date", "creationDate"));
+
+    /**
+     * The document fields that are never null and thus can be used to seek the requested page. The string fields which
+     * can be empty (e.g. the title or the author) are excluded since some databases (e.g. Oracle) store an empty string
+     * as null, which would make the seek skip rows.
+     */
+    private static final Set<String> KEYSET_DOC_FIELDS =
+        new HashSet<>(Arrays.asList("name", "fullName", "space", "date", "creationDate"));
+
+    private static final String OBJECT_ID = "obj.id";
+
+    private static final String DOCUMENT_ID = "doc.id";
+
+    private static final String CURSOR_OFFSET = "offset";
+
+    private static final String CURSOR_SHAPE = "shape";
+
+    private static final String CURSOR_KEYS = "keys";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * The document fields that are ordered as raw values and not as strings.
+     */
+    private static final Set<String> RAW_DOC_FIELDS = new HashSet<>(Arrays.asList("date", "creationDate", "hidden"));
+
+    /**
+     * The document fields that are filtered as dates by the default live table results page.
+     */
+    private static final Set<String> DATE_DOC_FIELDS = new HashSet<>(Arrays.asList("date", "creationDate"));
+
+    private static final Set<String> STRING_TABLES = new HashSet<>(Arrays.asList("StringProperty",
+        "LargeStringProperty"));
+
+    private static final Set<String> NUMBER_TABLES = new HashSet<>(Arrays.asList("IntegerProperty", "LongProperty",
+        "FloatProperty", "DoubleProperty"));
+
+    private static final Set<String> LIST_TABLES = new HashSet<>(Arrays.asList("StringListProperty",
+        "DBStringListProperty"));
+
+    private static final String MATCH_PARTIAL = "contains";
+
+    private static final String MATCH_PREFIX = "startsWith";
+
+    private static final String MATCH_EXACT = "equals";
+
+    private static final String MATCH_EMPTY = "empty";
+
+    private static final String AND = " and ";
+
+    private static final String OR = " or ";
+
+    private static final String PERCENT = "%";
+
+    private static final String VIEW = "view";
+
+    private static final String HTML_MACRO_START = "{{html clean=\"false\" wiki=\"false\"}}";
+
+    private static final String HTML_MACRO_END = "{{/html}}";
+
+    private static final int DEFAULT_LIMIT = 15;
+
+    /**
+     * The precision used when filtering floating point numbers, same as the default live table results page.
+     */
+    private static final String PRECISION = "0.000001";
+
+    /**
+     * The parts of the HQL query that don't depend on the requested page.
+     */
+    private static final class QueryParts
+    {
+        private final StringBuilder from = new StringBuilder(", BaseObject as obj");
+
+        private final StringBuilder where = new StringBuilder();
+
+        private final Map<String, Object> bindings = new HashMap<>();
+
+        private List<String> queryFilters;
+
+        private String shape;
+
+        String getStatement()
+        {
+            return this.from.toString() + this.where;
+        }
+    }
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    private ContextualLocalizationManager localization;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localEntityReferenceSerializer;
+
+    @Inject
+    private LiveTableCountCache countCache;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public Optional<Map<String, Object>> get(Object entryId)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param query the live data query
+     * @return {@code true} if this store produces the same result as the default live table results page for the given
+     *         query, {@code false} if the query should be handled by the live table results page
+     * @throws LiveDataException if the class of the listed objects can't be loaded
+     */
+    public boolean isSupported(LiveDataQuery query) throws LiveDataException
+    {
+        if (!SUPPORTED_PARAMETERS.containsAll(getParameters().keySet())) {
+            return false;
+        }
+
+        BaseClass xclass = getXClass();
+        if (xclass == null) {
+            return false;
+        }
+
+        return (query.getProperties() == null
+            || query.getProperties().stream().allMatch(property -> isSupportedProperty(property, xclass)))
+            && (query.getFilters() == null
+                || query.getFilters().stream().allMatch(filter -> isSupportedFilter(filter, xclass)))
+            && isSupportedSort(query.getSort(), xclass);
+    }
+
+    @Override
+    public LiveData get(LiveDataQuery query) throws LiveDataException
+    {
+        try {
+            BaseClass xclass = getXClass();
+            QueryParts parts = new QueryParts();
+            parts.queryFilters = getQueryFilters();
+            String order = addConstraints(query, xclass, parts.from, parts.where, parts.bindings);
+            // Identifies the query independently of the requested page.
+            parts.shape = parts.getStatement() + order + new TreeMap<>(parts.bindings) + parts.queryFilters;
+
+            int offset = query.getOffset() != null ? Math.max(query.getOffset().intValue(), 0) : 0;
+            int limit = query.getLimit() != null && query.getLimit() > 0 ? query.getLimit() : DEFAULT_LIMIT;
+
+            LiveData liveData = new LiveData();
+            List<String> keyColumns = getKeyColumns(query.getSort(), parts.queryFilters);
+            List<Object> items;
+            if (keyColumns == null) {
+                Query hqlQuery = createQuery(parts.getStatement() + order, parts.bindings, parts.queryFilters);
+                items = hqlQuery.setOffset(offset).setLimit(limit).execute();
+            } else {
+                items = getPageAfterCursor(query, parts, keyColumns, offset, limit, liveData);
+            }
+
+            liveData.setCount(count(parts));
+            liveData.getEntries().addAll(getEntries(items, query, xclass));
+
+            // When all the results fit in a single page we remove the obfuscated entries since this has no impact on
+            // the pagination.
+            if (liveData.getCount() <= liveData.getEntries().size()) {
+                liveData.getEntries().removeIf(entry -> !Boolean.TRUE.equals(entry.get(DOC_VIEWABLE)));
+                liveData.setCount(liveData.getEntries().size());
+            }
+
+            return liveData;
+        } catch (Exception e) {
+            throw new LiveDataException("Failed to execute the live data query.", e);
+        }
+    }
+
+    private BaseClass getXClass() throws LiveDataException
+    {
+        Object className = getParameters().get(CLASS_NAME_PARAMETER);
+        if (!(className instanceof String) || StringUtils.isEmpty((String) className)) {
+            return null;
+        }
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        try {
+            DocumentReference classReference = this.currentDocumentReferenceResolver.resolve((String) className);
+            BaseClass xclass = xcontext.getWiki().getXClass(classReference, xcontext);
+            return xclass == null || xclass.getPropertyList().isEmpty() ? null : xclass;
+        } catch (Exception e) {
+            throw new LiveDataException(String.format("Failed to load the class [%s].", className), e);
+        }
+    }
+
+    private boolean isSupportedProperty(String property, BaseClass xclass)
+    {
+        if (property.startsWith(DOC_PREFIX)) {
+            // The location is displayed using the document hierarchy which is only available in Velocity.
+            return !DOC_LOCATION.equals(property);
+        } else {
+            return xclass.get(property) instanceof PropertyClass;
+        }
+    }
+
+    private boolean isSupportedFilter(Filter filter, BaseClass xclass)
+    {
+        List<Constraint> constraints = getConstraints(filter);
+        if (constraints.isEmpty()) {
+            // The filter is ignored.
+            return true;
+        }
+
+        String property = filter.getProperty();
+        if (property.startsWith(DOC_PREFIX)) {
+            String field = StringUtils.removeStart(property, DOC_PREFIX);
+            return DOC_FIELDS.contains(field) && !DATE_DOC_FIELDS.contains(field);
+        } else if (xclass.get(property) instanceof PropertyClass) {
+            String table = getTableName((PropertyClass) xclass.get(property));
+            if (NUMBER_TABLES.contains(table)) {
+                // Only the first filter value is taken into account for numbers.
+                return NumberUtils.isCreatable(String.valueOf(constraints.get(0).getValue()));
+            }
+            return STRING_TABLES.contains(table);
+        }
+
+        return false;
+    }
+
+    private boolean isSupportedSort(List<SortEntry> sort, BaseClass xclass)
+    {
+        if (sort == null || sort.isEmpty()) {
+            return true;
+        }
+
+        // Only the first sort entry is taken into account, same as the default live table results page.
+        String property = sort.get(0).getProperty();
+        if (property.startsWith(DOC_PREFIX)) {
+            return DOC_LOCATION.equals(property) || DOC_FIELDS.contains(StringUtils.removeStart(property, DOC_PREFIX));
+        } else {
+            return xclass.get(property) instanceof PropertyClass;
+        }
+    }
+
+    private List<Constraint> getConstraints(Filter filter)
+    {
+        return filter.getConstraints().stream()
+            .filter(constraint -> constraint != null && constraint.getValue() != null).collect(Collectors.toList());
+    }
+
+    private String getTableName(PropertyClass xproperty)
+    {
+        // The name of the Hibernate entity used to store the property values.
+        return xproperty.newProperty().getClass().getSimpleName();
+    }
+
+    private String getTableAlias(String property)
+    {
+        // Force a prefix to avoid the cases when the property name is a reserved SQL keyword.
+        return "prop_" + property.replaceAll("\\W", "");
+    }
+
+    private List<String> getQueryFilters()
+    {
+        Object queryFilters = getParameters().get(QUERY_FILTERS_PARAMETER);
+        if (queryFilters instanceof String) {
+            return Arrays.asList(StringUtils.split((String) queryFilters, ", "));
+        }
+        return Collections.emptyList();
+    }
+
+    private String addConstraints(LiveDataQuery query, BaseClass xclass, StringBuilder from, StringBuilder where,
+        Map<String, Object> bindings)
+    {
+        String className = (String) getParameters().get(CLASS_NAME_PARAMETER);
+
+        where.append(" where obj.name = doc.fullName and obj.className = :className"
+            + " and doc.fullName not in (:classTemplate1, :classTemplate2)");
+        bindings.put(CLASS_NAME_PARAMETER, className);
+        bindings.put("classTemplate1", className + "Template");
+        bindings.put("classTemplate2", className.replaceAll("Class$", "Template"));
+
+        Set<String> joinedProperties = new HashSet<>();
+        if (query.getFilters() != null) {
+            for (Filter filter : query.getFilters()) {
+                List<Constraint> constraints = getConstraints(filter);
+                if (!constraints.isEmpty()) {
+                    addFilter(filter, constraints, xclass, from, where, bindings, joinedProperties);
+                }
+            }
+        }
+
+        return getOrder(query.getSort(), xclass, from, where, bindings, joinedProperties);
+    }
+
+    private Query createQuery(String statement, Map<String, Object> bindings, List<String> queryFilters)
+        throws Exception
+    {
+        Query hqlQuery = this.queryManager.createQuery(statement, Query.HQL);
+        bindings.forEach(hqlQuery::bindValue);
+
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        for (String queryFilter : queryFilters) {
+            if (componentManager.hasComponent(QueryFilter.class, queryFilter)) {
+                hqlQuery.addFilter(componentManager.getInstance(QueryFilter.class, queryFilter));
+            }
+        }
+
+        return hqlQuery;
+    }
+
+    /**
+     * @return the columns to use in order to seek the requested page, starting with the sort column and ending with
+     *         columns that identify the rows, or {@code null} if the query has to be paginated using the offset
+     */
+    private List<String> getKeyColumns(List<SortEntry> sort, List<String> queryFilters)
+    {
+        // Query filters that modify the results or the selected columns don't support seeking.
+        if (!KEYSET_QUERY_FILTERS.containsAll(queryFilters)) {
+            return null;
+        }
+
+        List<String> keyColumns = new ArrayList<>();
+        if (sort != null && !sort.isEmpty()) {
+            String property = sort.get(0).getProperty();
+            if (DOC_LOCATION.equals(property)) {
+                property = DOC_FULL_NAME;
+            }
+            String field = StringUtils.removeStart(property, DOC_PREFIX);
+            // We can't seek after a null value so we only support the document fields that are always set.
+            if (!property.startsWith(DOC_PREFIX) || !KEYSET_DOC_FIELDS.contains(field)) {
+                return null;
+            }
+            if (!RAW_DOC_FIELDS.contains(field)) {
+                keyColumns.add("lower(" + property + ')');
+            }
+            keyColumns.add(property);
+        }
+        // The same document is listed once for each object and once for each translation (when there is no language
+        // filter).
+        keyColumns.add(OBJECT_ID);
+        keyColumns.add(DOCUMENT_ID);
+
+        return keyColumns;
+    }
+
+    private List<Object> getPageAfterCursor(LiveDataQuery query, QueryParts parts, List<String> keyColumns,
+        int offset, int limit, LiveData liveData) throws Exception
+    {
+        boolean descending =
+            query.getSort() != null && !query.getSort().isEmpty() && query.getSort().get(0).isDescending();
+        String direction = descending ? " desc" : " asc";
+
+        // Select the key columns in order to compute the cursor of the next page. The language is always selected so
+        // that the language query filter is not needed.
+        StringBuilder statement = new StringBuilder("select doc.fullName, doc.language, ")
+            .append(StringUtils.join(keyColumns, ", ")).append(" from XWikiDocument doc").append(parts.getStatement());
+        Map<String, Object> pageBindings = new HashMap<>(parts.bindings);
+        String shapeHash = DigestUtils.md5Hex(parts.shape);
+        List<Object> cursorKeys = getCursorKeys(query.getCursor(), shapeHash, offset, keyColumns);
+        if (cursorKeys != null) {
+            statement.append(AND).append(getSeekCondition(keyColumns, cursorKeys, descending ? " < " : " > ",
+                pageBindings));
+        }
+        statement.append(" order by ")
+            .append(keyColumns.stream().map(column -> column + direction).collect(Collectors.joining(", ")));
+
+        List<String> pageQueryFilters = new ArrayList<>(parts.queryFilters);
+        boolean withLanguage = pageQueryFilters.remove(LANGUAGE_QUERY_FILTER);
+        Query hqlQuery = createQuery(statement.toString(), pageBindings, pageQueryFilters);
+        List<Object[]> rows = hqlQuery.setOffset(cursorKeys != null ? 0 : offset).setLimit(limit).execute();
+
+        List<Object> items = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            items.add(new Object[] {row[0], withLanguage ? row[1] : ""});
+        }
+
+        // There may be more results.
+        if (rows.size() == limit) {
+            Object[] lastRow = rows.get(rows.size() - 1);
+            List<Object> nextKeys = new ArrayList<>(keyColumns.size());
+            for (int i = 2; i < lastRow.length; i++) {
+                nextKeys.add(lastRow[i] instanceof Date ? ((Date) lastRow[i]).getTime() : lastRow[i]);
+            }
+            Map<String, Object> nextCursor = new HashMap<>();
+            nextCursor.put(CURSOR_OFFSET, offset + rows.size());
+            nextCursor.put(CURSOR_SHAPE, shapeHash);
+            nextCursor.put(CURSOR_KEYS, nextKeys);
+            liveData.setCursor(Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(OBJECT_MAPPER.writeValueAsBytes(nextCursor)));
+        }
+
+        return items;
+    }
+
+    /**
+     * @return the values of the key columns for the last row of the previous page, or {@code null} if the given cursor
+     *         is missing, invalid or doesn't match the current query and offset
+     */
+    private List<Object> getCursorKeys(String cursor, String shapeHash, int offset, List<String> keyColumns)
+    {
+        if (StringUtils.isEmpty(cursor)) {
+            return null;
+        }
+
+        try {
+            Map<?, ?> values = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), Map.class);
+            List<?> keys = (List<?>) values.get(CURSOR_KEYS);
+            if (!shapeHash.equals(values.get(CURSOR_SHAPE)) || !(values.get(CURSOR_OFFSET) instanceof Number)
+                || ((Number) values.get(CURSOR_OFFSET)).intValue() != offset || keys.size() != keyColumns.size()) {
+                return null;
+            }
+
+            List<Object> cursorKeys = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                String column = keyColumns.get(i);
+                Object key = keys.get(i);
+                if (column.endsWith(".id")) {
+                    cursorKeys.add(((Number) key).longValue());
+                } else if (DATE_DOC_FIELDS.contains(StringUtils.removeStart(column, DOC_PREFIX))) {
+                    cursorKeys.add(new Date(((Number) key).longValue()));
+                } else {
+                    cursorKeys.add((String) key);
+                }
+            }
+            return cursorKeys;
+        } catch (Exception e) {
+            this.logger.debug("Ignoring invalid live data cursor [{}]. Root cause is [{}].", cursor,
+                ExceptionUtils.getRootCauseMessage(e));
+            return null;
+        }
+    }
+
+    private String getSeekCondition(List<String> keyColumns, List<Object> cursorKeys, String operator,
+        Map<String, Object> bindings)
+    {
+        // (k1 > :c1 or (k1 = :c1 and (k2 > :c2 or (k2 = :c2 and ...))))
+        int last = keyColumns.size() - 1;
+        String condition = keyColumns.get(last) + operator + ":cursor_" + last;
+        bindings.put("cursor_" + last, cursorKeys.get(last));
+        for (int i = last - 1; i >= 0; i--) {
+            String parameter = "cursor_" + i;
+            condition = String.format("(%1$s%2$s:%3$s or (%1$s = :%3$s and %4$s))", keyColumns.get(i), operator,
+                parameter, condition);
+            bindings.put(parameter, cursorKeys.get(i));
+        }
+        return condition;
+    }
+
+    private void joinProperty(String property, String table, StringBuilder from, StringBuilder where,
+        Map<String, Object> bindings, Set<String> joinedProperties)
+    {
+        String alias = getTableAlias(property);
+        if (joinedProperties.add(alias)) {
+            from.append(", ").append(table).append(" as ").append(alias);
+            where.append(" and obj.id = ").append(alias).append(".id.id and ").append(alias).append(".id.name = :")
+                .append(alias).append("_name");
+            bindings.put(alias + "_name", property);
+        }
+    }
+
+    private void addFilter(Filter filter, List<Constraint> constraints, BaseClass xclass, StringBuilder from,
+        StringBuilder where, Map<String, Object> bindings, Set<String> joinedProperties)
+    {
+        String property = filter.getProperty();
+        if (property.startsWith(DOC_PREFIX)) {
+            // The default live table results page performs partial matching on the first filter value, whatever the
+            // match type.
+            String parameter = property.replace('.', '_') + "_filter";
+            where.append(" and upper(str(").append(property).append(")) like upper(:").append(parameter).append(')');
+            bindings.put(parameter, PERCENT + constraints.get(0).getValue() + PERCENT);
+            return;
+        }
+
+        PropertyClass xproperty = (PropertyClass) xclass.get(property);
+        String table = getTableName(xproperty);
+        joinProperty(property, table, from, where, bindings, joinedProperties);
+
+        String alias = getTableAlias(property);
+        if (NUMBER_TABLES.contains(table)) {
+            addNumberFilter(alias, table, constraints.get(0).getValue(), where, bindings);
+        } else {
+            // Perform exact matching by default for the list properties stored as strings (single value and no
+            // relational storage) and partial matching otherwise.
+            String defaultOperator = xproperty instanceof ListClass ? MATCH_EXACT : MATCH_PARTIAL;
+            addStringFilter(alias, constraints, defaultOperator, filter.isMatchAll(), where, bindings);
+        }
+    }
+
+    private void addNumberFilter(String alias, String table, Object value, StringBuilder where,
+        Map<String, Object> bindings)
+    {
+        Number number = NumberUtils.createNumber(String.valueOf(value));
+        String parameter = alias + "_value";
+        if ("LongProperty".equals(table)) {
+            where.append(AND).append(alias).append(".value = :").append(parameter);
+            bindings.put(parameter, number.longValue());
+        } else if ("IntegerProperty".equals(table)) {
+            where.append(AND).append(alias).append(".value = :").append(parameter);
+            bindings.put(parameter, number.intValue());
+        } else {
+            where.append(" and abs(:").append(parameter).append(" - ").append(alias).append(".value) <= ")
+                .append(PRECISION);
+            bindings.put(parameter, "FloatProperty".equals(table) ? number.floatValue() : number.doubleValue());
+        }
+    }
+
+    private void addStringFilter(String alias, List<Constraint> constraints, String defaultOperator,
+        boolean matchAll, StringBuilder where, Map<String, Object> bindings)
+    {
+        String column = alias + ".value";
+        String joinOperator = matchAll ? AND : OR;
+
+        // Group the filter values by operator so that we can optimize the query.
+        Map<String, List<Object>> valuesByOperator = new LinkedHashMap<>();
+        for (Constraint constraint : constraints) {
+            String operator = StringUtils.defaultIfEmpty(constraint.getOperator(), defaultOperator);
+            valuesByOperator.computeIfAbsent(operator, key -> new ArrayList<>()).add(constraint.getValue());
+        }
+
+        List<String> conditions = new ArrayList<>();
+        int index = 1;
+        for (Map.Entry<String, List<Object>> entry : valuesByOperator.entrySet()) {
+            String operator = entry.getKey();
+            List<String> parameters = new ArrayList<>();
+            for (Object value : entry.getValue()) {
+                String parameter = alias + "_value_" + index++;
+                parameters.add(':' + parameter);
+                if (MATCH_PARTIAL.equals(operator)) {
+                    bindings.put(parameter, PERCENT + value + PERCENT);
+                } else if (MATCH_PREFIX.equals(operator)) {
+                    bindings.put(parameter, value + PERCENT);
+                } else if (MATCH_EMPTY.equals(operator)) {
+                    bindings.put(parameter, "");
+                } else {
+                    bindings.put(parameter, String.valueOf(value));
+                }
+            }
+            conditions.add(getStringCondition(column, operator, parameters, joinOperator));
+        }
+
+        where.append(" and (").append(StringUtils.join(conditions, joinOperator)).append(')');
+    }
+
+    private String getStringCondition(String column, String operator, List<String> parameters, String joinOperator)
+    {
+        if (MATCH_PARTIAL.equals(operator) || MATCH_PREFIX.equals(operator)) {
+            return parameters.stream().map(parameter -> "upper(" + column + ") like upper(" + parameter + ')')
+                .collect(Collectors.joining(joinOperator));
+        } else if (MATCH_EMPTY.equals(operator)) {
+            // Oracle stores the empty string as a NULL value.
+            return parameters.stream().map(parameter -> '(' + column + " like " + parameter + OR + column + " is null)")
+                .collect(Collectors.joining(joinOperator));
+        } else if (parameters.size() > 1 && OR.equals(joinOperator)) {
+            return column + " in (" + StringUtils.join(parameters, ", ") + ')';
+        } else {
+            return parameters.stream().map(parameter -> column + " = " + parameter).collect(Collectors.joining(AND));
+        }
+    }
+
+    private String getOrder(List<SortEntry> sort, BaseClass xclass, StringBuilder from, StringBuilder where,
+        Map<String, Object> bindings, Set<String> joinedProperties)
+    {
+        if (sort == null || sort.isEmpty()) {
+            return "";
+        }
+
+        String property = sort.get(0).getProperty();
+        String direction = sort.get(0).isDescending() ? "desc" : "asc";
+        if (DOC_LOCATION.equals(property)) {
+            property = DOC_FULL_NAME;
+        }
+
+        if (property.startsWith(DOC_PREFIX)) {
+            return getOrderClause(property, direction,
+                RAW_DOC_FIELDS.contains(StringUtils.removeStart(property, DOC_PREFIX)));
+        }
+
+        PropertyClass xproperty = (PropertyClass) xclass.get(property);
+        String table = getTableName(xproperty);
+        if (LIST_TABLES.contains(table)) {
+            // We can only order single values, not multiple selection lists.
+            return "";
+        }
+
+        joinProperty(property, table, from, where, bindings, joinedProperties);
+
+        // Some property types do not need lowercasing since they have unique values by design.
+        boolean useRawValue = xproperty instanceof NumberClass || xproperty instanceof BooleanClass
+            || xproperty instanceof DateClass || xproperty instanceof LevelsClass;
+        return getOrderClause(getTableAlias(property) + ".value", direction, useRawValue);
+    }
+
+    private String getOrderClause(String field, String direction, boolean useRawValue)
+    {
+        if (useRawValue) {
+            return String.format(" order by %s %s", field, direction);
+        } else {
+            // We first ignore the case (so that e.g. 'aaa' equals 'AAA') but then consider it only for equal values (so
+            // that e.g. 'AAA' comes before 'aaa').
+            return String.format(" order by lower(%1$s) %2$s, %1$s %2$s", field, direction);
+        }
+    }
+
+    private long count(QueryParts parts) throws Exception
+    {
+        String cacheKey = null;
+        if (Boolean.parseBoolean(String.valueOf(getParameters().get(APPROXIMATE_COUNT_PARAMETER)))) {
+            // The query filters (e.g. the hidden filter) may depend on the current user preferences.
+            XWikiContext xcontext = this.xcontextProvider.get();
+            cacheKey = xcontext.getWikiId() + ':' + xcontext.getUserReference() + ':' + parts.shape;
+            Long count = this.countCache.get(cacheKey);
+            if (count != null) {
+                return count;
+            }
+        }
+
+        Query countQuery = createQuery(parts.getStatement(), parts.bindings, parts.queryFilters);
+        countQuery.addFilter(this.componentManagerProvider.get().getInstance(QueryFilter.class, "count"));
+
+        List<Long> results = countQuery.execute();
+        long count = results.get(0);
+        if (cacheKey != null) {
+            this.countCache.set(cacheKey, count);
+        }
+        return count;
+    }
+
+    private List<Map<String, Object>> getEntries(List<Object> items, LiveDataQuery query, BaseClass xclass)
+        throws Exception
+    {
+        // Some query filters (e.g. the language filter) return the document locale along with the document name.
+        List<DocumentReference> documentReferences = new ArrayList<>(items.size());
+        List<String> locales = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof Object[]) {
+                Object[] values = (Object[]) item;
+                documentReferences.add(this.currentDocumentReferenceResolver.resolve((String) values[0]));
+                locales.add(values.length > 1 ? Objects.toString(values[1], "") : "");
+            } else {
+                documentReferences.add(this.currentDocumentReferenceResolver.resolve((String) item));
+                locales.add("");
+            }
+        }
+
+        BitSet viewable = this.authorization.hasAccessBatch(Right.VIEW, documentReferences);
+        BitSet editable = this.authorization.hasAccessBatch(Right.EDIT, documentReferences);
+        BitSet deletable = this.authorization.hasAccessBatch(Right.DELETE, documentReferences);
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        boolean hasAdmin = this.authorization.hasAccess(Right.ADMIN);
+        boolean isAdvancedUser = (xcontext.getUserReference() == null && hasAdmin)
+            || "Advanced".equals(xcontext.getWiki().getUserPreference("usertype", xcontext));
+        List<String> properties =
+            query.getProperties() != null ? query.getProperties() : Collections.<String>emptyList();
+
+        List<Map<String, Object>> entries = new ArrayList<>(items.size());
+        for (int i = 0; i < documentReferences.size(); i++) {
+            Map<String, Object> entry = new HashMap<>();
+            if (viewable.get(i)) {
+                entry.put("doc.hasadmin", hasAdmin);
+                entry.put("doc.hasedit", editable.get(i));
+                entry.put("doc.hasdelete", deletable.get(i));
+                entry.put("doc.hasrename", deletable.get(i));
+                entry.put("doc.hasrights", editable.get(i) && isAdvancedUser);
+                XWikiDocument document = xcontext.getWiki().getDocument(documentReferences.get(i), xcontext);
+                addDocumentValues(document, locales.get(i), entry, xcontext);
+                addObjectValues(document, properties, xclass, entry, xcontext);
+            } else {
+                entry.put(DOC_VIEWABLE, false);
+                entry.put(DOC_FULL_NAME, "obfuscated");
+            }
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    private void addDocumentValues(XWikiDocument document, String locale, Map<String, Object> entry,
+        XWikiContext xcontext) throws Exception
+    {
+        XWiki xwiki = xcontext.getWiki();
+        DocumentReference documentReference = document.getDocumentReference();
+
+        entry.put(DOC_VIEWABLE, true);
+        entry.put("doc.hascopy", true);
+        entry.put(DOC_FULL_NAME, this.localEntityReferenceSerializer.serialize(documentReference));
+        entry.put("doc.space", this.localEntityReferenceSerializer.serialize(documentReference.getParent()));
+        entry.put("doc.url", xwiki.getURL(documentReference, VIEW, xcontext));
+        entry.put("doc.space_url", xwiki.getURL(documentReference.getParent(), xcontext));
+        entry.put("doc.wiki", documentReference.getWikiReference().getName());
+        entry.put("doc.wiki_url", xwiki.getURL(documentReference.getWikiReference(), xcontext));
+        entry.put("doc.copy_url", xwiki.getURL(documentReference, VIEW, "xpage=copy", null, xcontext));
+        entry.put("doc.delete_url", xwiki.getURL(documentReference, "delete", xcontext));
+        entry.put("doc.rename_url", xwiki.getURL(documentReference, VIEW, "xpage=rename&step=1", null, xcontext));
+        if ("WebHome".equals(documentReference.getName())) {
+            // For nested pages, use the page administration.
+            DocumentReference webPreferencesReference =
+                new DocumentReference("WebPreferences", documentReference.getLastSpaceReference());
+            entry.put("doc.rights_url", xwiki.getURL(webPreferencesReference, "admin",
+                "editor=spaceadmin&section=PageRights", null, xcontext));
+        } else {
+            // For terminal pages, use the old rights editor.
+            entry.put("doc.rights_url", xwiki.getURL(documentReference, "edit", "editor=rights", null, xcontext));
+        }
+
+        boolean isTranslation =
+            !StringUtils.isEmpty(locale) && !locale.equals(xwiki.getLanguagePreference(xcontext));
+        XWikiDocument translatedDocument = isTranslation ? document.getTranslatedDocument(locale, xcontext)
+            : document.getTranslatedDocument(xcontext);
+
+        // Display the locale after the document name so that not all translated documents have the same name
+        // displayed.
+        entry.put("doc.name", isTranslation ? String.format("%s (%s)", documentReference.getName(), locale)
+            : documentReference.getName());
+        entry.put("doc.edit_url", document.getURL(document.getDefaultEditMode(xcontext), xcontext));
+        if (translatedDocument.getAuthorReference() != null) {
+            entry.put("doc.author_url", xwiki.getURL(translatedDocument.getAuthorReference(), VIEW, xcontext));
+        }
+        entry.put("doc.date", xwiki.formatDate(translatedDocument.getDate(), null, xcontext));
+        String title = translatedDocument.getRenderedTitle(Syntax.PLAIN_1_0, xcontext);
+        entry.put("doc.title", title);
+        if (!Objects.equals(title, translatedDocument.getTitle())) {
+            entry.put("doc.title_raw", translatedDocument.getTitle());
+        }
+        entry.put("doc.author", xwiki.getPlainUserName(translatedDocument.getAuthorReference(), xcontext));
+        entry.put("doc.creationDate", xwiki.formatDate(translatedDocument.getCreationDate(), null, xcontext));
+        entry.put("doc.creator", xwiki.getPlainUserName(translatedDocument.getCreatorReference(), xcontext));
+        entry.put("doc.hidden", translatedDocument.isHidden());
+    }
+
+    private void addObjectValues(XWikiDocument document, List<String> properties, BaseClass xclass,
+        Map<String, Object> entry, XWikiContext xcontext)
+    {
+        XWiki xwiki = xcontext.getWiki();
+        entry.put("doc.objectCount", document.getXObjectSize(xclass.getDocumentReference()));
+
+        BaseObject xobject = document.getXObject(xclass.getDocumentReference());
+        for (String property : properties) {
+            if (property.startsWith(DOC_PREFIX)) {
+                continue;
+            }
+
+            PropertyClass xproperty = (PropertyClass) xclass.get(property);
+            BaseProperty<?> value = xobject != null ? (BaseProperty<?>) xobject.safeget(property) : null;
+            String rawValue = value != null ? Objects.toString(value.getValue(), "") : "";
+
+            String displayValue = xobject != null ? document.display(property, VIEW, xobject, xcontext) : "";
+            displayValue = StringUtils.removeEnd(StringUtils.replaceOnce(displayValue, HTML_MACRO_START, ""),
+                HTML_MACRO_END);
+            if (StringUtils.isEmpty(displayValue)) {
+                String key = Objects.toString(getParameters().get(TRANSLATION_PREFIX_PARAMETER), "") + "emptyvalue";
+                displayValue = StringUtils.defaultString(this.localization.getTranslationPlain(key), key);
+            }
+
+            String url = "";
+            // Only retrieve an URL for the single selection DBList and Page properties.
+            if (xproperty instanceof DBListClass && !((DBListClass) xproperty).isMultiSelect()
+                && !rawValue.isEmpty()) {
+                url = xwiki.getURL(this.currentDocumentReferenceResolver.resolve(rawValue), VIEW, xcontext);
+            }
+
+            entry.put(property, displayValue);
+            entry.put(property + "_value", xproperty instanceof PasswordClass ? "********" : rawValue);
+            entry.put(property + "_url", url);
+        }
+    }
+}
@@ -54,6 +54,7 @@
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -86,6 +87,9 @@
     @Named(LiveTableLiveDataEntryStore.ROLE_HINT)
     private Provider<LiveDataConfiguration> liveDataConfigurationProvider;
 
+    @MockComponent
+    private XObjectLiveDataEntryStore xobjectEntryStore;
+
     @Mock
     private LiveDataConfiguration liveDataConfiguration;
 
@@ -177,6 +181,31 @@ void getFromDefaultResultPage() throws Exception
         assertEquals(expectedLiveData, this.entryStore.get(new LiveDataQuery()));
     }
 
+    @Test
+    void getFromXObjectEntryStore() throws Exception
+    {
+        this.entryStore.getParameters().put("className", "Some.Class");
+
+        LiveDataQuery query = new LiveDataQuery();
+        query.setSource(new Source());
+        query.getSource().setParameter("translationPrefix", "some.");
+
+        Map<String, Object> parameters = new HashMap<>();
+        when(this.xobjectEntryStore.getParameters()).thenReturn(parameters);
+        when(this.xobjectEntryStore.isSupported(query)).thenReturn(true);
+
+        LiveData liveData = new LiveData();
+        when(this.xobjectEntryStore.get(query)).thenReturn(liveData);
+
+        assertEquals(liveData, this.entryStore.get(query));
+
+        Map<String, Object> expectedParameters = new HashMap<>();
+        expectedParameters.put("className", "Some.Class");
+        expectedParameters.put("translationPrefix", "some.");
+        assertEquals(expectedParameters, parameters);
+        verify(this.resultsRenderer, never()).getLiveTableResultsFromPage(any(), any());
+    }
+
     @Test
     void getFromDefaultResultPageWithInvalidJSON() throws Exception
     {
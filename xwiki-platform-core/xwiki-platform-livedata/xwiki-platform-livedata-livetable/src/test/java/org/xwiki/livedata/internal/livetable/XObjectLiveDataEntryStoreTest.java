@@ -0,0 +1,376 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.livedata.LiveData;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.classes.BaseClass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XObjectLiveDataEntryStore}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@ComponentTest
+class XObjectLiveDataEntryStoreTest
+{
+    private static final DocumentReference CLASS_REFERENCE = new DocumentReference("wiki", "Some", "TaskClass");
+
+    @InjectMockComponents
+    private XObjectLiveDataEntryStore entryStore;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorization;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @MockComponent
+    @Named("local")
+    private EntityReferenceSerializer<String> localEntityReferenceSerializer;
+
+    @MockComponent
+    private LiveTableCountCache countCache;
+
+    @Mock
+    private ComponentManager componentManager;
+
+    @Mock
+    private XWikiContext xcontext;
+
+    @Mock
+    private XWiki xwiki;
+
+    @BeforeEach
+    void before() throws Exception
+    {
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+        when(this.componentManagerProvider.get()).thenReturn(this.componentManager);
+
+        BaseClass xclass = new BaseClass();
+        xclass.setDocumentReference(CLASS_REFERENCE);
+        xclass.addTextField("status", "Status", 30);
+        xclass.addNumberField("priority", "Priority", 5, "integer");
+        xclass.addStaticListField("tags", "Tags", 5, true, "a|b|c");
+
+        when(this.currentDocumentReferenceResolver.resolve("Some.TaskClass")).thenReturn(CLASS_REFERENCE);
+        when(this.xwiki.getXClass(CLASS_REFERENCE, this.xcontext)).thenReturn(xclass);
+
+        this.entryStore.getParameters().put("className", "Some.TaskClass");
+        this.entryStore.getParameters().put("queryFilters", "hidden");
+    }
+
+    @Test
+    void isSupported() throws Exception
+    {
+        LiveDataQuery query = new LiveDataQuery();
+        query.setProperties(Arrays.asList("doc.title", "status", "priority", "tags"));
+        query.setFilters(Arrays.asList(new Filter("status", "startsWith", "op"), new Filter("doc.author", "Alice")));
+        query.setSort(Collections.singletonList(new SortEntry("priority", true)));
+        assertTrue(this.entryStore.isSupported(query));
+
+        // The location is displayed using Velocity.
+        query.setProperties(Collections.singletonList("doc.location"));
+        assertFalse(this.entryStore.isSupported(query));
+
+        // Special columns are computed by the live table results page.
+        query.setProperties(Collections.singletonList("_actions"));
+        assertFalse(this.entryStore.isSupported(query));
+
+        // Date and list filters are handled by the live table results page.
+        query.setProperties(Collections.singletonList("status"));
+        query.setFilters(Collections.singletonList(new Filter("doc.date", "2022")));
+        assertFalse(this.entryStore.isSupported(query));
+        query.setFilters(Collections.singletonList(new Filter("tags", "a")));
+        assertFalse(this.entryStore.isSupported(query));
+
+        // Unknown source parameters (e.g. the tag filter) are handled by the live table results page.
+        query.setFilters(null);
+        this.entryStore.getParameters().put("tag", "Tutorial");
+        assertFalse(this.entryStore.isSupported(query));
+    }
+
+    @Test
+    void isSupportedWithoutClass() throws Exception
+    {
+        this.entryStore.getParameters().remove("className");
+
+        assertFalse(this.entryStore.isSupported(new LiveDataQuery()));
+    }
+
+    @Test
+    void get() throws Exception
+    {
+        LiveDataQuery query = new LiveDataQuery();
+        query.setProperties(Collections.singletonList("doc.name"));
+        query.setFilters(Collections.singletonList(new Filter("status", false, "open", "closed")));
+        query.setSort(Collections.singletonList(new SortEntry("priority", true)));
+        query.setOffset(10L);
+        query.setLimit(2);
+
+        String statement = ", BaseObject as obj, StringProperty as prop_status, "
+            + "IntegerProperty as prop_priority where obj.name = doc.fullName and obj.className = :className "
+            + "and doc.fullName not in (:classTemplate1, :classTemplate2) and obj.id = prop_status.id.id "
+            + "and prop_status.id.name = :prop_status_name "
+            + "and (upper(prop_status.value) like upper(:prop_status_value_1) "
+            + "or upper(prop_status.value) like upper(:prop_status_value_2)) and obj.id = prop_priority.id.id "
+            + "and prop_priority.id.name = :prop_priority_name";
+        Query hqlQuery = mock(Query.class, "query");
+        when(this.queryManager.createQuery(statement + " order by prop_priority.value desc", Query.HQL))
+            .thenReturn(hqlQuery);
+        when(hqlQuery.setOffset(anyInt())).thenReturn(hqlQuery);
+        when(hqlQuery.setLimit(anyInt())).thenReturn(hqlQuery);
+        when(hqlQuery.execute()).thenReturn(Arrays.asList("Tasks.Alice", "Tasks.Bob"));
+
+        QueryFilter hiddenFilter = mock(QueryFilter.class, "hidden");
+        when(this.componentManager.hasComponent(QueryFilter.class, "hidden")).thenReturn(true);
+        when(this.componentManager.getInstance(QueryFilter.class, "hidden")).thenReturn(hiddenFilter);
+
+        Query countQuery = mock(Query.class, "count");
+        QueryFilter countFilter = mock(QueryFilter.class, "count");
+        when(this.componentManager.getInstance(QueryFilter.class, "count")).thenReturn(countFilter);
+        when(this.queryManager.createQuery(statement, Query.HQL)).thenReturn(countQuery);
+        when(countQuery.execute()).thenReturn(Collections.singletonList(12L));
+
+        DocumentReference aliceReference = new DocumentReference("wiki", "Tasks", "Alice");
+        DocumentReference bobReference = new DocumentReference("wiki", "Tasks", "Bob");
+        when(this.currentDocumentReferenceResolver.resolve("Tasks.Alice")).thenReturn(aliceReference);
+        when(this.currentDocumentReferenceResolver.resolve("Tasks.Bob")).thenReturn(bobReference);
+        when(this.localEntityReferenceSerializer.serialize(aliceReference)).thenReturn("Tasks.Alice");
+
+        BitSet viewable = new BitSet();
+        viewable.set(0);
+        when(this.authorization.hasAccessBatch(Right.VIEW, Arrays.asList(aliceReference, bobReference)))
+            .thenReturn(viewable);
+        when(this.authorization.hasAccessBatch(Right.EDIT, Arrays.asList(aliceReference, bobReference)))
+            .thenReturn(new BitSet());
+        when(this.authorization.hasAccessBatch(Right.DELETE, Arrays.asList(aliceReference, bobReference)))
+            .thenReturn(new BitSet());
+
+        XWikiDocument aliceDocument = mock(XWikiDocument.class);
+        when(aliceDocument.getDocumentReference()).thenReturn(aliceReference);
+        when(aliceDocument.getTranslatedDocument(this.xcontext)).thenReturn(aliceDocument);
+        when(this.xwiki.getDocument(aliceReference, this.xcontext)).thenReturn(aliceDocument);
+        when(this.xwiki.getURL(aliceReference, "view", this.xcontext)).thenReturn("/view/Tasks/Alice");
+
+        LiveData liveData = this.entryStore.get(query);
+
+        assertEquals(12, liveData.getCount());
+        assertEquals(2, liveData.getEntries().size());
+
+        Map<String, Object> alice = liveData.getEntries().get(0);
+        assertEquals(true, alice.get("doc.viewable"));
+        assertEquals("Tasks.Alice", alice.get("doc.fullName"));
+        assertEquals("Alice", alice.get("doc.name"));
+        assertEquals("/view/Tasks/Alice", alice.get("doc.url"));
+        assertEquals(false, alice.get("doc.hasedit"));
+
+        Map<String, Object> bob = liveData.getEntries().get(1);
+        assertEquals(false, bob.get("doc.viewable"));
+        assertEquals("obfuscated", bob.get("doc.fullName"));
+
+        verify(hqlQuery).bindValue("className", "Some.TaskClass");
+        verify(hqlQuery).bindValue("classTemplate1", "Some.TaskClassTemplate");
+        verify(hqlQuery).bindValue("classTemplate2", "Some.TaskTemplate");
+        verify(hqlQuery).bindValue("prop_status_name", "status");
+        verify(hqlQuery).bindValue("prop_status_value_1", "%open%");
+        verify(hqlQuery).bindValue("prop_status_value_2", "%closed%");
+        verify(hqlQuery).bindValue("prop_priority_name", "priority");
+        verify(hqlQuery).setOffset(10);
+        verify(hqlQuery).setLimit(2);
+        verify(hqlQuery).addFilter(hiddenFilter);
+        verify(countQuery).addFilter(hiddenFilter);
+        verify(countQuery).addFilter(countFilter);
+        verify(countQuery).bindValue("prop_status_value_1", "%open%");
+        // The sort is on a property value which can be null.
+        assertNull(liveData.getCursor());
+    }
+
+    @Test
+    void getRemovesObfuscatedEntriesWhenAllResultsFit() throws Exception
+    {
+        Query hqlQuery = mock(Query.class, "query");
+        when(this.queryManager.createQuery(any(), any())).thenReturn(hqlQuery);
+        when(hqlQuery.setOffset(anyInt())).thenReturn(hqlQuery);
+        when(hqlQuery.setLimit(anyInt())).thenReturn(hqlQuery);
+        when(hqlQuery.execute()).thenReturn(Collections.singletonList(new Object[] {"Tasks.Bob", ""}),
+            Collections.singletonList(1L));
+        when(this.componentManager.getInstance(QueryFilter.class, "count")).thenReturn(mock(QueryFilter.class));
+
+        DocumentReference bobReference = new DocumentReference("wiki", "Tasks", "Bob");
+        when(this.currentDocumentReferenceResolver.resolve("Tasks.Bob")).thenReturn(bobReference);
+        when(this.authorization.hasAccessBatch(any(), any())).thenReturn(new BitSet());
+
+        LiveData liveData = this.entryStore.get(new LiveDataQuery());
+
+        assertEquals(0, liveData.getCount());
+        assertTrue(liveData.getEntries().isEmpty());
+        verify(hqlQuery).setOffset(0);
+        verify(hqlQuery).setLimit(15);
+    }
+
+    @Test
+    void getWithCursor() throws Exception
+    {
+        LiveDataQuery query = new LiveDataQuery();
+        query.setSort(Collections.singletonList(new SortEntry("doc.name", false)));
+        query.setOffset(0L);
+        query.setLimit(2);
+
+        String where = " where obj.name = doc.fullName and obj.className = :className"
+            + " and doc.fullName not in (:classTemplate1, :classTemplate2)";
+        String select = "select doc.fullName, doc.language, lower(doc.name), doc.name, obj.id, doc.id"
+            + " from XWikiDocument doc, BaseObject as obj";
+        String order = " order by lower(doc.name) asc, doc.name asc, obj.id asc, doc.id asc";
+
+        Query firstPageQuery = mock(Query.class, "firstPage");
+        when(this.queryManager.createQuery(select + where + order, Query.HQL)).thenReturn(firstPageQuery);
+        when(firstPageQuery.setOffset(anyInt())).thenReturn(firstPageQuery);
+        when(firstPageQuery.setLimit(anyInt())).thenReturn(firstPageQuery);
+        when(firstPageQuery.execute()).thenReturn(Arrays.asList(new Object[] {"Tasks.Alice", "", "alice", "Alice", 1L,
+            10L}, new Object[] {"Tasks.Bob", "", "bob", "Bob", 2L, 20L}));
+
+        Query countQuery = mock(Query.class, "count");
+        when(this.queryManager.createQuery(", BaseObject as obj" + where, Query.HQL)).thenReturn(countQuery);
+        when(countQuery.execute()).thenReturn(Collections.singletonList(5L));
+        when(this.componentManager.getInstance(QueryFilter.class, "count")).thenReturn(mock(QueryFilter.class));
+        when(this.authorization.hasAccessBatch(any(), any())).thenReturn(new BitSet());
+
+        LiveData liveData = this.entryStore.get(query);
+
+        assertEquals(5, liveData.getCount());
+        assertEquals(2, liveData.getEntries().size());
+        assertNotNull(liveData.getCursor());
+        verify(firstPageQuery).setOffset(0);
+
+        Query secondPageQuery = mock(Query.class, "secondPage");
+        when(this.queryManager.createQuery(select + where + " and (lower(doc.name) > :cursor_0"
+            + " or (lower(doc.name) = :cursor_0 and (doc.name > :cursor_1 or (doc.name = :cursor_1"
+            + " and (obj.id > :cursor_2 or (obj.id = :cursor_2 and doc.id > :cursor_3))))))" + order, Query.HQL))
+                .thenReturn(secondPageQuery);
+        when(secondPageQuery.setOffset(anyInt())).thenReturn(secondPageQuery);
+        when(secondPageQuery.setLimit(anyInt())).thenReturn(secondPageQuery);
+        when(secondPageQuery.execute()).thenReturn(Collections.singletonList(new Object[] {"Tasks.Carol", "",
+            "carol", "Carol", 3L, 30L}));
+
+        query.setOffset(2L);
+        query.setCursor(liveData.getCursor());
+        liveData = this.entryStore.get(query);
+
+        assertEquals(1, liveData.getEntries().size());
+        // This is the last page.
+        assertNull(liveData.getCursor());
+        verify(secondPageQuery).bindValue("cursor_0", "bob");
+        verify(secondPageQuery).bindValue("cursor_1", "Bob");
+        verify(secondPageQuery).bindValue("cursor_2", 2L);
+        verify(secondPageQuery).bindValue("cursor_3", 20L);
+        verify(secondPageQuery).setOffset(0);
+
+        // The cursor is ignored when it doesn't match the requested offset.
+        query.setOffset(4L);
+        this.entryStore.get(query);
+
+        verify(firstPageQuery).setOffset(4);
+    }
+
+    @Test
+    void getWithApproximateCount() throws Exception
+    {
+        this.entryStore.getParameters().put("approximateCount", "true");
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+
+        Query hqlQuery = mock(Query.class, "query");
+        when(this.queryManager.createQuery(any(), any())).thenReturn(hqlQuery);
+        when(hqlQuery.setOffset(anyInt())).thenReturn(hqlQuery);
+        when(hqlQuery.setLimit(anyInt())).thenReturn(hqlQuery);
+        when(hqlQuery.execute()).thenReturn(Collections.emptyList(), Collections.singletonList(42L),
+            Collections.emptyList());
+        when(this.componentManager.getInstance(QueryFilter.class, "count")).thenReturn(mock(QueryFilter.class));
+        when(this.authorization.hasAccessBatch(any(), any())).thenReturn(new BitSet());
+
+        LiveDataQuery query = new LiveDataQuery();
+        query.setOffset(30L);
+        assertEquals(42, this.entryStore.get(query).getCount());
+
+        ArgumentCaptor<String> cacheKey = ArgumentCaptor.forClass(String.class);
+        verify(this.countCache).set(cacheKey.capture(), eq(42L));
+        when(this.countCache.get(cacheKey.getValue())).thenReturn(42L);
+
+        // The count is taken from the cache.
+        assertEquals(42, this.entryStore.get(query).getCount());
+        verify(hqlQuery, times(3)).execute();
+    }
+}
@@ -115,6 +115,8 @@ private LiveDataConfiguration getConfig(String sourceId, List<String> properties
         query.setSort(getSort(sort, descending));
         query.setOffset(offset);
         query.setLimit(limit);
+        // The cursor is optional so it's not part of the resource method signature.
+        query.setCursor(this.uriInfo.getQueryParameters().getFirst("cursor"));
 
         LiveDataConfiguration config = new LiveDataConfiguration();
         config.setQuery(query);
@@ -168,7 +170,8 @@ private Entries createEntries(LiveData liveData, String idProperty, LiveDataQuer
         List<Entry> entries = liveData.getEntries().stream()
             .map(values -> this.createEntry(values, values.get(idProperty), source, namespace))
             .collect(Collectors.toList());
-        return (Entries) new Entries().withEntries(entries).withCount(liveData.getCount()).withLinks(self, parent);
+        return (Entries) new Entries().withEntries(entries).withCount(liveData.getCount())
+            .withCursor(liveData.getCursor()).withLinks(self, parent);
     }
 
     private LiveDataConfiguration initConfig(String sourceId, List<String> properties, List<String> matchAll,
@@ -68,6 +68,10 @@
      *   offset=0&
      *   limit=10
      * }</pre>
+     * <p>
+     * The response may include a {@code cursor} that can be passed back, along with the same query and the offset of the
+     * next page, using the {@code cursor} query parameter in order to retrieve the next page faster, when the live data
+     * source supports it (since 14.4RC1).
      * 
      * @param sourceId indicates the {@link LiveDataSource} component implementation
      * @param namespace the component manager name-space where to look for {@link LiveDataSource} implementations; if
@@ -744,6 +744,12 @@ define('xwiki-livedata', [
         if (pageIndex < 0 || pageIndex >= this.getPageCount()) { return void reject(); }
         const previousPageIndex = this.getPageIndex();
         this.data.query.offset = this.getFirstIndexOfPage(pageIndex);
+        // The cursor returned along with the current page can be used only to fetch the next page.
+        if (pageIndex === previousPageIndex + 1 && this.data.data.cursor) {
+          this.data.query.cursor = this.data.data.cursor;
+        } else {
+          delete this.data.query.cursor;
+        }
         this.triggerEvent("pageChange", {
           pageIndex: pageIndex,
           previousPageIndex: previousPageIndex,
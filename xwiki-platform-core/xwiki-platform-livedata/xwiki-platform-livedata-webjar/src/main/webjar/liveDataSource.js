@@ -31,6 +31,10 @@ define('xwiki-livedata-source', ['module', 'jquery'], function(module, $) {
       offset: liveDataQuery.offset,
       limit: liveDataQuery.limit
     };
+    // Retrieve the next page faster, if the cursor is supported by the live data source.
+    if (liveDataQuery.cursor) {
+      parameters.cursor = liveDataQuery.cursor;
+    }
     // Add filters.
     parameters.matchAll = [];
     liveDataQuery.filters.forEach(filter => {
@@ -89,6 +93,7 @@ define('xwiki-livedata-source', ['module', 'jquery'], function(module, $) {
   var toLiveData = function(data) {
     return {
       count: data.count,
+      cursor: data.cursor,
       entries: data.entries.map(entry => entry.values)
     };
   };
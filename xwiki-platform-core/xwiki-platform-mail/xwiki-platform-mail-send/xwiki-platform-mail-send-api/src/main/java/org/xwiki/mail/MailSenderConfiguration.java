@@ -23,6 +23,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents all XWiki configuration options for the Mail Sending feature.
@@ -121,4 +122,68 @@ default int getSendQueueCapacity()
     {
         return 1000;
     }
+
+    /**
+     * @return the maximum number of seconds a prepare thread waits for a free slot when the send queue is full, after
+     *         which the rest of the batch fails (its mails can be resent from the mail statuses), 0 to fail right away
+     * @since 14.4RC1
+     */
+    @Unstable
+    default long getSendQueueTimeout()
+    {
+        return 60;
+    }
+
+    /**
+     * @return the number of threads preparing the mails, each thread preparing a different batch of mails
+     * @since 14.4RC1
+     */
+    @Unstable
+    default int getPrepareThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the number of threads sending the mails, each thread keeping its own connection to the SMTP server
+     * @since 14.4RC1
+     */
+    @Unstable
+    default int getSendThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the number of mails to send with the same SMTP connection before opening a new one
+     * @since 14.4RC1
+     */
+    @Unstable
+    default int getMaxMessagesPerConnection()
+    {
+        return 100;
+    }
+
+    /**
+     * @return the size in bytes of the segment files in which the prepared mails are stored, 0 to store each mail in
+     *         its own file
+     * @since 14.4RC1
+     */
+    @Unstable
+    default long getContentSegmentSize()
+    {
+        return 0;
+    }
+
+    /**
+     * @return true if each mail stored in a segment file is forced to the disk before being sent, false to only force
+     *         the segment files when they are full or closed (faster, but the last prepared mails are lost if the
+     *         system crashes)
+     * @since 14.4RC1
+     */
+    @Unstable
+    default boolean isContentSegmentSync()
+    {
+        return true;
+    }
 }
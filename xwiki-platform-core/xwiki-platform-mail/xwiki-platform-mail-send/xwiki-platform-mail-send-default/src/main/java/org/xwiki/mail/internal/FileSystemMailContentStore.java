@@ -22,7 +22,9 @@
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -37,15 +39,23 @@
 
 import org.apache.commons.io.FileUtils;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
 import org.xwiki.environment.Environment;
 import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailContentStore;
+import org.xwiki.mail.MailSenderConfiguration;
 import org.xwiki.mail.MailStoreException;
 import org.xwiki.mail.internal.factory.attachment.AttachmentMimeBodyPartFactory;
 
 /**
  * Stores mail content on the file system.
+ * <p>
+ * Each mail is stored in its own file unless {@code mail.sender.contentSegmentSize} is set, in which case the mails
+ * are appended to a few large segment files (see {@link MailContentSegments}). The mails stored in their own file
+ * before enabling the segments can still be loaded and deleted.
  *
  * @version $Id$
  * @since 6.4M3
@@ -53,22 +63,54 @@
 @Component
 @Named("filesystem")
 @Singleton
-public class FileSystemMailContentStore implements MailContentStore, Initializable
+public class FileSystemMailContentStore implements MailContentStore, Initializable, Disposable
 {
     /**
      * The subdirectory in the permanent directory where we store mails.
      */
     public static final String ROOT_DIRECTORY = "mails";
 
+    /**
+     * The subdirectory in the permanent directory where we store the mail segments.
+     *
+     * @since 14.4RC1
+     */
+    public static final String SEGMENTS_DIRECTORY = "mailsegments";
+
     private File rootDirectory;
 
+    private MailContentSegments segments;
+
     @Inject
     private Environment environment;
 
+    @Inject
+    private MailSenderConfiguration configuration;
+
     @Override
-    public void initialize()
+    public void initialize() throws InitializationException
     {
         rootDirectory = new File(this.environment.getPermanentDirectory(), ROOT_DIRECTORY);
+
+        long segmentSize = this.configuration.getContentSegmentSize();
+        if (segmentSize > 0) {
+            File segmentsDirectory = new File(this.environment.getPermanentDirectory(), SEGMENTS_DIRECTORY);
+            try {
+                this.segments = new MailContentSegments(segmentsDirectory, segmentSize,
+                    this.configuration.isContentSegmentSync());
+            } catch (IOException e) {
+                throw new InitializationException(
+                    String.format("Failed to load the mail segments from [%s]", segmentsDirectory), e);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.segments != null) {
+            this.segments.close();
+        }
     }
 
     @Override
@@ -79,6 +121,12 @@ public void save(String batchId, ExtendedMimeMessage message) throws MailStoreEx
         // First, find if there are any.
         List<File> temporaryFiles = extractTemporaryFilesFromHeaders(message);
 
+        if (this.segments != null) {
+            saveInSegment(batchId, message, temporaryFiles);
+
+            return;
+        }
+
         String uniqueMessageId = message.getUniqueMessageId();
         File messageFile = getMessageFile(batchId, uniqueMessageId);
 
@@ -94,7 +142,9 @@ public void save(String batchId, ExtendedMimeMessage message) throws MailStoreEx
                 messageFile = getMessageFile(batchId, uniqueMessageId);
             }
 
-            message.writeTo(new FileOutputStream(messageFile));
+            try (OutputStream os = new FileOutputStream(messageFile)) {
+                message.writeTo(os);
+            }
 
             // Delete any found temporary attachment files
             for (File temporaryFile : temporaryFiles) {
@@ -107,14 +157,48 @@ public void save(String batchId, ExtendedMimeMessage message) throws MailStoreEx
         }
     }
 
+    private void saveInSegment(String batchId, ExtendedMimeMessage message, List<File> temporaryFiles)
+        throws MailStoreException
+    {
+        String uniqueMessageId = message.getUniqueMessageId();
+        try {
+            message.ensureSaved();
+            uniqueMessageId = message.getUniqueMessageId();
+
+            this.segments.save(batchId, message);
+
+            // Delete any found temporary attachment files
+            for (File temporaryFile : temporaryFiles) {
+                FileUtils.forceDelete(temporaryFile);
+            }
+        } catch (Exception e) {
+            throw new MailStoreException(
+                String.format("Failed to save message (id [%s], batch id [%s]) into segment", uniqueMessageId, batchId),
+                e);
+        }
+    }
+
     @Override
     public ExtendedMimeMessage load(Session session, String batchId, String uniqueMessageId) throws MailStoreException
     {
+        if (this.segments != null) {
+            try {
+                ExtendedMimeMessage message = this.segments.load(session, batchId, uniqueMessageId);
+                if (message != null) {
+                    return message;
+                }
+            } catch (Exception e) {
+                throw new MailStoreException(String.format(
+                    "Failed to load message (id [%s], batch id [%s]) from segment", uniqueMessageId, batchId), e);
+            }
+        }
+
         File messageFile = null;
         try {
             messageFile = getMessageFile(batchId, uniqueMessageId);
-            InputStream is = new FileInputStream(messageFile);
-            return new ExtendedMimeMessage(session, is);
+            try (InputStream is = new FileInputStream(messageFile)) {
+                return new ExtendedMimeMessage(session, is);
+            }
         } catch (Exception e) {
             throw new MailStoreException(String.format(
                 "Failed to load message (id [%s], batch id [%s]) from file [%s]",
@@ -125,6 +209,17 @@ public ExtendedMimeMessage load(Session session, String batchId, String uniqueMe
     @Override
     public void delete(String batchId, String uniqueMessageId) throws MailStoreException
     {
+        if (this.segments != null) {
+            try {
+                if (this.segments.delete(batchId, uniqueMessageId)) {
+                    return;
+                }
+            } catch (Exception e) {
+                throw new MailStoreException(String.format(
+                    "Failed to delete message (id [%s], batch id [%s]) from segment", uniqueMessageId, batchId), e);
+            }
+        }
+
         File messageFile = null;
         try {
             messageFile = getMessageFile(batchId, uniqueMessageId);
@@ -0,0 +1,583 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.mail.ExtendedMimeMessage;
+
+/**
+ * Append-only storage of the serialized mails in a few large segment files instead of one file per mail.
+ * <p>
+ * Each record of a segment contains the batch id, the message id and the serialized message. The location of the
+ * records is indexed in memory by batch id and message id (the index is rebuilt from the segments at startup). A
+ * deleted record is recorded in a deletion file next to its segment. A segment is removed as soon as all its records
+ * are deleted, and its remaining records are copied at the end of the current segment (compaction) when less than half
+ * of it is still used.
+ * <p>
+ * Saving a message which is already stored records the previous record as deleted. The deletions are forced to the
+ * disk before being taken into account, and the deletion file of a segment is only removed once the segment itself has
+ * been removed, so that a deleted or replaced record never comes back after a restart. The new records are forced to
+ * the disk one by one when synchronous saves are enabled, otherwise only when their segment is full or closed, which
+ * is much faster but means that the last saved messages can be lost if the system crashes. The messages are read with positional reads rather than through memory mapping, since a mapped segment
+ * cannot be removed on some platforms (e.g. Windows) until the mapping is garbage collected.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class MailContentSegments
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailContentSegments.class);
+
+    private static final int RECORD_MAGIC = 0x584D4C31;
+
+    private static final long UNCOMMITTED_LENGTH = -1L;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_EXTENSION = ".dat";
+
+    private static final String DELETED_EXTENSION = ".del";
+
+    private final File directory;
+
+    private final long maxSegmentSize;
+
+    private final boolean syncSave;
+
+    private final Map<String, Map<String, Location>> index = new HashMap<>();
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    private Segment currentSegment;
+
+    private static final class Location
+    {
+        private final Segment segment;
+
+        private final String batchId;
+
+        private final String messageId;
+
+        private final long recordOffset;
+
+        private final long contentOffset;
+
+        private final long contentLength;
+
+        Location(Segment segment, String batchId, String messageId, long recordOffset, long contentOffset,
+            long contentLength)
+        {
+            this.segment = segment;
+            this.batchId = batchId;
+            this.messageId = messageId;
+            this.recordOffset = recordOffset;
+            this.contentOffset = contentOffset;
+            this.contentLength = contentLength;
+        }
+
+        long getSize()
+        {
+            return this.contentOffset + this.contentLength - this.recordOffset;
+        }
+    }
+
+    private static final class Segment
+    {
+        private final long number;
+
+        private final File file;
+
+        private final File deletedFile;
+
+        private final FileChannel channel;
+
+        private final Set<Location> records = new HashSet<>();
+
+        private long liveSize;
+
+        Segment(File directory, long number) throws IOException
+        {
+            this.number = number;
+            this.file = new File(directory, SEGMENT_PREFIX + number + SEGMENT_EXTENSION);
+            this.deletedFile = new File(directory, SEGMENT_PREFIX + number + DELETED_EXTENSION);
+            this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        }
+
+        void add(Location location)
+        {
+            this.records.add(location);
+            this.liveSize += location.getSize();
+        }
+
+        void remove(Location location)
+        {
+            if (this.records.remove(location)) {
+                this.liveSize -= location.getSize();
+            }
+        }
+
+        void markDeleted(Location location) throws IOException
+        {
+            try (FileChannel deleted = FileChannel.open(this.deletedFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                buffer.putLong(location.recordOffset).flip();
+                deleted.write(buffer);
+                deleted.force(false);
+            }
+
+            remove(location);
+        }
+
+        Set<Long> readDeleted() throws IOException
+        {
+            Set<Long> deleted = new HashSet<>();
+            if (this.deletedFile.exists()) {
+                try (DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(FileChannel.open(this.deletedFile.toPath()))))) {
+                    while (true) {
+                        deleted.add(input.readLong());
+                    }
+                } catch (EOFException e) {
+                    // End of the deletion file
+                }
+            }
+
+            return deleted;
+        }
+
+        void delete() throws IOException
+        {
+            this.channel.close();
+            // Keep the deletion file as long as the segment exists, otherwise its deleted records would come back
+            Files.deleteIfExists(this.file.toPath());
+            Files.deleteIfExists(this.deletedFile.toPath());
+        }
+    }
+
+    /**
+     * @param directory the directory containing the segments
+     * @param maxSegmentSize the size after which a new segment is started
+     * @throws IOException when failing to load the existing segments
+     */
+    public MailContentSegments(File directory, long maxSegmentSize) throws IOException
+    {
+        this(directory, maxSegmentSize, true);
+    }
+
+    /**
+     * @param directory the directory containing the segments
+     * @param maxSegmentSize the size after which a new segment is started
+     * @param syncSave true if each saved message should be forced to the disk before {@link #save(String,
+     *            ExtendedMimeMessage)} returns
+     * @throws IOException when failing to load the existing segments
+     */
+    public MailContentSegments(File directory, long maxSegmentSize, boolean syncSave) throws IOException
+    {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.syncSave = syncSave;
+
+        this.directory.mkdirs();
+
+        load();
+    }
+
+    private void load() throws IOException
+    {
+        File[] files = this.directory.listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+        if (files != null) {
+            long[] numbers = Arrays.stream(files).map(File::getName)
+                .map(name -> StringUtils.substringBetween(name, SEGMENT_PREFIX, SEGMENT_EXTENSION))
+                .filter(StringUtils::isNumeric).mapToLong(Long::parseLong).sorted().toArray();
+            for (long number : numbers) {
+                Segment segment = new Segment(this.directory, number);
+                this.segments.put(number, segment);
+                loadRecords(segment);
+            }
+        }
+
+        // Get rid of the segments which don't contain anything anymore
+        for (Segment segment : this.segments.values().toArray(new Segment[0])) {
+            if (segment.records.isEmpty()) {
+                deleteSegment(segment);
+            }
+        }
+
+        if (!this.segments.isEmpty() && this.segments.lastEntry().getValue().channel.size() < this.maxSegmentSize) {
+            this.currentSegment = this.segments.lastEntry().getValue();
+        } else {
+            startSegment();
+        }
+    }
+
+    private void loadRecords(Segment segment) throws IOException
+    {
+        Set<Long> deleted = segment.readDeleted();
+
+        long size = segment.channel.size();
+        long offset = 0;
+        DataInputStream input =
+            new DataInputStream(new BufferedInputStream(Channels.newInputStream(segment.channel.position(0))));
+        while (offset < size) {
+            String batchId;
+            String messageId;
+            long contentLength;
+            long contentOffset;
+            try {
+                if (input.readInt() != RECORD_MAGIC) {
+                    break;
+                }
+                batchId = input.readUTF();
+                messageId = input.readUTF();
+                contentLength = input.readLong();
+                contentOffset = offset + Integer.BYTES + Long.BYTES + utfLength(batchId) + utfLength(messageId);
+            } catch (EOFException e) {
+                break;
+            }
+
+            if (contentLength == UNCOMMITTED_LENGTH || contentOffset + contentLength > size) {
+                // The write of the record was interrupted
+                break;
+            }
+
+            if (!deleted.contains(offset)) {
+                put(new Location(segment, batchId, messageId, offset, contentOffset, contentLength));
+            }
+
+            IOUtils.skipFully(input, contentLength);
+            offset = contentOffset + contentLength;
+        }
+
+        if (offset < size) {
+            LOGGER.warn("Truncating mail content segment [{}] at [{}] bytes to remove an incomplete record",
+                segment.file, offset);
+            segment.channel.truncate(offset);
+        }
+    }
+
+    private static int utfLength(String value) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(value);
+
+        return bytes.size();
+    }
+
+    private Location put(Location location)
+    {
+        Location previous =
+            this.index.computeIfAbsent(location.batchId, k -> new HashMap<>()).put(location.messageId, location);
+        if (previous != null) {
+            previous.segment.remove(previous);
+        }
+
+        location.segment.add(location);
+
+        return previous;
+    }
+
+    private Location remove(String batchId, String messageId)
+    {
+        Map<String, Location> batch = this.index.get(batchId);
+        if (batch == null) {
+            return null;
+        }
+
+        Location location = batch.remove(messageId);
+        if (batch.isEmpty()) {
+            this.index.remove(batchId);
+        }
+
+        return location;
+    }
+
+    private void startSegment() throws IOException
+    {
+        if (this.currentSegment != null && !this.syncSave) {
+            // Make sure the records of the full segment are on the disk
+            this.currentSegment.channel.force(false);
+        }
+
+        long number = this.segments.isEmpty() ? 0 : this.segments.lastKey() + 1;
+        this.currentSegment = new Segment(this.directory, number);
+        this.segments.put(number, this.currentSegment);
+    }
+
+    private void deleteSegment(Segment segment)
+    {
+        this.segments.remove(segment.number);
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            // All the records of the segment are either deleted or copied to another segment, and recorded as such in
+            // the deletion file, so the segment will just be removed again at the next startup
+            LOGGER.warn("Failed to remove mail content segment [{}]: {}", segment.file,
+                ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    /**
+     * @param batchId the batch id of the message
+     * @param messageId the unique id of the message
+     * @return true if the segments contain the message
+     */
+    public synchronized boolean contains(String batchId, String messageId)
+    {
+        Map<String, Location> batch = this.index.get(batchId);
+
+        return batch != null && batch.containsKey(messageId);
+    }
+
+    /**
+     * @param batchId the batch id of the messages
+     * @return the unique ids of the messages of the batch stored in the segments
+     */
+    public synchronized Set<String> getMessageIds(String batchId)
+    {
+        Map<String, Location> batch = this.index.get(batchId);
+
+        return batch != null ? new HashSet<>(batch.keySet()) : Collections.emptySet();
+    }
+
+    /**
+     * Append a message at the end of the current segment.
+     *
+     * @param batchId the batch id of the message
+     * @param message the message to store
+     * @throws IOException when failing to write the message
+     * @throws MessagingException when failing to serialize the message
+     */
+    public synchronized void save(String batchId, ExtendedMimeMessage message) throws IOException, MessagingException
+    {
+        if (this.currentSegment.channel.size() >= this.maxSegmentSize) {
+            startSegment();
+        }
+
+        String messageId = message.getUniqueMessageId();
+
+        FileChannel channel = this.currentSegment.channel;
+        long recordOffset = channel.size();
+
+        // Write the header with a length indicating that the record is not complete yet
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOutput = new DataOutputStream(header);
+        headerOutput.writeInt(RECORD_MAGIC);
+        headerOutput.writeUTF(batchId);
+        headerOutput.writeUTF(messageId);
+        headerOutput.writeLong(UNCOMMITTED_LENGTH);
+        headerOutput.flush();
+        long contentOffset = recordOffset + header.size();
+
+        try {
+            write(channel, ByteBuffer.wrap(header.toByteArray()), recordOffset);
+
+            // Stream the message directly to the segment
+            channel.position(contentOffset);
+            OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel));
+            message.writeTo(output);
+            output.flush();
+            long contentLength = channel.position() - contentOffset;
+
+            // Commit the record
+            ByteBuffer length = ByteBuffer.allocate(Long.BYTES);
+            length.putLong(contentLength).flip();
+            write(channel, length, contentOffset - Long.BYTES);
+            if (this.syncSave) {
+                channel.force(false);
+            }
+        } catch (IOException | MessagingException | RuntimeException e) {
+            // Remove the incomplete record
+            channel.truncate(recordOffset);
+
+            throw e;
+        }
+
+        Location previous =
+            put(new Location(this.currentSegment, batchId, messageId, recordOffset, contentOffset, contentLength));
+        if (previous != null) {
+            // Make sure the replaced record is not loaded again (instead of the new one) after a restart
+            if (!this.syncSave) {
+                // The new record must reach the disk before the deletion of the previous one
+                channel.force(false);
+            }
+            previous.segment.markDeleted(previous);
+            release(previous.segment);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            current += channel.write(buffer, current);
+        }
+    }
+
+    /**
+     * @param session the JavaMail session used to send the mail
+     * @param batchId the batch id of the message
+     * @param messageId the unique id of the message
+     * @return the message or {@code null} if the segments don't contain it
+     * @throws IOException when failing to read the message
+     * @throws MessagingException when failing to parse the message
+     */
+    public ExtendedMimeMessage load(Session session, String batchId, String messageId)
+        throws IOException, MessagingException
+    {
+        byte[] content;
+        synchronized (this) {
+            Map<String, Location> batch = this.index.get(batchId);
+            Location location = batch != null ? batch.get(messageId) : null;
+            if (location == null) {
+                return null;
+            }
+
+            // The message would be fully loaded in memory by the parser anyway
+            ByteBuffer buffer = ByteBuffer.allocate((int) location.contentLength);
+            long position = location.contentOffset;
+            while (buffer.hasRemaining()) {
+                int read = location.segment.channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException(String.format("Unexpected end of mail content segment [%s]",
+                        location.segment.file));
+                }
+                position += read;
+            }
+            content = buffer.array();
+        }
+
+        return new ExtendedMimeMessage(session, new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Forget a message and remove or compact its segment when it's not used enough anymore.
+     *
+     * @param batchId the batch id of the message
+     * @param messageId the unique id of the message
+     * @return true if the segments contained the message
+     * @throws IOException when failing to delete the message
+     */
+    public synchronized boolean delete(String batchId, String messageId) throws IOException
+    {
+        Location location = remove(batchId, messageId);
+        if (location == null) {
+            return false;
+        }
+
+        location.segment.markDeleted(location);
+        release(location.segment);
+
+        return true;
+    }
+
+    /**
+     * Remove or compact a segment which is not used enough anymore.
+     *
+     * @param segment the segment from which a record was just deleted
+     * @throws IOException when failing to compact the segment
+     */
+    private void release(Segment segment) throws IOException
+    {
+        if (segment != this.currentSegment) {
+            if (segment.records.isEmpty()) {
+                deleteSegment(segment);
+            } else if (segment.liveSize < segment.channel.size() / 2) {
+                compact(segment);
+            }
+        }
+    }
+
+    private void compact(Segment segment) throws IOException
+    {
+        for (Location location : segment.records.toArray(new Location[0])) {
+            if (this.currentSegment.channel.size() >= this.maxSegmentSize) {
+                startSegment();
+            }
+
+            FileChannel target = this.currentSegment.channel;
+            long recordOffset = target.size();
+            long size = location.getSize();
+            long transferred = 0;
+            while (transferred < size) {
+                transferred += segment.channel.transferTo(location.recordOffset + transferred, size - transferred,
+                    target.position(recordOffset + transferred));
+            }
+
+            target.force(false);
+
+            put(new Location(this.currentSegment, location.batchId, location.messageId, recordOffset,
+                recordOffset + location.contentOffset - location.recordOffset, location.contentLength));
+
+            // Make sure the copied record is not loaded twice if the segment cannot be removed
+            segment.markDeleted(location);
+        }
+
+        deleteSegment(segment);
+    }
+
+    /**
+     * Close the segments.
+     */
+    public synchronized void close()
+    {
+        for (Segment segment : this.segments.values()) {
+            try {
+                if (!this.syncSave && segment == this.currentSegment) {
+                    segment.channel.force(false);
+                }
+                segment.channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to close mail content segment [{}]", segment.file, e);
+            }
+        }
+    }
+}
@@ -104,6 +104,18 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
     private static final String PREPARE_QUEUE_CAPACITY_PROPERTY = "prepareQueueCapacity";
     private static final String SEND_QUEUE_CAPACITY_PROPERTY = "sendQueueCapacity";
 
+    private static final String SEND_QUEUE_TIMEOUT_PROPERTY = "sendQueueTimeout";
+
+    private static final String PREPARE_THREADS_PROPERTY = "prepareThreads";
+
+    private static final String SEND_THREADS_PROPERTY = "sendThreads";
+
+    private static final String MAX_MESSAGES_PER_CONNECTION_PROPERTY = "maxMessagesPerConnection";
+
+    private static final String CONTENT_SEGMENT_SIZE_PROPERTY = "contentSegmentSize";
+
+    private static final String CONTENT_SEGMENT_SYNC_PROPERTY = "contentSegmentSync";
+
     /**
      * The default size of the prepare queue.
      */
@@ -114,6 +126,11 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
      */
     private static final int SEND_QUEUE_CAPACITY_DEFAULT = 1000;
 
+    /**
+     * The default number of seconds to wait for a free slot in the send queue.
+     */
+    private static final long SEND_QUEUE_TIMEOUT_DEFAULT = 60L;
+
     @Inject
     private Logger logger;
 
@@ -337,6 +354,43 @@ public int getSendQueueCapacity()
             SEND_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public long getSendQueueTimeout()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_QUEUE_TIMEOUT_PROPERTY,
+            SEND_QUEUE_TIMEOUT_DEFAULT);
+    }
+
+    @Override
+    public int getPrepareThreads()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + PREPARE_THREADS_PROPERTY, 1);
+    }
+
+    @Override
+    public int getSendThreads()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_THREADS_PROPERTY, 1);
+    }
+
+    @Override
+    public int getMaxMessagesPerConnection()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + MAX_MESSAGES_PER_CONNECTION_PROPERTY, 100);
+    }
+
+    @Override
+    public long getContentSegmentSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + CONTENT_SEGMENT_SIZE_PROPERTY, 0L);
+    }
+
+    @Override
+    public boolean isContentSegmentSync()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + CONTENT_SEGMENT_SYNC_PROPERTY, true);
+    }
+
     private boolean isMainWiki()
     {
         return this.wikiDescriptorManager.isMainWiki(this.wikiDescriptorManager.getCurrentWikiId());
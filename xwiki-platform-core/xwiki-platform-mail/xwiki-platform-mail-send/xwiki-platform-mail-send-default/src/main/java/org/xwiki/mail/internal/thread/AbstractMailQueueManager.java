@@ -39,6 +39,12 @@
      */
     protected BlockingQueue<T> mailQueue;
 
+    /**
+     * The maximum number of seconds to wait for a free slot in the queue in {@link #addToQueue(MailQueueItem)}, 0 to
+     * fail right away when the queue is full.
+     */
+    protected long addTimeout;
+
     /**
      * @return the mail queue containing all pending mails to be sent
      */
@@ -50,7 +56,18 @@ private BlockingQueue<T> getMailQueue()
     @Override
     public void addToQueue(T mailQueueItem)
     {
-        getMailQueue().add(mailQueueItem);
+        try {
+            // Wait for a free slot so that the producer is slowed down when the consumers are late, but not forever so
+            // that the producer is not stuck when the consumers are
+            if (!getMailQueue().offer(mailQueueItem, this.addTimeout, TimeUnit.SECONDS)) {
+                throw new IllegalStateException(
+                    String.format("The mail queue is still full after waiting [%s] seconds", this.addTimeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted while waiting for a free slot in the mail queue", e);
+        }
     }
 
     @Override
@@ -65,6 +82,12 @@ public boolean hasMessage()
         return !getMailQueue().isEmpty();
     }
 
+    @Override
+    public int getQueueSize()
+    {
+        return getMailQueue().size();
+    }
+
     @Override
     public T peekMessage()
     {
@@ -76,4 +99,10 @@ public boolean removeMessageFromQueue(T mailQueueItem)
     {
         return getMailQueue().remove(mailQueueItem);
     }
+
+    @Override
+    public T pollMessage(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return getMailQueue().poll(timeout, unit);
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.MetricSource;
+
+/**
+ * Expose the number of mails waiting in the prepare and send queues.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Named("mail")
+@Singleton
+public class MailMetricSource implements MetricSource
+{
+    private static final String METRIC_QUEUE_SIZE = "xwiki_mail_queue_size";
+
+    private static final String METRIC_QUEUE_SIZE_DESCRIPTION = "The number of mails waiting to be processed";
+
+    private static final String TAG_QUEUE = "queue";
+
+    @Inject
+    private Provider<MailQueueManager<PrepareMailQueueItem>> prepareMailQueueManagerProvider;
+
+    @Inject
+    private Provider<MailQueueManager<SendMailQueueItem>> sendMailQueueManagerProvider;
+
+    @Override
+    public void bindTo(MetricRegistry registry)
+    {
+        MailQueueManager<PrepareMailQueueItem> prepareMailQueueManager = this.prepareMailQueueManagerProvider.get();
+        registry.registerGauge(METRIC_QUEUE_SIZE, METRIC_QUEUE_SIZE_DESCRIPTION, prepareMailQueueManager::getQueueSize,
+            TAG_QUEUE, "prepare");
+
+        MailQueueManager<SendMailQueueItem> sendMailQueueManager = this.sendMailQueueManagerProvider.get();
+        registry.registerGauge(METRIC_QUEUE_SIZE, METRIC_QUEUE_SIZE_DESCRIPTION, sendMailQueueManager::getQueueSize,
+            TAG_QUEUE, "send");
+    }
+}
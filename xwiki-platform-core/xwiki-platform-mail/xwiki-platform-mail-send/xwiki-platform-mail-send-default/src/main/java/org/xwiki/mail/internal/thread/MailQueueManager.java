@@ -34,9 +34,14 @@
 public interface MailQueueManager<T extends MailQueueItem>
 {
     /**
-     * Add a mail on the queue for processing.
+     * Add a mail on the queue for processing. When the queue is full, the calling thread is blocked until a slot is
+     * freed, for a time depending on the queue: at most
+     * {@link org.xwiki.mail.MailSenderConfiguration#getSendQueueTimeout()} seconds for the send queue, and not at all
+     * for the prepare queue (which is filled with {@link #addMessage(MailQueueItem, long, TimeUnit)} instead). It
+     * should thus not be called from a thread serving a request.
      *
      * @param mailQueueItem the object representing the mail item to add to the queue
+     * @throws IllegalStateException if the queue is still full after waiting
      */
     void addToQueue(T mailQueueItem);
 
@@ -60,6 +65,15 @@ default void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Int
      */
     boolean hasMessage();
 
+    /**
+     * @return the number of mails waiting for processing
+     * @since 14.4RC1
+     */
+    default int getQueueSize()
+    {
+        return hasMessage() ? 1 : 0;
+    }
+
     /**
      * @return the next mail on the queue waiting to be processed
      */
@@ -72,4 +86,30 @@ default void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Int
      * @return true if the removal was successful, false otherwise
      */
     boolean removeMessageFromQueue(T mailQueueItem);
+
+    /**
+     * Removes and returns the next mail on the queue, waiting a max of timeout for one to be available. Unlike
+     * {@link #peekMessage()} the returned mail is not visible anymore to the other threads processing the queue.
+     *
+     * @param timeout how long to wait for a mail to be available, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return the next mail on the queue or {@code null} if none is available after the timeout
+     * @throws InterruptedException if interrupted while waiting
+     * @since 14.4RC1
+     */
+    default T pollMessage(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        do {
+            T mailQueueItem = peekMessage();
+            if (mailQueueItem == null) {
+                TimeUnit.NANOSECONDS.sleep(deadline - System.nanoTime());
+            } else if (removeMessageFromQueue(mailQueueItem)) {
+                // Only the thread which actually removed the mail from the queue gets it
+                return mailQueueItem;
+            }
+        } while (System.nanoTime() < deadline);
+
+        return null;
+    }
 }
@@ -45,5 +45,6 @@ public class SendMailQueueManager extends AbstractMailQueueManager<SendMailQueue
     public void initialize()
     {
         this.mailQueue = new LinkedBlockingQueue<>(this.configuration.getSendQueueCapacity());
+        this.addTimeout = this.configuration.getSendQueueTimeout();
     }
 }
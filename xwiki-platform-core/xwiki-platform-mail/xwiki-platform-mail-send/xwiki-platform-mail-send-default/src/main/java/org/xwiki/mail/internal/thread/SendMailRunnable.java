@@ -20,6 +20,7 @@
 package org.xwiki.mail.internal.thread;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -64,25 +65,81 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
+    private static final long POLL_TIMEOUT = 100L;
 
-    private Session currentSession;
+    /**
+     * The SMTP connection of a sending thread.
+     */
+    private final class SMTPConnection
+    {
+        private Transport transport;
+
+        private Session session;
+
+        private int count;
+
+        void send(ExtendedMimeMessage message, Session messageSession) throws MessagingException
+        {
+            // If the Session in use is different from the one passed then close the current Transport, get a new one
+            // and reconnect. Also do that every few mails sent to not keep the same connection open forever since
+            // some SMTP servers limit the number of mails per connection.
+            if (messageSession != this.session || this.count >= configuration.getMaxMessagesPerConnection()) {
+                close();
+                this.session = messageSession;
+                this.transport = this.session.getTransport("smtp");
+                this.transport.connect();
+            } else if (!this.transport.isConnected()) {
+                this.transport.connect();
+            }
 
-    private int count;
+            // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
+            // message; this prevent the MessageID header to be changed.
+            try {
+                this.transport.sendMessage(message, message.getAllRecipients());
+            } catch (MessagingException e) {
+                // The connection might be in a bad state, start with a new one for the next mail
+                close();
 
+                throw e;
+            }
+
+            this.count++;
+        }
+
+        void close()
+        {
+            if (this.transport != null) {
+                try {
+                    this.transport.close();
+                } catch (MessagingException e) {
+                    logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+                this.transport = null;
+                this.session = null;
+                this.count = 0;
+            }
+        }
+    }
+
+    /**
+     * Run a sending thread. Several threads can execute the same {@link SendMailRunnable} in parallel, each one with
+     * its own SMTP connection.
+     */
     @Override
     public void run()
     {
+        SMTPConnection connection = new SMTPConnection();
         try {
             // Make sure we initialize an execution context.
             prepareContext();
 
-            runInternal();
+            runInternal(connection);
         } catch (ExecutionContextException e) {
             // Not much to do but log.
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
-            closeTransport();
+            connection.close();
         }
     }
 
@@ -101,28 +158,23 @@ private void prepareContextForQueueItem(SendMailQueueItem mailItem)
         xcontext.setWikiId(mailItem.getWikiId());
     }
 
-    private void runInternal()
+    private void runInternal(SMTPConnection connection)
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item from the queue after the mail has been sent as
-                    // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
-                    try {
-                        sendMail(mailItem);
-                    } finally {
-                        this.sendMailQueueManager.removeMessageFromQueue(mailItem);
-                    }
+                // Handle next message in the queue. The item is removed from the queue so that the other sending
+                // threads don't see it but MailSender.waitTillSent() relies on the mail status, which is only updated
+                // once the mail has been sent.
+                SendMailQueueItem mailItem = this.sendMailQueueManager.pollMessage(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (mailItem != null) {
+                    sendMail(mailItem, connection);
+
                     // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
+                    // Note: it's important that we wait after the previous item has been sent in order to let users
+                    // know as soon as possible that their mail has been sent (otherwise when sending a synchronous
+                    // mail, the user would have to wait the send wait time!).
                     waitSendWaitTime();
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(50L);
             } catch (InterruptedException e) {
                 // Thread has been stopped, exit
                 this.logger.debug("Mail Sender Thread was forcefully stopped", e);
@@ -138,8 +190,9 @@ private void runInternal()
      * Send the mail.
      *
      * @param item the queue item containing all the data for sending the mail
+     * @param connection the SMTP connection of the current thread
      */
-    protected void sendMail(SendMailQueueItem item)
+    private void sendMail(SendMailQueueItem item, SMTPConnection connection)
     {
         prepareContextForQueueItem(item);
 
@@ -157,26 +210,10 @@ protected void sendMail(SendMailQueueItem item)
         }
 
         try {
-            // Step 2: If the current Session in use is different from the one passed then close
-            // the current Transport, get a new one and reconnect.
-            // Also do that every 100 mails sent.
-            // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
-                closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
-            }
-
-            // Step 3: Send the mail
-            // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
-            // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            // Step 2: Send the mail, reusing the SMTP connection of the current thread when possible
+            connection.send(message, item.getSession());
 
-            // Step 4: Notify the user of the success if a listener has been provided
+            // Step 3: Notify the user of the success if a listener has been provided
             if (listener != null) {
                 listener.onSendMessageSuccess(message, Collections.emptyMap());
             }
@@ -193,16 +230,4 @@ private void waitSendWaitTime() throws InterruptedException
         long sendWaitTime = this.configuration.getSendWaitTime();
         Thread.sleep(sendWaitTime);
     }
-
-    private void closeTransport()
-    {
-        if (this.currentTransport != null) {
-            try {
-                this.currentTransport.close();
-            } catch (MessagingException e) {
-                this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
-                    ExceptionUtils.getRootCauseMessage(e));
-            }
-        }
-    }
 }
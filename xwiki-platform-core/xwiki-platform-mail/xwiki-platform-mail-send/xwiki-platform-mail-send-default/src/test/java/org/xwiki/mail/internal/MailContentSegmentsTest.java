@@ -0,0 +1,214 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+
+import javax.mail.Session;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.xwiki.mail.ExtendedMimeMessage;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.XWikiTempDirExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link MailContentSegments}.
+ *
+ * @version $Id$
+ */
+@ExtendWith(XWikiTempDirExtension.class)
+class MailContentSegmentsTest
+{
+    @XWikiTempDir
+    private File tmpDir;
+
+    private final Session session = Session.getInstance(new Properties());
+
+    private ExtendedMimeMessage createMessage(String text) throws Exception
+    {
+        ExtendedMimeMessage message = new ExtendedMimeMessage();
+        message.setText(text);
+        message.ensureSaved();
+
+        return message;
+    }
+
+    @Test
+    void saveAndLoad() throws Exception
+    {
+        MailContentSegments segments = new MailContentSegments(this.tmpDir, 1024 * 1024);
+
+        ExtendedMimeMessage message1 = createMessage("Lorem ipsum");
+        ExtendedMimeMessage message2 = createMessage("dolor sit amet");
+        segments.save("batch1", message1);
+        segments.save("batch2", message2);
+
+        assertEquals("Lorem ipsum",
+            segments.load(this.session, "batch1", message1.getUniqueMessageId()).getContent().toString().trim());
+        assertEquals("dolor sit amet",
+            segments.load(this.session, "batch2", message2.getUniqueMessageId()).getContent().toString().trim());
+        assertNull(segments.load(this.session, "batch1", message2.getUniqueMessageId()));
+        assertEquals(Collections.singleton(message1.getUniqueMessageId()), segments.getMessageIds("batch1"));
+
+        segments.close();
+
+        // Make sure the index is rebuilt from the segments
+        segments = new MailContentSegments(this.tmpDir, 1024 * 1024);
+
+        assertTrue(segments.contains("batch1", message1.getUniqueMessageId()));
+        assertEquals("dolor sit amet",
+            segments.load(this.session, "batch2", message2.getUniqueMessageId()).getContent().toString().trim());
+
+        segments.close();
+    }
+
+    @Test
+    void delete() throws Exception
+    {
+        // Small segments to make sure each message ends up in its own segment
+        MailContentSegments segments = new MailContentSegments(this.tmpDir, 10);
+
+        ExtendedMimeMessage message1 = createMessage("Lorem ipsum");
+        ExtendedMimeMessage message2 = createMessage("dolor sit amet");
+        segments.save("batch", message1);
+        segments.save("batch", message2);
+
+        assertEquals(new HashSet<>(Arrays.asList(message1.getUniqueMessageId(), message2.getUniqueMessageId())),
+            segments.getMessageIds("batch"));
+
+        assertTrue(segments.delete("batch", message1.getUniqueMessageId()));
+        assertFalse(segments.delete("batch", message1.getUniqueMessageId()));
+
+        // The first segment does not contain anything anymore
+        assertFalse(new File(this.tmpDir, "segment-0.dat").exists());
+        assertFalse(new File(this.tmpDir, "segment-0.del").exists());
+
+        segments.close();
+
+        // Make sure the deletion is remembered
+        segments = new MailContentSegments(this.tmpDir, 10);
+
+        assertFalse(segments.contains("batch", message1.getUniqueMessageId()));
+        assertTrue(segments.contains("batch", message2.getUniqueMessageId()));
+
+        segments.close();
+    }
+
+    @Test
+    void saveAgain() throws Exception
+    {
+        // Small segments to make sure each save ends up in its own segment
+        MailContentSegments segments = new MailContentSegments(this.tmpDir, 10, false);
+
+        ExtendedMimeMessage message = createMessage("Lorem ipsum");
+        segments.save("batch", message);
+        segments.save("batch", message);
+
+        // The replaced record is deleted, so its segment is removed
+        assertFalse(new File(this.tmpDir, "segment-0.dat").exists());
+        assertEquals(Collections.singleton(message.getUniqueMessageId()), segments.getMessageIds("batch"));
+
+        assertTrue(segments.delete("batch", message.getUniqueMessageId()));
+
+        segments.close();
+
+        // Make sure the replaced record does not come back
+        segments = new MailContentSegments(this.tmpDir, 10, false);
+
+        assertFalse(segments.contains("batch", message.getUniqueMessageId()));
+
+        segments.close();
+    }
+
+    @Test
+    void compact() throws Exception
+    {
+        MailContentSegments segments = new MailContentSegments(this.tmpDir, 1024 * 1024);
+
+        ExtendedMimeMessage message1 = createMessage("Lorem ipsum");
+        ExtendedMimeMessage message2 = createMessage("dolor sit amet");
+        ExtendedMimeMessage message3 = createMessage("consectetur adipiscing elit");
+        segments.save("batch", message1);
+        segments.save("batch", message2);
+        segments.save("batch", message3);
+
+        segments.close();
+
+        // Reload with a smaller segment size so that a new segment is started
+        segments = new MailContentSegments(this.tmpDir, 1);
+
+        segments.delete("batch", message1.getUniqueMessageId());
+        assertTrue(new File(this.tmpDir, "segment-0.dat").exists());
+
+        // Less than half of the first segment is used, its remaining message is moved to the current segment
+        segments.delete("batch", message2.getUniqueMessageId());
+        assertFalse(new File(this.tmpDir, "segment-0.dat").exists());
+        assertFalse(new File(this.tmpDir, "segment-0.del").exists());
+        assertEquals("consectetur adipiscing elit",
+            segments.load(this.session, "batch", message3.getUniqueMessageId()).getContent().toString().trim());
+
+        segments.close();
+
+        segments = new MailContentSegments(this.tmpDir, 1);
+
+        assertEquals(Collections.singleton(message3.getUniqueMessageId()), segments.getMessageIds("batch"));
+
+        segments.close();
+    }
+
+    @Test
+    void loadWithIncompleteRecord() throws Exception
+    {
+        MailContentSegments segments = new MailContentSegments(this.tmpDir, 1024 * 1024);
+
+        ExtendedMimeMessage message = createMessage("Lorem ipsum");
+        segments.save("batch", message);
+
+        segments.close();
+
+        // Simulate a crash in the middle of the write of a record
+        File segment = new File(this.tmpDir, "segment-0.dat");
+        long size = segment.length();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(size);
+            file.writeInt(0x584D4C31);
+            file.writeUTF("batch");
+        }
+
+        segments = new MailContentSegments(this.tmpDir, 1024 * 1024);
+
+        assertEquals(size, segment.length());
+        assertEquals("Lorem ipsum",
+            segments.load(this.session, "batch", message.getUniqueMessageId()).getContent().toString().trim());
+
+        segments.close();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the default methods of {@link MailQueueManager}.
+ *
+ * @version $Id$
+ */
+class MailQueueManagerTest
+{
+    @Test
+    void pollMessageWhenTakenByAnotherThread() throws Exception
+    {
+        MailQueueManager<MailQueueItem> manager = mock(MailQueueManager.class, CALLS_REAL_METHODS);
+        MailQueueItem item1 = mock(MailQueueItem.class);
+        MailQueueItem item2 = mock(MailQueueItem.class);
+        when(manager.peekMessage()).thenReturn(item1, item2);
+        // Another thread removes the first item between the peek and the remove
+        when(manager.removeMessageFromQueue(item1)).thenReturn(false);
+        when(manager.removeMessageFromQueue(item2)).thenReturn(true);
+
+        assertSame(item2, manager.pollMessage(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void pollMessageWhenEmpty() throws Exception
+    {
+        MailQueueManager<MailQueueItem> manager = mock(MailQueueManager.class, CALLS_REAL_METHODS);
+        when(manager.peekMessage()).thenReturn(null);
+
+        assertNull(manager.pollMessage(10, TimeUnit.MILLISECONDS));
+    }
+}
@@ -22,6 +22,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -61,6 +62,8 @@ public class DatabaseMailResender implements MailResender
 {
     private static final String SESSION_BATCHID_KEY = "xwiki.batchId";
 
+    private static final int RESEND_CHUNK_SIZE = 100;
+
     @Inject
     private Logger logger;
 
@@ -104,46 +107,80 @@ public MailStatusResult resendAsynchronously(String batchId, String uniqueMessag
     public List<Pair<MailStatus, MailStatusResult>> resendAsynchronously(Map<String, Object> filterMap, int offset,
         int count) throws MailStoreException
     {
-        return resendGeneric(filterMap, offset, count,
-            (batchId, messageId) -> resendAsynchronously(batchId, messageId));
+        return resendGeneric(filterMap, offset, count, false);
     }
 
     @Override
     public List<Pair<MailStatus, MailStatusResult>> resend(Map<String, Object> filterMap, int offset, int count)
         throws MailStoreException
     {
-        return resendGeneric(filterMap, offset, count,
-            (batchId, messageId) -> resend(batchId, messageId));
+        return resendGeneric(filterMap, offset, count, true);
     }
 
     private List<Pair<MailStatus, MailStatusResult>> resendGeneric(Map<String, Object> filterMap, int offset,
-        int count, SingleMailResender singleMailResender) throws MailStoreException
+        int count, boolean wait) throws MailStoreException
     {
-        List<Pair<MailStatus, MailStatusResult>> results = new ArrayList<>();
         List<MailStatus> statuses = this.store.load(filterMap, offset, count, null, true);
+
+        // Group the messages by batch so that the mails of a batch share the same session
+        Map<String, List<MailStatus>> batches = new LinkedHashMap<>();
         for (MailStatus status : statuses) {
-            resendSingleStatus(status, results, singleMailResender);
+            // Only try to resend if the mail didn't fail because it couldn't be prepared, as this would mean the
+            // message was never saved and thus we cannot resend it...
+            if (!MailState.PREPARE_ERROR.toString().equals(status.getState())) {
+                batches.computeIfAbsent(status.getBatchId(), k -> new ArrayList<>()).add(status);
+            }
         }
-        return results;
 
+        List<Pair<MailStatus, MailStatusResult>> results = new ArrayList<>();
+        for (Map.Entry<String, List<MailStatus>> batch : batches.entrySet()) {
+            List<MailStatus> batchStatuses = batch.getValue();
+            // Don't load too many messages in memory at the same time
+            for (int i = 0; i < batchStatuses.size(); i += RESEND_CHUNK_SIZE) {
+                resendChunk(batch.getKey(),
+                    batchStatuses.subList(i, Math.min(i + RESEND_CHUNK_SIZE, batchStatuses.size())), results, wait);
+            }
+        }
+
+        return results;
     }
 
-    private void resendSingleStatus(MailStatus status, List<Pair<MailStatus, MailStatusResult>> results,
-        SingleMailResender singleMailResender)
+    private void resendChunk(String batchId, List<MailStatus> statuses,
+        List<Pair<MailStatus, MailStatusResult>> results, boolean wait)
     {
-        // Only try to resend if the mail didn't fail because it couldn't be prepared, as this would mean the message
-        // was never saved and thus we cannot resend it...
-        if (!MailState.PREPARE_ERROR.toString().equals(status.getState())) {
+        // Set the batch id so that no new batch id is generated when re-sending the mails
+        Session session = this.sessionFactory.create(Collections.singletonMap(SESSION_BATCHID_KEY, batchId));
+
+        List<Pair<MailStatus, MailStatusResult>> chunkResults = new ArrayList<>(statuses.size());
+        for (MailStatus status : statuses) {
+            MimeMessage message;
             try {
-                results.add(new ImmutablePair<>(status,
-                    singleMailResender.resendSingleMessage(status.getBatchId(), status.getMessageId())));
+                message = loadMessage(session, batchId, status.getMessageId());
             } catch (MailStoreException e) {
                 // Failed to resend the message.
                 // Log a warning but continue to try to send the other mails...
                 this.logger.warn("Failed to resend mail message for batchId [{}], messageId [{}]. Root cause [{}]",
-                    status.getBatchId(), status.getMessageId(), ExceptionUtils.getRootCauseMessage(e));
+                    batchId, status.getMessageId(), ExceptionUtils.getRootCauseMessage(e));
+                continue;
+            }
+
+            // Each mail gets its own listener so that its result only reflects its own status
+            MailListener databaseMailListener = this.databaseMailListenerProvider.get();
+            this.mailSender.sendAsynchronously(Collections.singletonList(message), session, databaseMailListener);
+            chunkResults.add(new ImmutablePair<>(status, databaseMailListener.getMailStatusResult()));
+        }
+
+        if (wait) {
+            // Wait for the mails to have been resent before continuing (they are still sent one after another, but
+            // the next mail is queued without waiting for the previous one to be sent)
+            for (Pair<MailStatus, MailStatusResult> chunkResult : chunkResults) {
+                if (chunkResult.getValue() != null) {
+                    chunkResult.getValue().waitTillProcessed(Long.MAX_VALUE);
+                }
             }
         }
+
+        results.addAll(chunkResults);
     }
 
     private MimeMessage loadMessage(Session session, String batchId, String mailId) throws MailStoreException
@@ -151,28 +188,4 @@ private MimeMessage loadMessage(Session session, String batchId, String mailId)
         MimeMessage message = this.mailContentStore.load(session, batchId, mailId);
         return message;
     }
-
-    private MailStatusResult resend(String batchId, String uniqueMessageId) throws MailStoreException
-    {
-        MailStatusResult result = resendAsynchronously(batchId, uniqueMessageId);
-        if (result != null) {
-            // Wait for the message to have been resent before returning
-            result.waitTillProcessed(Long.MAX_VALUE);
-        }
-        return result;
-    }
-
-    @FunctionalInterface
-    private interface SingleMailResender
-    {
-        /**
-         * Resends single message.
-         * 
-         * @param batchId batchId of single message. 
-         * @param messageId messageId of single message.
-         * @return single message that is to be resent.
-         * @throws MailStoreException If an exception occurs.
-         */
-        MailStatusResult resendSingleMessage(String batchId, String messageId) throws MailStoreException;
-    }
 }
@@ -19,16 +19,23 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.hibernate.Session;
 import org.hibernate.query.Query;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -53,6 +60,13 @@ public class DatabaseMailStatusStore implements MailStatusStore
 {
     private static final String ID_PARAMETER_NAME = "id";
 
+    private static final String IDS_PARAMETER_NAME = "ids";
+
+    /**
+     * The maximum number of statuses deleted with a single query (some databases limit the size of the IN clause).
+     */
+    private static final int DELETE_BATCH_SIZE = 500;
+
     @Inject
     private Logger logger;
 
@@ -63,32 +77,55 @@ public class DatabaseMailStatusStore implements MailStatusStore
     @Named("hibernate")
     private XWikiStoreInterface hibernateStore;
 
-    @Override
-    public void save(final MailStatus status, final Map<String, Object> parameters) throws MailStoreException
+    private final Queue<StatusOperation> pendingOperations = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * A pending save or delete of a mail status.
+     */
+    private static final class StatusOperation
     {
-        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
+        private final String messageId;
 
-        XWikiContext xwikiContext = this.contextProvider.get();
-        // Save in the main wiki
-        String currentWiki = xwikiContext.getWikiId();
-        xwikiContext.setWikiId(xwikiContext.getMainXWiki());
+        /**
+         * The status to save or {@code null} to delete the status of the message.
+         */
+        private final MailStatus status;
 
-        try {
-            // Delete any previous state of the message
-            delete(status.getMessageId(), parameters);
+        private boolean done;
 
-            store.executeWrite(xwikiContext, session -> {
-                session.save(status);
-                return null;
-            });
+        private MailStoreException error;
 
-            // Log the save for debugging purpose
-            this.logger.debug("Saved mail status [{}]", status);
-        } catch (Exception e) {
-            throw new MailStoreException(String.format("Failed to save mail status [%s] to the database.", status), e);
-        } finally {
-            xwikiContext.setWikiId(currentWiki);
+        StatusOperation(String messageId, MailStatus status)
+        {
+            this.messageId = messageId;
+            this.status = status;
+        }
+
+        void log(Logger logger)
+        {
+            if (this.status != null) {
+                logger.debug("Saved mail status [{}]", this.status);
+            }
         }
+
+        void fail(Exception e)
+        {
+            if (this.status != null) {
+                this.error = new MailStoreException(
+                    String.format("Failed to save mail status [%s] to the database.", this.status), e);
+            } else {
+                this.error = new MailStoreException(String.format(
+                    "Failed to delete mail status (message id [%s]) " + "from the database.", this.messageId), e);
+            }
+        }
+    }
+
+    @Override
+    public void save(final MailStatus status, final Map<String, Object> parameters) throws MailStoreException
+    {
+        write(new StatusOperation(status.getMessageId(), status));
     }
 
     @Override
@@ -182,26 +219,107 @@ public long count(final Map<String, Object> filterMap) throws MailStoreException
 
     @Override
     public void delete(final String uniqueMessageId, Map<String, Object> parameters) throws MailStoreException
+    {
+        write(new StatusOperation(uniqueMessageId, null));
+    }
+
+    private void write(StatusOperation operation) throws MailStoreException
+    {
+        // Group commit: the thread which gets the lock writes all the pending operations, including the ones of the
+        // threads waiting for the lock, in a single transaction
+        this.pendingOperations.add(operation);
+
+        this.writeLock.lock();
+        try {
+            if (!operation.done) {
+                writePendingOperations();
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+
+        if (operation.error != null) {
+            throw operation.error;
+        }
+    }
+
+    private void writePendingOperations()
     {
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
         XWikiContext xwikiContext = this.contextProvider.get();
-        // Delete from the main wiki
+        // Write in the main wiki
         String currentWiki = xwikiContext.getWikiId();
         xwikiContext.setWikiId(xwikiContext.getMainXWiki());
 
+        // Only the last operation of each message matters since saving a status starts by deleting the previous one
+        Map<String, StatusOperation> operations = new LinkedHashMap<>();
+        List<StatusOperation> batch = new ArrayList<>();
+        for (StatusOperation operation = this.pendingOperations.poll(); operation != null;
+            operation = this.pendingOperations.poll()) {
+            operations.remove(operation.messageId);
+            operations.put(operation.messageId, operation);
+            batch.add(operation);
+        }
+
         try {
             store.executeWrite(xwikiContext, session -> {
-                // Delete the message
-                String queryString = String.format("delete from %s where mail_id=:id", MailStatus.class.getName());
-                session.createQuery(queryString).setParameter(ID_PARAMETER_NAME, uniqueMessageId).executeUpdate();
+                writeOperations(operations.values(), session);
                 return null;
             });
+
+            // Log the writes for debugging purpose
+            operations.values().forEach(operation -> operation.log(this.logger));
         } catch (Exception e) {
-            throw new MailStoreException(String
-                .format("Failed to delete mail status (message id [%s]) " + "from the database.", uniqueMessageId), e);
+            if (operations.size() > 1) {
+                // Write the operations one by one to find which ones are failing
+                operations.values().forEach(operation -> writeOperation(operation, store, xwikiContext));
+            } else {
+                operations.values().forEach(operation -> operation.fail(e));
+            }
         } finally {
             xwikiContext.setWikiId(currentWiki);
+
+            // The operations which were overwritten by a more recent operation of the same message share its result
+            for (StatusOperation operation : batch) {
+                operation.error = operations.get(operation.messageId).error;
+                operation.done = true;
+            }
+        }
+    }
+
+    private void writeOperations(Collection<StatusOperation> operations, Session session)
+    {
+        // Delete any previous state of the messages
+        List<String> messageIds = new ArrayList<>(operations.size());
+        operations.forEach(operation -> messageIds.add(operation.messageId));
+        String queryString = String.format("delete from %s where mail_id in (:ids)", MailStatus.class.getName());
+        for (int i = 0; i < messageIds.size(); i += DELETE_BATCH_SIZE) {
+            session.createQuery(queryString)
+                .setParameterList(IDS_PARAMETER_NAME,
+                    messageIds.subList(i, Math.min(i + DELETE_BATCH_SIZE, messageIds.size())))
+                .executeUpdate();
+        }
+
+        // Insert the new states
+        for (StatusOperation operation : operations) {
+            if (operation.status != null) {
+                session.save(operation.status);
+            }
+        }
+    }
+
+    private void writeOperation(StatusOperation operation, XWikiHibernateBaseStore store, XWikiContext xwikiContext)
+    {
+        try {
+            store.executeWrite(xwikiContext, session -> {
+                writeOperations(Collections.singletonList(operation), session);
+                return null;
+            });
+
+            operation.log(this.logger);
+        } catch (Exception e) {
+            operation.fail(e);
         }
     }
 
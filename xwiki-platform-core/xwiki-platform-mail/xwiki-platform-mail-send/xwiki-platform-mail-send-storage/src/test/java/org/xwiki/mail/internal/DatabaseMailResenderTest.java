@@ -20,6 +20,7 @@
 package org.xwiki.mail.internal;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@
 
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.xwiki.component.util.DefaultParameterizedType;
@@ -48,6 +50,7 @@
 import org.xwiki.test.mockito.MockitoComponentManager;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -143,6 +146,59 @@ void resendAsynchronouslySeveralMessages() throws Exception
         verify(sender).sendAsynchronously(eq(Collections.singletonList(message2)), any(), any(MailListener.class));
     }
 
+    @BeforeComponent("resendAsynchronouslySeveralMessagesOfSameBatch")
+    void setupResendAsynchronouslySeveralMessagesOfSameBatch() throws Exception
+    {
+        setupResendSynchronouslySeveralMessages();
+    }
+
+    @Test
+    void resendAsynchronouslySeveralMessagesOfSameBatch() throws Exception
+    {
+        Map<String, Object> filterMap = Collections.singletonMap("state", "send_%");
+
+        MailStatus status1 = new MailStatus();
+        status1.setBatchId("batch");
+        status1.setMessageId("message1");
+
+        MailStatus status2 = new MailStatus();
+        status2.setBatchId("batch");
+        status2.setMessageId("message2");
+
+        MailStatusStore statusStore = this.componentManager.getInstance(MailStatusStore.class, "database");
+        when(statusStore.load(filterMap, 0, 0, null, true)).thenReturn(Arrays.asList(status1, status2));
+
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+        ExtendedMimeMessage message1 = new ExtendedMimeMessage();
+        when(contentStore.load(any(), eq("batch"), eq("message1"))).thenReturn(message1);
+        ExtendedMimeMessage message2 = new ExtendedMimeMessage();
+        when(contentStore.load(any(), eq("batch"), eq("message2"))).thenReturn(message2);
+
+        MailSender sender = this.componentManager.getInstance(MailSender.class);
+
+        Provider<MailListener> databaseMailListenerProvider = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, Provider.class, MailListener.class), "database");
+        DatabaseMailListener databaseMailListener1 = mock(DatabaseMailListener.class);
+        DatabaseMailListener databaseMailListener2 = mock(DatabaseMailListener.class);
+        when(databaseMailListenerProvider.get()).thenReturn(databaseMailListener1, databaseMailListener2);
+        MailStatusResult mailStatusResult1 = mock(MailStatusResult.class);
+        when(databaseMailListener1.getMailStatusResult()).thenReturn(mailStatusResult1);
+        MailStatusResult mailStatusResult2 = mock(MailStatusResult.class);
+        when(databaseMailListener2.getMailStatusResult()).thenReturn(mailStatusResult2);
+
+        List<Pair<MailStatus, MailStatusResult>> results =
+            this.databaseMailResender.resendAsynchronously(filterMap, 0, 0);
+
+        // The test is here: each mail has its own result
+        assertEquals(2, results.size());
+        assertSame(status1, results.get(0).getKey());
+        assertSame(mailStatusResult1, results.get(0).getValue());
+        assertSame(status2, results.get(1).getKey());
+        assertSame(mailStatusResult2, results.get(1).getValue());
+        verify(sender).sendAsynchronously(eq(Collections.singletonList(message1)), any(), same(databaseMailListener1));
+        verify(sender).sendAsynchronously(eq(Collections.singletonList(message2)), any(), same(databaseMailListener2));
+    }
+
     @BeforeComponent("resendSynchronouslySeveralMessages")
     void setupResendSynchronouslySeveralMessages() throws Exception
     {
@@ -19,17 +19,27 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Provider;
 
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.xwiki.component.util.ReflectionUtils;
 import org.xwiki.mail.MailState;
 import org.xwiki.mail.MailStatus;
+import org.xwiki.mail.MailStoreException;
 import org.xwiki.test.LogLevel;
 import org.xwiki.test.junit5.LogCaptureExtension;
 import org.xwiki.test.junit5.mockito.ComponentTest;
@@ -37,12 +47,20 @@
 import org.xwiki.test.junit5.mockito.MockComponent;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -117,4 +135,107 @@ void logsForloadMailStatus() throws Exception
         assertEquals("Loaded mail status [messageId = [messageid], batchId = [batchid], state = [prepare_success], "
             + "date = [<null>], recipients = [recipients]]", this.logCapture.getMessage(1));
     }
+
+    @Test
+    void saveWhenWriteFails() throws Exception
+    {
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWikiId()).thenReturn("wiki");
+        when(xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(this.store, "hibernateStore", hibernateStore);
+        when(hibernateStore.executeWrite(eq(xcontext), any())).thenThrow(new XWikiException());
+
+        MailStatus status = new MailStatus();
+        status.setBatchId("batchid");
+        status.setMessageId("messageid");
+        status.setState(MailState.PREPARE_SUCCESS);
+        status.setRecipients("recipients");
+
+        MailStoreException exception =
+            assertThrows(MailStoreException.class, () -> this.store.save(status, Collections.emptyMap()));
+        assertEquals("Failed to save mail status [messageId = [messageid], batchId = [batchid], "
+            + "state = [prepare_success], date = [<null>], recipients = [recipients]] to the database.",
+            exception.getMessage());
+
+        // The status is written in a single transaction and the previous wiki is restored
+        verify(hibernateStore).executeWrite(eq(xcontext), any());
+        verify(xcontext).setWikiId("mainwiki");
+        verify(xcontext).setWikiId("wiki");
+    }
+
+    private static long countWaiting(List<Thread> threads)
+    {
+        return threads.stream().filter(thread -> thread.getState() == Thread.State.WAITING).count();
+    }
+
+    @Test
+    void saveFromConcurrentThreads() throws Exception
+    {
+        int threads = 10;
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        Session session = mock(Session.class);
+        Query query = mock(Query.class);
+        when(session.createQuery(anyString())).thenReturn(query);
+        when(query.setParameterList(anyString(), anyCollection())).thenReturn(query);
+        List<String> saved = new CopyOnWriteArrayList<>();
+        when(session.save(any())).thenAnswer(invocation -> {
+            saved.add(((MailStatus) invocation.getArgument(0)).getMessageId());
+            return null;
+        });
+
+        // Block the first write until all the other threads are waiting for it to be finished
+        List<Thread> workers = new CopyOnWriteArrayList<>();
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(this.store, "hibernateStore", hibernateStore);
+        when(hibernateStore.executeWrite(eq(xcontext), any())).thenAnswer(invocation -> {
+            long end = System.currentTimeMillis() + 10000;
+            while (countWaiting(workers) < threads - 1 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+
+            return ((HibernateCallback<?>) invocation.getArgument(1)).doInHibernate(session);
+        }).thenAnswer(invocation -> ((HibernateCallback<?>) invocation.getArgument(1)).doInHibernate(session));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable);
+            workers.add(thread);
+
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                MailStatus status = new MailStatus();
+                status.setBatchId("batchid");
+                status.setMessageId("messageid" + i);
+                status.setState(MailState.PREPARE_SUCCESS);
+                futures.add(executor.submit(() -> {
+                    this.store.save(status, Collections.emptyMap());
+                    return null;
+                }));
+            }
+
+            // Each save returns without error once its status is written
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads, saved.size());
+        for (int i = 0; i < threads; i++) {
+            assertTrue(saved.contains("messageid" + i));
+        }
+
+        // The statuses saved while the first one was written are written together in a single transaction
+        verify(hibernateStore, times(2)).executeWrite(eq(xcontext), any());
+    }
 }
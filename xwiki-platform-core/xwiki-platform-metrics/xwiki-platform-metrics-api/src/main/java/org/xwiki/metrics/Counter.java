@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A value which only increases.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Unstable
+public interface Counter extends Metric
+{
+    /**
+     * Increment the counter by one.
+     */
+    default void increment()
+    {
+        increment(1);
+    }
+
+    /**
+     * @param amount the amount to add to the counter
+     */
+    void increment(long amount);
+
+    /**
+     * @return the current value of the counter
+     */
+    long getCount();
+
+    @Override
+    default MetricType getType()
+    {
+        return MetricType.COUNTER;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import java.util.Map;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A measure registered in the {@link MetricRegistry}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Unstable
+public interface Metric
+{
+    /**
+     * @return the name of the metric (for example {@code xwiki_action_duration})
+     */
+    String getName();
+
+    /**
+     * @return a human readable description of what is measured
+     */
+    String getDescription();
+
+    /**
+     * @return the tags distinguishing the various metrics with the same name (for example the name of the action)
+     */
+    Map<String, String> getTags();
+
+    /**
+     * @return the type of the metric
+     */
+    MetricType getType();
+}
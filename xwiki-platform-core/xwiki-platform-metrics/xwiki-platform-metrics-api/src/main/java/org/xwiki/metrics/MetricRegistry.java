@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import java.util.Collection;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Register and give access to the metrics of the instance.
+ * <p>
+ * A metric is identified by its name and its tags, the tags being passed as a list of alternating keys and values
+ * (for example {@code getTimer("xwiki_action_duration", "...", "action", "view")}). Asking several times for the same
+ * metric returns the same instance so the caller is free to either keep the metric or to ask for it each time it
+ * needs it.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Role
+@Unstable
+public interface MetricRegistry
+{
+    /**
+     * @param name the name of the counter
+     * @param description the description of the counter, only used when the counter is created
+     * @param tags the tags of the counter, as alternating keys and values
+     * @return the counter
+     */
+    Counter getCounter(String name, String description, String... tags);
+
+    /**
+     * @param name the name of the timer
+     * @param description the description of the timer, only used when the timer is created
+     * @param tags the tags of the timer, as alternating keys and values
+     * @return the timer
+     */
+    Timer getTimer(String name, String description, String... tags);
+
+    /**
+     * Register a counter whose value is maintained by someone else (for example an existing statistic of a cache).
+     *
+     * @param name the name of the counter
+     * @param description the description of the counter
+     * @param value provide the current value of the counter
+     * @param tags the tags of the counter, as alternating keys and values
+     */
+    void registerCounter(String name, String description, LongSupplier value, String... tags);
+
+    /**
+     * Register a gauge. A gauge already registered with the same name and tags is replaced.
+     *
+     * @param name the name of the gauge
+     * @param description the description of the gauge
+     * @param value provide the current value of the gauge
+     * @param tags the tags of the gauge, as alternating keys and values
+     */
+    void registerGauge(String name, String description, Supplier<? extends Number> value, String... tags);
+
+    /**
+     * @param name the name of the metric
+     * @param tags the tags of the metric, as alternating keys and values
+     */
+    void unregister(String name, String... tags);
+
+    /**
+     * @return all the registered metrics
+     */
+    Collection<Metric> getMetrics();
+}
@@ -0,0 +1,44 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Register the gauges and counters of a module which are computed from data it already maintains (size of a queue,
+ * statistics of a cache, etc.), without the components holding this data having to know about the
+ * {@link MetricRegistry}.
+ * <p>
+ * All the sources are bound when the application is started. The suppliers of the registered metrics are called each
+ * time the metrics are read so they should not initialize costly components themselves.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Role
+@Unstable
+public interface MetricSource
+{
+    /**
+     * @param registry the registry in which to register the metrics
+     */
+    void bindTo(MetricRegistry registry);
+}
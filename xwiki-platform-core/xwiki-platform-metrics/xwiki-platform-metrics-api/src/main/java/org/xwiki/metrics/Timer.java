@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * The distribution of the duration of an operation.
+ * <p>
+ * The durations are recorded in a histogram with buckets growing exponentially (each power of two is divided in
+ * linear sub buckets) so that recording a duration does not allocate anything and the percentiles are known with a
+ * bounded relative error whatever the range of the durations.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Unstable
+public interface Timer extends Metric
+{
+    /**
+     * @param duration the duration of the operation
+     * @param unit the unit of the duration
+     */
+    void record(long duration, TimeUnit unit);
+
+    /**
+     * Record the time elapsed since the passed start time.
+     *
+     * @param startNanos the start of the operation, as returned by {@link System#nanoTime()}
+     */
+    default void recordSince(long startNanos)
+    {
+        record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    long getCount();
+
+    /**
+     * @param unit the unit of the returned value
+     * @return the sum of the recorded durations
+     */
+    long getTotalTime(TimeUnit unit);
+
+    /**
+     * @param unit the unit of the returned value
+     * @return the longest recorded duration
+     */
+    long getMaxTime(TimeUnit unit);
+
+    /**
+     * @param percentile the percentile (between 0 and 100)
+     * @param unit the unit of the returned value
+     * @return the duration under which the passed percentage of the recorded durations are
+     */
+    long getPercentile(double percentile, TimeUnit unit);
+
+    @Override
+    default MetricType getType()
+    {
+        return MetricType.TIMER;
+    }
+}
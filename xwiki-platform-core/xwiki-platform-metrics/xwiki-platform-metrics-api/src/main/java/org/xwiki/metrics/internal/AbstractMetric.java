@@ -0,0 +1,75 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.Map;
+
+import org.xwiki.metrics.Metric;
+
+/**
+ * Base class for the metrics created by {@link DefaultMetricRegistry}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public abstract class AbstractMetric implements Metric
+{
+    private final String name;
+
+    private final String description;
+
+    private final Map<String, String> tags;
+
+    /**
+     * @param name the name of the metric
+     * @param description the description of the metric
+     * @param tags the tags of the metric
+     */
+    protected AbstractMetric(String name, String description, Map<String, String> tags)
+    {
+        this.name = name;
+        this.description = description;
+        this.tags = tags;
+    }
+
+    @Override
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return this.description;
+    }
+
+    @Override
+    public Map<String, String> getTags()
+    {
+        return this.tags;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.name + this.tags;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.metrics.Counter;
+import org.xwiki.metrics.Gauge;
+import org.xwiki.metrics.Metric;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.Timer;
+
+/**
+ * Default implementation of {@link MetricRegistry}, also exposing each metric through JMX.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Singleton
+public class DefaultMetricRegistry implements MetricRegistry
+{
+    private static final String MBEAN_NAME = "type=Metrics,name=";
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private Logger logger;
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    private static Map<String, String> toMap(String... tags)
+    {
+        if (tags.length % 2 != 0) {
+            throw new IllegalArgumentException("The tags should be a list of alternating keys and values");
+        }
+
+        if (tags.length == 0) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> map = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            map.put(tags[i], tags[i + 1]);
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static String toKey(String name, String... tags)
+    {
+        if (tags.length == 0) {
+            return name;
+        } else if (tags.length == 2) {
+            // Most common case on the hot paths
+            return name + ',' + tags[0] + '=' + tags[1];
+        }
+
+        StringBuilder key = new StringBuilder(name);
+        toMap(tags).forEach((tagKey, tagValue) -> key.append(',').append(tagKey).append('=').append(tagValue));
+
+        return key.toString();
+    }
+
+    private static String toObjectName(Metric metric)
+    {
+        StringBuilder objectName = new StringBuilder(MBEAN_NAME);
+        objectName.append(ObjectName.quote(metric.getName()));
+        metric.getTags().forEach(
+            (tagKey, tagValue) -> objectName.append(',').append(tagKey).append('=').append(ObjectName.quote(tagValue)));
+
+        return objectName.toString();
+    }
+
+    private <M extends Metric> M getMetric(Class<M> type, String name, String[] tags,
+        Function<Map<String, String>, M> factory)
+    {
+        String key = toKey(name, tags);
+
+        Metric metric = this.metrics.get(key);
+        if (metric == null) {
+            M newMetric = factory.apply(toMap(tags));
+            metric = this.metrics.putIfAbsent(key, newMetric);
+            if (metric == null) {
+                register(newMetric);
+
+                return newMetric;
+            }
+        }
+
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(
+                String.format("The metric [%s] is not a [%s]", metric, type.getSimpleName()));
+        }
+
+        return type.cast(metric);
+    }
+
+    private void setMetric(Metric metric, String... tags)
+    {
+        Metric previous = this.metrics.put(toKey(metric.getName(), tags), metric);
+        if (previous != null) {
+            unregister(previous);
+        }
+
+        register(metric);
+    }
+
+    private void register(Metric metric)
+    {
+        Object mbean;
+        if (metric instanceof Timer) {
+            mbean = new JMXTimer((Timer) metric);
+        } else if (metric instanceof Counter) {
+            mbean = new JMXCounter((Counter) metric);
+        } else {
+            mbean = new JMXGauge((Gauge) metric);
+        }
+
+        JMXBeanRegistration jmxRegistration = getJMXBeanRegistration();
+        if (jmxRegistration != null) {
+            jmxRegistration.registerMBean(mbean, toObjectName(metric));
+        }
+    }
+
+    private void unregister(Metric metric)
+    {
+        JMXBeanRegistration jmxRegistration = getJMXBeanRegistration();
+        if (jmxRegistration != null) {
+            jmxRegistration.unregisterMBean(toObjectName(metric));
+        }
+    }
+
+    private JMXBeanRegistration getJMXBeanRegistration()
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(JMXBeanRegistration.class)) {
+            try {
+                return componentManager.getInstance(JMXBeanRegistration.class);
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to expose the metrics through JMX", e);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Counter getCounter(String name, String description, String... tags)
+    {
+        return getMetric(Counter.class, name, tags, map -> new DefaultCounter(name, description, map));
+    }
+
+    @Override
+    public Timer getTimer(String name, String description, String... tags)
+    {
+        return getMetric(Timer.class, name, tags, map -> new DefaultTimer(name, description, map));
+    }
+
+    @Override
+    public void registerCounter(String name, String description, LongSupplier value, String... tags)
+    {
+        setMetric(new FunctionCounter(name, description, toMap(tags), value), tags);
+    }
+
+    @Override
+    public void registerGauge(String name, String description, Supplier<? extends Number> value, String... tags)
+    {
+        setMetric(new FunctionGauge(name, description, toMap(tags), value), tags);
+    }
+
+    @Override
+    public void unregister(String name, String... tags)
+    {
+        Metric metric = this.metrics.remove(toKey(name, tags));
+        if (metric != null) {
+            unregister(metric);
+        }
+    }
+
+    @Override
+    public Collection<Metric> getMetrics()
+    {
+        return Collections.unmodifiableCollection(this.metrics.values());
+    }
+}
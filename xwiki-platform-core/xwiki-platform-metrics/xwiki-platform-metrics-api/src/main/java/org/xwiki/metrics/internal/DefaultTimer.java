@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.metrics.Timer;
+
+/**
+ * A {@link Timer} storing the durations in nanoseconds in a {@link LatencyHistogram}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class DefaultTimer extends AbstractMetric implements Timer
+{
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param name the name of the timer
+     * @param description the description of the timer
+     * @param tags the tags of the timer
+     */
+    public DefaultTimer(String name, String description, Map<String, String> tags)
+    {
+        super(name, description, tags);
+    }
+
+    @Override
+    public void record(long duration, TimeUnit unit)
+    {
+        long nanos = unit.toNanos(duration);
+
+        this.histogram.record(nanos);
+        this.count.increment();
+        this.total.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    @Override
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    @Override
+    public long getTotalTime(TimeUnit unit)
+    {
+        return unit.convert(this.total.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getMaxTime(TimeUnit unit)
+    {
+        return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getPercentile(double percentile, TimeUnit unit)
+    {
+        // The reported value is the upper bound of a bucket so make sure it's never higher than the actual maximum
+        return unit.convert(Math.min(this.histogram.getPercentile(percentile), this.max.get()),
+            TimeUnit.NANOSECONDS);
+    }
+}
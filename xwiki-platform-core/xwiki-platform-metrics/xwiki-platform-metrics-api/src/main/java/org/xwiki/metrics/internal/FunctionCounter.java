@@ -0,0 +1,61 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.xwiki.metrics.Counter;
+
+/**
+ * A {@link Counter} whose value is maintained by someone else.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class FunctionCounter extends AbstractMetric implements Counter
+{
+    private final LongSupplier value;
+
+    /**
+     * @param name the name of the counter
+     * @param description the description of the counter
+     * @param tags the tags of the counter
+     * @param value provide the current value of the counter
+     */
+    public FunctionCounter(String name, String description, Map<String, String> tags, LongSupplier value)
+    {
+        super(name, description, tags);
+
+        this.value = value;
+    }
+
+    @Override
+    public void increment(long amount)
+    {
+        throw new UnsupportedOperationException("The counter [" + this + "] is maintained by its source");
+    }
+
+    @Override
+    public long getCount()
+    {
+        return this.value.getAsLong();
+    }
+}
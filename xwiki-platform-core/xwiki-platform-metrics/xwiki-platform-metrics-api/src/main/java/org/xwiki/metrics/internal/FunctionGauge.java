@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.xwiki.metrics.Gauge;
+
+/**
+ * A {@link Gauge} whose value is computed by a {@link Supplier}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class FunctionGauge extends AbstractMetric implements Gauge
+{
+    private final Supplier<? extends Number> value;
+
+    /**
+     * @param name the name of the gauge
+     * @param description the description of the gauge
+     * @param tags the tags of the gauge
+     * @param value provide the current value of the gauge
+     */
+    public FunctionGauge(String name, String description, Map<String, String> tags, Supplier<? extends Number> value)
+    {
+        super(name, description, tags);
+
+        this.value = value;
+    }
+
+    @Override
+    public Number getValue()
+    {
+        return this.value.get();
+    }
+}
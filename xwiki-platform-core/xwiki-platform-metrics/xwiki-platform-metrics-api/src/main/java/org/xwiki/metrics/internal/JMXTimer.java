@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.xwiki.metrics.Timer;
+
+/**
+ * Default implementation of {@link JMXTimerMBean}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class JMXTimer implements JMXTimerMBean
+{
+    private static final double NANOS_PER_MILLI = 1000000D;
+
+    private final Timer timer;
+
+    /**
+     * @param timer the timer to expose
+     */
+    public JMXTimer(Timer timer)
+    {
+        this.timer = timer;
+    }
+
+    private double getPercentile(double percentile)
+    {
+        return this.timer.getPercentile(percentile, TimeUnit.NANOSECONDS) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getCount()
+    {
+        return this.timer.getCount();
+    }
+
+    @Override
+    public double getMean()
+    {
+        long count = this.timer.getCount();
+
+        return count > 0 ? this.timer.getTotalTime(TimeUnit.NANOSECONDS) / NANOS_PER_MILLI / count : 0;
+    }
+
+    @Override
+    public double getMax()
+    {
+        return this.timer.getMaxTime(TimeUnit.NANOSECONDS) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double get50thPercentile()
+    {
+        return getPercentile(50);
+    }
+
+    @Override
+    public double get95thPercentile()
+    {
+        return getPercentile(95);
+    }
+
+    @Override
+    public double get99thPercentile()
+    {
+        return getPercentile(99);
+    }
+
+    @Override
+    public double get999thPercentile()
+    {
+        return getPercentile(99.9);
+    }
+}
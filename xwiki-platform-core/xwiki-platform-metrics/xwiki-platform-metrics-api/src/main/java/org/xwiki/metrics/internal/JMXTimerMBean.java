@@ -0,0 +1,64 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+/**
+ * Expose a {@link org.xwiki.metrics.Timer} through JMX. All the durations are in milliseconds.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public interface JMXTimerMBean
+{
+    /**
+     * @return the number of recorded durations
+     */
+    long getCount();
+
+    /**
+     * @return the average duration
+     */
+    double getMean();
+
+    /**
+     * @return the longest duration
+     */
+    double getMax();
+
+    /**
+     * @return the median duration
+     */
+    double get50thPercentile();
+
+    /**
+     * @return the 95th percentile of the durations
+     */
+    double get95thPercentile();
+
+    /**
+     * @return the 99th percentile of the durations
+     */
+    double get99thPercentile();
+
+    /**
+     * @return the 99.9th percentile of the durations
+     */
+    double get999thPercentile();
+}
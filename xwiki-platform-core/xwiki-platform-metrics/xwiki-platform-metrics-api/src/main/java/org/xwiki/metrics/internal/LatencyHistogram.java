@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of positive values with log-linear buckets (in the spirit of HdrHistogram): each power of two
+ * is divided in {@value #SUB_BUCKET_COUNT} buckets of the same width so that the relative error of the reported
+ * values is always lower than {@code 1/}{@value #SUB_BUCKET_COUNT} while the whole {@code long} range is covered with
+ * less than a thousand counters.
+ * <p>
+ * Recording a value is a lock free increment of a counter and the read operations work on a non atomic view of the
+ * counters, which is good enough for monitoring.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    /**
+     * The highest index is reached for values with their highest bit at position 62.
+     */
+    private static final int BUCKET_COUNT = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    static int getIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) Math.max(value, 0);
+        }
+
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+    }
+
+    static long getHighestValue(int index)
+    {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = ((long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK))) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @param value the value to record
+     */
+    public void record(long value)
+    {
+        this.buckets.incrementAndGet(getIndex(value));
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount()
+    {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            count += this.buckets.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * @param percentile the percentile (between 0 and 100)
+     * @return the highest value of the bucket containing the percentile, 0 if no value has been recorded
+     */
+    public long getPercentile(double percentile)
+    {
+        // Work on a copy to make sure the total and the walk are based on the same counters
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = this.buckets.get(i);
+            total += counts[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100D) / 100D * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += counts[i];
+            if (seen >= target) {
+                return getHighestValue(i);
+            }
+        }
+
+        return getHighestValue(BUCKET_COUNT - 1);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.MetricSource;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.ApplicationStartedEvent;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Bind all the {@link MetricSource}s to the {@link MetricRegistry} when the application is started.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Named(MetricSourcesInitializer.NAME)
+@Singleton
+public class MetricSourcesInitializer extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.metrics.internal.MetricSourcesInitializer";
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private Provider<MetricRegistry> registryProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Setup the listener.
+     */
+    public MetricSourcesInitializer()
+    {
+        super(NAME, new ApplicationStartedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        MetricRegistry registry = this.registryProvider.get();
+
+        try {
+            for (MetricSource metricSource : this.componentManagerProvider.get()
+                .<MetricSource>getInstanceList(MetricSource.class)) {
+                try {
+                    metricSource.bindTo(registry);
+                } catch (Exception e) {
+                    this.logger.warn("Failed to register the metrics of [{}]", metricSource, e);
+                }
+            }
+        } catch (ComponentLookupException e) {
+            this.logger.error("Failed to lookup the metric sources", e);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.metrics.Counter;
+import org.xwiki.metrics.Gauge;
+import org.xwiki.metrics.Metric;
+import org.xwiki.metrics.MetricType;
+import org.xwiki.metrics.Timer;
+
+/**
+ * Write the metrics in the Prometheus text exposition format (version 0.0.4).
+ * <p>
+ * Counters get the {@code _total} suffix and timers are exposed in seconds as summaries (with a few percentiles) and a
+ * separate {@code _max} gauge.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = PrometheusMetricsWriter.class)
+@Singleton
+public class PrometheusMetricsWriter
+{
+    /**
+     * The content type of the produced text.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+
+    private static final double NANOS_PER_SECOND = 1000000000D;
+
+    private static final String TOTAL_SUFFIX = "_total";
+
+    private static final String SECONDS_SUFFIX = "_seconds";
+
+    private static final char NEW_LINE = '\n';
+
+    private static final char SPACE = ' ';
+
+    /**
+     * @param metrics the metrics to write
+     * @param writer the writer where to write the metrics
+     * @throws IOException when failing to write the metrics
+     */
+    public void write(Collection<Metric> metrics, Writer writer) throws IOException
+    {
+        // Prometheus expects all the samples of a metric family to be grouped
+        Map<String, List<Metric>> families = new TreeMap<>();
+        for (Metric metric : metrics) {
+            families.computeIfAbsent(metric.getName(), k -> new ArrayList<>()).add(metric);
+        }
+
+        for (List<Metric> family : families.values()) {
+            MetricType type = family.get(0).getType();
+            if (type == MetricType.TIMER) {
+                writeTimers(family, writer);
+            } else if (type == MetricType.COUNTER) {
+                writeCounters(family, writer);
+            } else {
+                writeGauges(family, writer);
+            }
+        }
+    }
+
+    private void writeCounters(List<Metric> family, Writer writer) throws IOException
+    {
+        String name = sanitize(family.get(0).getName());
+        if (!name.endsWith(TOTAL_SUFFIX)) {
+            name += TOTAL_SUFFIX;
+        }
+
+        writeHeader(name, family.get(0).getDescription(), "counter", writer);
+        for (Metric metric : family) {
+            if (metric instanceof Counter) {
+                writeSample(name, metric.getTags(), null, String.valueOf(((Counter) metric).getCount()), writer);
+            }
+        }
+    }
+
+    private void writeGauges(List<Metric> family, Writer writer) throws IOException
+    {
+        String name = sanitize(family.get(0).getName());
+
+        writeHeader(name, family.get(0).getDescription(), "gauge", writer);
+        for (Metric metric : family) {
+            if (metric instanceof Gauge) {
+                Number value = ((Gauge) metric).getValue();
+                if (value != null) {
+                    writeSample(name, metric.getTags(), null, formatNumber(value), writer);
+                }
+            }
+        }
+    }
+
+    private void writeTimers(List<Metric> family, Writer writer) throws IOException
+    {
+        String name = sanitize(family.get(0).getName()) + SECONDS_SUFFIX;
+        String description = family.get(0).getDescription();
+
+        writeHeader(name, description, "summary", writer);
+        for (Metric metric : family) {
+            if (metric instanceof Timer) {
+                Timer timer = (Timer) metric;
+                for (double quantile : QUANTILES) {
+                    writeSample(name, metric.getTags(), String.valueOf(quantile),
+                        toSeconds(timer.getPercentile(quantile * 100, TimeUnit.NANOSECONDS)), writer);
+                }
+                writeSample(name + "_sum", metric.getTags(), null,
+                    toSeconds(timer.getTotalTime(TimeUnit.NANOSECONDS)), writer);
+                writeSample(name + "_count", metric.getTags(), null, String.valueOf(timer.getCount()), writer);
+            }
+        }
+
+        String maxName = name + "_max";
+        writeHeader(maxName, description, "gauge", writer);
+        for (Metric metric : family) {
+            if (metric instanceof Timer) {
+                writeSample(maxName, metric.getTags(), null,
+                    toSeconds(((Timer) metric).getMaxTime(TimeUnit.NANOSECONDS)), writer);
+            }
+        }
+    }
+
+    private void writeHeader(String name, String description, String type, Writer writer) throws IOException
+    {
+        if (description != null) {
+            writer.append("# HELP ").append(name).append(SPACE);
+            writer.append(description.replace("\\", "\\\\").replace("\n", "\\n")).append(NEW_LINE);
+        }
+        writer.append("# TYPE ").append(name).append(SPACE).append(type).append(NEW_LINE);
+    }
+
+    private void writeSample(String name, Map<String, String> tags, String quantile, String value, Writer writer)
+        throws IOException
+    {
+        writer.append(name);
+
+        if (!tags.isEmpty() || quantile != null) {
+            writer.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                if (!first) {
+                    writer.append(',');
+                }
+                writeLabel(sanitize(tag.getKey()), tag.getValue(), writer);
+                first = false;
+            }
+            if (quantile != null) {
+                if (!first) {
+                    writer.append(',');
+                }
+                writeLabel("quantile", quantile, writer);
+            }
+            writer.append('}');
+        }
+
+        writer.append(SPACE).append(value).append(NEW_LINE);
+    }
+
+    private void writeLabel(String name, String value, Writer writer) throws IOException
+    {
+        writer.append(name).append("=\"");
+        writer.append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+        writer.append('"');
+    }
+
+    private String toSeconds(long nanos)
+    {
+        return String.valueOf(nanos / NANOS_PER_SECOND);
+    }
+
+    private String formatNumber(Number value)
+    {
+        if (value instanceof Double || value instanceof Float) {
+            return String.valueOf(value.doubleValue());
+        }
+
+        return String.valueOf(value.longValue());
+    }
+
+    private String sanitize(String name)
+    {
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+                || (i > 0 && c >= '0' && c <= '9')) {
+                builder.append(c);
+            } else {
+                builder.append('_');
+            }
+        }
+
+        return builder.toString();
+    }
+}
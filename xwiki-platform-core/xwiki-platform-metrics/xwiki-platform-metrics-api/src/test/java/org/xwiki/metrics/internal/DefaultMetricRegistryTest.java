@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.metrics.Counter;
+import org.xwiki.metrics.Gauge;
+import org.xwiki.metrics.Timer;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultMetricRegistry} and {@link PrometheusMetricsWriter}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultMetricRegistryTest
+{
+    @InjectMockComponents
+    private DefaultMetricRegistry registry;
+
+    @InjectMockComponents
+    private PrometheusMetricsWriter writer;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.componentManagerProvider.get()).thenReturn(mock(ComponentManager.class));
+    }
+
+    @Test
+    void getCounter()
+    {
+        Counter counter = this.registry.getCounter("counter", "description", "key", "value");
+
+        assertSame(counter, this.registry.getCounter("counter", "description", "key", "value"));
+        assertNotSame(counter, this.registry.getCounter("counter", "description", "key", "other"));
+
+        counter.increment();
+        counter.increment(2);
+
+        assertEquals(3, counter.getCount());
+        assertEquals(2, this.registry.getMetrics().size());
+
+        assertThrows(IllegalArgumentException.class, () -> this.registry.getTimer("counter", null, "key", "value"));
+        assertThrows(IllegalArgumentException.class, () -> this.registry.getCounter("counter", null, "key"));
+    }
+
+    @Test
+    void getTimer()
+    {
+        Timer timer = this.registry.getTimer("timer", "description");
+
+        for (long value = 1; value <= 100; ++value) {
+            timer.record(value, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(100, timer.getCount());
+        assertEquals(5050, timer.getTotalTime(TimeUnit.MILLISECONDS));
+        assertEquals(100, timer.getMaxTime(TimeUnit.MILLISECONDS));
+        assertEquals(100, timer.getPercentile(100, TimeUnit.MILLISECONDS));
+
+        long median = timer.getPercentile(50, TimeUnit.MILLISECONDS);
+        assertTrue(median >= 50 && median <= 53, "Unexpected median: " + median);
+    }
+
+    @Test
+    void registerGauge()
+    {
+        AtomicInteger value = new AtomicInteger(1);
+
+        this.registry.registerGauge("gauge", "description", value::get);
+        value.set(2);
+
+        assertEquals(2, ((Gauge) this.registry.getMetrics().iterator().next()).getValue());
+
+        this.registry.registerGauge("gauge", "description", () -> 3);
+
+        assertEquals(1, this.registry.getMetrics().size());
+        assertEquals(3, ((Gauge) this.registry.getMetrics().iterator().next()).getValue());
+
+        this.registry.unregister("gauge");
+
+        assertTrue(this.registry.getMetrics().isEmpty());
+    }
+
+    @Test
+    void writePrometheus() throws IOException
+    {
+        this.registry.getCounter("requests", "The requests", "action", "view").increment(2);
+        this.registry.registerGauge("queue_size", null, () -> 4, "queue", "a\"b");
+        this.registry.getTimer("duration", "The duration").record(2, TimeUnit.SECONDS);
+
+        StringWriter output = new StringWriter();
+        this.writer.write(this.registry.getMetrics(), output);
+
+        String text = output.toString();
+
+        assertTrue(text.contains("# HELP requests_total The requests\n# TYPE requests_total counter\n"
+            + "requests_total{action=\"view\"} 2\n"), text);
+        assertTrue(text.contains("# TYPE queue_size gauge\nqueue_size{queue=\"a\\\"b\"} 4\n"), text);
+        assertTrue(text.contains("# TYPE duration_seconds summary\n"), text);
+        assertTrue(text.contains("duration_seconds{quantile=\"0.5\"} 2.0\n"), text);
+        assertTrue(text.contains("duration_seconds_sum 2.0\nduration_seconds_count 1\n"), text);
+        assertTrue(text.contains("# TYPE duration_seconds_max gauge\nduration_seconds_max 2.0\n"), text);
+    }
+}
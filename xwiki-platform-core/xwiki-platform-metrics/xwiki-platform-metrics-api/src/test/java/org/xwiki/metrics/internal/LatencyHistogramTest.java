@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link LatencyHistogram}.
+ *
+ * @version $Id$
+ */
+class LatencyHistogramTest
+{
+    @Test
+    void getIndex()
+    {
+        // Small values have their own bucket
+        for (long value = 0; value < 16; ++value) {
+            assertEquals(value, LatencyHistogram.getIndex(value));
+            assertEquals(value, LatencyHistogram.getHighestValue(LatencyHistogram.getIndex(value)));
+        }
+
+        // Bigger values are grouped but the error stays below 1/16
+        for (long value : new long[] {17, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            long highest = LatencyHistogram.getHighestValue(LatencyHistogram.getIndex(value));
+
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 16);
+        }
+    }
+
+    @Test
+    void getPercentile()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (long value = 1; value <= 1000; ++value) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getPercentile(50), 500 / 16D);
+        assertEquals(990, histogram.getPercentile(99), 990 / 16D);
+        assertEquals(1000, histogram.getPercentile(100), 1000 / 16D);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.handler.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.container.Container;
+import org.xwiki.container.servlet.ServletRequest;
+import org.xwiki.container.servlet.ServletResponse;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.internal.PrometheusMetricsWriter;
+import org.xwiki.resource.AbstractResourceReferenceHandler;
+import org.xwiki.resource.ResourceReference;
+import org.xwiki.resource.ResourceReferenceHandlerChain;
+import org.xwiki.resource.ResourceReferenceHandlerException;
+import org.xwiki.resource.ResourceType;
+import org.xwiki.resource.annotations.Authenticate;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+/**
+ * Expose the metrics in the Prometheus text format. The URL format handled is {@code http://server/context/metrics/}.
+ * <p>
+ * The metrics are only served to users with programming right, and to requests coming from the same machine (typically a
+ * monitoring agent running next to the application server) when explicitly allowed in the configuration (a reverse
+ * proxy running on the same machine would make all the requests look local).
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Named(MetricsResourceReferenceHandler.HINT)
+@Singleton
+@Authenticate
+public class MetricsResourceReferenceHandler extends AbstractResourceReferenceHandler<ResourceType>
+{
+    /**
+     * The role hint of the handler.
+     */
+    public static final String HINT = "metrics";
+
+    /**
+     * Represents a Metrics Resource Type.
+     */
+    public static final ResourceType TYPE = new ResourceType(HINT);
+
+    private static final String CONFIGURATION_ALLOW_LOCAL = "metrics.allowLocalAccess";
+
+    @Inject
+    private Container container;
+
+    @Inject
+    private MetricRegistry registry;
+
+    @Inject
+    private PrometheusMetricsWriter writer;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Override
+    public List<ResourceType> getSupportedResourceReferences()
+    {
+        return Arrays.asList(TYPE);
+    }
+
+    @Override
+    public void handle(ResourceReference reference, ResourceReferenceHandlerChain chain)
+        throws ResourceReferenceHandlerException
+    {
+        HttpServletRequest request = ((ServletRequest) this.container.getRequest()).getHttpServletRequest();
+        HttpServletResponse response = ((ServletResponse) this.container.getResponse()).getHttpServletResponse();
+
+        try {
+            if (isLocalAccessAllowed(request) || this.authorization.hasAccess(Right.PROGRAM)) {
+                response.setContentType(PrometheusMetricsWriter.CONTENT_TYPE);
+                // The metrics should always be up to date
+                response.setHeader("Cache-Control", "no-store");
+
+                try (Writer responseWriter = response.getWriter()) {
+                    this.writer.write(this.registry.getMetrics(), responseWriter);
+                }
+            } else {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "You are not allowed to view the metrics.");
+            }
+        } catch (IOException e) {
+            throw new ResourceReferenceHandlerException("Failed to write the metrics", e);
+        }
+
+        // Be a good citizen, continue the chain, in case some lower-priority Handler has something to do for this
+        // Resource Reference.
+        chain.handleNext(reference);
+    }
+
+    private boolean isLocalAccessAllowed(HttpServletRequest request)
+    {
+        if (!this.configuration.getProperty(CONFIGURATION_ALLOW_LOCAL, false)) {
+            return false;
+        }
+
+        // Don't trust the X-Forwarded-For header here: only a direct connection from the same machine is accepted
+        try {
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.handler.internal;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+
+import javax.inject.Named;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.container.Container;
+import org.xwiki.container.servlet.ServletRequest;
+import org.xwiki.container.servlet.ServletResponse;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.internal.PrometheusMetricsWriter;
+import org.xwiki.resource.ResourceReference;
+import org.xwiki.resource.ResourceReferenceHandlerChain;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link MetricsResourceReferenceHandler}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class MetricsResourceReferenceHandlerTest
+{
+    @InjectMockComponents
+    private MetricsResourceReferenceHandler handler;
+
+    @MockComponent
+    private Container container;
+
+    @MockComponent
+    private MetricRegistry registry;
+
+    @MockComponent
+    private PrometheusMetricsWriter writer;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorization;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    private HttpServletRequest httpRequest;
+
+    private HttpServletResponse httpResponse;
+
+    private final ResourceReference reference = mock(ResourceReference.class);
+
+    private final ResourceReferenceHandlerChain chain = mock(ResourceReferenceHandlerChain.class);
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        ServletRequest request = mock(ServletRequest.class);
+        this.httpRequest = mock(HttpServletRequest.class);
+        when(request.getHttpServletRequest()).thenReturn(this.httpRequest);
+        when(this.container.getRequest()).thenReturn(request);
+
+        ServletResponse response = mock(ServletResponse.class);
+        this.httpResponse = mock(HttpServletResponse.class);
+        when(response.getHttpServletResponse()).thenReturn(this.httpResponse);
+        when(this.container.getResponse()).thenReturn(response);
+        when(this.httpResponse.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+        when(this.registry.getMetrics()).thenReturn(Collections.emptyList());
+        when(this.configuration.getProperty("metrics.allowLocalAccess", false)).thenReturn(false);
+    }
+
+    private void assertForbidden() throws Exception
+    {
+        this.handler.handle(this.reference, this.chain);
+
+        verify(this.httpResponse).sendError(anyInt(), anyString());
+        verify(this.writer, never()).write(any(), any(Writer.class));
+        verify(this.chain).handleNext(this.reference);
+    }
+
+    private void assertServed() throws Exception
+    {
+        this.handler.handle(this.reference, this.chain);
+
+        verify(this.httpResponse).setContentType(PrometheusMetricsWriter.CONTENT_TYPE);
+        verify(this.writer).write(any(), any(Writer.class));
+        verify(this.httpResponse, never()).sendError(anyInt(), anyString());
+        verify(this.chain).handleNext(this.reference);
+    }
+
+    @Test
+    void getSupportedResourceReferences()
+    {
+        assertEquals(Collections.singletonList(MetricsResourceReferenceHandler.TYPE),
+            this.handler.getSupportedResourceReferences());
+    }
+
+    @Test
+    void handleWithProgrammingRight() throws Exception
+    {
+        when(this.httpRequest.getRemoteAddr()).thenReturn("192.0.2.1");
+        when(this.authorization.hasAccess(Right.PROGRAM)).thenReturn(true);
+
+        assertServed();
+    }
+
+    @Test
+    void handleWithoutProgrammingRight() throws Exception
+    {
+        when(this.httpRequest.getRemoteAddr()).thenReturn("192.0.2.1");
+
+        assertForbidden();
+    }
+
+    @Test
+    void handleLocalRequestWhenLocalAccessIsNotAllowed() throws Exception
+    {
+        // A reverse proxy running on the same machine makes all the requests look local
+        when(this.httpRequest.getRemoteAddr()).thenReturn("127.0.0.1");
+
+        assertForbidden();
+    }
+
+    @Test
+    void handleLocalRequestWhenLocalAccessIsAllowed() throws Exception
+    {
+        when(this.configuration.getProperty("metrics.allowLocalAccess", false)).thenReturn(true);
+        when(this.httpRequest.getRemoteAddr()).thenReturn("127.0.0.1");
+
+        assertServed();
+    }
+
+    @Test
+    void handleRemoteRequestWhenLocalAccessIsAllowed() throws Exception
+    {
+        when(this.configuration.getProperty("metrics.allowLocalAccess", false)).thenReturn(true);
+        when(this.httpRequest.getRemoteAddr()).thenReturn("192.0.2.1");
+
+        assertForbidden();
+    }
+}
@@ -20,6 +20,7 @@
 package org.xwiki.notifications;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Get the configuration options concerning the Notification module.
@@ -85,4 +86,15 @@ default int getAsyncPoolSize()
     {
         return 2;
     }
+
+    /**
+     * @return the number of threads to use for retrieving in advance the events of the next users of a periodic
+     *         (daily, weekly, etc.) notification email, 0 to retrieve them one user at a time in the mail thread
+     * @since 14.4RC1
+     */
+    @Unstable
+    default int getEmailDigestPoolSize()
+    {
+        return 2;
+    }
 }
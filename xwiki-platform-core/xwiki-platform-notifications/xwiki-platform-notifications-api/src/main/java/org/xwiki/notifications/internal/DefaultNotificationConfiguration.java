@@ -84,4 +84,10 @@ public int getAsyncPoolSize()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "async.poolSize", 2);
     }
+
+    @Override
+    public int getEmailDigestPoolSize()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "emails.digest.poolSize", 2);
+    }
 }
@@ -30,6 +30,7 @@
 import javax.inject.Provider;
 import javax.mail.Session;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -73,6 +74,20 @@
      * @param notificationUserIterator iterator for users interested in the notifications emails
      */
     public void sendEmails(Date fromDate, NotificationUserIterator notificationUserIterator)
+    {
+        sendEmails(fromDate, notificationUserIterator, new MailListener[0]);
+    }
+
+    /**
+     * Send notifications emails for specified users.
+     * 
+     * @param fromDate only send notifications about events that happened after this date
+     * @param notificationUserIterator iterator for users interested in the notifications emails
+     * @param listeners additional listeners to notify about the progress of the emails
+     * @since 14.4RC1
+     */
+    public void sendEmails(Date fromDate, NotificationUserIterator notificationUserIterator,
+        MailListener... listeners)
     {
         Map<String, Object> emailFactoryParameters = new HashMap<>();
 
@@ -87,7 +102,15 @@ public void sendEmails(Date fromDate, NotificationUserIterator notificationUserI
         MailListener mailListener = mailListenerProvider.get();
 
         // Pass it to the message sender to send it asynchronously.
-        this.mailSender.sendAsynchronously(periodicMimeMessageIterator, session,
-            new CompositeMailListener(mailListener, periodicMimeMessageIterator.getMailListener()));
+        try {
+            this.mailSender.sendAsynchronously(periodicMimeMessageIterator, session,
+                new CompositeMailListener(mailListener,
+                    ArrayUtils.add(listeners, periodicMimeMessageIterator.getMailListener())));
+        } catch (RuntimeException e) {
+            // The iterator won't be consumed
+            periodicMimeMessageIterator.close();
+
+            throw e;
+        }
     }
 }
@@ -36,7 +36,7 @@
  * @since 9.10RC1
  */
 @Role
-public interface PeriodicMimeMessageIterator extends Iterator<MimeMessage>, Iterable<MimeMessage>
+public interface PeriodicMimeMessageIterator extends Iterator<MimeMessage>, Iterable<MimeMessage>, AutoCloseable
 {
     /**
      * Initialize the iterator.
@@ -53,4 +53,14 @@ void initialize(NotificationUserIterator userIterator, Map<String, Object> facto
      * @return the listener to notify about prepared mail
      */
     MailListener getMailListener();
+
+    /**
+     * Release the resources used to prepare the messages (e.g. the threads retrieving the events in advance). This is
+     * done automatically when the listener returned by {@link #getMailListener()} is notified of the end of the
+     * preparation, but it should be called explicitly when the iterator won't be passed to the mail module.
+     *
+     * @since 14.4RC1
+     */
+    @Override
+    void close();
 }
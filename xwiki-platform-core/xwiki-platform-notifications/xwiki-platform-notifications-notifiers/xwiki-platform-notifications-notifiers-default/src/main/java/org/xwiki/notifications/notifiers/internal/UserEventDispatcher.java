@@ -325,19 +325,21 @@ private void dispatch(Event event, DocumentReference user, boolean mailEnabled)
         // Get the entity id
         String entityId = this.entityReferenceSerializer.serialize(user);
 
-        // Make sure the event is not already pre filtered
         // Make sure the user asked to be alerted about this event
-        if (!isStatusPrefiltered(event, entityId)
-            && this.userEventManager.isListening(event, user, NotificationFormat.ALERT)) {
+        // Make sure the event is not already pre filtered
+        // The filters are evaluated first since most users are generally not interested in a given event and it's a
+        // lot cheaper than searching the store
+        if (this.userEventManager.isListening(event, user, NotificationFormat.ALERT)
+            && !isStatusPrefiltered(event, entityId)) {
             // Associate the event with the user
             saveEventStatus(event, entityId);
         }
 
         // Make sure the notification module is allowed to send mails
-        // Make sure the event is not already pre filtered
         // Make sure the user asked to receive mails about this event
-        if (mailEnabled && !isMailPrefiltered(event, entityId)
-            && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)) {
+        // Make sure the event is not already pre filtered
+        if (mailEnabled && this.userEventManager.isListening(event, user, NotificationFormat.EMAIL)
+            && !isMailPrefiltered(event, entityId)) {
             // Associate the event with the user
             saveMailEntityEvent(event, entityId);
         }
@@ -141,6 +141,13 @@ public void onPrepareMessageError(ExtendedMimeMessage message, Exception e, Map<
             // Don't remove the mail notifications so that they can be retried later
             onPrepare(message, false);
         }
+
+        @Override
+        public void onPrepareEnd(Map<String, Object> parameters)
+        {
+            // The mail module won't consume the iterator anymore
+            onPrepareEnd();
+        }
     };
 
     private Iterator<DocumentReference> userIterator;
@@ -195,6 +202,15 @@ private void onPrepare(ExtendedMimeMessage message, boolean delete)
         }
     }
 
+    /**
+     * Called when the mail module stopped consuming the iterator, either because all the messages have been prepared
+     * or because the preparation failed.
+     */
+    protected void onPrepareEnd()
+    {
+        // Nothing to do by default
+    }
+
     protected abstract List<CompositeEvent> retrieveCompositeEventList(DocumentReference user)
         throws NotificationException;
 
@@ -335,7 +351,12 @@ private Map<String, Object> getVelocityVariables()
         return (Map<String, Object>) velocityVariables;
     }
 
-    private String getUserEmail(DocumentReference user)
+    /**
+     * @param user the reference of the user
+     * @return the email address of the user
+     * @since 14.4RC1
+     */
+    protected String getUserEmail(DocumentReference user)
     {
         return (String) this.documentAccessBridge.getProperty(user,
             new DocumentReference(user.getWikiReference().getName(), "XWiki", "XWikiUsers"), 0, EMAIL_PROPERTY);
@@ -19,24 +19,48 @@
  */
 package org.xwiki.notifications.notifiers.internal.email;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.sources.NotificationManager;
 
+import com.xpn.xwiki.XWikiContext;
+
 /**
  * Default implementation of {@link PeriodicMimeMessageIterator}.
+ * <p>
+ * When {@code notifications.emails.digest.poolSize} is greater than 0 the events of the next users are retrieved in
+ * advance by a dedicated thread pool while the email of the current user is rendered. The number of users retrieved in
+ * advance is bounded so that the iterator never gets too far ahead of the mail module which consumes it.
  *
  * @version $Id$
  * @since 9.10RC1
@@ -46,22 +70,205 @@
 public class DefaultPeriodicMimeMessageIterator extends AbstractMimeMessageIterator
     implements PeriodicMimeMessageIterator
 {
+    private static final int PREFETCH_WINDOW_FACTOR = 4;
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
     @Inject
     private NotificationManager notificationManager;
 
+    @Inject
+    private NotificationConfiguration configuration;
+
+    @Inject
+    private ExecutionContextManager contextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
     private Date lastTrigger;
 
+    private ThreadPoolExecutor executor;
+
+    private final Map<DocumentReference, Future<List<CompositeEvent>>> prefetched = new HashMap<>();
+
+    private final class PrefetchUserIterator implements Iterator<DocumentReference>
+    {
+        private final Iterator<DocumentReference> users;
+
+        private final Queue<DocumentReference> window = new ArrayDeque<>();
+
+        private final int windowSize;
+
+        private DocumentReference previousUser;
+
+        PrefetchUserIterator(Iterator<DocumentReference> users, int windowSize)
+        {
+            this.users = users;
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (this.window.isEmpty() && !this.users.hasNext()) {
+                // Nothing left to retrieve
+                executor.shutdown();
+
+                return false;
+            }
+
+            return true;
+        }
+
+        @Override
+        public DocumentReference next()
+        {
+            // Forget the events of the previous user if they were not needed (e.g. the user doesn't have any email)
+            if (this.previousUser != null) {
+                cancel(prefetched.remove(this.previousUser));
+            }
+
+            fill();
+
+            DocumentReference user = this.window.poll();
+            if (user == null) {
+                throw new NoSuchElementException();
+            }
+
+            fill();
+
+            this.previousUser = user;
+
+            return user;
+        }
+
+        private void fill()
+        {
+            while (this.window.size() < this.windowSize && this.users.hasNext()) {
+                DocumentReference user = this.users.next();
+                this.window.add(user);
+                prefetched.put(user, prefetch(user));
+            }
+        }
+    }
+
     @Override
     public void initialize(NotificationUserIterator userIterator, Map<String, Object> factoryParameters,
         Date lastTrigger, DocumentReference templateReference)
     {
         this.lastTrigger = lastTrigger;
 
-        super.initialize(userIterator, factoryParameters, templateReference);
+        Iterator<DocumentReference> users = userIterator;
+        int poolSize = this.configuration.getEmailDigestPoolSize();
+        if (poolSize > 0) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki notification email digest thread %d").daemon(true)
+                .priority(Thread.NORM_PRIORITY - 1).build();
+            this.executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+            // Make sure the threads don't stay around if the iterator is not consumed until the end
+            this.executor.allowCoreThreadTimeOut(true);
+
+            users = new PrefetchUserIterator(userIterator, poolSize * PREFETCH_WINDOW_FACTOR);
+        }
+
+        super.initialize(users, factoryParameters, templateReference);
+    }
+
+    @Override
+    protected void onPrepareEnd()
+    {
+        close();
+    }
+
+    @Override
+    public void close()
+    {
+        if (this.executor != null) {
+            // Stop retrieving the events of users which won't be consumed
+            this.prefetched.values().forEach(this::cancel);
+            this.prefetched.clear();
+
+            this.executor.shutdownNow();
+        }
+    }
+
+    private void cancel(Future<List<CompositeEvent>> future)
+    {
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    private Future<List<CompositeEvent>> prefetch(DocumentReference user)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        DocumentReference contextUser = xcontext.getUserReference();
+        String contextWiki = xcontext.getWikiId();
+
+        return this.executor.submit(() -> {
+            try {
+                // Initialize a proper execution context
+                this.contextManager.initialize(new ExecutionContext());
+
+                // Use the same user and wiki as the thread consuming the iterator
+                XWikiContext threadContext = this.xcontextProvider.get();
+                threadContext.setUserReference(contextUser);
+                threadContext.setWikiId(contextWiki);
+
+                if (!hasValidEmail(user)) {
+                    // No email will be sent to this user anyway
+                    return Collections.emptyList();
+                }
+
+                return getEvents(user);
+            } finally {
+                // Get rid of the execution context
+                this.execution.removeContext();
+            }
+        });
+    }
+
+    private boolean hasValidEmail(DocumentReference user)
+    {
+        try {
+            new InternetAddress(getUserEmail(user));
+
+            return true;
+        } catch (AddressException e) {
+            return false;
+        }
     }
 
     @Override
     protected List<CompositeEvent> retrieveCompositeEventList(DocumentReference user) throws NotificationException
+    {
+        Future<List<CompositeEvent>> future = this.prefetched.remove(user);
+        if (future == null) {
+            return getEvents(user);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new NotificationException(String.format("Interrupted while retrieving the events of [%s]", user), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NotificationException) {
+                throw (NotificationException) e.getCause();
+            }
+
+            throw new NotificationException(String.format("Failed to retrieve the events of [%s]", user),
+                e.getCause());
+        }
+    }
+
+    private List<CompositeEvent> getEvents(DocumentReference user) throws NotificationException
     {
         return this.notificationManager.getEvents(this.serializer.serialize(user), NotificationFormat.EMAIL,
             Integer.MAX_VALUE / 4, null, this.lastTrigger, Collections.emptyList());
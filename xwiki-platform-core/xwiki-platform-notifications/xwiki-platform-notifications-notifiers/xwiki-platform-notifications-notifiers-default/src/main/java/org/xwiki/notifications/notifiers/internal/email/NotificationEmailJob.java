@@ -21,14 +21,22 @@
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Map;
 
 import org.quartz.Job;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.mail.VoidMailListener;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.notifiers.internal.ModelBridge;
 import org.xwiki.notifications.preferences.NotificationEmailInterval;
 
@@ -45,6 +53,8 @@
  */
 public class NotificationEmailJob extends AbstractJob implements Job
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationEmailJob.class);
+
     private static final String LAST_FIRE_TIME = "lastFireTime";
 
     private static final String XWIKI_SPACE = "XWiki";
@@ -66,10 +76,33 @@ protected void executeJob(JobExecutionContext jobContext) throws JobExecutionExc
         NotificationUserIterator userIterator = Utils.getComponent(NotificationUserIterator.class);
         userIterator.initialize(getJobInterval(schedulerJobDocument));
 
-        NotificationEmailSender mailSender = Utils.getComponent(NotificationEmailSender.class);
-        mailSender.sendEmails(getPreviousFireTime(emailJobObjectReference), userIterator);
+        // Remember when the job started so that the events which are produced while the emails are generated are not
+        // missed by the next execution
+        Date fireTime = new Date();
+
+        Date previousFireTime = getPreviousFireTime(emailJobObjectReference);
 
-        setPreviousFireTime(emailJobObjectReference);
+        NotificationEmailSender mailSender = Utils.getComponent(NotificationEmailSender.class);
+        if (configuration.isEventPrefilteringEnabled()) {
+            // The emails are generated asynchronously so the last fire time is only updated once all of them are
+            // prepared: when the generation is interrupted (e.g. XWiki is stopped) the next execution starts again from
+            // the same date and the users who already received their email don't receive it again since the
+            // corresponding mail entities are removed as soon as their email is prepared
+            mailSender.sendEmails(previousFireTime, userIterator,
+                new LastFireTimeMailListener(emailJobObjectReference, fireTime));
+        } else {
+            // Without prefiltering nothing remembers which users already received their email, so an interrupted
+            // execution cannot be resumed without sending the same emails again
+            mailSender.sendEmails(previousFireTime, userIterator);
+
+            try {
+                setPreviousFireTime(emailJobObjectReference, fireTime);
+            } catch (NotificationException e) {
+                throw new JobExecutionException(
+                    String.format("Failed to update the last fire time property of [%s].", emailJobObjectReference),
+                    e);
+            }
+        }
     }
 
     private DocumentReference getSchedulerJobDocument(JobExecutionContext jobContext)
@@ -117,13 +150,53 @@ private Date getPreviousFireTime(BaseObjectReference emailJobObject)
         return new Date(0L);
     }
 
-    private void setPreviousFireTime(BaseObjectReference emailJobObject) throws JobExecutionException
+    private static final class LastFireTimeMailListener extends VoidMailListener
+    {
+        private final BaseObjectReference emailJobObject;
+
+        private final Date fireTime;
+
+        private boolean failed;
+
+        LastFireTimeMailListener(BaseObjectReference emailJobObject, Date fireTime)
+        {
+            this.emailJobObject = emailJobObject;
+            this.fireTime = fireTime;
+        }
+
+        @Override
+        public void onPrepareFatalError(Exception exception, Map<String, Object> parameters)
+        {
+            // Retry the same events during the next execution
+            this.failed = true;
+        }
+
+        @Override
+        public void onPrepareEnd(Map<String, Object> parameters)
+        {
+            if (!this.failed) {
+                setPreviousFireTimeInNewContext(this.emailJobObject, this.fireTime);
+            }
+        }
+    }
+
+    private static void setPreviousFireTime(BaseObjectReference emailJobObject, Date fireTime)
+        throws NotificationException
     {
+        Utils.getComponent(ModelBridge.class).savePropertyInHiddenDocument(emailJobObject, LAST_FIRE_TIME, fireTime);
+    }
+
+    private static void setPreviousFireTimeInNewContext(BaseObjectReference emailJobObject, Date fireTime)
+    {
+        // The mail module does not provide any context when notifying the end of the preparation
+        Execution execution = Utils.getComponent(Execution.class);
         try {
-            getModelBridge().savePropertyInHiddenDocument(emailJobObject, LAST_FIRE_TIME, new Date());
+            Utils.getComponent(ExecutionContextManager.class).initialize(new ExecutionContext());
+            setPreviousFireTime(emailJobObject, fireTime);
         } catch (Exception e) {
-            throw new JobExecutionException(
-                    String.format("Failed to update the last fire time property of [{}].", emailJobObject), e);
+            LOGGER.error("Failed to update the last fire time property of [{}].", emailJobObject, e);
+        } finally {
+            execution.removeContext();
         }
     }
 
@@ -131,9 +204,4 @@ private DocumentAccessBridge getDocumentAccessBridge()
     {
         return Utils.getComponent(DocumentAccessBridge.class);
     }
-
-    private ModelBridge getModelBridge()
-    {
-        return Utils.getComponent(ModelBridge.class);
-    }
 }
@@ -25,8 +25,11 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
@@ -41,6 +44,7 @@
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.notifiers.email.NotificationEmailRenderer;
 import org.xwiki.notifications.sources.NotificationManager;
@@ -49,6 +53,7 @@
 import org.xwiki.test.junit5.mockito.MockComponent;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Attachment;
 
 import static org.jgroups.util.Util.assertTrue;
@@ -105,9 +110,16 @@
     @MockComponent
     private UserAvatarAttachmentExtractor userAvatarAttachmentExtractor;
 
+    @MockComponent
+    private NotificationConfiguration configuration;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
     @BeforeEach
     void beforeEach()
     {
+        when(this.xcontextProvider.get()).thenReturn(mock(XWikiContext.class));
         when(this.wikiDescriptorManager.getCurrentWikiId()).thenReturn("xwiki");
         when(this.mailSenderConfiguration.getFromAddress()).thenReturn("xwiki@xwiki.org");
         when(this.documentReferenceResolver.resolve(eq(TEMPLATE_REFERENCE), any())).thenReturn(TEMPLATE_REFERENCE);
@@ -199,4 +211,98 @@ void test() throws Exception
         assertEquals(this.iterator, this.iterator.iterator());
     }
 
+    @Test
+    void prefetchEvents() throws Exception
+    {
+        when(this.configuration.getEmailDigestPoolSize()).thenReturn(2);
+
+        Map<String, Object> factoryParameters = new HashMap<>();
+
+        NotificationUserIterator userIterator = mock(NotificationUserIterator.class);
+        DocumentReference userA = new DocumentReference("xwiki", "XWiki", "UserA");
+        DocumentReference userB = new DocumentReference("xwiki", "XWiki", "UserB");
+        DocumentReference userC = new DocumentReference("xwiki", "XWiki", "UserC");
+        when(userIterator.hasNext()).thenReturn(true, true, true, false);
+        when(userIterator.next()).thenReturn(userA, userB, userC);
+        DocumentReference userClass = new DocumentReference("xwiki", "XWiki", "XWikiUsers");
+        when(this.documentAccessBridge.getProperty(userA, userClass, 0, "email")).thenReturn("userA@xwiki.org");
+        when(this.documentAccessBridge.getProperty(userB, userClass, 0, "email")).thenReturn("bad email");
+        when(this.documentAccessBridge.getProperty(userC, userClass, 0, "email")).thenReturn("userC@xwiki.org");
+        when(this.serializer.serialize(userA)).thenReturn("xwiki:XWiki.UserA");
+        when(this.serializer.serialize(userC)).thenReturn("xwiki:XWiki.UserC");
+
+        CompositeEvent event1 = mock(CompositeEvent.class);
+        CompositeEvent event2 = mock(CompositeEvent.class);
+
+        when(this.notificationManager.getEvents("xwiki:XWiki.UserA", NotificationFormat.EMAIL, Integer.MAX_VALUE / 4,
+            null, new Date(0L), Collections.emptyList())).thenReturn(Arrays.asList(event1));
+        when(this.notificationManager.getEvents("xwiki:XWiki.UserC", NotificationFormat.EMAIL, Integer.MAX_VALUE / 4,
+            null, new Date(0L), Collections.emptyList())).thenReturn(Arrays.asList(event2));
+
+        MimeMessage message = mock(MimeMessage.class);
+        when(this.factory.createMessage(TEMPLATE_REFERENCE, factoryParameters)).thenReturn(message, message);
+
+        this.iterator.initialize(userIterator, factoryParameters, new Date(0L), TEMPLATE_REFERENCE);
+
+        assertTrue(this.iterator.hasNext());
+        assertEquals(message, this.iterator.next());
+        assertEquals(new InternetAddress("userA@xwiki.org"), factoryParameters.get("to"));
+        assertEquals(Arrays.asList(event1),
+            ((Map<String, Object>) factoryParameters.get("velocityVariables")).get("events"));
+
+        assertTrue(this.iterator.hasNext());
+        assertEquals(message, this.iterator.next());
+        assertEquals(new InternetAddress("userC@xwiki.org"), factoryParameters.get("to"));
+        assertEquals(Arrays.asList(event2),
+            ((Map<String, Object>) factoryParameters.get("velocityVariables")).get("events"));
+
+        assertFalse(this.iterator.hasNext());
+
+        // The events of the user without a valid email are not retrieved
+        verify(this.serializer, never()).serialize(userB);
+    }
+
+    @Test
+    void closeWhenNotConsumedUntilTheEnd() throws Exception
+    {
+        when(this.configuration.getEmailDigestPoolSize()).thenReturn(1);
+
+        NotificationUserIterator userIterator = mock(NotificationUserIterator.class);
+        DocumentReference userA = new DocumentReference("xwiki", "XWiki", "UserA");
+        DocumentReference userB = new DocumentReference("xwiki", "XWiki", "UserB");
+        when(userIterator.hasNext()).thenReturn(true, true, false);
+        when(userIterator.next()).thenReturn(userA, userB);
+        DocumentReference userClass = new DocumentReference("xwiki", "XWiki", "XWikiUsers");
+        when(this.documentAccessBridge.getProperty(userA, userClass, 0, "email")).thenReturn("userA@xwiki.org");
+        when(this.documentAccessBridge.getProperty(userB, userClass, 0, "email")).thenReturn("userB@xwiki.org");
+        when(this.serializer.serialize(userA)).thenReturn("xwiki:XWiki.UserA");
+        when(this.serializer.serialize(userB)).thenReturn("xwiki:XWiki.UserB");
+
+        when(this.notificationManager.getEvents("xwiki:XWiki.UserA", NotificationFormat.EMAIL, Integer.MAX_VALUE / 4,
+            null, new Date(0L), Collections.emptyList())).thenReturn(Arrays.asList(mock(CompositeEvent.class)));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(this.notificationManager.getEvents("xwiki:XWiki.UserB", NotificationFormat.EMAIL, Integer.MAX_VALUE / 4,
+            null, new Date(0L), Collections.emptyList())).then(invocation -> {
+                started.countDown();
+                try {
+                    // Wait until interrupted
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+
+                return Collections.emptyList();
+            });
+
+        // The events of the first user are retrieved and the ones of the second user are retrieved in advance
+        this.iterator.initialize(userIterator, new HashMap<>(), new Date(0L), TEMPLATE_REFERENCE);
+        assertTrue(this.iterator.hasNext());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // The mail module stops consuming the iterator
+        this.iterator.getMailListener().onPrepareEnd(Collections.emptyMap());
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
 }
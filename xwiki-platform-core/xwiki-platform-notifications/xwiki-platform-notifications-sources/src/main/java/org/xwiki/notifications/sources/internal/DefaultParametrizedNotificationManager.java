@@ -99,6 +99,70 @@ public class DefaultParametrizedNotificationManager implements ParametrizedNotif
     @Inject
     private Logger logger;
 
+    /**
+     * The serialized references of a user and of its groups, resolved when first needed and then reused for all the
+     * events checked for the same request.
+     *
+     * @version $Id$
+     */
+    private final class UserTargets
+    {
+        private final DocumentReference userReference;
+
+        private String serializedUserReference;
+
+        private List<String> serializedGroups;
+
+        UserTargets(DocumentReference userReference)
+        {
+            this.userReference = userReference;
+        }
+
+        /**
+         * Determine if the user is targeted by the event targets.
+         * 
+         * @param event the event that is tested
+         * @return {@code true} iff the user is explicitely target, or through a group.
+         */
+        boolean isTargeted(Event event)
+        {
+            if (event.getTarget() == null || event.getTarget().isEmpty() || this.userReference == null) {
+                return false;
+            }
+
+            if (this.serializedUserReference == null) {
+                this.serializedUserReference = serializer.serialize(this.userReference);
+            }
+
+            // if the target explicitely contains the user reference we're good
+            if (event.getTarget().contains(this.serializedUserReference)) {
+                return true;
+            }
+
+            // else we need to check that the targets does not contain any group the user belongs to
+            // note that we do the check by starting from the user groups for better scalability
+            // compared to loading each targets individually
+            return getSerializedGroups().stream().anyMatch(event.getTarget()::contains);
+        }
+
+        private List<String> getSerializedGroups()
+        {
+            if (this.serializedGroups == null) {
+                this.serializedGroups = new ArrayList<>();
+                try {
+                    Collection<DocumentReference> groups = groupManager.getGroups(this.userReference, null, true);
+                    for (DocumentReference group : groups) {
+                        this.serializedGroups.add(serializer.serialize(group));
+                    }
+                } catch (GroupException e) {
+                    logger.error("Error while checking groups for user [{}]", this.userReference, e);
+                }
+            }
+
+            return this.serializedGroups;
+        }
+    }
+
     @Override
     public List<CompositeEvent> getEvents(NotificationParameters parameters) throws NotificationException
     {
@@ -118,6 +182,8 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
         // more events than expected and we will filter afterwards.
         int batchSize = parameters.expectedCount * 2;
         int offset = 0;
+        // The groups of the user are resolved only once for all the events, the first time an event targets a group
+        UserTargets userTargets = new UserTargets(parameters.user);
         try {
 
             boolean done = false;
@@ -125,7 +191,7 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
                 // Get a batch of events
                 List<Event> batch = this.eventSearcher.searchEvents(offset, batchSize, parameters);
 
-                done = addMatchingEventsToResults(batch, parameters, results);
+                done = addMatchingEventsToResults(batch, parameters, userTargets, results);
                 if (!done) {
                     if (batch.size() < batchSize) {
                         // there are no more results to expect. stop.
@@ -147,7 +213,7 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
     }
 
     private boolean addMatchingEventsToResults(List<Event> batch, NotificationParameters parameters,
-        List<CompositeEvent> results) throws EventStreamException, NotificationException
+        UserTargets userTargets, List<CompositeEvent> results) throws EventStreamException, NotificationException
     {
         boolean done = false;
         // Add to the results the events the user has the right to see
@@ -160,7 +226,7 @@ private boolean addMatchingEventsToResults(List<Event> batch, NotificationParame
                 continue;
             }
 
-            if (filterEvent(event, parameters)) {
+            if (filterEvent(event, parameters, userTargets)) {
                 continue;
             }
 
@@ -184,47 +250,12 @@ private boolean isAllowed(DocumentReference passedUser, DocumentReference docume
         return allowed;
     }
 
-    /**
-     * Determine if the given user reference is targeted by the event targets.
-     * 
-     * @param event the event that is tested
-     * @param userReference the user reference given by the parameters
-     * @return {@code true} iff the user is explicitely target, or through a group.
-     */
-    private boolean eventTargetUser(Event event, DocumentReference userReference)
-    {
-        boolean result = false;
-        if (event.getTarget() != null && !event.getTarget().isEmpty() && userReference != null) {
-            String serializedUserReference = this.serializer.serialize(userReference);
-
-            // if the target explicitely contains the user reference we're good
-            if (event.getTarget().contains(serializedUserReference)) {
-                result = true;
-                // else we need to check that the targets does not contain any group the user belongs to
-                // note that we do the check by starting from the user groups for better scalability
-                // compared to loading each targets individually
-            } else {
-                try {
-                    Collection<DocumentReference> groups = this.groupManager.getGroups(userReference, null, true);
-                    for (DocumentReference group : groups) {
-                        if (event.getTarget().contains(this.serializer.serialize(group))) {
-                            result = true;
-                            break;
-                        }
-                    }
-                } catch (GroupException e) {
-                    logger.error("Error while checking groups for user [{}]", userReference, e);
-                }
-            }
-        }
-        return result;
-    }
-
-    private boolean filterEvent(Event event, NotificationParameters parameters) throws EventStreamException
+    private boolean filterEvent(Event event, NotificationParameters parameters, UserTargets userTargets)
+        throws EventStreamException
     {
-        // Don't record events that have a target that don't include the current user
-        if (!event.getTarget().isEmpty()
-            && (parameters.user == null || !this.eventTargetUser(event, parameters.user))) {
+        // Don't record events that have a target that don't include the current user. This is also checked for the
+        // events associated with the user by the prefiltering since the user might have left the targeted group since.
+        if (!event.getTarget().isEmpty() && (parameters.user == null || !userTargets.isTargeted(event))) {
             return true;
         }
 
@@ -37,6 +37,7 @@
 import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
 import org.xwiki.notifications.internal.SimilarityCalculator;
 import org.xwiki.notifications.preferences.NotificationPreference;
 import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
@@ -886,4 +887,39 @@ public void getEventsFilterOnTarget() throws Exception
         assertEquals(1, results.size());
         verify(this.groupManager, times(2)).getGroups(this.userReference, null, true);
     }
+
+    @Test
+    void getEventsFromUserInboxChecksTargets() throws Exception
+    {
+        Event event1 = createMockedEvent();
+        when(event1.getType()).thenReturn("update");
+        when(event1.getTarget()).thenReturn(new HashSet<>(Arrays.asList("Foo.bar")));
+        Event event2 = createMockedEvent();
+        when(event2.getType()).thenReturn("update");
+        when(event2.getTarget()).thenReturn(new HashSet<>(Arrays.asList("Foo.bar")));
+
+        when(authorizationManager.hasAccess(eq(Right.VIEW), eq(userReference), any())).thenReturn(true);
+        when(contextualAuthorizationManager.hasAccess(eq(Right.VIEW), any())).thenReturn(true);
+        when(eventStream.searchEvents(query)).thenReturn(Arrays.asList(event1, event2));
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = this.userReference;
+        parameters.expectedCount = 2;
+        parameters.filters.add(new ForUserEventFilter(NotificationFormat.ALERT, null));
+        when(serializer.serialize(this.userReference)).thenReturn("XWiki.UserA");
+
+        DocumentReference groupReference = mock(DocumentReference.class);
+        when(this.groupManager.getGroups(this.userReference, null, true)).thenReturn(Arrays.asList(groupReference));
+        when(this.serializer.serialize(groupReference)).thenReturn("Foo.bar");
+
+        // The user is targeted through a group: the groups are resolved only once for all the events
+        List<CompositeEvent> results = this.defaultParametrizedNotificationManager.getEvents(parameters);
+        assertEquals(2, results.stream().mapToInt(result -> result.getEvents().size()).sum());
+        verify(this.groupManager, times(1)).getGroups(this.userReference, null, true);
+
+        // The user left the group since the prefiltering associated the events with the user
+        when(this.groupManager.getGroups(this.userReference, null, true)).thenReturn(Collections.emptyList());
+
+        results = this.defaultParametrizedNotificationManager.getEvents(parameters);
+        assertTrue(results.isEmpty());
+    }
 }
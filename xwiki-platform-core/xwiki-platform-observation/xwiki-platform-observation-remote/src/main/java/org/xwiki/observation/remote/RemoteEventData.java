@@ -20,6 +20,9 @@
 package org.xwiki.observation.remote;
 
 import java.io.Serializable;
+import java.util.function.BiConsumer;
+
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents a remote event with all its datas.
@@ -50,6 +53,16 @@ public class RemoteEventData implements Serializable
      */
     private Serializable data;
 
+    /**
+     * Identify what the event is about when only the last of several such events needs to be sent.
+     */
+    private transient Object coalescingKey;
+
+    /**
+     * Merge into this event what needs to be kept from the event it replaces.
+     */
+    private transient BiConsumer<RemoteEventData, RemoteEventData> coalescer;
+
     /**
      * The default constructor.
      */
@@ -119,6 +132,55 @@ public void setData(Serializable data)
         this.data = data;
     }
 
+    /**
+     * @return the key identifying what the event is about when only the last of several events with the same key
+     *     waiting to be sent needs to actually be sent, {@code null} if the event should always be sent
+     * @since 14.4RC1
+     */
+    @Unstable
+    public Object getCoalescingKey()
+    {
+        return this.coalescingKey;
+    }
+
+    /**
+     * @param coalescingKey the key identifying what the event is about when only the last of several events with the
+     *     same key waiting to be sent needs to actually be sent, {@code null} if the event should always be sent
+     * @since 14.4RC1
+     */
+    @Unstable
+    public void setCoalescingKey(Object coalescingKey)
+    {
+        this.coalescingKey = coalescingKey;
+    }
+
+    /**
+     * @param coalescer called with this event and the older event with the same
+     *     {@link #getCoalescingKey() coalescing key} it replaces, to merge into this event what needs to be kept from
+     *     the replaced one
+     * @since 14.4RC1
+     */
+    @Unstable
+    public void setCoalescer(BiConsumer<RemoteEventData, RemoteEventData> coalescer)
+    {
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * Merge into this event what needs to be kept from an older event with the same
+     * {@link #getCoalescingKey() coalescing key} which won't be sent.
+     *
+     * @param previous the replaced event
+     * @since 14.4RC1
+     */
+    @Unstable
+    public void coalesce(RemoteEventData previous)
+    {
+        if (this.coalescer != null) {
+            this.coalescer.accept(this, previous);
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -58,4 +58,15 @@ default String getId()
     {
         return null;
     }
+
+    /**
+     * @return the number of milliseconds during which the events are accumulated before being sent to the other
+     *     members of the cluster in a single network message, 0 to send each event as soon as it's produced
+     * @since 14.4RC1
+     */
+    @Unstable
+    default long getBatchDelay()
+    {
+        return 0;
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.ClassPropertyReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.ObjectPropertyReference;
+import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+
+/**
+ * Compact binary form of an {@link EntityReference} used in place of the standard Java serialization of the
+ * reference (which contains the descriptors of the various classes and of the fields of each element of the
+ * reference) in the network messages.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class CompactEntityReference implements Externalizable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final List<Class<? extends EntityReference>> CLASSES = Arrays.asList(EntityReference.class,
+        WikiReference.class, SpaceReference.class, DocumentReference.class, LocalDocumentReference.class,
+        AttachmentReference.class, ObjectReference.class, ObjectPropertyReference.class,
+        ClassPropertyReference.class);
+
+    private static final List<UnaryOperator<EntityReference>> FACTORIES = Arrays.asList(UnaryOperator.identity(),
+        WikiReference::new, SpaceReference::new, DocumentReference::new, LocalDocumentReference::new,
+        AttachmentReference::new, ObjectReference::new, ObjectPropertyReference::new, ClassPropertyReference::new);
+
+    private static final EntityType[] TYPES = EntityType.values();
+
+    private transient EntityReference reference;
+
+    /**
+     * Used by the Java serialization.
+     */
+    public CompactEntityReference()
+    {
+    }
+
+    /**
+     * @param reference the reference to serialize
+     */
+    public CompactEntityReference(EntityReference reference)
+    {
+        this.reference = reference;
+    }
+
+    /**
+     * @param object the object to serialize
+     * @return true if the object is a reference which can be serialized in a compact form
+     */
+    public static boolean isSupported(Object object)
+    {
+        return object != null && CLASSES.contains(object.getClass());
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeByte(CLASSES.indexOf(this.reference.getClass()));
+
+        List<EntityReference> chain = this.reference.getReversedReferenceChain();
+        out.writeByte(chain.size());
+        for (EntityReference element : chain) {
+            out.writeByte(element.getType().ordinal());
+            out.writeUTF(element.getName());
+
+            Map<String, Serializable> parameters = element.getParameters();
+            out.writeByte(parameters.size());
+            for (Map.Entry<String, Serializable> parameter : parameters.entrySet()) {
+                out.writeUTF(parameter.getKey());
+                out.writeObject(parameter.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        int classIndex = in.readByte();
+
+        EntityReference current = null;
+        int size = in.readByte();
+        for (int i = 0; i < size; ++i) {
+            EntityType type = TYPES[in.readByte()];
+            String name = in.readUTF();
+
+            int parametersSize = in.readByte();
+            Map<String, Serializable> parameters = null;
+            if (parametersSize > 0) {
+                parameters = new HashMap<>(parametersSize);
+                for (int j = 0; j < parametersSize; ++j) {
+                    parameters.put(in.readUTF(), (Serializable) in.readObject());
+                }
+            }
+
+            current = new EntityReference(name, type, current, parameters);
+        }
+
+        this.reference = FACTORIES.get(classIndex).apply(current);
+    }
+
+    /**
+     * @return the deserialized reference
+     */
+    protected Object readResolve()
+    {
+        return this.reference;
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -83,11 +85,43 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent =
-            (RemoteEventData) msg.getObject(this.classLoaderManager.getURLClassLoader(null, false));
+        ClassLoader classLoader = this.classLoaderManager.getURLClassLoader(null, false);
+
+        Object object = msg.getObject(classLoader);
+
+        if (object instanceof RemoteEventFrame) {
+            receive((RemoteEventFrame) object, classLoader);
+        } else {
+            RemoteEventData remoteEvent = (RemoteEventData) object;
+
+            this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
 
-        this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+            getRemoteObservationManager().notify(remoteEvent);
+        }
+    }
+
+    private void receive(RemoteEventFrame frame, ClassLoader classLoader)
+    {
+        this.logger.debug("Received JGroups remote events [{}]", frame);
 
-        getRemoteObservationManager().notify(remoteEvent);
+        List<RemoteEventData> remoteEvents;
+        try {
+            remoteEvents = frame.getEvents(classLoader);
+        } catch (Exception e) {
+            this.logger.error("Failed to read the remote events from [{}]", frame, e);
+
+            return;
+        }
+
+        for (RemoteEventData remoteEvent : remoteEvents) {
+            this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+
+            try {
+                getRemoteObservationManager().notify(remoteEvent);
+            } catch (Exception e) {
+                // Make sure the other events of the frame are not lost
+                this.logger.error("Failed to notify remote event [{}]", remoteEvent, e);
+            }
+        }
     }
 }
@@ -21,10 +21,16 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,14 +48,21 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.environment.Environment;
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
  * JGroups based implementation of {@link NetworkAdapter}.
+ * <p>
+ * When {@code observation.remote.batch.delay} is greater than 0 the events are accumulated during that delay and sent
+ * in a single {@link RemoteEventFrame}. An event waiting to be sent is replaced (see
+ * {@link RemoteEventData#coalesce(RemoteEventData)}) when a more recent event with the same
+ * {@link RemoteEventData#getCoalescingKey() coalescing key} is sent.
  *
  * @version $Id$
  * @since 2.0RC1
@@ -57,19 +70,27 @@
 @Component
 @Named("jgroups")
 @Singleton
-public class JGroupsNetworkAdapter implements NetworkAdapter
+public class JGroupsNetworkAdapter implements NetworkAdapter, Disposable
 {
     /**
      * Relative path where to find jgroups channels configurations.
      */
     public static final String CONFIGURATION_PATH = "observation/remote/jgroups/";
 
+    /**
+     * The maximum number of events sent in the same frame.
+     */
+    private static final int MAX_FRAME_SIZE = 1000;
+
     /**
      * Used to lookup the receiver corresponding to the channel identifier.
      */
     @Inject
     private ComponentManager componentManager;
 
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
     /**
      * The logger to log.
      */
@@ -81,20 +102,137 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<>();
 
+    /**
+     * The events waiting to be sent, indexed by coalescing key.
+     */
+    private final Map<Object, RemoteEventData> pendingEvents = new LinkedHashMap<>();
+
+    /**
+     * Make sure the frames are sent in the same order as the events they contain.
+     */
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService batchExecutor;
+
+    /**
+     * Indicate if the component has been disposed, in which case the events are not accumulated anymore.
+     */
+    private boolean disposed;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [{}]", remoteEvent.toString());
 
+        long delay = this.configuration.getBatchDelay();
+        if (delay > 0) {
+            boolean flush;
+            synchronized (this.pendingEvents) {
+                if (this.disposed) {
+                    // The flush can't be scheduled anymore
+                    sendMessage(remoteEvent);
+
+                    return;
+                }
+
+                boolean schedule = this.pendingEvents.isEmpty();
+
+                Object key = remoteEvent.getCoalescingKey();
+                if (key == null) {
+                    key = new Object();
+                } else {
+                    // Make sure the event ends up after the events sent since the one it replaces
+                    RemoteEventData previous = this.pendingEvents.remove(key);
+                    if (previous != null) {
+                        remoteEvent.coalesce(previous);
+                    }
+                }
+                this.pendingEvents.put(key, remoteEvent);
+
+                flush = this.pendingEvents.size() >= MAX_FRAME_SIZE;
+                if (schedule && !flush) {
+                    getBatchExecutor().schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            if (flush) {
+                flush();
+            }
+        } else {
+            sendMessage(remoteEvent);
+        }
+    }
+
+    private ScheduledExecutorService getBatchExecutor()
+    {
+        if (this.batchExecutor == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "XWiki remote events sender");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            this.batchExecutor = executor;
+        }
+
+        return this.batchExecutor;
+    }
+
+    /**
+     * Send the events waiting to be sent.
+     */
+    private void flush()
+    {
+        synchronized (this.flushLock) {
+            RemoteEventData[] events;
+            synchronized (this.pendingEvents) {
+                if (this.pendingEvents.isEmpty()) {
+                    return;
+                }
+
+                events = this.pendingEvents.values().toArray(new RemoteEventData[0]);
+                this.pendingEvents.clear();
+            }
+
+            send(events);
+        }
+    }
+
+    private void send(RemoteEventData[] events)
+    {
+        if (events.length == 1) {
+            sendMessage(events[0]);
+        } else {
+            RemoteEventFrame frame;
+            try {
+                frame = new RemoteEventFrame(Arrays.asList(events));
+            } catch (Exception e) {
+                this.logger.error("Failed to serialize a frame of [{}] remote events, sending them one by one",
+                    events.length, e);
+
+                for (RemoteEventData event : events) {
+                    sendMessage(event);
+                }
+
+                return;
+            }
+
+            sendMessage(frame);
+        }
+    }
+
+    private void sendMessage(Serializable payload)
+    {
         // Send the message to the whole group
-        Message message = new Message(null, remoteEvent);
+        Message message = new Message(null, payload);
 
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
                 entry.getValue().send(message);
             } catch (Exception e) {
-                this.logger.error("Failed to send message [{}] to the channel [{}]", remoteEvent.toString(),
+                this.logger.error("Failed to send message [{}] to the channel [{}]", payload.toString(),
                     entry.getKey(), e);
             }
         }
@@ -137,6 +275,9 @@ public void stopChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException(MessageFormat.format("Channel [{0}] is not started", channelId));
         }
 
+        // Make sure the channel receives the events waiting to be sent
+        flush();
+
         channel.close();
 
         this.channels.remove(channelId);
@@ -225,6 +366,9 @@ private InputStream getChannelConfiguration(String channelId) throws IOException
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        // Make sure the channels receive the events waiting to be sent
+        flush();
+
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
         }
@@ -233,4 +377,19 @@ public void stopAllChannels() throws RemoteEventException
 
         this.logger.info("All channels stopped");
     }
+
+    @Override
+    public void dispose()
+    {
+        synchronized (this.pendingEvents) {
+            this.disposed = true;
+
+            if (this.batchExecutor != null) {
+                this.batchExecutor.shutdownNow();
+            }
+        }
+
+        // Don't lose the events for which the flush was scheduled
+        flush();
+    }
 }
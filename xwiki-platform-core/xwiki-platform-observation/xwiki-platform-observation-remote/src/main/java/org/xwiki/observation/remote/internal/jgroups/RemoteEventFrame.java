@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Several remote events sent in a single compressed network message.
+ * <p>
+ * The events are serialized in the same object stream so that the description of the classes is written only once
+ * for the whole frame and the {@link EntityReference}s are written in a compact form (see
+ * {@link CompactEntityReference}).
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class RemoteEventFrame implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int size;
+
+    private final byte[] content;
+
+    private static final class FrameOutputStream extends ObjectOutputStream
+    {
+        FrameOutputStream(OutputStream out) throws IOException
+        {
+            super(out);
+
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj)
+        {
+            if (CompactEntityReference.isSupported(obj)) {
+                return new CompactEntityReference((EntityReference) obj);
+            }
+
+            return obj;
+        }
+    }
+
+    private static final class FrameInputStream extends ObjectInputStream
+    {
+        private final ClassLoader classLoader;
+
+        FrameInputStream(InputStream in, ClassLoader classLoader) throws IOException
+        {
+            super(in);
+
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+        {
+            if (this.classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, this.classLoader);
+                } catch (ClassNotFoundException e) {
+                    // Fallback on the default resolution (primitive types, etc.)
+                }
+            }
+
+            return super.resolveClass(desc);
+        }
+    }
+
+    /**
+     * @param events the events to send
+     * @throws IOException when failing to serialize the events
+     */
+    public RemoteEventFrame(Collection<RemoteEventData> events) throws IOException
+    {
+        this.size = events.size();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ObjectOutputStream out = new FrameOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            for (RemoteEventData event : events) {
+                out.writeObject(event.getEvent());
+                out.writeObject(event.getSource());
+                out.writeObject(event.getData());
+            }
+        } finally {
+            deflater.end();
+        }
+
+        this.content = bytes.toByteArray();
+    }
+
+    /**
+     * @return the number of events in the frame
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @param classLoader the class loader to use to find the classes of the events
+     * @return the events contained in the frame
+     * @throws IOException when failing to read the events
+     * @throws ClassNotFoundException when the class of an event cannot be found
+     */
+    public List<RemoteEventData> getEvents(ClassLoader classLoader) throws IOException, ClassNotFoundException
+    {
+        List<RemoteEventData> events = new ArrayList<>(this.size);
+
+        try (ObjectInputStream in =
+            new FrameInputStream(new InflaterInputStream(new ByteArrayInputStream(this.content)), classLoader)) {
+            for (int i = 0; i < this.size; ++i) {
+                events.add(new RemoteEventData((Serializable) in.readObject(), (Serializable) in.readObject(),
+                    (Serializable) in.readObject()));
+            }
+        }
+
+        return events;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "frame of [" + this.size + "] events ([" + this.content.length + "] bytes)";
+    }
+}
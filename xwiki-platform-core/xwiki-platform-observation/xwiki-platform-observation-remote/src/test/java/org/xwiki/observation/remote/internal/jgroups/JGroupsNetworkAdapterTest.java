@@ -0,0 +1,202 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+import org.xwiki.observation.remote.test.TestEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link JGroupsNetworkAdapter}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class JGroupsNetworkAdapterTest
+{
+    private static final long LONG_DELAY = 60000L;
+
+    @InjectMockComponents
+    private JGroupsNetworkAdapter adapter;
+
+    @MockComponent
+    private RemoteObservationManagerConfiguration configuration;
+
+    private JChannel channel;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.channel = mock(JChannel.class);
+
+        Map<String, JChannel> channels = new ConcurrentHashMap<>();
+        channels.put("channel", this.channel);
+        ReflectionUtils.setFieldValue(this.adapter, "channels", channels);
+    }
+
+    private RemoteEventData event(int index, Object coalescingKey)
+    {
+        RemoteEventData event =
+            new RemoteEventData(new TestEvent(), new DocumentReference("wiki", "Space", "Page" + index), null);
+        event.setCoalescingKey(coalescingKey);
+
+        return event;
+    }
+
+    private List<Object> getSentPayloads(int count) throws Exception
+    {
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        verify(this.channel, times(count)).send(messages.capture());
+
+        List<Object> payloads = new ArrayList<>();
+        for (Message message : messages.getAllValues()) {
+            payloads.add(message.getObject(getClass().getClassLoader()));
+        }
+
+        return payloads;
+    }
+
+    @Test
+    void sendWithoutDelay() throws Exception
+    {
+        RemoteEventData event = event(0, null);
+
+        this.adapter.send(event);
+
+        assertEquals(event.getSource(), ((RemoteEventData) getSentPayloads(1).get(0)).getSource());
+    }
+
+    @Test
+    void sendWhenBatchIsFull() throws Exception
+    {
+        when(this.configuration.getBatchDelay()).thenReturn(LONG_DELAY);
+
+        for (int i = 0; i < 999; ++i) {
+            this.adapter.send(event(i, null));
+        }
+
+        verify(this.channel, never()).send(any(Message.class));
+
+        // The frame is sent as soon as it's full, without waiting for the delay
+        this.adapter.send(event(999, null));
+
+        RemoteEventFrame frame = (RemoteEventFrame) getSentPayloads(1).get(0);
+        assertEquals(1000, frame.size());
+
+        List<RemoteEventData> events = frame.getEvents(getClass().getClassLoader());
+        assertEquals(new DocumentReference("wiki", "Space", "Page0"), events.get(0).getSource());
+        assertEquals(new DocumentReference("wiki", "Space", "Page999"), events.get(999).getSource());
+    }
+
+    @Test
+    void sendCoalescesEvents() throws Exception
+    {
+        when(this.configuration.getBatchDelay()).thenReturn(LONG_DELAY);
+
+        RemoteEventData event1 = event(1, "key1");
+        RemoteEventData event2 = event(2, "key2");
+        RemoteEventData event3 = event(3, "key1");
+        RemoteEventData[] coalesced = new RemoteEventData[1];
+        event3.setCoalescer((event, previous) -> coalesced[0] = previous);
+
+        this.adapter.send(event1);
+        this.adapter.send(event2);
+        this.adapter.send(event3);
+
+        // Stopping the channels sends the events waiting to be sent
+        this.adapter.stopAllChannels();
+
+        assertSame(event1, coalesced[0]);
+
+        // The replacing event is sent after the events sent since the one it replaces
+        List<RemoteEventData> events =
+            ((RemoteEventFrame) getSentPayloads(1).get(0)).getEvents(getClass().getClassLoader());
+        assertEquals(2, events.size());
+        assertEquals(event2.getSource(), events.get(0).getSource());
+        assertEquals(event3.getSource(), events.get(1).getSource());
+    }
+
+    @Test
+    void sendAfterDelay() throws Exception
+    {
+        when(this.configuration.getBatchDelay()).thenReturn(100L);
+
+        RemoteEventData event1 = event(1, null);
+        RemoteEventData event2 = event(2, null);
+        this.adapter.send(event1);
+        this.adapter.send(event2);
+
+        // Both events are sent in the same frame when the delay expires
+        verify(this.channel, timeout(10000)).send(any(Message.class));
+        verify(this.channel, after(500).times(1)).send(any(Message.class));
+
+        List<RemoteEventData> events =
+            ((RemoteEventFrame) getSentPayloads(1).get(0)).getEvents(getClass().getClassLoader());
+        assertEquals(2, events.size());
+        assertEquals(event1.getSource(), events.get(0).getSource());
+        assertEquals(event2.getSource(), events.get(1).getSource());
+    }
+
+    @Test
+    void sendAfterDispose() throws Exception
+    {
+        when(this.configuration.getBatchDelay()).thenReturn(LONG_DELAY);
+
+        RemoteEventData event1 = event(1, null);
+        this.adapter.send(event1);
+
+        // The events waiting to be sent are sent when disposing
+        this.adapter.dispose();
+
+        assertEquals(event1.getSource(), ((RemoteEventData) getSentPayloads(1).get(0)).getSource());
+
+        // The events are sent right away after the component is disposed
+        RemoteEventData event2 = event(2, null);
+        this.adapter.send(event2);
+
+        assertEquals(event2.getSource(), ((RemoteEventData) getSentPayloads(2).get(1)).getSource());
+    }
+}
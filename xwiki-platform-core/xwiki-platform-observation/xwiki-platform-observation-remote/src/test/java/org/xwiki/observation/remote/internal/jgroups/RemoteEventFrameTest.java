@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.ObjectReference;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.test.TestEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link RemoteEventFrame}.
+ *
+ * @version $Id$
+ */
+class RemoteEventFrameTest
+{
+    private static int serializedSize(Object object) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+
+        return bytes.size();
+    }
+
+    @Test
+    void getEvents() throws Exception
+    {
+        DocumentReference documentReference =
+            new DocumentReference("wiki", Arrays.asList("space1", "space2"), "page", Locale.FRENCH);
+        ObjectReference objectReference = new ObjectReference("XWiki.XWikiUsers[0]", documentReference);
+        EntityReference entityReference = new EntityReference("page", EntityType.DOCUMENT);
+
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("document", documentReference);
+        data.put("entity", entityReference);
+
+        RemoteEventFrame frame = new RemoteEventFrame(Arrays.asList(new RemoteEventData(new TestEvent(), null, null),
+            new RemoteEventData(new TestEvent(), objectReference, data)));
+
+        assertEquals(2, frame.size());
+
+        List<RemoteEventData> events = frame.getEvents(getClass().getClassLoader());
+
+        assertEquals(2, events.size());
+        assertEquals(new TestEvent(), events.get(0).getEvent());
+        assertEquals(objectReference, events.get(1).getSource());
+        assertSame(ObjectReference.class, events.get(1).getSource().getClass());
+        assertEquals(data, events.get(1).getData());
+        assertSame(DocumentReference.class, ((HashMap<?, ?>) events.get(1).getData()).get("document").getClass());
+        assertEquals(Locale.FRENCH,
+            ((DocumentReference) ((HashMap<?, ?>) events.get(1).getData()).get("document")).getLocale());
+        assertSame(EntityReference.class, ((HashMap<?, ?>) events.get(1).getData()).get("entity").getClass());
+    }
+
+    @Test
+    void frameIsSmallerThanEvents() throws Exception
+    {
+        List<RemoteEventData> events = new ArrayList<>();
+        int serializedSize = 0;
+        for (int i = 0; i < 100; ++i) {
+            RemoteEventData event =
+                new RemoteEventData(new TestEvent(), new DocumentReference("wiki", "Space", "Page" + i), null);
+            events.add(event);
+            serializedSize += serializedSize(event);
+        }
+
+        assertTrue(serializedSize(new RemoteEventFrame(events)) * 10 < serializedSize);
+    }
+}
@@ -173,6 +173,7 @@
 import org.xwiki.script.ScriptContextManager;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
+import org.xwiki.security.authorization.cache.internal.GroupMembershipIndex;
 import org.xwiki.skin.Resource;
 import org.xwiki.skin.Skin;
 import org.xwiki.skin.SkinManager;
@@ -246,6 +247,7 @@
 import com.xpn.xwiki.store.AttachmentRecycleBinStore;
 import com.xpn.xwiki.store.AttachmentVersioningStore;
 import com.xpn.xwiki.store.XWikiAttachmentStoreInterface;
+import com.xpn.xwiki.store.XWikiCacheStore;
 import com.xpn.xwiki.store.XWikiCacheStoreInterface;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.store.XWikiRecycleBinStoreInterface;
@@ -1351,6 +1353,9 @@ private void initializeStores() throws ComponentLookupException
             XWikiCacheStoreInterface cachestore =
                 (XWikiCacheStoreInterface) Utils.getComponent(XWikiStoreInterface.class, "cache");
             cachestore.setStore(mainStore);
+            if (cachestore instanceof XWikiCacheStore) {
+                ((XWikiCacheStore) cachestore).registerStatistics();
+            }
             setStore(cachestore);
         } else {
             setStore(mainStore);
@@ -3575,6 +3580,11 @@ public void flushCache(XWikiContext context)
             this.groupService.flushCache();
         }
 
+        // And the group memberships indexed by the security cache loader
+        if (Utils.getContextComponentManager().hasComponent(GroupMembershipIndex.class)) {
+            Utils.getComponent(GroupMembershipIndex.class).removeAll();
+        }
+
         // If we use the Cache Store layer.. we need to flush it
         XWikiStoreInterface store = getStore();
         if ((store != null) && (store instanceof XWikiCacheStoreInterface)) {
@@ -24,6 +24,10 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.disk.DiskFileItem;
@@ -48,6 +52,9 @@ public class XWikiAttachmentContent implements Cloneable
     /** An empty byte array returned for empty attachment contents. */
     private static final byte[] NULLFILE = new byte[0];
 
+    /** The size of the buffer used to copy the content of the attachment. */
+    private static final int BUFFER_SIZE = 65536;
+
     /** The XWikiAttachment (attachment metadata) which this attachment content is associated with. */
     private XWikiAttachment attachment;
 
@@ -262,6 +269,25 @@ public InputStream getContentInputStream()
         }
     }
 
+    /**
+     * @return a channel to read the binary content of this attachment, a {@link FileChannel} when the content is
+     *         stored in a file so that it can be efficiently transferred to another file
+     * @throws IOException when failing to open the channel
+     * @since 14.4RC1
+     */
+    @Unstable
+    public ReadableByteChannel getContentChannel() throws IOException
+    {
+        if (this.file instanceof DiskFileItem && !this.file.isInMemory()) {
+            File storeLocation = ((DiskFileItem) this.file).getStoreLocation();
+            if (storeLocation != null) {
+                return FileChannel.open(storeLocation.toPath(), StandardOpenOption.READ);
+            }
+        }
+
+        return Channels.newChannel(getContentInputStream());
+    }
+
     /**
      * Set the content of the attachment by writing to a provided OutputStream. Content is *not* appended, this method
      * clears the content and creates new content. If you want to append content, you can call
@@ -322,7 +348,7 @@ public void setContent(InputStream is) throws IOException
     {
         OutputStream fios = getContentOutputStream();
         try {
-            IOUtils.copy(is, fios);
+            IOUtils.copyLarge(is, fios, new byte[BUFFER_SIZE]);
         } finally {
             fios.close();
         }
@@ -1331,10 +1331,8 @@ private String display(Syntax targetSyntax, boolean executionContextIsolated, bo
             getProgress().startStep(getDocumentReference(), "document.progress.render.cache",
                 "Try to get content from the cache");
 
-            String renderedContent = getRenderingCache().getRenderedContent(tdoc.getDocumentReferenceWithLocale(),
-                translatedContent, xcontext);
-
-            if (renderedContent == null) {
+            // The cached result also depends on the documents read during the rendering (includes, panels, etc.)
+            return getRenderingCache().getRenderedContent(getDocumentReference(), translatedContent, () -> {
                 getProgress().startStep(getDocumentReference(), "document.progress.render.execute", "Execute content");
 
                 // Configure display
@@ -1350,13 +1348,8 @@ private String display(Syntax targetSyntax, boolean executionContextIsolated, bo
                 XDOM contentXDOM = getDocumentDisplayer().display(this, parameters);
 
                 // Render the result
-                renderedContent = renderXDOM(contentXDOM, targetSyntax);
-
-                getRenderingCache().setRenderedContent(getDocumentReference(), translatedContent, renderedContent,
-                    xcontext);
-            }
-
-            return renderedContent;
+                return renderXDOM(contentXDOM, targetSyntax);
+            }, xcontext);
         } finally {
             getProgress().popLevelProgress(getDocumentReference());
             getProgress().endStep(this);
@@ -99,6 +99,16 @@ protected Version createNextVersion(Version cur, boolean isMinor)
         return result;
     }
 
+    /**
+     * @param context - used to access the configuration
+     * @return true if the new history patches should be stored in the compact binary format
+     */
+    private static boolean isBinaryPatchEnabled(XWikiContext context)
+    {
+        return context.getWiki() != null
+            && "1".equals(context.getWiki().getConfig().getProperty("xwiki.store.rcs.binaryPatch", "0"));
+    }
+
     /** @param node - node added to versionToNode and fullNodes */
     protected void updateNode(XWikiRCSNodeInfo node)
     {
@@ -134,8 +144,13 @@ protected XWikiRCSNodeContent makePatch(XWikiRCSNodeInfo newnode, XWikiDocument
                     .getProperty("xwiki.store.rcs.nodesPerFull", "5"));
             if (nodesPerFull <= 0 || (nodesCount % nodesPerFull) != 0) {
                 XWikiRCSNodeContent latestContent = latestNode.getContent(context);
-                latestContent.getPatch().setDiffVersion(latestContent.getPatch().getContent(),
-                    doc, context);
+                if (isBinaryPatchEnabled(context)) {
+                    latestContent.getPatch().setBinaryDiffVersion(latestContent.getPatch().getContent(),
+                        result.getPatch().getContent(), doc.getFullName());
+                } else {
+                    latestContent.getPatch().setDiffVersion(latestContent.getPatch().getContent(),
+                        doc, context);
+                }
                 latestNode.setContent(latestContent);
                 updateNode(latestNode);
                 getUpdatedNodeContents().add(latestContent);
@@ -195,10 +210,83 @@ public void setNodes(Collection<XWikiRCSNodeInfo> versions)
      */
     public String getArchive(XWikiContext context) throws XWikiException
     {
-        XWikiRCSArchive archive = new XWikiRCSArchive(getNodes(), context);
+        XWikiRCSArchive archive = new XWikiRCSArchive(getRCSNodes(context), context);
         return archive.toString();
     }
 
+    /**
+     * The JRCS format only supports text diffs so the binary patches are converted before serializing the archive.
+     *
+     * @param context - used for load nodes content
+     * @return the nodes of the archive, with binary patches replaced by text diffs
+     * @throws XWikiException if any error
+     */
+    private Collection<XWikiRCSNodeInfo> getRCSNodes(XWikiContext context) throws XWikiException
+    {
+        Collection<XWikiRCSNodeInfo> nodes = getNodes();
+        boolean binary = false;
+        for (XWikiRCSNodeInfo nodeInfo : nodes) {
+            binary |= nodeInfo.getContent(context).getPatch().isBinaryDiff();
+        }
+        if (!binary) {
+            return nodes;
+        }
+
+        List<XWikiRCSNodeInfo> rcsNodes = new ArrayList<XWikiRCSNodeInfo>(nodes.size());
+        List<String> text = new ArrayList<String>();
+        // From the most recent version to the oldest one
+        for (XWikiRCSNodeInfo nodeInfo : nodes) {
+            XWikiPatch patch = nodeInfo.getContent(context).getPatch();
+            String newerXml = ToString.arrayToString(text.toArray());
+            patch.patch(text);
+            if (patch.isBinaryDiff()) {
+                XWikiRCSNodeContent rcsContent = new XWikiRCSNodeContent(nodeInfo.getId());
+                rcsContent.setPatch(new XWikiPatch().setDiffVersion(ToString.arrayToString(text.toArray()), newerXml,
+                    ""));
+                XWikiRCSNodeInfo rcsNodeInfo = new XWikiRCSNodeInfo(nodeInfo.getId());
+                rcsNodeInfo.setAuthor(nodeInfo.getAuthor());
+                rcsNodeInfo.setComment(nodeInfo.getComment());
+                rcsNodeInfo.setDate(nodeInfo.getDate());
+                rcsNodeInfo.setContent(rcsContent);
+                rcsNodes.add(rcsNodeInfo);
+            } else {
+                rcsNodes.add(nodeInfo);
+            }
+        }
+
+        return rcsNodes;
+    }
+
+    /**
+     * Convert the history patches stored as RCS text diffs to the compact binary format. The modified contents are
+     * added to {@link #getUpdatedNodeContents()} and need to be saved after.
+     *
+     * @param context - used for load nodes content
+     * @return true if at least one patch has been converted
+     * @throws XWikiException if any error
+     * @since 14.4RC1
+     */
+    public boolean convertToBinaryPatches(XWikiContext context) throws XWikiException
+    {
+        boolean converted = false;
+        List<String> text = new ArrayList<String>();
+        // From the most recent version to the oldest one
+        for (XWikiRCSNodeInfo nodeInfo : getNodes()) {
+            XWikiRCSNodeContent content = nodeInfo.getContent(context);
+            XWikiPatch patch = content.getPatch();
+            String newerXml = ToString.arrayToString(text.toArray());
+            patch.patch(text);
+            if (patch.isDiff() && !patch.isBinaryDiff()) {
+                patch.setBinaryDiffVersion(ToString.arrayToString(text.toArray()), newerXml, "");
+                nodeInfo.setContent(content);
+                this.updatedNodeContents.add(content);
+                converted = true;
+            }
+        }
+
+        return converted;
+    }
+
     /**
      * Deserialize class. Used in {@link com.xpn.xwiki.plugin.packaging.PackagePlugin}.
      *
@@ -297,7 +385,11 @@ public void removeVersions(Version newerVersion, Version olderVersion, XWikiCont
             String xmlBefore = getVersionXml(firstVersionBefore, context);
             XWikiRCSNodeInfo niBefore = getNode(firstVersionBefore);
             XWikiRCSNodeContent ncBefore = niBefore.getContent(context);
-            ncBefore.getPatch().setDiffVersion(xmlBefore, xmlAfter, "");
+            if (isBinaryPatchEnabled(context)) {
+                ncBefore.getPatch().setBinaryDiffVersion(xmlBefore, xmlAfter, "");
+            } else {
+                ncBefore.getPatch().setDiffVersion(xmlBefore, xmlAfter, "");
+            }
             niBefore.setContent(ncBefore);
             updateNode(niBefore);
             getUpdatedNodeContents().add(ncBefore);
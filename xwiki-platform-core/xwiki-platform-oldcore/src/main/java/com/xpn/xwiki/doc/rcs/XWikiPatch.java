@@ -30,6 +30,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.doc.rcs.BinaryPatchUtils;
 
 /**
  * Contains differences between revisions. One field (diff for xml or full xml) for now. Created for easy migration to
@@ -207,6 +208,44 @@ public XWikiPatch setDiffVersion(String originalVersionXml, String newVersionXml
         return this;
     }
 
+    /**
+     * Create history patch between originalVersion and newVersion as a compact binary difference on the XML export of
+     * the two versions. The patch is created between newVersion and originalVersion.
+     *
+     * @param originalVersionXml Original version of the document document, in the XML export format.
+     * @param newVersionXml Current version of the document, in the XML export format.
+     * @param docName Needed for the exception report.
+     * @return Self, with the patch content set to the generated diff between the two version.
+     * @throws XWikiException if any error occurs
+     * @since 14.4RC1
+     */
+    public XWikiPatch setBinaryDiffVersion(String originalVersionXml, String newVersionXml, String docName)
+        throws XWikiException
+    {
+        try {
+            // The history keeps reversed patches, from the most recent to the previous version.
+            setContent(BinaryPatchUtils.getPatch(newVersionXml, originalVersionXml));
+            setDiff(true);
+        } catch (Exception e) {
+            Object[] args = { docName };
+            throw new XWikiException(XWikiException.MODULE_XWIKI_DIFF,
+                XWikiException.ERROR_XWIKI_DIFF_XML_ERROR,
+                "Failed to create diff for doc {0}",
+                e,
+                args);
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the content is a difference stored in the compact binary format
+     * @since 14.4RC1
+     */
+    public boolean isBinaryDiff()
+    {
+        return BinaryPatchUtils.isBinaryPatch(this.content);
+    }
+
     /**
      * Patch text.
      *
@@ -219,6 +258,17 @@ public void patch(List<String> origText) throws XWikiException
             origText.clear();
             origText.addAll(
                 new ArrayList<String>(Arrays.asList(ToString.stringToArray(getContent()))));
+        } else if (isBinaryDiff()) {
+            try {
+                String[] patchedText = BinaryPatchUtils.patch(origText, getContent());
+                origText.clear();
+                origText.addAll(Arrays.asList(patchedText));
+            } catch (Exception e) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_DIFF,
+                    XWikiException.ERROR_XWIKI_DIFF_XML_ERROR,
+                    "Exception while patching",
+                    e);
+            }
         } else {
             try {
                 XWikiPatchUtils.patch(origText, getContent());
@@ -45,9 +45,8 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 
 /**
- * Specialized cache component related to documents. It automatically clean the cache when the document is related.
- * <p>
- * TODO: add support for dependencies
+ * Specialized cache component related to documents. It automatically clean the cache when the document, or one of
+ * the documents the cached value depends on, is modified.
  *
  * @param <C> the type of the data stored in the cache
  * @version $Id$
@@ -157,6 +156,26 @@ public void set(C data, DocumentReference documentReference, Object... extension
         String key = getKey(documentReference, extensions);
         this.cache.set(key, data);
 
+        addMapping(documentReference, key);
+    }
+
+    @Override
+    public void set(C data, Collection<DocumentReference> dependencies, DocumentReference documentReference,
+        Object... extensions)
+    {
+        String key = getKey(documentReference, extensions);
+        this.cache.set(key, data);
+
+        addMapping(documentReference, key);
+
+        // Make sure the entry is removed when any of the documents it depends on is modified
+        for (DocumentReference dependency : dependencies) {
+            addMapping(dependency, key);
+        }
+    }
+
+    private void addMapping(DocumentReference documentReference, String key)
+    {
         String documentReferenceString = this.serializer.serialize(documentReference);
 
         Collection<String> keys = this.mappingCache.get(documentReferenceString);
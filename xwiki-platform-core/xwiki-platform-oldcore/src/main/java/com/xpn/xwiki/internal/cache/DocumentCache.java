@@ -19,6 +19,8 @@
  */
 package com.xpn.xwiki.internal.cache;
 
+import java.util.Collection;
+
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.component.annotation.ComponentRole;
@@ -64,6 +66,22 @@
      */
     void set(C data, DocumentReference documentReference, Object... extensions);
 
+    /**
+     * Add a new value or overwrite the existing one associated with the provided key and remember the other documents
+     * it depends on so that the value is also removed from the cache when one of them is modified.
+     *
+     * @param data the data to store
+     * @param dependencies the references of the documents (other than the provided document) the data depends on
+     * @param documentReference the reference of the document
+     * @param extensions the extensions to the document reference
+     * @since 14.4RC1
+     */
+    default void set(C data, Collection<DocumentReference> dependencies, DocumentReference documentReference,
+        Object... extensions)
+    {
+        set(data, documentReference, extensions);
+    }
+
     /**
      * Remove from the cache the value associated to the provided key elements.
      *
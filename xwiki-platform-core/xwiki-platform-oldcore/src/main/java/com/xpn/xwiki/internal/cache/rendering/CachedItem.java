@@ -19,10 +19,13 @@
  */
 package com.xpn.xwiki.internal.cache.rendering;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.xwiki.model.reference.EntityReference;
+
 /**
  * Cached item including any extensions.
  *
@@ -42,6 +45,8 @@
     public Map<RenderingCacheAware, UsedExtension> extensions = new HashMap<RenderingCacheAware,
         CachedItem.UsedExtension>();
 
+    private Set<EntityReference> references = Collections.emptySet();
+
     /**
      * Extension used in cached item.
      *
@@ -70,4 +75,22 @@ public UsedExtension(Set<String> resources, Map<String, Map<String, Object>> par
             this.parameters = parameters;
         }
     }
+
+    /**
+     * @return the entities (documents, objects, attachments, etc.) read while rendering the cached content
+     * @since 14.4RC1
+     */
+    public Set<EntityReference> getReferences()
+    {
+        return this.references;
+    }
+
+    /**
+     * @param references the entities (documents, objects, attachments, etc.) read while rendering the cached content
+     * @since 14.4RC1
+     */
+    public void setReferences(Set<EntityReference> references)
+    {
+        this.references = references;
+    }
 }
@@ -21,9 +21,12 @@
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -37,9 +40,15 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.rendering.async.AsyncContext;
+import org.xwiki.rendering.async.internal.AsyncContextUseTracker;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.ContextUse;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.internal.cache.DocumentCache;
 import com.xpn.xwiki.internal.cache.rendering.CachedItem.UsedExtension;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
@@ -93,6 +102,18 @@ public class DefaultRenderingCache implements RenderingCache, Initializable
     @Inject
     private DocumentCache<CachedItem> cache;
 
+    /**
+     * Used to track the entities read while rendering the content.
+     */
+    @Inject
+    private Provider<AsyncContext> asyncContextProvider;
+
+    /**
+     * Used to gather the entities read while rendering the content.
+     */
+    @Inject
+    private Provider<AsyncContextUseTracker> contextUseTrackerProvider;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -145,6 +166,87 @@ public void setRenderedContent(DocumentReference documentReference, String sourc
         }
     }
 
+    @Override
+    public String getRenderedContent(DocumentReference documentReference, String source, ContentRenderer renderer,
+        XWikiContext context) throws XWikiException
+    {
+        String renderedContent = getRenderedContent(documentReference, source, context);
+
+        if (renderedContent == null) {
+            if (this.configuration.isCached(documentReference)) {
+                AsyncContextUseTracker contextUseTracker = this.contextUseTrackerProvider.get();
+
+                // Remember the entities read during the rendering to invalidate the cache when they are modified
+                ContextUse contextUse;
+                contextUseTracker.pushContextUse();
+                try {
+                    renderedContent = renderer.render();
+                } finally {
+                    contextUse = contextUseTracker.popContextUse();
+                }
+
+                if (renderedContent != null && contextUse != null) {
+                    CachedItem cachedItem = buildCachedItem(context, renderedContent);
+                    cachedItem.setReferences(contextUse.getReferences());
+
+                    this.cache.set(cachedItem, getDependencies(documentReference, contextUse.getReferences()),
+                        documentReference, source, getAction(context), context.getLanguage(),
+                        getRequestParameters(context));
+
+                    // The enclosing execution (if any) also depends on the entities read during the rendering
+                    useEntities(cachedItem.getReferences());
+                } else if (renderedContent != null) {
+                    setRenderedContent(documentReference, source, renderedContent, context);
+                }
+            } else {
+                renderedContent = renderer.render();
+
+                if (renderedContent != null) {
+                    setRenderedContent(documentReference, source, renderedContent, context);
+                }
+            }
+        }
+
+        return renderedContent;
+    }
+
+    /**
+     * @param documentReference the reference of the document being rendered
+     * @param references the entities read during the rendering
+     * @return the references of the other documents the rendering result depends on
+     */
+    private Collection<DocumentReference> getDependencies(DocumentReference documentReference,
+        Collection<EntityReference> references)
+    {
+        Set<DocumentReference> dependencies = new HashSet<>();
+
+        for (EntityReference reference : references) {
+            // Objects and attachments are saved with their document so invalidating the document is enough
+            EntityReference documentPart = reference.extractReference(EntityType.DOCUMENT);
+
+            if (documentPart != null) {
+                DocumentReference dependency = new DocumentReference(documentPart).withoutLocale();
+
+                if (!dependency.equals(documentReference)) {
+                    dependencies.add(dependency);
+                }
+            }
+        }
+
+        return dependencies;
+    }
+
+    private void useEntities(Collection<EntityReference> references)
+    {
+        if (!references.isEmpty()) {
+            AsyncContext asyncContext = this.asyncContextProvider.get();
+
+            for (EntityReference reference : references) {
+                asyncContext.useEntity(reference);
+            }
+        }
+    }
+
     /**
      * Create cached item with all dependencies.
      *
@@ -194,6 +296,9 @@ private String restoreCachedItem(XWikiContext context, CachedItem cachedItem)
             item.getKey().restoreCacheResources(context, item.getValue());
         }
 
+        // The enclosing execution (if any) also depends on the entities read during the cached rendering
+        useEntities(cachedItem.getReferences());
+
         return cachedItem.rendered;
     }
 
@@ -23,6 +23,7 @@
 import org.xwiki.model.reference.DocumentReference;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
 
 /**
  * Cache rendering result.
@@ -33,6 +34,22 @@
 @Role
 public interface RenderingCache
 {
+    /**
+     * Produce the result of the rendering of a source.
+     *
+     * @version $Id$
+     * @since 14.4RC1
+     */
+    @FunctionalInterface
+    interface ContentRenderer
+    {
+        /**
+         * @return the result of the rendering
+         * @throws XWikiException when failing to render the source
+         */
+        String render() throws XWikiException;
+    }
+
     /**
      * The stored result of the rendering of the provided source.
      *
@@ -54,6 +71,36 @@
     void setRenderedContent(DocumentReference documentReference, String source, String renderedContent,
         XWikiContext context);
 
+    /**
+     * Return the stored result of the rendering of the provided source, or execute the provided renderer and store its
+     * result if the cache is enabled for the provided document. The stored result also depends on the documents read
+     * during the rendering (included documents, panels, objects and attachments, etc.) and is removed from the cache
+     * when one of them is modified.
+     *
+     * @param documentReference the reference of the document being rendered
+     * @param source the source to render
+     * @param renderer the renderer to execute if the result is not cached
+     * @param context the XWiki context
+     * @return the result of the rendering
+     * @throws XWikiException when failing to render the source
+     * @since 14.4RC1
+     */
+    default String getRenderedContent(DocumentReference documentReference, String source, ContentRenderer renderer,
+        XWikiContext context) throws XWikiException
+    {
+        String renderedContent = getRenderedContent(documentReference, source, context);
+
+        if (renderedContent == null) {
+            renderedContent = renderer.render();
+
+            if (renderedContent != null) {
+                setRenderedContent(documentReference, source, renderedContent, context);
+            }
+        }
+
+        return renderedContent;
+    }
+
     /**
      * Flushes rendering cache (all cached variants) for specified document.
      *
@@ -59,4 +59,22 @@ public boolean isMinify()
 
         return this.properties.getProperty("debug.minify", true);
     }
+
+    /**
+     * @return the fraction (between 0 and 1) of the requests to profile
+     * @since 14.4RC1
+     */
+    public double getProfilingSampling()
+    {
+        return this.properties.getProperty("debug.profiling.sampling", 0D);
+    }
+
+    /**
+     * @return the maximum number of profiled requests to keep in memory
+     * @since 14.4RC1
+     */
+    public int getProfilingHistorySize()
+    {
+        return this.properties.getProperty("debug.profiling.historySize", 10);
+    }
 }
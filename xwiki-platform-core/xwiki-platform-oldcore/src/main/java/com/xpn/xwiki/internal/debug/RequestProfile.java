@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.job.event.status.JobProgress;
+import org.xwiki.job.event.status.JobProgressStep;
+import org.xwiki.job.internal.DefaultJobProgress;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * The detailed progress recorded for a profiled request.
+ * <p>
+ * The profile listens to the progress events in place of the wrapped {@link DefaultJobProgress} in order to remember
+ * when each step actually started, since the steps of a same level are not necessarily contiguous.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class RequestProfile implements EventListener
+{
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    /**
+     * The name of the listener, unique to each profiled request (several requests can have the same URL).
+     */
+    private final String listenerName;
+
+    private final String name;
+
+    private final Date date;
+
+    private final long startTime;
+
+    private final DefaultJobProgress progress;
+
+    private final Map<JobProgressStep, Long> stepStartTimes = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * @param name the name of the request (usually its URL)
+     * @param progress the progress collecting the steps of the request
+     */
+    public RequestProfile(String name, DefaultJobProgress progress)
+    {
+        this.listenerName = RequestProfile.class.getName() + '.' + COUNTER.incrementAndGet();
+        this.name = name;
+        this.date = new Date();
+        this.startTime = System.nanoTime();
+        this.progress = progress;
+    }
+
+    /**
+     * @return the name of the listener, unique to each profiled request
+     */
+    @Override
+    public String getName()
+    {
+        return this.listenerName;
+    }
+
+    /**
+     * @return the name of the request (usually its URL)
+     */
+    public String getRequestName()
+    {
+        return this.name;
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return this.progress.getEvents();
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        this.progress.onEvent(event, source, data);
+
+        // Remember when the steps created by the event started
+        JobProgressStep step = this.progress.getCurrentStep();
+        if (step != null && !this.stepStartTimes.containsKey(step)) {
+            this.stepStartTimes.put(step, System.nanoTime());
+        }
+    }
+
+    /**
+     * @return the date when the request started
+     */
+    public Date getDate()
+    {
+        return this.date;
+    }
+
+    /**
+     * @param step a step of the request
+     * @return the number of nanoseconds between the start of the request and the start of the passed step, or -1 if
+     *         it's not known
+     */
+    public long getStartTime(JobProgressStep step)
+    {
+        Long stepStartTime = this.stepStartTimes.get(step);
+
+        return stepStartTime != null ? stepStartTime - this.startTime : -1;
+    }
+
+    /**
+     * @return the progress collecting the steps of the request
+     */
+    public JobProgress getProgress()
+    {
+        return this.progress;
+    }
+}
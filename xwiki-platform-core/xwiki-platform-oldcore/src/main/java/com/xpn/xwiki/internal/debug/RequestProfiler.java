@@ -0,0 +1,228 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.job.event.status.JobProgressManager;
+import org.xwiki.job.event.status.JobProgressStep;
+
+/**
+ * Keep track of the detailed progress of a sampled fraction of the requests.
+ * <p>
+ * The profile of the current request is bound to the {@link ExecutionContext} and the steps are collected from the
+ * usual {@link JobProgressManager} steps (actions, templates, macros, etc.). Since some of those steps are on very hot
+ * paths (cache lookups, Hibernate sessions, etc.), they should be started through {@link #startStep(Object, String,
+ * Object...)} and {@link #endStep(Object)} which don't do anything when the current request is not profiled.
+ * <p>
+ * The last profiles can be exported in the Chrome Trace Event format which is supported by most flame chart viewers
+ * (chrome://tracing, Perfetto, Speedscope, etc.).
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = RequestProfiler.class)
+@Singleton
+public class RequestProfiler
+{
+    private static final String CONTEXT_PROFILE = "debug.profile";
+
+    private static final String TRACE_NAME = "name";
+
+    private static final String TRACE_PHASE = "ph";
+
+    private static final String TRACE_PROCESS = "pid";
+
+    private static final String TRACE_THREAD = "tid";
+
+    @Inject
+    private DebugConfiguration configuration;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private JobProgressManager progress;
+
+    private final Deque<RequestProfile> profiles = new ConcurrentLinkedDeque<>();
+
+    /**
+     * @return true if the current request should be profiled according to the configured sampling
+     */
+    public boolean isSampled()
+    {
+        double sampling = this.configuration.getProfilingSampling();
+
+        return sampling > 0 && ThreadLocalRandom.current().nextDouble() < sampling;
+    }
+
+    /**
+     * @return true if the current request is profiled
+     */
+    public boolean isProfiling()
+    {
+        ExecutionContext econtext = this.execution.getContext();
+
+        return econtext != null && econtext.hasProperty(CONTEXT_PROFILE);
+    }
+
+    /**
+     * Bind the passed profile to the current execution context.
+     *
+     * @param profile the profile of the current request
+     */
+    public void startProfiling(RequestProfile profile)
+    {
+        ExecutionContext econtext = this.execution.getContext();
+
+        if (econtext != null) {
+            econtext.setProperty(CONTEXT_PROFILE, profile);
+        }
+    }
+
+    /**
+     * Unbind the profile of the current request and remember it.
+     */
+    public void stopProfiling()
+    {
+        ExecutionContext econtext = this.execution.getContext();
+
+        if (econtext != null) {
+            RequestProfile profile = (RequestProfile) econtext.getProperty(CONTEXT_PROFILE);
+
+            if (profile != null) {
+                econtext.removeProperty(CONTEXT_PROFILE);
+
+                this.profiles.addFirst(profile);
+                while (this.profiles.size() > this.configuration.getProfilingHistorySize()) {
+                    this.profiles.pollLast();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start a new step if the current request is profiled.
+     *
+     * @param source who send the event
+     * @param message the message associated to the step
+     * @param arguments the arguments to insert in the message
+     * @see JobProgressManager#startStep(Object, String, String, Object...)
+     */
+    public void startStep(Object source, String message, Object... arguments)
+    {
+        if (isProfiling()) {
+            this.progress.startStep(source, null, message, arguments);
+        }
+    }
+
+    /**
+     * Close the current step if the current request is profiled.
+     *
+     * @param source who send the event
+     * @see JobProgressManager#endStep(Object)
+     */
+    public void endStep(Object source)
+    {
+        if (isProfiling()) {
+            this.progress.endStep(source);
+        }
+    }
+
+    /**
+     * @return the last profiled requests, starting with the most recent one
+     */
+    public List<RequestProfile> getProfiles()
+    {
+        return new ArrayList<>(this.profiles);
+    }
+
+    /**
+     * @return the last profiled requests in the Chrome Trace Event format, each request being a separate process
+     */
+    public Map<String, Object> getTrace()
+    {
+        List<Map<String, Object>> events = new ArrayList<>();
+
+        int pid = 1;
+        for (RequestProfile profile : this.profiles) {
+            Map<String, Object> processName = new HashMap<>();
+            processName.put(TRACE_NAME, "process_name");
+            processName.put(TRACE_PHASE, "M");
+            processName.put(TRACE_PROCESS, pid);
+            processName.put(TRACE_THREAD, 1);
+            processName.put("args", Map.of(TRACE_NAME, profile.getRequestName()));
+            events.add(processName);
+
+            addTraceEvents(profile, profile.getProgress().getRootStep(), profile.getRequestName(), 0, pid, events);
+
+            ++pid;
+        }
+
+        Map<String, Object> trace = new HashMap<>();
+        trace.put("traceEvents", events);
+        trace.put("displayTimeUnit", "ms");
+
+        return trace;
+    }
+
+    /**
+     * @return the end of the step, in nanoseconds since the start of the request
+     */
+    private long addTraceEvents(RequestProfile profile, JobProgressStep step, String name, long defaultStart,
+        int pid, List<Map<String, Object>> events)
+    {
+        // Fallback on the end of the previous step when the actual start of the step is unknown
+        long start = profile.getStartTime(step);
+        if (start < 0) {
+            start = defaultStart;
+        }
+
+        Map<String, Object> event = new HashMap<>();
+        event.put(TRACE_NAME, name);
+        event.put(TRACE_PHASE, "X");
+        event.put(TRACE_PROCESS, pid);
+        event.put(TRACE_THREAD, 1);
+        // The Trace Event format expects microseconds
+        event.put("ts", TimeUnit.MILLISECONDS.toMicros(profile.getDate().getTime()) + start / 1000D);
+        event.put("dur", step.getElapsedTime() / 1000D);
+        events.add(event);
+
+        long childStart = start;
+        for (JobProgressStep child : step.getChildren()) {
+            childStart = addTraceEvents(profile, child, String.valueOf(child.getMessage()), childStart, pid, events);
+        }
+
+        return start + step.getElapsedTime();
+    }
+}
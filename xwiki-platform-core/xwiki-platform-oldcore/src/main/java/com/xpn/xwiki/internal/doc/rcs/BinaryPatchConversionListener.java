@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.rcs;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.bridge.event.WikiReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Convert in the background the history of the documents of each wiki from RCS text diffs to the compact binary
+ * patches (see {@link BinaryPatchUtils}) when both {@code xwiki.store.rcs.binaryPatch} and
+ * {@code xwiki.store.rcs.binaryPatch.convert} are enabled.
+ * <p>
+ * Only the patches which were already diffs when the archive was loaded are written back so a document saved during
+ * the conversion of its history is not impacted. The conversion can be interrupted at any time: it's started again
+ * at the next restart and only the documents which still have a text diff are loaded, so once a wiki is converted a
+ * restart costs a single query. The history is shared by all the members of a cluster so the conversion should only
+ * be enabled on one of them.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Named(BinaryPatchConversionListener.NAME)
+@Singleton
+public class BinaryPatchConversionListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "com.xpn.xwiki.internal.doc.rcs.BinaryPatchConversionListener";
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final String ENABLED = "1";
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource xwikicfg;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Setup the listener.
+     */
+    public BinaryPatchConversionListener()
+    {
+        super(NAME, Arrays.asList(new ApplicationReadyEvent(), new WikiReadyEvent()));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (!ENABLED.equals(this.xwikicfg.getProperty("xwiki.store.rcs.binaryPatch", "0"))
+            || !ENABLED.equals(this.xwikicfg.getProperty("xwiki.store.rcs.binaryPatch.convert", "0"))) {
+            return;
+        }
+
+        String wiki;
+        if (event instanceof WikiReadyEvent) {
+            wiki = ((WikiReadyEvent) event).getWikiId();
+        } else {
+            wiki = this.xcontextProvider.get().getMainXWiki();
+        }
+
+        Thread thread = new Thread(new AbstractXWikiRunnable()
+        {
+            @Override
+            protected void runInternal()
+            {
+                try {
+                    convert(wiki);
+                } catch (Exception e) {
+                    logger.warn("Failed to convert the history of the documents of wiki [{}] to binary patches", wiki,
+                        e);
+                }
+            }
+        });
+        thread.setName("XWiki history binary patch conversion for wiki [" + wiki + "]");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private void convert(String wiki) throws QueryException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        xcontext.setWikiId(wiki);
+
+        XWikiVersioningStoreInterface store = xcontext.getWiki().getVersioningStore();
+
+        // Use the document id to paginate since an absolute offset becomes slower and slower
+        // Skip the documents which only have binary patches left
+        Query query = this.queryManager.createQuery("select distinct rcs.id.docId from XWikiRCSNodeContent rcs"
+            + " where rcs.id.docId > :lastId and rcs.patch.diff = true and rcs.patch.content not like :binaryPatch"
+            + " order by rcs.id.docId", Query.HQL).setWiki(wiki).setLimit(BATCH_SIZE)
+            .bindValue("binaryPatch", BinaryPatchUtils.PREFIX + '%');
+        long lastId = Long.MIN_VALUE;
+        long converted = 0;
+        List<Long> results;
+        do {
+            results = query.bindValue("lastId", lastId).execute();
+            for (Long docId : results) {
+                try {
+                    if (convert(docId, store, xcontext)) {
+                        ++converted;
+                    }
+                } catch (XWikiException e) {
+                    this.logger.warn("Failed to convert the history of document with id [{}] in wiki [{}]: {}", docId,
+                        wiki, e.getMessage());
+                }
+                lastId = docId;
+            }
+        } while (results.size() == BATCH_SIZE);
+
+        this.logger.info("Converted the history of [{}] documents of wiki [{}] to binary patches", converted, wiki);
+    }
+
+    private boolean convert(long docId, XWikiVersioningStoreInterface store, XWikiContext xcontext)
+        throws XWikiException
+    {
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(docId);
+        store.loadXWikiDocArchive(archive, true, xcontext);
+
+        if (archive.convertToBinaryPatches(xcontext)) {
+            store.saveXWikiDocArchive(archive, true, xcontext);
+
+            return true;
+        }
+
+        return false;
+    }
+}
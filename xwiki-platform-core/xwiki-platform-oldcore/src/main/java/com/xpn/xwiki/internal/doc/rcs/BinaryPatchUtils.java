@@ -0,0 +1,274 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.rcs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.suigeneris.jrcs.util.ToString;
+
+/**
+ * Compact binary alternative to the RCS text diffs stored in the document history.
+ * <p>
+ * The patch describes the target text as a sequence of blocks copied from the source text and of inserted bytes. It's
+ * computed on the UTF-8 bytes of the two texts (matching blocks are found with a rolling hash) so that a change in a
+ * long line does not duplicate the whole line, then deflated and encoded in Base64 to fit in the existing text column.
+ * The texts are normalized to use {@code \n} as line separator so that the patches don't depend on the platform.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public final class BinaryPatchUtils
+{
+    /**
+     * The prefix of the serialized binary patches. It can't be confused with a full version (starting with {@code <})
+     * or a RCS diff (starting with {@code a} or {@code d}).
+     */
+    public static final String PREFIX = "#xbp1:";
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static final int HASH_BASE = 31;
+
+    private static final int OP_COPY = 0;
+
+    private static final int OP_INSERT = 1;
+
+    private static final int OP_END = 2;
+
+    private BinaryPatchUtils()
+    {
+    }
+
+    /**
+     * @param content the content of a history patch
+     * @return true if the content is a binary patch
+     */
+    public static boolean isBinaryPatch(String content)
+    {
+        return content != null && content.startsWith(PREFIX);
+    }
+
+    /**
+     * @param source the text on which the patch will be applied
+     * @param target the text produced by the patch
+     * @return the serialized patch
+     * @throws IOException when failing to serialize the patch
+     */
+    public static String getPatch(String source, String target) throws IOException
+    {
+        byte[] sourceBytes = normalize(source);
+        byte[] targetBytes = normalize(target);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writeVarInt(output, targetBytes.length);
+            writeOperations(sourceBytes, targetBytes, output);
+        }
+
+        return PREFIX + Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param source the lines of the text to patch
+     * @param patch the serialized patch
+     * @return the lines of the patched text
+     * @throws IOException when failing to parse the patch
+     */
+    public static String[] patch(List<String> source, String patch) throws IOException
+    {
+        byte[] sourceBytes = join(source.toArray()).getBytes(StandardCharsets.UTF_8);
+
+        byte[] bytes = Base64.getDecoder().decode(patch.substring(PREFIX.length()));
+        try (DataInputStream input = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            byte[] target = new byte[readVarInt(input)];
+            int position = 0;
+            for (int op = input.read(); op != OP_END; op = input.read()) {
+                if (op == OP_COPY) {
+                    int offset = readVarInt(input);
+                    int length = readVarInt(input);
+                    System.arraycopy(sourceBytes, offset, target, position, length);
+                    position += length;
+                } else if (op == OP_INSERT) {
+                    int length = readVarInt(input);
+                    input.readFully(target, position, length);
+                    position += length;
+                } else {
+                    throw new IOException("Unexpected operation [" + op + "] in binary patch");
+                }
+            }
+
+            if (position != target.length) {
+                throw new IOException("Binary patch produced [" + position + "] bytes instead of [" + target.length
+                    + "]");
+            }
+
+            return ToString.stringToArray(new String(target, StandardCharsets.UTF_8));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Binary patch does not match the patched text", e);
+        }
+    }
+
+    private static byte[] normalize(String text)
+    {
+        return join(ToString.stringToArray(text)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String join(Object[] lines)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (Object line : lines) {
+            builder.append(line).append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    private static void writeOperations(byte[] source, byte[] target, DataOutputStream output) throws IOException
+    {
+        Map<Integer, Integer> blocks = indexBlocks(source);
+
+        int highPower = 1;
+        for (int i = 1; i < BLOCK_SIZE; ++i) {
+            highPower *= HASH_BASE;
+        }
+
+        int literalStart = 0;
+        int position = 0;
+        int hash = target.length >= BLOCK_SIZE ? hash(target, 0) : 0;
+        while (position + BLOCK_SIZE <= target.length) {
+            Integer offset = blocks.get(hash);
+            if (offset != null && matches(source, offset, target, position, BLOCK_SIZE)) {
+                int start = position;
+                int sourceStart = offset;
+                // Extend the match backward over the pending literal bytes
+                while (start > literalStart && sourceStart > 0 && source[sourceStart - 1] == target[start - 1]) {
+                    --start;
+                    --sourceStart;
+                }
+                // And forward
+                int end = position + BLOCK_SIZE;
+                int sourceEnd = offset + BLOCK_SIZE;
+                while (end < target.length && sourceEnd < source.length && source[sourceEnd] == target[end]) {
+                    ++end;
+                    ++sourceEnd;
+                }
+
+                writeInsert(target, literalStart, start, output);
+                output.write(OP_COPY);
+                writeVarInt(output, sourceStart);
+                writeVarInt(output, end - start);
+
+                position = end;
+                literalStart = end;
+                if (position + BLOCK_SIZE <= target.length) {
+                    hash = hash(target, position);
+                }
+            } else {
+                if (position + BLOCK_SIZE < target.length) {
+                    hash = (hash - target[position] * highPower) * HASH_BASE + target[position + BLOCK_SIZE];
+                }
+                ++position;
+            }
+        }
+
+        writeInsert(target, literalStart, target.length, output);
+        output.write(OP_END);
+    }
+
+    private static Map<Integer, Integer> indexBlocks(byte[] source)
+    {
+        Map<Integer, Integer> blocks = new HashMap<>(source.length / BLOCK_SIZE * 2);
+        for (int offset = 0; offset + BLOCK_SIZE <= source.length; offset += BLOCK_SIZE) {
+            blocks.putIfAbsent(hash(source, offset), offset);
+        }
+
+        return blocks;
+    }
+
+    private static int hash(byte[] bytes, int offset)
+    {
+        int hash = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; ++i) {
+            hash = hash * HASH_BASE + bytes[i];
+        }
+
+        return hash;
+    }
+
+    private static boolean matches(byte[] source, int sourceOffset, byte[] target, int targetOffset, int length)
+    {
+        for (int i = 0; i < length; ++i) {
+            if (source[sourceOffset + i] != target[targetOffset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void writeInsert(byte[] target, int start, int end, DataOutputStream output) throws IOException
+    {
+        if (end > start) {
+            output.write(OP_INSERT);
+            writeVarInt(output, end - start);
+            output.write(target, start, end - start);
+        }
+    }
+
+    private static void writeVarInt(OutputStream output, int value) throws IOException
+    {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.write(remaining);
+    }
+
+    private static int readVarInt(InputStream input) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.read();
+            if (b < 0) {
+                throw new IOException("Unexpected end of binary patch");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed integer in binary patch");
+    }
+}
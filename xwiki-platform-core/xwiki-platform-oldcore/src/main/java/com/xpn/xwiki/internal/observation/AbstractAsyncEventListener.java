@@ -0,0 +1,101 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Base class for the {@link AsyncEventListener}s.
+ * <p>
+ * {@link #accept(Event, Object, Object)} is called in the thread which produced the event and should be used to check
+ * anything depending on the state of that thread (remote event, observation context, etc.). A listener reading a source
+ * which is still modified by that thread (typically a document) should copy it in
+ * {@link #snapshotSource(Event, Object, Object)}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public abstract class AbstractAsyncEventListener extends AbstractEventListener implements AsyncEventListener
+{
+    @Inject
+    private AsyncEventListenerManager asyncManager;
+
+    /**
+     * @param name the listener's name. It's a free form text identifying this listener instance in a unique manner.
+     *            This name is used for some operations in {@link org.xwiki.observation.ObservationManager}.
+     * @param events the list of events this listener is configured to receive. This listener will be automatically
+     *            registered with this list of events against the {@link org.xwiki.observation.ObservationManager}.
+     */
+    protected AbstractAsyncEventListener(String name, List<? extends Event> events)
+    {
+        super(name, events);
+    }
+
+    /**
+     * @param name the listener's name. It's a free form text identifying this listener instance in a unique manner.
+     *            This name is used for some operations in {@link org.xwiki.observation.ObservationManager}.
+     * @param events the list of events this listener is configured to receive. This listener will be automatically
+     *            registered with this list of events against the {@link org.xwiki.observation.ObservationManager}.
+     */
+    protected AbstractAsyncEventListener(String name, Event... events)
+    {
+        super(name, events);
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (accept(event, source, data)) {
+            this.asyncManager.submit(this, event, snapshotSource(event, source, data), data);
+        }
+    }
+
+    /**
+     * Called in the thread which produced the event to decide if the event should be handled by the listener.
+     *
+     * @param event the event
+     * @param source the source of the event
+     * @param data the data of the event
+     * @return true if the event should be passed to {@link #onAsyncEvent(Event, Object, Object)}
+     */
+    protected boolean accept(Event event, Object source, Object data)
+    {
+        return true;
+    }
+
+    /**
+     * Called in the thread which produced the event, once accepted, to copy what
+     * {@link #onAsyncEvent(Event, Object, Object)} needs from a source which that thread can still modify.
+     *
+     * @param event the event
+     * @param source the source of the event
+     * @param data the data of the event
+     * @return the source to pass to {@link #onAsyncEvent(Event, Object, Object)}
+     */
+    protected Object snapshotSource(Event event, Object source, Object data)
+    {
+        return source;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation;
+
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * An {@link EventListener} which handles the events outside of the thread which produced them (and so outside of the
+ * request or of the transaction which produced them).
+ * <p>
+ * The events are still handled in the order in which they were produced, one at a time, in a dedicated thread per
+ * listener (see {@link AsyncEventListenerManager}). The thread is initialized with the same wiki and user as the
+ * thread which produced the event.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public interface AsyncEventListener extends EventListener
+{
+    /**
+     * Handle the event in the listener thread.
+     *
+     * @param event the event
+     * @param source the source of the event
+     * @param data the data of the event, the {@link com.xpn.xwiki.XWikiContext} of the thread which produced the
+     *            event is replaced with the context of the listener thread
+     */
+    void onAsyncEvent(Event event, Object source, Object data);
+}
@@ -0,0 +1,215 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Execute the {@link AsyncEventListener}s.
+ * <p>
+ * Each listener has its own thread and its own bounded queue so that a slow listener does not delay the others and
+ * the events are handled in the order in which they were produced. When the queue of a listener is full the thread
+ * producing the event waits for a free slot. The statistics of each listener are exposed through JMX.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = AsyncEventListenerManager.class)
+@Singleton
+public class AsyncEventListenerManager implements Disposable
+{
+    private static final String MBEAN_NAME = "type=AsyncEventListeners,listener=";
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private static final long DISPOSE_TIMEOUT_SECONDS = 10L;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private ExecutionContextManager contextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final class Lane
+    {
+        private final String name;
+
+        private final ThreadPoolExecutor executor;
+
+        private final JMXAsyncEventListener statistics;
+
+        Lane(String name)
+        {
+            this.name = name;
+
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki asynchronous event listener [" + name + "]").daemon(true).build();
+            this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(configuration.getProperty("observation.async.queueSize", 1000)), factory,
+                (runnable, pool) -> {
+                    // Wait for a free slot instead of giving up the event or breaking the order of the events
+                    if (!pool.isShutdown()) {
+                        try {
+                            pool.getQueue().put(runnable);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+
+                            throw new RejectedExecutionException(e);
+                        }
+                    }
+                });
+            this.executor.allowCoreThreadTimeOut(true);
+
+            this.statistics = new JMXAsyncEventListener(() -> this.executor.getQueue().size());
+        }
+    }
+
+    /**
+     * Handle the event in the thread of the listener.
+     *
+     * @param listener the listener
+     * @param event the event
+     * @param source the source of the event
+     * @param data the data of the event
+     */
+    public void submit(AsyncEventListener listener, Event event, Object source, Object data)
+    {
+        if (!this.configuration.getProperty("observation.async.enabled", true)) {
+            listener.onAsyncEvent(event, source, data);
+
+            return;
+        }
+
+        Lane lane = this.lanes.computeIfAbsent(listener.getName(), this::createLane);
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String wiki = xcontext != null ? xcontext.getWikiId() : null;
+        DocumentReference user = xcontext != null ? xcontext.getUserReference() : null;
+        boolean replaceContext = xcontext != null && data == xcontext;
+
+        long submitted = System.nanoTime();
+        lane.executor.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                // Initialize a proper execution context
+                this.contextManager.initialize(new ExecutionContext());
+
+                // Use the same wiki and user as the thread which produced the event
+                XWikiContext threadContext = this.xcontextProvider.get();
+                if (wiki != null) {
+                    threadContext.setWikiId(wiki);
+                }
+                threadContext.setUserReference(user);
+
+                listener.onAsyncEvent(event, source, replaceContext ? threadContext : data);
+            } catch (Exception e) {
+                this.logger.error("Failed to handle event [{}] with asynchronous listener [{}]", event,
+                    lane.name, e);
+            } finally {
+                lane.statistics.record(started - submitted, System.nanoTime() - started);
+
+                // Get rid of the execution context
+                this.execution.removeContext();
+            }
+        });
+    }
+
+    private Lane createLane(String name)
+    {
+        Lane lane = new Lane(name);
+
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(JMXBeanRegistration.class)) {
+            try {
+                JMXBeanRegistration jmxRegistration = componentManager.getInstance(JMXBeanRegistration.class);
+                jmxRegistration.registerMBean(lane.statistics, MBEAN_NAME + ObjectName.quote(name));
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to expose the statistics of asynchronous listener [{}] through JMX", name, e);
+            }
+        }
+
+        return lane;
+    }
+
+    @Override
+    public void dispose()
+    {
+        for (Lane lane : this.lanes.values()) {
+            lane.executor.shutdown();
+        }
+
+        // Give the listeners a chance to handle the events already produced
+        for (Lane lane : this.lanes.values()) {
+            try {
+                if (!lane.executor.awaitTermination(DISPOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    this.logger.warn("Asynchronous listener [{}] did not handle [{}] events before the shutdown",
+                        lane.name, lane.executor.getQueue().size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Implementation of the JMXAsyncEventListener MBean.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class JMXAsyncEventListener implements JMXAsyncEventListenerMBean
+{
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final IntSupplier queueSize;
+
+    private final LongAdder processed = new LongAdder();
+
+    private final LongAdder processingTime = new LongAdder();
+
+    private final LongAccumulator maxProcessingTime = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder waitingTime = new LongAdder();
+
+    /**
+     * @param queueSize the queue size supplier
+     */
+    public JMXAsyncEventListener(IntSupplier queueSize)
+    {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @param waiting the time in nanoseconds the event waited in the queue
+     * @param processing the time in nanoseconds spent by the listener to handle the event
+     */
+    public void record(long waiting, long processing)
+    {
+        this.processed.increment();
+        this.waitingTime.add(waiting);
+        this.processingTime.add(processing);
+        this.maxProcessingTime.accumulate(processing);
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        return this.queueSize.getAsInt();
+    }
+
+    @Override
+    public long getProcessedEvents()
+    {
+        return this.processed.sum();
+    }
+
+    @Override
+    public double getAverageProcessingTime()
+    {
+        long count = this.processed.sum();
+
+        return count > 0 ? this.processingTime.sum() / NANOS_PER_MILLI / count : 0;
+    }
+
+    @Override
+    public double getMaxProcessingTime()
+    {
+        return this.maxProcessingTime.get() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getAverageWaitingTime()
+    {
+        long count = this.processed.sum();
+
+        return count > 0 ? this.waitingTime.sum() / NANOS_PER_MILLI / count : 0;
+    }
+}
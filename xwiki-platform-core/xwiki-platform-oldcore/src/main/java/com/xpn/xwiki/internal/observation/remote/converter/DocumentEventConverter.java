@@ -28,6 +28,7 @@
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
@@ -81,12 +82,40 @@ public boolean toRemote(LocalEventData localEvent, RemoteEventData remoteEvent)
             remoteEvent.setSource(serializeXWikiDocument((XWikiDocument) localEvent.getSource()));
             remoteEvent.setData(serializeXWikiContext((XWikiContext) localEvent.getData()));
 
+            // Several updates of the same document can be sent as a single update going from the original version of
+            // the first one to the version of the last one
+            if (localEvent.getEvent() instanceof DocumentUpdatedEvent) {
+                remoteEvent.setCoalescingKey(new ImmutablePair<>(DocumentUpdatedEvent.class,
+                    ((XWikiDocument) localEvent.getSource()).getDocumentReferenceWithLocale()));
+                remoteEvent.setCoalescer(DocumentEventConverter::coalesce);
+            }
+
             return true;
         }
 
         return false;
     }
 
+    /**
+     * Keep the original document of the first update, so that the listeners on the other members still see all the
+     * changes made by the coalesced updates (for example a modification of the rights).
+     *
+     * @param remoteEvent the most recent update
+     * @param previous the replaced update
+     */
+    private static void coalesce(RemoteEventData remoteEvent, RemoteEventData previous)
+    {
+        Map<String, Serializable> remoteDataMap = (Map<String, Serializable>) remoteEvent.getSource();
+        Map<String, Serializable> previousDataMap = (Map<String, Serializable>) previous.getSource();
+
+        remoteDataMap.remove(ORIGDOC_VERSION);
+        remoteDataMap.remove(ORIGDOC_LANGUAGE);
+        if (previousDataMap.containsKey(ORIGDOC_VERSION)) {
+            remoteDataMap.put(ORIGDOC_VERSION, previousDataMap.get(ORIGDOC_VERSION));
+            remoteDataMap.put(ORIGDOC_LANGUAGE, previousDataMap.get(ORIGDOC_LANGUAGE));
+        }
+    }
+
     @Override
     public boolean fromRemote(RemoteEventData remoteEvent, LocalEventData localEvent)
     {
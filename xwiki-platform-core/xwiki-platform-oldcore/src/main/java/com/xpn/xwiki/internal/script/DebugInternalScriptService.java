@@ -19,17 +19,28 @@
  */
 package com.xpn.xwiki.internal.script;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.job.event.status.JobProgress;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.script.service.ScriptService;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.web.XWikiAction;
 
 /**
@@ -49,6 +60,15 @@ public class DebugInternalScriptService implements ScriptService
     @Inject
     private DebugConfiguration debugConfiguration;
 
+    @Inject
+    private RequestProfiler requestProfiler;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
     /**
      * @return is debug enabled in the current execution context
      */
@@ -79,4 +99,42 @@ public boolean isMinify()
     {
         return this.debugConfiguration.isMinify();
     }
+
+    /**
+     * @return the last profiled requests, starting with the most recent one, or an empty list if the current user is
+     *         not an administrator of the main wiki
+     * @since 14.4RC1
+     */
+    public List<RequestProfile> getRequestProfiles()
+    {
+        if (canViewRequestProfiles()) {
+            return this.requestProfiler.getProfiles();
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the last profiled requests in the Chrome Trace Event format, or {@code null} if the current user is not
+     *         an administrator of the main wiki
+     * @since 14.4RC1
+     */
+    public Map<String, Object> getRequestProfilesTrace()
+    {
+        if (canViewRequestProfiles()) {
+            return this.requestProfiler.getTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return true if the current user is allowed to see the profiled requests
+     * @since 14.4RC1
+     */
+    public boolean canViewRequestProfiles()
+    {
+        // The profiles contain information about the requests of all the wikis
+        return this.authorization.hasAccess(Right.ADMIN, new WikiReference(this.xcontextProvider.get().getMainXWiki()));
+    }
 }
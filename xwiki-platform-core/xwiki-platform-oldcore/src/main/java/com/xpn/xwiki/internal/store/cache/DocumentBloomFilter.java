@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe bloom filter of strings: it can tell for sure that a string was never added but it might wrongly
+ * indicate (with a configured probability) that a string was added.
+ * 
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class DocumentBloomFilter
+{
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions the expected number of strings to add to the filter
+     * @param falsePositiveProbability the wanted probability of false positive once the expected number of strings has
+     *            been added
+     */
+    public DocumentBloomFilter(long expectedInsertions, double falsePositiveProbability)
+    {
+        long insertions = Math.max(1, expectedInsertions);
+
+        long bitsSize = (long) (-insertions * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        int longs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (bitsSize + Long.SIZE - 1) / Long.SIZE));
+
+        this.bits = new AtomicLongArray(longs);
+        this.bitCount = (long) longs * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / insertions * LN2));
+    }
+
+    /**
+     * @param value the string to add
+     */
+    public void put(String value)
+    {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1);
+
+        for (int i = 0; i < this.hashCount; ++i) {
+            long index = Math.floorMod(hash1 + i * hash2, this.bitCount);
+            int longIndex = (int) (index >>> 6);
+            long mask = 1L << index;
+
+            long current = this.bits.get(longIndex);
+            while ((current & mask) == 0 && !this.bits.compareAndSet(longIndex, current, current | mask)) {
+                current = this.bits.get(longIndex);
+            }
+        }
+    }
+
+    /**
+     * @param value the string to check
+     * @return {@code false} if the string was never added, {@code true} if it might have been added
+     */
+    public boolean mightContain(String value)
+    {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1);
+
+        for (int i = 0; i < this.hashCount; ++i) {
+            long index = Math.floorMod(hash1 + i * hash2, this.bitCount);
+            if ((this.bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the number of bytes used by the filter
+     */
+    public long getSize()
+    {
+        return this.bitCount / Byte.SIZE;
+    }
+
+    private static long hash(String value)
+    {
+        // 64 bits FNV-1a
+        long hash = FNV_OFFSET;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    private static long mix(long value)
+    {
+        // MurmurHash3 finalizer, used to derive a second independent hash
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        // Make sure the second hash is odd so that all the bits can be reached
+        return hash | 1L;
+    }
+}
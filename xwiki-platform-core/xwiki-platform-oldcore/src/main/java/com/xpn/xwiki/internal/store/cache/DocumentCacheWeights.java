@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.BaseClass;
+
+/**
+ * Bound a document cache by the estimated memory retained by its documents instead of only its number of entries.
+ * <p>
+ * The weight of each cached document is tracked in access order and the least recently used documents are removed
+ * from the cache as soon as the total weight goes above the configured maximum.
+ * 
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class DocumentCacheWeights implements CacheEntryListener<XWikiDocument>
+{
+    private static final int DOCUMENT_WEIGHT = 4096;
+
+    private static final int OBJECT_WEIGHT = 512;
+
+    private static final int PROPERTY_WEIGHT = 256;
+
+    private static final int ATTACHMENT_WEIGHT = 1024;
+
+    private static final int CHAR_WEIGHT = 2;
+
+    private final Cache<XWikiDocument> cache;
+
+    private final long maxWeight;
+
+    private final Map<String, Long> weights = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long weight;
+
+    /**
+     * @param cache the cache to bound
+     * @param maxWeight the maximum total estimated weight (in bytes) of the cached documents
+     */
+    public DocumentCacheWeights(Cache<XWikiDocument> cache, long maxWeight)
+    {
+        this.cache = cache;
+        this.maxWeight = maxWeight;
+
+        this.cache.addCacheEntryListener(this);
+    }
+
+    /**
+     * @param document the document
+     * @return the estimated memory retained by the document, in bytes
+     */
+    public static long estimate(XWikiDocument document)
+    {
+        long result = DOCUMENT_WEIGHT;
+
+        result += (long) CHAR_WEIGHT * length(document.getContent());
+        result += (long) CHAR_WEIGHT * length(document.getTitle());
+
+        for (Map.Entry<?, List<BaseObject>> entry : document.getXObjects().entrySet()) {
+            for (BaseObject xobject : entry.getValue()) {
+                if (xobject != null) {
+                    result += OBJECT_WEIGHT + (long) PROPERTY_WEIGHT * xobject.getPropertyList().size();
+                }
+            }
+        }
+
+        BaseClass xclass = document.getXClass();
+        if (xclass != null) {
+            result += (long) PROPERTY_WEIGHT * xclass.getPropertyList().size();
+        }
+
+        // The attachment content is not taken into account since it's not kept in memory
+        result += (long) ATTACHMENT_WEIGHT * document.getAttachmentList().size();
+
+        return result;
+    }
+
+    private static int length(String value)
+    {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * Indicate that a document has been put in the cache.
+     * 
+     * @param key the key of the document in the cache
+     * @param document the cached document
+     */
+    public void set(String key, XWikiDocument document)
+    {
+        long documentWeight = estimate(document);
+
+        List<String> evictedKeys = new ArrayList<>();
+        synchronized (this.weights) {
+            Long previous = this.weights.put(key, documentWeight);
+            this.weight += documentWeight - (previous != null ? previous : 0L);
+
+            // Remove the least recently used documents (but keep at least the last one)
+            Iterator<Map.Entry<String, Long>> iterator = this.weights.entrySet().iterator();
+            while (this.weight > this.maxWeight && this.weights.size() > 1) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                iterator.remove();
+                this.weight -= eldest.getValue();
+
+                evictedKeys.add(eldest.getKey());
+            }
+        }
+
+        // Remove the evicted documents outside of the lock since the cache is calling back this listener
+        for (String evictedKey : evictedKeys) {
+            this.cache.remove(evictedKey);
+        }
+    }
+
+    /**
+     * Indicate that a document has been retrieved from the cache.
+     * 
+     * @param key the key of the document in the cache
+     */
+    public void touch(String key)
+    {
+        synchronized (this.weights) {
+            this.weights.get(key);
+        }
+    }
+
+    /**
+     * @return the total estimated weight (in bytes) of the cached documents
+     */
+    public long getWeight()
+    {
+        synchronized (this.weights) {
+            return this.weight;
+        }
+    }
+
+    private void remove(String key)
+    {
+        synchronized (this.weights) {
+            Long previous = this.weights.remove(key);
+            if (previous != null) {
+                this.weight -= previous;
+            }
+        }
+    }
+
+    @Override
+    public void cacheEntryAdded(CacheEntryEvent<XWikiDocument> event)
+    {
+        // The weight is computed when the document is put in the cache
+    }
+
+    @Override
+    public void cacheEntryRemoved(CacheEntryEvent<XWikiDocument> event)
+    {
+        // The entry has been evicted or invalidated
+        remove(event.getEntry().getKey());
+    }
+
+    @Override
+    public void cacheEntryModified(CacheEntryEvent<XWikiDocument> event)
+    {
+        // The weight is computed when the document is put in the cache
+    }
+}
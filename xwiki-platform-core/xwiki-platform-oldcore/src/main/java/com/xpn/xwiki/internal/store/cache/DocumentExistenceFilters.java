@@ -0,0 +1,279 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Maintain, for each wiki, a {@link DocumentBloomFilter} of the existing documents so that most of the checks for not
+ * existing documents don't have to reach the database.
+ * <p>
+ * The filter of a wiki is built in a background thread the first time it's needed by scanning the identifiers of all
+ * the documents of the wiki. It's then updated each time a document is created (locally or on another cluster member).
+ * If the scan fails it's retried a few times, after which the filter of the wiki stays disabled (all checks go to the
+ * database) until the filters are cleared.
+ * A bloom filter does not support removal so deleted documents are still reported as possibly existing (and are
+ * checked in the database) until the filter is rebuilt.
+ * 
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class DocumentExistenceFilters
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentExistenceFilters.class);
+
+    private static final int BATCH_SIZE = 10000;
+
+    private static final long MIN_EXPECTED_DOCUMENTS = 1000;
+
+    private static final char SEPARATOR = ':';
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final long RETRY_DELAY_SECONDS = 60;
+
+    /**
+     * The filter of a wiki.
+     */
+    private static final class WikiFilter
+    {
+        private DocumentBloomFilter filter;
+
+        private final List<String> pending = new ArrayList<>();
+
+        private volatile boolean ready;
+
+        synchronized void add(String key)
+        {
+            if (this.filter != null) {
+                this.filter.put(key);
+            } else {
+                // The filter is not created yet
+                this.pending.add(key);
+            }
+        }
+
+        synchronized void init(DocumentBloomFilter bloomFilter)
+        {
+            this.filter = bloomFilter;
+            this.pending.forEach(bloomFilter::put);
+            this.pending.clear();
+        }
+
+        synchronized void reset()
+        {
+            // Remember the documents created until the next scan
+            this.filter = null;
+        }
+
+        boolean mightContain(String key)
+        {
+            // Don't trust the filter until it contains all the documents
+            return !this.ready || this.filter.mightContain(key);
+        }
+    }
+
+    private final Supplier<QueryManager> queryManager;
+
+    private final double falsePositiveProbability;
+
+    private final Map<String, WikiFilter> filters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param queryManager used to scan the documents of a wiki
+     * @param falsePositiveProbability the wanted probability of false positive
+     */
+    public DocumentExistenceFilters(Supplier<QueryManager> queryManager, double falsePositiveProbability)
+    {
+        this.queryManager = queryManager;
+        this.falsePositiveProbability = falsePositiveProbability;
+
+        BasicThreadFactory factory = new BasicThreadFactory.Builder()
+            .namingPattern("XWiki document existence filter builder").daemon(true).priority(Thread.NORM_PRIORITY - 1)
+            .build();
+        this.executor = new ScheduledThreadPoolExecutor(1, factory);
+    }
+
+    /**
+     * @param wiki the wiki of the document
+     * @param document the document to check
+     * @return {@code false} if the document does not exist for sure, {@code true} if it might exist
+     */
+    public boolean mightExist(String wiki, XWikiDocument document)
+    {
+        WikiFilter wikiFilter = this.filters.get(wiki);
+
+        if (wikiFilter == null) {
+            WikiFilter newFilter = new WikiFilter();
+            wikiFilter = this.filters.putIfAbsent(wiki, newFilter);
+
+            if (wikiFilter == null) {
+                wikiFilter = newFilter;
+
+                // Start the scan once the filter is registered
+                schedule(wiki, wikiFilter, 1, 0);
+            }
+        }
+
+        return wikiFilter.mightContain(getKey(wiki, document));
+    }
+
+    /**
+     * Indicate that a document has been created.
+     * 
+     * @param wiki the wiki of the document
+     * @param document the document
+     */
+    public void add(String wiki, XWikiDocument document)
+    {
+        WikiFilter wikiFilter = this.filters.get(wiki);
+
+        // If the filter does not exist yet the document will be found by the scan
+        if (wikiFilter != null) {
+            wikiFilter.add(getKey(wiki, document));
+        }
+    }
+
+    /**
+     * Forget all the filters (they will be built again when needed).
+     */
+    public void clear()
+    {
+        this.filters.clear();
+    }
+
+    /**
+     * Stop the scans in progress and forget all the filters.
+     */
+    public void dispose()
+    {
+        this.executor.shutdownNow();
+
+        this.filters.clear();
+    }
+
+    private static String getKey(String wiki, XWikiDocument document)
+    {
+        return getKey(wiki, document.getSpace(), document.getDocumentReference().getName(),
+            document.getLocale().toString());
+    }
+
+    private static String getKey(String wiki, String space, String name, String language)
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(wiki.length()).append(SEPARATOR).append(wiki);
+        builder.append(space.length()).append(SEPARATOR).append(space);
+        builder.append(name.length()).append(SEPARATOR).append(name);
+        builder.append(StringUtils.defaultString(language));
+
+        return builder.toString();
+    }
+
+    private void schedule(String wiki, WikiFilter wikiFilter, int attempt, long delay)
+    {
+        try {
+            this.executor.schedule(new AbstractXWikiRunnable()
+            {
+                @Override
+                protected void runInternal()
+                {
+                    tryBuild(wiki, wikiFilter, attempt);
+                }
+            }, delay, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // Disposed, the filter will never be ready and all checks will go to the database
+            LOGGER.debug("Could not schedule the build of the existence filter of wiki [{}]", wiki, e);
+        }
+    }
+
+    private void tryBuild(String wiki, WikiFilter wikiFilter, int attempt)
+    {
+        // Don't scan for a filter which has been forgotten in the meantime
+        if (this.filters.get(wiki) != wikiFilter) {
+            return;
+        }
+
+        try {
+            scan(wiki, wikiFilter);
+
+            wikiFilter.ready = true;
+
+            LOGGER.debug("The existence filter of wiki [{}] is ready", wiki);
+        } catch (Exception e) {
+            wikiFilter.reset();
+
+            if (attempt < MAX_ATTEMPTS) {
+                LOGGER.warn("Failed to build the existence filter of wiki [{}], trying again in [{}] seconds: {}",
+                    wiki, RETRY_DELAY_SECONDS, ExceptionUtils.getRootCauseMessage(e));
+
+                schedule(wiki, wikiFilter, attempt + 1, RETRY_DELAY_SECONDS);
+            } else {
+                // The filter will never be ready, all checks will go to the database
+                LOGGER.warn("Failed to build the existence filter of wiki [{}], it's disabled", wiki, e);
+            }
+        }
+    }
+
+    private void scan(String wiki, WikiFilter wikiFilter) throws QueryException
+    {
+        QueryManager manager = this.queryManager.get();
+
+        // Leave room for the documents created in the future
+        long count = manager.createQuery("select count(doc.id) from XWikiDocument doc", Query.HQL).setWiki(wiki)
+            .<Long>execute().get(0);
+        wikiFilter.init(new DocumentBloomFilter(Math.max(MIN_EXPECTED_DOCUMENTS, count * 2),
+            this.falsePositiveProbability));
+
+        // Use the document id to paginate since an absolute offset becomes slower and slower
+        Query query = manager.createQuery("select doc.id, doc.space, doc.name, doc.language from XWikiDocument doc"
+            + " where doc.id > :lastId order by doc.id", Query.HQL).setWiki(wiki).setLimit(BATCH_SIZE);
+        long lastId = Long.MIN_VALUE;
+        List<Object[]> results;
+        do {
+            results = query.bindValue("lastId", lastId).execute();
+            for (Object[] result : results) {
+                wikiFilter.add(getKey(wiki, (String) result[1], (String) result[2], (String) result[3]));
+                lastId = (Long) result[0];
+            }
+        } while (results.size() == BATCH_SIZE);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Expose the statistics of the document cache of {@link com.xpn.xwiki.store.XWikiCacheStore}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class JMXDocumentCache implements JMXDocumentCacheMBean
+{
+    private final LongSupplier hits;
+
+    private final LongSupplier misses;
+
+    private final DocumentCacheWeights weights;
+
+    private final SerializedDocumentCache serializedCache;
+
+    /**
+     * @param hits the number of documents found in the first level cache
+     * @param misses the number of documents not found in the first level cache
+     * @param weights the weights of the first level cache, {@code null} if not bounded by weight
+     * @param serializedCache the second level cache, {@code null} if disabled
+     */
+    public JMXDocumentCache(LongSupplier hits, LongSupplier misses, DocumentCacheWeights weights,
+        SerializedDocumentCache serializedCache)
+    {
+        this.hits = hits;
+        this.misses = misses;
+        this.weights = weights;
+        this.serializedCache = serializedCache;
+    }
+
+    @Override
+    public long getHits()
+    {
+        return this.hits.getAsLong();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return this.misses.getAsLong();
+    }
+
+    @Override
+    public long getWeight()
+    {
+        return this.weights != null ? this.weights.getWeight() : -1;
+    }
+
+    @Override
+    public long getSerializedHits()
+    {
+        return this.serializedCache != null ? this.serializedCache.getHits() : 0;
+    }
+
+    @Override
+    public long getSerializedMisses()
+    {
+        return this.serializedCache != null ? this.serializedCache.getMisses() : 0;
+    }
+
+    @Override
+    public int getSerializedEntryCount()
+    {
+        return this.serializedCache != null ? this.serializedCache.getEntryCount() : 0;
+    }
+
+    @Override
+    public long getSerializedSize()
+    {
+        return this.serializedCache != null ? this.serializedCache.getSize() : 0;
+    }
+}
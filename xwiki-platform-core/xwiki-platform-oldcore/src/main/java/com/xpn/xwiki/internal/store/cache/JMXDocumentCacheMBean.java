@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+/**
+ * Interface of the {@link JMXDocumentCache} MBean.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public interface JMXDocumentCacheMBean
+{
+    /**
+     * @return the number of documents found in the first level (in heap) cache
+     */
+    long getHits();
+
+    /**
+     * @return the number of documents not found in the first level (in heap) cache
+     */
+    long getMisses();
+
+    /**
+     * @return the estimated number of bytes retained by the documents of the first level (in heap) cache, -1 if the
+     *         weight of the cache is not bounded
+     */
+    long getWeight();
+
+    /**
+     * @return the number of documents found in the second level (off heap) cache
+     */
+    long getSerializedHits();
+
+    /**
+     * @return the number of documents not found in the second level (off heap) cache
+     */
+    long getSerializedMisses();
+
+    /**
+     * @return the number of documents in the second level (off heap) cache
+     */
+    int getSerializedEntryCount();
+
+    /**
+     * @return the number of bytes used by the second level (off heap) cache
+     */
+    long getSerializedSize();
+}
@@ -0,0 +1,306 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+/**
+ * A second level document cache which keeps a compressed XML serialization of the documents outside of the Java heap
+ * (in direct {@link ByteBuffer}s) and rebuild the {@link XWikiDocument} instances only when they are requested.
+ * <p>
+ * The cache is bounded by the total number of bytes of the serialized documents and the least recently used documents
+ * are removed first.
+ * 
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class SerializedDocumentCache
+{
+    /**
+     * What is needed to rebuild a document which is not part of its XML serialization.
+     */
+    private static final class Entry
+    {
+        private final ByteBuffer buffer;
+
+        private final Map<String, String[]> attachmentStores;
+
+        private final String xClassXML;
+
+        private final int elements;
+
+        Entry(ByteBuffer buffer, Map<String, String[]> attachmentStores, String xClassXML, int elements)
+        {
+            this.buffer = buffer;
+            this.attachmentStores = attachmentStores;
+            this.xClassXML = xClassXML;
+            this.elements = elements;
+        }
+    }
+
+    /**
+     * Expose a (direct) {@link ByteBuffer} as an {@link InputStream} without copying it in the heap.
+     */
+    private static final class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return this.buffer.remaining();
+        }
+    }
+
+    private final long capacity;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long size;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the maximum number of bytes used to store the serialized documents
+     */
+    public SerializedDocumentCache(long capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Serialize and store the passed document.
+     * 
+     * @param key the key of the document
+     * @param document the document to store
+     * @param xcontext the XWiki context
+     * @throws XWikiException when failing to serialize the document
+     */
+    public void set(String key, XWikiDocument document, XWikiContext xcontext) throws XWikiException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(stream)) {
+            document.toXML(deflater, true, false, false, false, xcontext);
+        } catch (IOException e) {
+            throw new XWikiException("Failed to serialize document [" + key + "]", e);
+        }
+
+        // Too big to be cached
+        if (stream.size() > this.capacity) {
+            remove(key);
+
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(stream.size());
+        buffer.put(stream.toByteArray());
+        buffer.flip();
+
+        // The attachment stores are not part of the XML serialization
+        Map<String, String[]> attachmentStores = new HashMap<>();
+        for (XWikiAttachment attachment : document.getAttachmentList()) {
+            attachmentStores.put(attachment.getFilename(),
+                new String[] {attachment.getContentStore(), attachment.getArchiveStore()});
+        }
+
+        synchronized (this.entries) {
+            Entry previous = this.entries.put(key,
+                new Entry(buffer, attachmentStores, document.getXClassXML(), document.getElements()));
+            this.size += buffer.capacity() - (previous != null ? previous.buffer.capacity() : 0);
+
+            // Remove the least recently used documents
+            Iterator<Entry> iterator = this.entries.values().iterator();
+            while (this.size > this.capacity) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                this.size -= eldest.buffer.capacity();
+            }
+        }
+    }
+
+    /**
+     * Rebuild the document stored with the passed key.
+     * 
+     * @param key the key of the document
+     * @param defaultDocument the document to get
+     * @param store the store from which the document was loaded
+     * @param xcontext the XWiki context
+     * @return a new instance of the stored document or {@code null} if it's not in the cache
+     * @throws XWikiException when failing to parse the serialized document
+     */
+    public XWikiDocument get(String key, XWikiDocument defaultDocument, XWikiStoreInterface store,
+        XWikiContext xcontext) throws XWikiException
+    {
+        Entry entry;
+        synchronized (this.entries) {
+            entry = this.entries.get(key);
+        }
+
+        if (entry == null) {
+            this.misses.increment();
+
+            return null;
+        }
+
+        this.hits.increment();
+
+        XWikiDocument document =
+            new XWikiDocument(defaultDocument.getDocumentReference(), defaultDocument.getLocale());
+        try (InputStream stream = new InflaterInputStream(new ByteBufferInputStream(entry.buffer.duplicate()))) {
+            document.fromXML(stream);
+        } catch (IOException e) {
+            throw new XWikiException("Failed to parse document [" + key + "]", e);
+        }
+
+        for (XWikiAttachment attachment : document.getAttachmentList()) {
+            String[] stores = entry.attachmentStores.get(attachment.getFilename());
+            if (stores != null) {
+                attachment.setContentStore(stores[0]);
+                attachment.setArchiveStore(stores[1]);
+            }
+            attachment.setMetaDataDirty(false);
+        }
+
+        // Same setup as XWikiHibernateStore#loadXWikiDoc
+        document.setStore(store);
+        document.setElements(entry.elements);
+        document.setXClassXML(entry.xClassXML);
+        BaseClass bclass = new BaseClass();
+        if (entry.xClassXML != null) {
+            bclass.fromXML(entry.xClassXML);
+            document.setXClass(bclass);
+            bclass.setDirty(false);
+        }
+        // Store this XWikiClass in the context so that we can use it in case of recursive usage of classes
+        xcontext.addBaseClass(bclass);
+
+        // Same state as a document loaded from the database
+        document.setNew(false);
+        document.setMostRecent(true);
+        document.setContentDirty(false);
+        document.setMetaDataDirty(false);
+        document.setOriginalDocument(document.clone());
+
+        return document;
+    }
+
+    /**
+     * @param key the key of the document to remove
+     */
+    public void remove(String key)
+    {
+        synchronized (this.entries) {
+            Entry previous = this.entries.remove(key);
+            if (previous != null) {
+                this.size -= previous.buffer.capacity();
+            }
+        }
+    }
+
+    /**
+     * Remove all the documents.
+     */
+    public void removeAll()
+    {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.size = 0;
+        }
+    }
+
+    /**
+     * @return the number of stored documents
+     */
+    public int getEntryCount()
+    {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * @return the number of bytes used to store the serialized documents
+     */
+    public long getSize()
+    {
+        synchronized (this.entries) {
+            return this.size;
+        }
+    }
+
+    /**
+     * @return the number of times a requested document was found
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of times a requested document was not found
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+}
@@ -81,6 +81,8 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.DisposePriority;
 import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
@@ -88,9 +90,12 @@
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.environment.Environment;
 import org.xwiki.logging.LoggerConfiguration;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.Timer;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.internal.store.hibernate.legacy.LegacySessionImplementor;
 import com.xpn.xwiki.store.DatabaseProduct;
 import com.xpn.xwiki.store.XWikiHibernateBaseStore;
@@ -117,6 +122,8 @@ public class HibernateStore implements Disposable, Integrator, Initializable
 
     private static final String CONTEXT_TRANSACTION = "hibtransaction";
 
+    private static final String CONTEXT_SESSION_START = "hibsessionstart";
+
     /**
      * The name of the property for configuring the environment permanent directory.
      */
@@ -152,6 +159,12 @@ public class HibernateStore implements Disposable, Integrator, Initializable
     @Inject
     private LoggerConfiguration loggerConfiguration;
 
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private RequestProfiler requestProfiler;
+
     private DataMigrationManager dataMigrationManager;
 
     private BootstrapServiceRegistry bootstrapServiceRegistry;
@@ -174,6 +187,8 @@ public class HibernateStore implements Disposable, Integrator, Initializable
 
     private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    private Timer sessionDuration;
+
     private DataMigrationManager getDataMigrationManager()
     {
         if (this.dataMigrationManager == null) {
@@ -238,6 +253,21 @@ public void initialize() throws InitializationException
             // Resolve some variables
             replaceVariables(this.configuration);
         }
+
+        initMetrics();
+    }
+
+    private void initMetrics()
+    {
+        if (this.componentManager.hasComponent(MetricRegistry.class)) {
+            try {
+                MetricRegistry metrics = this.componentManager.getInstance(MetricRegistry.class);
+                this.sessionDuration = metrics.getTimer("xwiki_hibernate_session_duration",
+                    "The time during which the Hibernate sessions are kept open");
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to register the Hibernate metrics", e);
+            }
+        }
     }
 
     /**
@@ -833,6 +863,10 @@ public boolean beginTransaction(SessionFactory sfactory) throws XWikiException
         this.logger.debug("Opened transaction [{}]", transaction);
         setCurrentTransaction(transaction);
 
+        // Only start the step once the transaction is opened, since it's ended by #endTransaction
+        this.execution.getContext().setProperty(CONTEXT_SESSION_START, System.nanoTime());
+        this.requestProfiler.startStep(session, "Hibernate session");
+
         // during #setDatabase, the transaction and the session will be closed if the database could not be
         // safely accessed due to version mismatch
         setWiki(session);
@@ -862,11 +896,14 @@ public SessionFactory getSessionFactory()
     public void endTransaction(boolean commit)
     {
         Session session = null;
+        Long sessionStart = null;
         try {
             session = getCurrentSession();
             Transaction transaction = getCurrentTransaction();
             setCurrentSession(null);
             setCurrentTransaction(null);
+            sessionStart = (Long) this.execution.getContext().getProperty(CONTEXT_SESSION_START);
+            this.execution.getContext().removeProperty(CONTEXT_SESSION_START);
 
             if (transaction != null) {
                 this.logger.debug("Releasing hibernate transaction [{}]", transaction);
@@ -888,6 +925,14 @@ public void endTransaction(boolean commit)
                 "Failed to commit or rollback transaction. Root cause [" + getExceptionMessage(e) + "]", e);
         } finally {
             closeSession(session);
+
+            if (sessionStart != null) {
+                this.requestProfiler.endStep(session);
+
+                if (this.sessionDuration != null) {
+                    this.sessionDuration.recordSince(sessionStart);
+                }
+            }
         }
     }
 
@@ -24,16 +24,21 @@
 import java.lang.reflect.Type;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,6 +50,16 @@
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
@@ -52,13 +67,21 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.environment.Environment;
+import org.xwiki.extension.event.ExtensionEvent;
+import org.xwiki.extension.event.ExtensionInstalledEvent;
+import org.xwiki.extension.event.ExtensionUninstalledEvent;
+import org.xwiki.extension.event.ExtensionUpgradedEvent;
 import org.xwiki.filter.input.InputSource;
 import org.xwiki.filter.input.InputStreamInputSource;
 import org.xwiki.filter.input.ReaderInputSource;
 import org.xwiki.filter.input.StringInputSource;
 import org.xwiki.job.event.status.JobProgressManager;
+import org.xwiki.metrics.MetricRegistry;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
 import org.xwiki.properties.BeanManager;
 import org.xwiki.properties.ConverterManager;
 import org.xwiki.properties.PropertyException;
@@ -83,11 +106,15 @@
 import org.xwiki.skin.Skin;
 import org.xwiki.template.Template;
 import org.xwiki.template.TemplateContent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.skin.AbstractSkinResource;
 import com.xpn.xwiki.internal.skin.InternalSkinManager;
 import com.xpn.xwiki.internal.skin.WikiResource;
+import com.xpn.xwiki.internal.skin.WikiSkin;
+import com.xpn.xwiki.internal.skin.WikiSkinUtils;
 import com.xpn.xwiki.user.api.XWikiRightService;
 
 /**
@@ -110,6 +137,8 @@ public class InternalTemplateManager implements Initializable
 
     private static final String TEMPLATE_RESOURCE_SUFFIX = "/templates/";
 
+    private static final String WIKI_NAMESPACE_PREFIX = "wiki:";
+
     @Inject
     private Environment environment;
 
@@ -166,11 +195,64 @@ public class InternalTemplateManager implements Initializable
     @Inject
     private Provider<ErrorBlockGenerator> errorBlockGeneratorProvider;
 
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
     @Inject
     private Logger logger;
 
     private String templateRootURL;
 
+    /**
+     * The resolved templates, with their content already loaded and parsed.
+     */
+    private Cache<CachedTemplate> cache;
+
+    private final AtomicLong cacheSize = new AtomicLong();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * The time (in nanoseconds) that would have been spent resolving and loading the templates found in the cache.
+     */
+    private final LongAdder cacheSavedTime = new LongAdder();
+
+    /**
+     * The keys of the cached templates, indexed by the wikis they depend on (the current wiki and the wikis of the
+     * involved wiki skins).
+     */
+    private final Map<String, Set<String>> cacheKeysByWiki = new ConcurrentHashMap<>();
+
+    private static final class CachedTemplate
+    {
+        /**
+         * The resolved template, or {@code null} if the template does not exist.
+         */
+        private final Template template;
+
+        private final long lastModified;
+
+        private final long loadTime;
+
+        private final Set<String> wikis;
+
+        CachedTemplate(Template template, long lastModified, long loadTime, Set<String> wikis)
+        {
+            this.template = template;
+            this.lastModified = lastModified;
+            this.loadTime = loadTime;
+            this.wikis = wikis;
+        }
+    }
+
     private static abstract class AbtractTemplate<T extends TemplateContent, R extends Resource<?>> implements Template
     {
         protected R resource;
@@ -531,6 +613,214 @@ public void setPrivileged(boolean privileged)
     public void initialize() throws InitializationException
     {
         getTemplateRootPath();
+
+        // Initialize cache
+        try {
+            this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration("templates", 1000, 86400));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to initialize cache", e);
+        }
+        this.cache.addCacheEntryListener(new CacheEntryListener<CachedTemplate>()
+        {
+            @Override
+            public void cacheEntryAdded(CacheEntryEvent<CachedTemplate> event)
+            {
+                InternalTemplateManager.this.cacheSize.incrementAndGet();
+            }
+
+            @Override
+            public void cacheEntryRemoved(CacheEntryEvent<CachedTemplate> event)
+            {
+                InternalTemplateManager.this.cacheSize.decrementAndGet();
+
+                CachedTemplate cachedTemplate = event.getEntry().getValue();
+                if (cachedTemplate != null) {
+                    for (String wiki : cachedTemplate.wikis) {
+                        Set<String> keys = InternalTemplateManager.this.cacheKeysByWiki.get(wiki);
+                        if (keys != null) {
+                            keys.remove(event.getEntry().getKey());
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void cacheEntryModified(CacheEntryEvent<CachedTemplate> event)
+            {
+                // The number of entries doesn't change
+            }
+        });
+
+        // Initialize listener
+        // The template events are not listened to since they are always sent along with the update of the skin
+        // document. Templates added to a skin are only notified by the update of the skin document.
+        this.observation.addListener(new AbstractEventListener("templates.cache", new DocumentUpdatedEvent(),
+            new DocumentDeletedEvent(), new DocumentCreatedEvent(), new ExtensionInstalledEvent(),
+            new ExtensionUninstalledEvent(), new ExtensionUpgradedEvent(), new WikiDeletedEvent())
+        {
+            @Override
+            public void onEvent(Event event, Object source, Object data)
+            {
+                if (event instanceof ExtensionEvent) {
+                    // Extensions can provide templates (in the classloader or in skins).
+                    onExtensionEvent((ExtensionEvent) event);
+                } else if (event instanceof WikiDeletedEvent) {
+                    invalidateWiki(((WikiDeletedEvent) event).getWikiId());
+                } else if (source instanceof XWikiDocument && isSkinDocument((XWikiDocument) source)) {
+                    invalidateWiki(((XWikiDocument) source).getDocumentReference().getWikiReference().getName());
+                }
+            }
+        });
+
+        initMetrics();
+    }
+
+    private boolean isSkinDocument(XWikiDocument document)
+    {
+        return document.getXObject(WikiSkinUtils.SKINCLASS_REFERENCE) != null
+            || (document.getOriginalDocument() != null
+                && document.getOriginalDocument().getXObject(WikiSkinUtils.SKINCLASS_REFERENCE) != null);
+    }
+
+    private void onExtensionEvent(ExtensionEvent event)
+    {
+        String namespace = event.getNamespace();
+        if (namespace != null && namespace.startsWith(WIKI_NAMESPACE_PREFIX)) {
+            invalidateWiki(namespace.substring(WIKI_NAMESPACE_PREFIX.length()));
+        } else {
+            // The extension is installed on the root namespace (or on a namespace which is not a wiki).
+            clearCache();
+        }
+    }
+
+    private void invalidateWiki(String wiki)
+    {
+        Set<String> keys = this.cacheKeysByWiki.remove(wiki);
+        if (keys != null) {
+            for (String key : keys) {
+                this.cache.remove(key);
+            }
+        }
+    }
+
+    private void clearCache()
+    {
+        this.cache.removeAll();
+        this.cacheSize.set(0);
+        this.cacheKeysByWiki.clear();
+    }
+
+    private void initMetrics()
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(MetricRegistry.class)) {
+            try {
+                MetricRegistry metrics = componentManager.getInstance(MetricRegistry.class);
+                metrics.registerGauge("xwiki_template_cache_size",
+                    "The approximate number of resolved templates in the cache",
+                    () -> Math.max(this.cacheSize.get(), 0));
+                metrics.registerCounter("xwiki_template_cache_hits", "The number of templates found in the cache",
+                    this.cacheHits::sum);
+                metrics.registerCounter("xwiki_template_cache_misses",
+                    "The number of templates which had to be resolved and loaded", this.cacheMisses::sum);
+                metrics.registerCounter("xwiki_template_cache_saved_milliseconds",
+                    "The time saved resolving, loading and parsing the templates found in the cache",
+                    () -> this.cacheSavedTime.sum() / 1000000);
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to register the template cache metrics", e);
+            }
+        }
+    }
+
+    private String getCacheKey(ResourceRepository repository, String templateName, boolean fallback)
+    {
+        // The skin identifier can be relative to the current wiki and each wiki can have its own classloader.
+        String repositoryId = repository != null ? StringUtils.defaultString(repository.getId()) : "";
+        return this.wikiDescriptorManager.getCurrentWikiId() + ':' + fallback + ':' + repositoryId.length() + ':'
+            + repositoryId + ':' + templateName;
+    }
+
+    /**
+     * @return the cached template (possibly indicating that the template does not exist), or {@code null} if it's not
+     *         in the cache
+     */
+    private CachedTemplate getCachedTemplate(String cacheKey)
+    {
+        CachedTemplate cachedTemplate = this.cache.get(cacheKey);
+
+        // Make sure the template file was not modified since it was cached.
+        if (cachedTemplate != null && cachedTemplate.lastModified == getLastModified(cachedTemplate.template)) {
+            this.cacheHits.increment();
+            this.cacheSavedTime.add(cachedTemplate.loadTime);
+
+            return cachedTemplate;
+        }
+
+        this.cacheMisses.increment();
+
+        return null;
+    }
+
+    private void cacheTemplate(String cacheKey, ResourceRepository repository, Template template, long startTime)
+    {
+        if (template != null) {
+            try {
+                // Load and parse the template content before caching it.
+                template.getContent();
+            } catch (Exception e) {
+                // The error will be reported when executing the template.
+                return;
+            }
+        }
+
+        // Also remember the missing templates, since the optional templates are looked up very often.
+        Set<String> wikis = getDependencyWikis(repository);
+        for (String wiki : wikis) {
+            this.cacheKeysByWiki.computeIfAbsent(wiki, key -> ConcurrentHashMap.newKeySet()).add(cacheKey);
+        }
+        this.cache.set(cacheKey,
+            new CachedTemplate(template, getLastModified(template), System.nanoTime() - startTime, wikis));
+    }
+
+    /**
+     * @return the wikis containing the documents the resolution of a template depends on: the current wiki and the
+     *         wikis of the wiki skins (and their parents)
+     */
+    private Set<String> getDependencyWikis(ResourceRepository repository)
+    {
+        Set<String> wikis = new HashSet<>();
+        wikis.add(this.wikiDescriptorManager.getCurrentWikiId());
+
+        Set<String> skins = new HashSet<>();
+        for (ResourceRepository skin = repository; skin instanceof Skin && skins.add(skin.getId());
+            skin = ((Skin) skin).getParent()) {
+            if (skin instanceof WikiSkin) {
+                wikis.add(this.currentMixedDocumentReferenceResolver.resolve(skin.getId()).getWikiReference()
+                    .getName());
+            }
+        }
+
+        return wikis;
+    }
+
+    /**
+     * @return the last modification date of the template file, or 0 if the template is not located on the file system
+     *         (the wiki templates are invalidated using events and the classloader templates can't be modified)
+     */
+    private long getLastModified(Template template)
+    {
+        if (template instanceof EnvironmentTemplate) {
+            URL url = this.environment.getResource(((EnvironmentTemplate) template).resource.getPath());
+            if (url != null && "file".equals(url.getProtocol())) {
+                try {
+                    return Files.getLastModifiedTime(Paths.get(url.toURI())).toMillis();
+                } catch (Exception e) {
+                    // Consider that the file was not modified.
+                }
+            }
+        }
+
+        return 0;
     }
 
     private String getTemplateRootPath()
@@ -945,6 +1235,21 @@ public Template getResourceTemplate(String templateName, ResourceRepository repo
     }
 
     public Template getTemplate(String templateName, ResourceRepository repository)
+    {
+        String cacheKey = getCacheKey(repository, templateName, false);
+        CachedTemplate cachedTemplate = getCachedTemplate(cacheKey);
+        if (cachedTemplate != null) {
+            return cachedTemplate.template;
+        }
+
+        long startTime = System.nanoTime();
+        Template template = getResourceRepositoryTemplate(templateName, repository);
+        cacheTemplate(cacheKey, repository, template, startTime);
+
+        return template;
+    }
+
+    private Template getResourceRepositoryTemplate(String templateName, ResourceRepository repository)
     {
         Resource<?> resource = repository.getResource(templateName);
         if (resource != null) {
@@ -956,20 +1261,34 @@ public Template getTemplate(String templateName, ResourceRepository repository)
 
     public Template getTemplate(String templateName)
     {
-        Template template = null;
-
         // Try from skin
         Skin skin = this.skins.getCurrentSkin(false);
-        if (skin != null) {
-            template = getTemplate(templateName, skin);
-        }
 
         // Try from base skin if no skin is set
-        if (skin == null) {
-            Skin baseSkin = this.skins.getCurrentParentSkin(false);
-            if (baseSkin != null) {
-                template = getTemplate(templateName, baseSkin);
-            }
+        Skin baseSkin = skin == null ? this.skins.getCurrentParentSkin(false) : null;
+
+        Skin repository = skin != null ? skin : baseSkin;
+        String cacheKey = getCacheKey(repository, templateName, true);
+        CachedTemplate cachedTemplate = getCachedTemplate(cacheKey);
+        if (cachedTemplate != null) {
+            return cachedTemplate.template;
+        }
+
+        long startTime = System.nanoTime();
+        Template template = getTemplate(templateName, skin, baseSkin);
+        cacheTemplate(cacheKey, repository, template, startTime);
+
+        return template;
+    }
+
+    private Template getTemplate(String templateName, Skin skin, Skin baseSkin)
+    {
+        Template template = null;
+
+        if (skin != null) {
+            template = getResourceRepositoryTemplate(templateName, skin);
+        } else if (baseSkin != null) {
+            template = getResourceRepositoryTemplate(templateName, baseSkin);
         }
 
         // Try from /templates/ environment resources
@@ -183,33 +183,36 @@ public String content(Document document, Map<String, Object> parameters)
                 e);
             return null;
         }
-        String renderedContent =
-            this.renderingCache.getRenderedContent(document.getDocumentReference(), content, context);
-        if (renderedContent == null) {
-            Map<String, Object> actualParameters = new HashMap<String, Object>(parameters);
-            DocumentDisplayerParameters displayerParameters =
-                (DocumentDisplayerParameters) parameters.get(DISPLAYER_PARAMETERS_KEY);
-            if (displayerParameters == null) {
-                displayerParameters = new DocumentDisplayerParameters();
-                // Default content display parameters.
-                displayerParameters.setExecutionContextIsolated(true);
-                displayerParameters.setContentTranslated(true);
-            } else if (displayerParameters.isTitleDisplayed()) {
-                // Clone because we have to enforce content display.
-                displayerParameters = displayerParameters.clone();
-            }
-            // Ensure the content is displayed.
-            displayerParameters.setTitleDisplayed(false);
-            Syntax outputSyntax = getOutputSyntax(parameters);
-            displayerParameters.setTargetSyntax(outputSyntax);
-            actualParameters.put(DISPLAYER_PARAMETERS_KEY, displayerParameters);
-            renderedContent = document(document, actualParameters, outputSyntax);
-            if (renderedContent != null) {
-                this.renderingCache.setRenderedContent(document.getDocumentReference(), content, renderedContent,
-                    context);
-            }
+        try {
+            // The cached result also depends on the documents read during the rendering (includes, panels, etc.)
+            return this.renderingCache.getRenderedContent(document.getDocumentReference(), content,
+                () -> renderContent(document, parameters), context);
+        } catch (XWikiException e) {
+            this.logger.warn("Failed to render the content of document [{}].", document.getPrefixedFullName(), e);
+            return null;
         }
-        return renderedContent;
+    }
+
+    private String renderContent(Document document, Map<String, Object> parameters)
+    {
+        Map<String, Object> actualParameters = new HashMap<String, Object>(parameters);
+        DocumentDisplayerParameters displayerParameters =
+            (DocumentDisplayerParameters) parameters.get(DISPLAYER_PARAMETERS_KEY);
+        if (displayerParameters == null) {
+            displayerParameters = new DocumentDisplayerParameters();
+            // Default content display parameters.
+            displayerParameters.setExecutionContextIsolated(true);
+            displayerParameters.setContentTranslated(true);
+        } else if (displayerParameters.isTitleDisplayed()) {
+            // Clone because we have to enforce content display.
+            displayerParameters = displayerParameters.clone();
+        }
+        // Ensure the content is displayed.
+        displayerParameters.setTitleDisplayed(false);
+        Syntax outputSyntax = getOutputSyntax(parameters);
+        displayerParameters.setTargetSyntax(outputSyntax);
+        actualParameters.put(DISPLAYER_PARAMETERS_KEY, displayerParameters);
+        return document(document, actualParameters, outputSyntax);
     }
 
     /**
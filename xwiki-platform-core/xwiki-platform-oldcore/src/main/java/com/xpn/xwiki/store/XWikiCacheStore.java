@@ -21,9 +21,11 @@
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,9 +41,14 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.metrics.MetricRegistry;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -57,7 +64,12 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
+import com.xpn.xwiki.internal.store.cache.DocumentCacheWeights;
+import com.xpn.xwiki.internal.store.cache.DocumentExistenceFilters;
+import com.xpn.xwiki.internal.store.cache.JMXDocumentCache;
+import com.xpn.xwiki.internal.store.cache.SerializedDocumentCache;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
 
@@ -72,10 +84,12 @@
 @Named("cache")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 public class XWikiCacheStore extends AbstractXWikiStore
-    implements XWikiCacheStoreInterface, EventListener, Initializable
+    implements XWikiCacheStoreInterface, EventListener, Initializable, Disposable
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    private static final String MBEAN_NAME = "type=Store,name=DocumentCache";
+
     /**
      * Used to know if a received event is a local or remote one.
      */
@@ -99,12 +113,38 @@ public class XWikiCacheStore extends AbstractXWikiStore
     @Named("xwikicfg")
     private ConfigurationSource configuration;
 
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
     private XWikiStoreInterface store;
 
     private Cache<XWikiDocument> cache;
 
+    /**
+     * The estimated memory retained by the documents of {@link #cache}, {@code null} when the cache is only bounded by
+     * its number of entries.
+     */
+    private DocumentCacheWeights cacheWeights;
+
+    /**
+     * The off heap second level cache, {@code null} when disabled.
+     */
+    private SerializedDocumentCache serializedCache;
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private RequestProfiler requestProfiler;
+
     private Cache<Boolean> pageExistCache;
 
+    /**
+     * The filters used to avoid reaching the database for documents which don't exist, {@code null} when disabled.
+     */
+    private DocumentExistenceFilters pageExistFilters;
+
     /**
      * Used to cache the values asked by {@link #getLimitSize(XWikiContext, Class, String)}.
      */
@@ -146,6 +186,31 @@ public void initialize() throws InitializationException
         }
 
         initListener();
+
+        initProfiler();
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.pageExistFilters != null) {
+            this.pageExistFilters.dispose();
+        }
+    }
+
+    /**
+     * Expose the statistics of the cache through JMX and the metric registry.
+     * <p>
+     * This component is not a singleton so this is only called by the owner of the store instance actually used by
+     * XWiki, to not replace the statistics with the ones of another instance.
+     * 
+     * @since 14.4RC1
+     */
+    public void registerStatistics()
+    {
+        initJMX();
+
+        initMetrics();
     }
 
     @Override
@@ -167,16 +232,95 @@ private void initListener()
         this.observationManager.addListener(this);
     }
 
+    private void initJMX()
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(JMXBeanRegistration.class)) {
+            try {
+                JMXBeanRegistration jmxRegistration = componentManager.getInstance(JMXBeanRegistration.class);
+                jmxRegistration.registerMBean(new JMXDocumentCache(this.cacheHits::sum, this.cacheMisses::sum,
+                    this.cacheWeights, this.serializedCache), MBEAN_NAME);
+            } catch (ComponentLookupException e) {
+                LOGGER.warn("Failed to expose the document cache statistics through JMX", e);
+            }
+        }
+    }
+
+    private void initMetrics()
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(MetricRegistry.class)) {
+            try {
+                MetricRegistry metrics = componentManager.getInstance(MetricRegistry.class);
+                metrics.registerCounter("xwiki_document_cache_hits", "The number of documents found in the cache",
+                    this.cacheHits::sum);
+                metrics.registerCounter("xwiki_document_cache_misses",
+                    "The number of documents which had to be loaded from the database", this.cacheMisses::sum);
+                metrics.registerGauge("xwiki_document_cache_hit_ratio",
+                    "The ratio of documents found in the cache since the start", this::getCacheHitRatio);
+            } catch (ComponentLookupException e) {
+                LOGGER.warn("Failed to register the document cache metrics", e);
+            }
+        }
+    }
+
+    private void initProfiler()
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(RequestProfiler.class)) {
+            try {
+                this.requestProfiler = componentManager.getInstance(RequestProfiler.class);
+            } catch (ComponentLookupException e) {
+                LOGGER.warn("Failed to get the request profiler", e);
+            }
+        }
+    }
+
+    private boolean startProfilingStep(XWikiDocument doc)
+    {
+        if (this.requestProfiler != null && this.requestProfiler.isProfiling()) {
+            this.requestProfiler.startStep(doc, "Load document [{}]", doc.getDocumentReferenceWithLocale());
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private double getCacheHitRatio()
+    {
+        long hits = this.cacheHits.sum();
+        long total = hits + this.cacheMisses.sum();
+
+        return total > 0 ? (double) hits / total : 0;
+    }
+
     private void initCache() throws CacheException
     {
         int pageCacheCapacity = this.configuration.getProperty("xwiki.store.cache.capacity", 500);
         this.cache =
             this.cacheManager.createNewCache(new LRUCacheConfiguration("xwiki.store.pagecache", pageCacheCapacity));
 
+        long pageCacheMaxWeight = this.configuration.getProperty("xwiki.store.cache.maxWeight", 0L);
+        if (pageCacheMaxWeight > 0) {
+            this.cacheWeights = new DocumentCacheWeights(this.cache, pageCacheMaxWeight);
+        }
+
+        long offHeapCapacity = this.configuration.getProperty("xwiki.store.cache.offHeapCapacity", 0L);
+        if (offHeapCapacity > 0) {
+            this.serializedCache = new SerializedDocumentCache(offHeapCapacity);
+        }
+
         int pageExistCacheCapacity = this.configuration.getProperty("xwiki.store.cache.pageexistcapacity", 10000);
         this.pageExistCache = this.cacheManager
             .createNewCache(new LRUCacheConfiguration("xwiki.store.pageexistcache", pageExistCacheCapacity));
 
+        if (this.configuration.getProperty("xwiki.store.cache.pageexistfilter", false)) {
+            double falsePositiveProbability =
+                this.configuration.getProperty("xwiki.store.cache.pageexistfilter.falsePositiveProbability", 0.01D);
+            this.pageExistFilters = new DocumentExistenceFilters(this::getQueryManager, falsePositiveProbability);
+        }
+
         // There won't be many values in this cache, but they will be accessed a lot.
         int limitSizePropertyCacheCapacity = 10;
         this.limitSizePropertyCache = this.cacheManager.createNewCache(
@@ -227,10 +371,15 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
         XWikiContext context = getExecutionXContext(inputxcontext, true);
         try {
             this.store.renameXWikiDoc(doc, newReference, context);
+
+            if (this.pageExistFilters != null) {
+                this.pageExistFilters.add(newReference.getWikiReference().getName(),
+                    new XWikiDocument(newReference, newReference.getLocale()));
+            }
         } finally {
             // Flushing the cache for old document
             String key = getKey(doc, context);
-            getCache().remove(key);
+            removeDocumentFromCache(key);
             getPageExistCache().remove(key);
 
             WikiReference originalWikiReference = doc.getDocumentReference().getWikiReference();
@@ -240,7 +389,7 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
             }
             XWikiDocument newDoc = new XWikiDocument(newReference, newReference.getLocale());
             key = getKey(newDoc, context);
-            getCache().remove(key);
+            removeDocumentFromCache(key);
             getPageExistCache().remove(key);
             context.setWikiReference(originalWikiReference);
 
@@ -259,10 +408,14 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
             this.store.saveXWikiDoc(doc, context, bTransaction);
 
             doc.setStore(this.store);
+
+            if (this.pageExistFilters != null) {
+                this.pageExistFilters.add(context.getWikiId(), doc);
+            }
         } finally {
             // Flushing the cache
             String key = getKey(doc, context);
-            getCache().remove(key);
+            removeDocumentFromCache(key);
             getPageExistCache().remove(key);
 
             /*
@@ -279,8 +432,14 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
     public void flushCache()
     {
         getCache().removeAll();
+        if (this.serializedCache != null) {
+            this.serializedCache.removeAll();
+        }
         getPageExistCache().removeAll();
         getLimitSizePropertyCache().removeAll();
+        if (this.pageExistFilters != null) {
+            this.pageExistFilters.clear();
+        }
     }
 
     @Override
@@ -296,11 +455,14 @@ public void onEvent(Event event, Object source, Object data)
                 String key = doc.getKey();
 
                 if (getCache() != null) {
-                    getCache().remove(key);
+                    removeDocumentFromCache(key);
                 }
                 if (getPageExistCache() != null) {
                     getPageExistCache().remove(key);
                 }
+                if (this.pageExistFilters != null && !(event instanceof DocumentDeletedEvent)) {
+                    this.pageExistFilters.add(doc.getDocumentReference().getWikiReference().getName(), doc);
+                }
             }
         }
     }
@@ -357,6 +519,8 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
         // Make sure to use the right XWikiContext instance to avoid issues
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
+        boolean profiled = startProfilingStep(doc);
+
         try {
             // Calculate the cache key
             String key = getKey(doc, context);
@@ -373,13 +537,20 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             }
 
             if (cachedoc != null) {
+                this.cacheHits.increment();
+                if (this.cacheWeights != null) {
+                    this.cacheWeights.touch(key);
+                }
+
                 cachedoc.setFromCache(true);
 
                 LOGGER.debug("Document [{}] was retrieved from cache", key);
             } else {
+                this.cacheMisses.increment();
+
                 Boolean result = getPageExistCache().get(key);
 
-                if (result == Boolean.FALSE) {
+                if (result == Boolean.FALSE || (result == null && !mightExist(doc, context))) {
                     LOGGER.debug("Document [{}] doesn't exist in cache, returning an empty one", key);
 
                     cachedoc = doc;
@@ -390,19 +561,28 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                     cachedoc
                         .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
                 } else {
-                    LOGGER.debug("Trying to get Document [{}] from persistent storage", key);
-
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+                    cachedoc = getSerializedDocument(key, doc, context);
 
-                    LOGGER.debug("Document [{}] was retrieved from persistent storage", key);
+                    if (cachedoc != null) {
+                        LOGGER.debug("Document [{}] was rebuilt from the serialized cache", key);
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
+                        setDocumentInCache(key, cachedoc);
                     } else {
-                        getCache().set(key, cachedoc);
+                        LOGGER.debug("Trying to get Document [{}] from persistent storage", key);
+
+                        cachedoc = this.store.loadXWikiDoc(doc, context);
+
+                        LOGGER.debug("Document [{}] was retrieved from persistent storage", key);
+
+                        if (cachedoc.isNew()) {
+                            getPageExistCache().set(key, Boolean.FALSE);
+                        } else {
+                            setDocumentInCache(key, cachedoc);
+                            setSerializedDocument(key, cachedoc, context);
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
+                            // Also update exist cache
+                            getPageExistCache().set(key, Boolean.TRUE);
+                        }
                     }
 
                     LOGGER.debug("Document [{}] was put in cache", key);
@@ -414,10 +594,63 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
             return cachedoc;
         } finally {
+            if (profiled) {
+                this.requestProfiler.endStep(doc);
+            }
+
             restoreExecutionXContext();
         }
     }
 
+    private boolean mightExist(XWikiDocument document, XWikiContext context)
+    {
+        return this.pageExistFilters == null || this.pageExistFilters.mightExist(context.getWikiId(), document);
+    }
+
+    private void setDocumentInCache(String key, XWikiDocument document)
+    {
+        getCache().set(key, document);
+
+        if (this.cacheWeights != null) {
+            this.cacheWeights.set(key, document);
+        }
+    }
+
+    private void removeDocumentFromCache(String key)
+    {
+        getCache().remove(key);
+
+        if (this.serializedCache != null) {
+            this.serializedCache.remove(key);
+        }
+    }
+
+    private XWikiDocument getSerializedDocument(String key, XWikiDocument document, XWikiContext context)
+    {
+        if (this.serializedCache != null) {
+            try {
+                return this.serializedCache.get(key, document, this.store, context);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to rebuild document [{}] from the serialized cache", key, e);
+
+                this.serializedCache.remove(key);
+            }
+        }
+
+        return null;
+    }
+
+    private void setSerializedDocument(String key, XWikiDocument document, XWikiContext context)
+    {
+        if (this.serializedCache != null) {
+            try {
+                this.serializedCache.set(key, document, context);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to serialize document [{}] in the cache", key, e);
+            }
+        }
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -430,7 +663,7 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
 
             this.store.deleteXWikiDoc(doc, context);
 
-            getCache().remove(key);
+            removeDocumentFromCache(key);
             getPageExistCache().remove(key);
             getPageExistCache().set(key, Boolean.FALSE);
         } finally {
@@ -762,6 +995,10 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
             } catch (Exception e) {
             }
 
+            if (!mightExist(doc, context)) {
+                return false;
+            }
+
             boolean result = this.store.exists(doc, context);
             getPageExistCache().set(key, Boolean.valueOf(result));
 
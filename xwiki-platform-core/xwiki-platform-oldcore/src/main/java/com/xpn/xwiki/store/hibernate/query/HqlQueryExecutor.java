@@ -55,6 +55,7 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
 import com.xpn.xwiki.internal.store.hibernate.query.HqlQueryUtils;
 import com.xpn.xwiki.store.XWikiHibernateStore;
@@ -90,6 +91,9 @@ public class HqlQueryExecutor implements QueryExecutor, Initializable
     @Inject
     private ContextualAuthorizationManager authorization;
 
+    @Inject
+    private RequestProfiler requestProfiler;
+
     @Inject
     @Named("context")
     private Provider<ComponentManager> componentManagerProvider;
@@ -156,6 +160,8 @@ public <T> List<T> execute(final Query query) throws QueryException
         // Make sure the query is allowed in the current context
         checkAllowed(query);
 
+        this.requestProfiler.startStep(query, "Execute query [{}]", query.getStatement());
+
         String oldDatabase = getContext().getWikiId();
         try {
             if (query.getWiki() != null) {
@@ -176,6 +182,8 @@ public <T> List<T> execute(final Query query) throws QueryException
             throw new QueryException("Exception while executing query", query, e);
         } finally {
             getContext().setWikiId(oldDatabase);
+
+            this.requestProfiler.endStep(query);
         }
     }
 
@@ -21,9 +21,16 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +44,6 @@
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -59,6 +65,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.util.Util;
@@ -105,8 +112,32 @@ public class DownloadAction extends XWikiAction
     /** The name of the HTTP Header that signals a byte-range request. */
     private static final String RANGE_HEADER_NAME = "Range";
 
-    /** The format of a valid range header. */
-    private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
+    /** The prefix of a valid range header. */
+    private static final String RANGE_HEADER_PREFIX = "bytes=";
+
+    /** The format of a valid range in a range header. */
+    private static final Pattern RANGE_PATTERN = Pattern.compile("([0-9]+)?-([0-9]+)?");
+
+    /** The maximum number of ranges accepted in a range header, the whole content is sent for more ranges. */
+    private static final int MAX_RANGES = 100;
+
+    /** The separator between the parts of a multiple ranges response. */
+    private static final String MULTIPART_BOUNDARY = "XWIKI_BYTERANGES_BOUNDARY";
+
+    /** The line separator in the headers of a multiple ranges response. */
+    private static final String CRLF = "\r\n";
+
+    /** The size of the buffer used to write the content of the attachment in the response. */
+    private static final int BUFFER_SIZE = 65536;
+
+    /** The name of the HTTP Header that holds the entity tag of the attachment. */
+    private static final String ETAG_HEADER_NAME = "ETag";
+
+    /** The HTTP Header that holds the range of the sent content. */
+    private static final String CONTENT_RANGE_HEADER_NAME = "Content-Range";
+
+    /** The prefix of the content range header value. */
+    private static final String CONTENT_RANGE_PREFIX = "bytes ";
 
     @Inject
     private TemporaryAttachmentSessionsManager temporaryAttachmentSessionsManager;
@@ -173,15 +204,15 @@ public String render(XWikiContext context) throws XWikiException
                     args);
             }
 
-            long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
-            long lastModifiedOnServer = attachment.getDate().getTime();
-            if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
+            String etag = getETag(attachment, context);
+            response.setHeader(ETAG_HEADER_NAME, etag);
+            if (isNotModified(etag, attachment, request)) {
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                 return null;
             }
 
             // Sending the content of the attachment
-            if (request.getHeader(RANGE_HEADER_NAME) != null) {
+            if (request.getHeader(RANGE_HEADER_NAME) != null && isRangeApplicable(etag, attachment, request)) {
                 try {
                     if (sendPartialContent(attachment, request, response, context)) {
                         return null;
@@ -213,9 +244,81 @@ private void throwNotFoundException(String filename) throws XWikiException
             message);
     }
 
+    /**
+     * The entity tag is computed from the metadata of the attachment (a new version is created each time the content
+     * is modified) so that the content doesn't have to be read.
+     *
+     * @param attachment the attachment
+     * @param context the current request context
+     * @return the entity tag of the attachment content
+     * @throws XWikiException if the attachment content cannot be retrieved
+     */
+    private String getETag(XWikiAttachment attachment, XWikiContext context) throws XWikiException
+    {
+        return '"' + attachment.getVersion() + '-' + Long.toHexString(attachment.getDate().getTime()) + '-'
+            + Long.toHexString(attachment.getContentLongSize(context)) + '"';
+    }
+
+    /**
+     * @param etag the entity tag of the attachment content
+     * @param attachment the attachment
+     * @param request the current client request
+     * @return {@code true} if the client already has the current content of the attachment
+     */
+    private boolean isNotModified(String etag, XWikiAttachment attachment, XWikiRequest request)
+    {
+        // If-None-Match takes precedence over If-Modified-Since
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.trim().equals("*") || matchesETag(etag, ifNoneMatch);
+        }
+
+        long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
+        long lastModifiedOnServer = attachment.getDate().getTime();
+
+        return lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer;
+    }
+
+    /**
+     * @param etag the entity tag of the attachment content
+     * @param attachment the attachment
+     * @param request the current client request
+     * @return {@code false} if the client asked for a range of a different version of the content (in which case the
+     *         whole content should be sent)
+     */
+    private boolean isRangeApplicable(String etag, XWikiAttachment attachment, XWikiRequest request)
+    {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.trim().startsWith("\"")) {
+            return ifRange.trim().equals(etag);
+        }
+
+        try {
+            return request.getDateHeader("If-Range") == attachment.getDate().getTime() / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean matchesETag(String etag, String header)
+    {
+        for (String value : StringUtils.split(header, ',')) {
+            // Weak comparison
+            if (StringUtils.removeStart(value.trim(), "W/").equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Respond to a range request, either with the requested bytes, or with a {@code 416 REQUESTED RANGE NOT
-     * SATISFIABLE} response if the requested byte range falls outside the length of the attachment. If the range
+     * SATISFIABLE} response if all the requested byte ranges fall outside the length of the attachment. If the range
      * request header is syntactically invalid, nothing is written, and instead {@code false} is returned, letting the
      * action handler ignore the Range header and treat this as a normal (full) download request.
      *
@@ -231,34 +334,106 @@ private void throwNotFoundException(String filename) throws XWikiException
     private boolean sendPartialContent(final XWikiAttachment attachment, final XWikiRequest request,
         final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
     {
-        String range = request.getHeader(RANGE_HEADER_NAME);
-        Matcher m = RANGE_HEADER_PATTERN.matcher(range);
-        if (m.matches()) {
-            String startStr = m.group(1);
-            String endStr = m.group(2);
-            Long start = NumberUtils.createLong(startStr);
-            Long end = NumberUtils.createLong(endStr);
+        long length = attachment.getContentLongSize(context);
+        List<long[]> ranges = parseRanges(request.getHeader(RANGE_HEADER_NAME), length);
+        if (ranges == null) {
+            return false;
+        }
+
+        if (ranges.isEmpty()) {
+            response.setHeader(CONTENT_RANGE_HEADER_NAME, CONTENT_RANGE_PREFIX + "*/" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        } else if (ranges.size() == 1) {
+            writeByteRange(attachment, ranges.get(0)[0], ranges.get(0)[1], request, response, context);
+        } else {
+            writeByteRanges(attachment, ranges, request, response, context);
+        }
+
+        return true;
+    }
+
+    /**
+     * @param range the value of the range header
+     * @param length the length of the attachment content
+     * @return the satisfiable ranges (first and last byte), {@code null} if the range header is syntactically invalid
+     */
+    private List<long[]> parseRanges(String range, long length)
+    {
+        if (!range.startsWith(RANGE_HEADER_PREFIX)) {
+            return null;
+        }
+
+        String[] specs = StringUtils.split(range.substring(RANGE_HEADER_PREFIX.length()), ',');
+        if (specs.length == 0 || specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            Matcher m = RANGE_PATTERN.matcher(spec.trim());
+            if (!m.matches()) {
+                return null;
+            }
+            Long start;
+            Long end;
+            try {
+                start = NumberUtils.createLong(m.group(1));
+                end = NumberUtils.createLong(m.group(2));
+            } catch (NumberFormatException e) {
+                return null;
+            }
             if (start == null && end != null && end > 0) {
                 // Tail request, output the last <end> bytes
-                start = Math.max(attachment.getContentLongSize(context) - end, 0L);
-                end = attachment.getContentLongSize(context) - 1L;
+                start = Math.max(length - end, 0L);
+                end = length - 1L;
             }
             if (!isValidRange(start, end)) {
-                return false;
+                return null;
             }
-            if (end == null) {
-                end = attachment.getContentLongSize(context) - 1L;
+            if (start != null && start < length) {
+                ranges.add(new long[] { start, end == null ? length - 1L : Math.min(end, length - 1L) });
             }
-            end = Math.min(end, attachment.getContentLongSize(context) - 1L);
-            writeByteRange(attachment, start, end, request, response, context);
-            return true;
         }
-        return false;
+
+        return mergeRanges(ranges, length);
+    }
+
+    /**
+     * Sort and coalesce the overlapping or adjacent ranges so that each byte is sent at most once and the content can
+     * be read sequentially. A set of ranges requesting more bytes than the whole content (i.e. overlapping a lot) is
+     * ignored and the whole content is sent instead, as allowed by RFC 7233 section 6.1.
+     *
+     * @param ranges the satisfiable ranges (first and last byte)
+     * @param length the length of the attachment content
+     * @return the merged ranges in ascending order, {@code null} if the range header should be ignored
+     */
+    private List<long[]> mergeRanges(List<long[]> ranges, long length)
+    {
+        long total = 0;
+        for (long[] range : ranges) {
+            total += range[1] - range[0] + 1;
+        }
+        if (total > length) {
+            return null;
+        }
+
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+
+        List<long[]> merged = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            long[] previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (previous != null && range[0] <= previous[1] + 1) {
+                previous[1] = Math.max(previous[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+
+        return merged;
     }
 
     /**
-     * Write a byte range from the attachment to the response, if the requested range is valid and falls within the file
-     * limits.
+     * Write a byte range from the attachment to the response.
      *
      * @param attachment the attachment to get content from
      * @param start the first byte to write
@@ -269,24 +444,63 @@ private boolean sendPartialContent(final XWikiAttachment attachment, final XWiki
      * @throws XWikiException if the attachment content cannot be retrieved
      * @throws IOException if the response cannot be written
      */
-    private void writeByteRange(final XWikiAttachment attachment, Long start, Long end, final XWikiRequest request,
+    private void writeByteRange(final XWikiAttachment attachment, long start, long end, final XWikiRequest request,
         final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
     {
-        if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
-            setCommonHeaders(attachment, request, response, context);
-            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-            if ((end - start + 1L) < Integer.MAX_VALUE) {
-                setContentLength(response, end - start + 1);
+        setCommonHeaders(attachment, request, response, context);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if ((end - start + 1L) < Integer.MAX_VALUE) {
+            setContentLength(response, end - start + 1);
+        }
+        response.setHeader(CONTENT_RANGE_HEADER_NAME,
+            CONTENT_RANGE_PREFIX + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context));
+        try (ReadableByteChannel channel = openContent(attachment, context)) {
+            writeContent(channel, 0, start, end - start + 1, response.getOutputStream());
+        }
+    }
+
+    /**
+     * Write several byte ranges from the attachment to the response, as a {@code multipart/byteranges} content.
+     *
+     * @param attachment the attachment to get content from
+     * @param ranges the ranges to write
+     * @param request the current client request
+     * @param response the response to write to.
+     * @param context the current request context
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the response cannot be written
+     */
+    private void writeByteRanges(final XWikiAttachment attachment, List<long[]> ranges, final XWikiRequest request,
+        final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
+    {
+        setCommonHeaders(attachment, request, response, context);
+        String mimetype = attachment.getMimeType(context);
+        response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = (CRLF + "--" + MULTIPART_BOUNDARY + CRLF + "Content-Type: " + mimetype + CRLF
+                + CONTENT_RANGE_HEADER_NAME + ": " + CONTENT_RANGE_PREFIX + range[0] + "-" + range[1] + SEPARATOR
+                + attachment.getContentLongSize(context) + CRLF + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+        byte[] end = (CRLF + "--" + MULTIPART_BOUNDARY + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        setContentLength(response, contentLength + end.length);
+
+        OutputStream out = response.getOutputStream();
+        // The ranges are sorted and don't overlap so they can all be read from the same channel
+        try (ReadableByteChannel channel = openContent(attachment, context)) {
+            long position = 0;
+            for (int i = 0; i < ranges.size(); ++i) {
+                out.write(partHeaders.get(i));
+                position =
+                    writeContent(channel, position, ranges.get(i)[0], ranges.get(i)[1] - ranges.get(i)[0] + 1, out);
             }
-            response.setHeader("Content-Range",
-                "bytes " + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
-        } else {
-            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
         }
+        out.write(end);
     }
 
     /**
@@ -301,19 +515,82 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
     protected void sendContent(final XWikiAttachment attachment, final XWikiRequest request,
         final XWikiResponse response, final XWikiContext context) throws XWikiException
     {
-        InputStream stream = null;
         try {
             setCommonHeaders(attachment, request, response, context);
             setContentLength(response, attachment.getContentLongSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            try (ReadableByteChannel channel = openContent(attachment, context)) {
+                writeContent(channel, 0, 0, attachment.getContentLongSize(context), response.getOutputStream());
+            }
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
-        } finally {
-            if (stream != null) {
-                IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Open the attachment content once for all the portions to write.
+     *
+     * @param attachment the attachment to get content from
+     * @param context the XWikiContext just in case it is needed to load the attachment content
+     * @return a channel to read the attachment content, a {@link FileChannel} when the content is stored in a file
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the content cannot be opened
+     */
+    private ReadableByteChannel openContent(XWikiAttachment attachment, XWikiContext context)
+        throws XWikiException, IOException
+    {
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+        if (content != null) {
+            return content.getContentChannel();
+        }
+
+        return Channels.newChannel(attachment.getContentInputStream(context));
+    }
+
+    /**
+     * Write a portion of the attachment content. When the content is stored in a file it's read from the requested
+     * position, without reading the skipped bytes. Otherwise the content is read sequentially, so the portions must be
+     * written in ascending order. Note that the servlet output stream is neither a file nor a socket channel so the
+     * content is still copied through a heap buffer.
+     *
+     * @param channel the attachment content
+     * @param position the current position in the channel when it's not a file, i.e. the number of bytes already read
+     * @param start the first byte to write
+     * @param length the number of bytes to write, -1 to write until the end
+     * @param out the stream to write to
+     * @return the position in the channel after the written bytes
+     * @throws IOException if the content cannot be read or the response cannot be written
+     */
+    private long writeContent(ReadableByteChannel channel, long position, long start, long length, OutputStream out)
+        throws IOException
+    {
+        if (channel instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) channel;
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long filePosition = start;
+            long remaining = length < 0 ? fileChannel.size() - start : length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = fileChannel.read(buffer, filePosition);
+                if (read <= 0) {
+                    // The file is shorter than expected
+                    break;
+                }
+                out.write(buffer.array(), 0, read);
+                filePosition += read;
+                remaining -= read;
             }
+
+            return filePosition;
+        } else {
+            // Don't close the stream, it would close the channel which is still needed for the next portions
+            InputStream stream = Channels.newInputStream(channel);
+            IOUtils.skipFully(stream, start - position);
+
+            return start + IOUtils.copyLarge(stream, out, 0, length);
         }
     }
 
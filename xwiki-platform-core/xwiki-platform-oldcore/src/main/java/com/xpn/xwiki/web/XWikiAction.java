@@ -59,6 +59,7 @@
 import org.xwiki.job.internal.DefaultJobProgress;
 import org.xwiki.localization.ContextualLocalizationManager;
 import org.xwiki.localization.LocaleUtils;
+import org.xwiki.metrics.MetricRegistry;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -93,6 +94,8 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.internal.web.LegacyAction;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.BaseObject;
@@ -145,6 +148,10 @@ public abstract class XWikiAction implements LegacyAction
     private static final List<String> ACTIONS_IGNORED_WHEN_WIKI_DOES_NOT_EXIST =
         Arrays.asList("skin", "ssx", "jsx", "download");
 
+    private static final String METRIC_DURATION = "xwiki_action_duration";
+
+    private static final String METRIC_TAG_ACTION = "action";
+
     @Inject
     protected ComponentDescriptor<LegacyAction> componentDescriptor;
 
@@ -177,6 +184,10 @@ public abstract class XWikiAction implements LegacyAction
 
     private JobProgressManager progress;
 
+    private MetricRegistry metrics;
+
+    private RequestProfiler requestProfiler;
+
     private ScriptContextManager scriptContextManager;
 
     private EntityNameValidationManager entityNameValidationManager;
@@ -236,6 +247,24 @@ protected JobProgressManager getProgress()
         return this.progress;
     }
 
+    private MetricRegistry getMetrics()
+    {
+        if (this.metrics == null) {
+            this.metrics = Utils.getComponent(MetricRegistry.class);
+        }
+
+        return this.metrics;
+    }
+
+    private RequestProfiler getRequestProfiler()
+    {
+        if (this.requestProfiler == null) {
+            this.requestProfiler = Utils.getComponent(RequestProfiler.class);
+        }
+
+        return this.requestProfiler;
+    }
+
     protected EntityNameValidationManager getEntityNameValidationManager()
     {
         if (this.entityNameValidationManager == null) {
@@ -342,12 +371,16 @@ protected void writeAjaxErrorResponse(int httpStatusCode, String message, XWikiC
 
     public void execute(XWikiContext context) throws Exception
     {
+        long start = System.nanoTime();
+
         MonitorPlugin monitor = null;
         FileUploadPlugin fileupload = null;
         DefaultJobProgress actionProgress = null;
+        RequestProfile profile = null;
         String docName = "";
 
         boolean debug = StringUtils.equals(context.getRequest().get("debug"), "true");
+        boolean profiled = debug || getRequestProfiler().isSampled();
 
         String sasync = context.getRequest().get("async");
 
@@ -355,15 +388,19 @@ public void execute(XWikiContext context) throws Exception
             String action = context.getAction();
 
             // Start progress
-            if (debug) {
+            if (profiled) {
                 actionProgress = new DefaultJobProgress(context.getURL().toExternalForm());
-                this.observation.addListener(new WrappedThreadEventListener(actionProgress));
+                // The profile forwards the progress events to the action progress
+                profile = new RequestProfile(actionProgress.getName(), actionProgress);
+                this.observation.addListener(new WrappedThreadEventListener(profile));
 
                 // Register the action progress in the context
                 ExecutionContext econtext = this.execution.getContext();
-                if (econtext != null) {
+                if (econtext != null && debug) {
                     econtext.setProperty(XWikiAction.ACTION_PROGRESS, actionProgress);
                 }
+
+                getRequestProfiler().startProfiling(profile);
             }
 
             getProgress().pushLevelProgress(2, this);
@@ -719,11 +756,16 @@ public void execute(XWikiContext context) throws Exception
                 monitor.endRequest();
             }
 
+            getMetrics().getTimer(METRIC_DURATION, "The time spent executing the requests of each action",
+                METRIC_TAG_ACTION, StringUtils.defaultString(context.getAction())).recordSince(start);
+
             // Stop progress
-            if (actionProgress != null) {
+            if (profile != null) {
                 getProgress().popLevelProgress(this);
 
-                this.observation.removeListener(actionProgress.getName());
+                this.observation.removeListener(profile.getName());
+
+                getRequestProfiler().stopProfiling();
             }
 
             if (fileupload != null) {
@@ -24,6 +24,9 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Date;
 
 import org.apache.commons.io.IOUtils;
@@ -219,6 +222,21 @@ public void setContentViaOutputStream() throws Exception
         assertTrue(xac.isContentDirty());
     }
 
+    @Test
+    public void getContentChannelFromDiskCache() throws Exception
+    {
+        int attachLength = 20000;
+        int seed = (int) System.currentTimeMillis();
+        XWikiAttachment attach = new XWikiAttachment();
+        attach.setContent(new RandomInputStream(attachLength, seed));
+
+        try (ReadableByteChannel channel = attach.getAttachment_content().getContentChannel()) {
+            assertTrue(channel instanceof FileChannel);
+            assertTrue(IOUtils.contentEquals(new RandomInputStream(attachLength, seed),
+                Channels.newInputStream(channel)));
+        }
+    }
+
     @Test
     public void setContentWithMaxSize() throws Exception
     {
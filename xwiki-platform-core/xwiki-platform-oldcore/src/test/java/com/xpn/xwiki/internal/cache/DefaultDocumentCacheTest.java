@@ -19,6 +19,8 @@
  */
 package com.xpn.xwiki.internal.cache;
 
+import java.util.Collections;
+
 import org.junit.Assert;
 
 import org.jmock.Expectations;
@@ -102,4 +104,21 @@ public void testEventBasedCleanup() throws Exception
         Assert.assertNull(this.cache.get(this.document.getDocumentReference()));
         Assert.assertNull(this.cache.get(this.document.getDocumentReference(), "ext1", "ext2"));
     }
+
+    @Test
+    public void testDependencyEventBasedCleanup() throws Exception
+    {
+        XWikiDocument dependency = new XWikiDocument(new DocumentReference("wiki", "space", "dependency"));
+
+        this.cache.set("data", Collections.singleton(dependency.getDocumentReference()),
+            this.document.getDocumentReference(), "ext1");
+
+        Assert.assertEquals("data", this.cache.get(this.document.getDocumentReference(), "ext1"));
+
+        ObservationManager observationManager = getComponentManager().getInstance(ObservationManager.class);
+        observationManager.notify(new DocumentUpdatedEvent(dependency.getDocumentReference()), dependency,
+            getContext());
+
+        Assert.assertNull(this.cache.get(this.document.getDocumentReference(), "ext1"));
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.job.event.status.JobProgressManager;
+import org.xwiki.job.event.status.JobProgressStep;
+import org.xwiki.job.internal.DefaultJobProgress;
+import org.xwiki.observation.event.Event;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link RequestProfiler}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class RequestProfilerTest
+{
+    @InjectMockComponents
+    private RequestProfiler profiler;
+
+    @MockComponent
+    private DebugConfiguration configuration;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private JobProgressManager progress;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.execution.getContext()).thenReturn(new ExecutionContext());
+        when(this.configuration.getProfilingHistorySize()).thenReturn(2);
+    }
+
+    @Test
+    void isSampled()
+    {
+        assertFalse(this.profiler.isSampled());
+
+        when(this.configuration.getProfilingSampling()).thenReturn(1D);
+
+        assertTrue(this.profiler.isSampled());
+    }
+
+    @Test
+    void startStepWhenNotProfiling()
+    {
+        this.profiler.startStep(this, "message");
+        this.profiler.endStep(this);
+
+        verify(this.progress, never()).startStep(any(), any(), any(), any());
+        verify(this.progress, never()).endStep(any());
+    }
+
+    @Test
+    void profile()
+    {
+        RequestProfile profile1 = new RequestProfile("request1", mock(DefaultJobProgress.class));
+
+        this.profiler.startProfiling(profile1);
+
+        assertTrue(this.profiler.isProfiling());
+
+        this.profiler.startStep(this, "message [{}]", "argument");
+        this.profiler.endStep(this);
+
+        verify(this.progress).startStep(this, null, "message [{}]", "argument");
+        verify(this.progress).endStep(this);
+
+        this.profiler.stopProfiling();
+
+        assertFalse(this.profiler.isProfiling());
+        assertEquals(Arrays.asList(profile1), this.profiler.getProfiles());
+
+        RequestProfile profile2 = new RequestProfile("request2", mock(DefaultJobProgress.class));
+        this.profiler.startProfiling(profile2);
+        this.profiler.stopProfiling();
+        RequestProfile profile3 = new RequestProfile("request3", mock(DefaultJobProgress.class));
+        this.profiler.startProfiling(profile3);
+        this.profiler.stopProfiling();
+
+        assertEquals(Arrays.asList(profile3, profile2), this.profiler.getProfiles());
+    }
+
+    @Test
+    void profileWithSameRequestName()
+    {
+        RequestProfile profile1 = new RequestProfile("request", mock(DefaultJobProgress.class));
+        RequestProfile profile2 = new RequestProfile("request", mock(DefaultJobProgress.class));
+
+        assertEquals("request", profile1.getRequestName());
+        assertEquals("request", profile2.getRequestName());
+
+        // Each profile is registered as a listener during the request so they must not share the same name
+        assertNotEquals(profile1.getName(), profile2.getName());
+    }
+
+    @Test
+    void getTrace()
+    {
+        JobProgressStep step1 = mock(JobProgressStep.class, "step1");
+        when(step1.getElapsedTime()).thenReturn(1000L);
+        JobProgressStep step2 = mock(JobProgressStep.class, "step2");
+        when(step2.getElapsedTime()).thenReturn(2000L);
+        JobProgressStep step3 = mock(JobProgressStep.class, "step3");
+        when(step3.getElapsedTime()).thenReturn(3000L);
+        JobProgressStep root = mock(JobProgressStep.class, "root");
+        when(root.getElapsedTime()).thenReturn(10000000L);
+        doReturn(Arrays.asList(step1, step2, step3)).when(root).getChildren();
+        doReturn(Collections.emptyList()).when(step1).getChildren();
+        doReturn(Collections.emptyList()).when(step2).getChildren();
+        doReturn(Collections.emptyList()).when(step3).getChildren();
+        DefaultJobProgress progress = mock(DefaultJobProgress.class);
+        when(progress.getRootStep()).thenReturn(root);
+
+        RequestProfile profile = new RequestProfile("request", progress);
+
+        // Simulate the progress events creating the first two steps, the start of the third one being unknown
+        Event event = mock(Event.class);
+        when(progress.getCurrentStep()).thenReturn(step1);
+        profile.onEvent(event, this, null);
+        when(progress.getCurrentStep()).thenReturn(root);
+        profile.onEvent(event, this, null);
+        when(progress.getCurrentStep()).thenReturn(step2);
+        profile.onEvent(event, this, null);
+        // A step already started doesn't start again
+        long step2Start = profile.getStartTime(step2);
+        profile.onEvent(event, this, null);
+        assertEquals(step2Start, profile.getStartTime(step2));
+
+        verify(progress, times(4)).onEvent(event, this, null);
+
+        this.profiler.startProfiling(profile);
+        this.profiler.stopProfiling();
+
+        Map<String, Object> trace = this.profiler.getTrace();
+
+        List<Map<String, Object>> events = (List<Map<String, Object>>) trace.get("traceEvents");
+        assertEquals(5, events.size());
+        assertEquals("M", events.get(0).get("ph"));
+        assertEquals(Collections.singletonMap("name", "request"), events.get(0).get("args"));
+
+        double start = profile.getDate().getTime() * 1000D;
+        assertEquals("request", events.get(1).get("name"));
+        assertEquals(start, events.get(1).get("ts"));
+        assertEquals(10000D, events.get(1).get("dur"));
+        // The steps are placed where they actually started
+        assertEquals(start + profile.getStartTime(step1) / 1000D, events.get(2).get("ts"));
+        assertEquals(1D, events.get(2).get("dur"));
+        assertEquals(start + step2Start / 1000D, events.get(3).get("ts"));
+        assertEquals(2D, events.get(3).get("dur"));
+        // Or just after the previous step when the start is unknown
+        assertEquals(-1, profile.getStartTime(step3));
+        assertEquals(start + (step2Start + 2000) / 1000D, events.get(4).get("ts"));
+        assertEquals(3D, events.get(4).get("dur"));
+    }
+}
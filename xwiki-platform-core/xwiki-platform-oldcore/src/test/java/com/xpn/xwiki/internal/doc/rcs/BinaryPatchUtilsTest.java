@@ -0,0 +1,89 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc.rcs;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.suigeneris.jrcs.util.ToString;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link BinaryPatchUtils}.
+ *
+ * @version $Id$
+ */
+class BinaryPatchUtilsTest
+{
+    private static void assertPatch(String source, String target) throws IOException
+    {
+        String patch = BinaryPatchUtils.getPatch(source, target);
+
+        assertTrue(BinaryPatchUtils.isBinaryPatch(patch));
+        assertArrayEquals(ToString.stringToArray(target),
+            BinaryPatchUtils.patch(Arrays.asList(ToString.stringToArray(source)), patch));
+    }
+
+    @Test
+    void patch() throws IOException
+    {
+        String source = "<xwikidoc>\n<content>" + StringUtils.repeat("Some long content line. ", 100)
+            + "</content>\n</xwikidoc>\n";
+
+        assertPatch(source, source);
+        assertPatch(source, source.replace("long", "short"));
+        assertPatch(source, "<xwikidoc>\n<title>Title é</title>\n" + source.substring(11));
+        assertPatch(source, "");
+        assertPatch("", source);
+        assertPatch("a\r\nb\r\n", "a\nb\nc\n");
+    }
+
+    @Test
+    void patchIsSmallerThanTarget() throws IOException
+    {
+        String source = StringUtils.repeat("<property>value</property>\n", 1000);
+        String target = source + "<property>new value</property>\n";
+
+        assertTrue(BinaryPatchUtils.getPatch(source, target).length() < 200);
+    }
+
+    @Test
+    void patchWithWrongSource() throws IOException
+    {
+        String patch = BinaryPatchUtils.getPatch(StringUtils.repeat("line\n", 100),
+            StringUtils.repeat("line\n", 99) + "end\n");
+
+        assertThrows(IOException.class, () -> BinaryPatchUtils.patch(Arrays.asList("other"), patch));
+    }
+
+    @Test
+    void isBinaryPatch()
+    {
+        assertFalse(BinaryPatchUtils.isBinaryPatch("<xwikidoc>"));
+        assertFalse(BinaryPatchUtils.isBinaryPatch("d1 1\n"));
+        assertFalse(BinaryPatchUtils.isBinaryPatch(null));
+    }
+}
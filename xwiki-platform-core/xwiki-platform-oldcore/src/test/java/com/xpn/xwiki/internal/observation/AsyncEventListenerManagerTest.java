@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.event.Event;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AsyncEventListenerManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class AsyncEventListenerManagerTest
+{
+    private static final DocumentReference USER = new DocumentReference("wiki", "XWiki", "User");
+
+    @InjectMockComponents
+    private AsyncEventListenerManager manager;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    private XWikiContext callerContext;
+
+    private XWikiContext listenerContext;
+
+    private final Thread callerThread = Thread.currentThread();
+
+    private final class TestListener implements AsyncEventListener
+    {
+        private final List<Object> received = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch latch;
+
+        private Object data;
+
+        TestListener(int count)
+        {
+            this.latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public String getName()
+        {
+            return "test";
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return List.of();
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            // Not called by the manager
+        }
+
+        @Override
+        public void onAsyncEvent(Event event, Object source, Object data)
+        {
+            assertTrue(Thread.currentThread() != callerThread);
+
+            this.data = data;
+            this.received.add(source);
+            this.latch.countDown();
+        }
+    }
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.configuration.getProperty("observation.async.enabled", true)).thenReturn(true);
+        when(this.configuration.getProperty("observation.async.queueSize", 1000)).thenReturn(10);
+        when(this.componentManagerProvider.get()).thenReturn(mock(ComponentManager.class));
+
+        this.callerContext = mock(XWikiContext.class, "caller");
+        when(this.callerContext.getWikiId()).thenReturn("wiki");
+        when(this.callerContext.getUserReference()).thenReturn(USER);
+        this.listenerContext = mock(XWikiContext.class, "listener");
+        when(this.xcontextProvider.get()).thenAnswer(
+            invocation -> Thread.currentThread() == this.callerThread ? this.callerContext : this.listenerContext);
+    }
+
+    @Test
+    void submit() throws Exception
+    {
+        TestListener listener = new TestListener(100);
+        Event event = mock(Event.class);
+
+        for (int i = 0; i < 100; ++i) {
+            this.manager.submit(listener, event, i, this.callerContext);
+        }
+
+        assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+
+        // The events are received in the order they were produced
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(i, listener.received.get(i));
+        }
+
+        // The listener receives its own context, initialized with the wiki and the user of the caller
+        assertSame(this.listenerContext, listener.data);
+        verify(this.listenerContext, atLeastOnce()).setWikiId("wiki");
+        verify(this.listenerContext, atLeastOnce()).setUserReference(USER);
+    }
+
+    @Test
+    void submitWhenDisabled()
+    {
+        when(this.configuration.getProperty("observation.async.enabled", true)).thenReturn(false);
+
+        Event event = mock(Event.class);
+        AsyncEventListener listener = mock(AsyncEventListener.class);
+
+        this.manager.submit(listener, event, "source", this.callerContext);
+
+        verify(listener).onAsyncEvent(event, "source", this.callerContext);
+        verify(this.componentManagerProvider, never()).get();
+    }
+}
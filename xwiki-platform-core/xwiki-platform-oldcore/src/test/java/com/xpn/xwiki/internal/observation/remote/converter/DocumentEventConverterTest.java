@@ -23,6 +23,7 @@
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -79,4 +80,42 @@ public void testConvertWithOriginalDocNull() throws Exception
         Assert.assertEquals("page", ((XWikiDocument) localEvent2.getSource()).getPageName());
         Assert.assertTrue(((XWikiDocument) localEvent2.getSource()).getOriginalDocument().isNew());
     }
+
+    @Test
+    public void testCoalesceKeepsFirstOriginalVersion() throws Exception
+    {
+        EventConverterManager eventConverterManager = getComponentManager().getInstance(EventConverterManager.class);
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+
+        RemoteEventData remoteEvent1 = eventConverterManager.createRemoteEventData(newUpdate(reference, "1.1", "2.1"));
+        RemoteEventData remoteEvent2 = eventConverterManager.createRemoteEventData(newUpdate(reference, "2.1", "3.1"));
+
+        Assert.assertEquals(remoteEvent1.getCoalescingKey(), remoteEvent2.getCoalescingKey());
+
+        remoteEvent2.coalesce(remoteEvent1);
+
+        Map<String, Object> source = (Map<String, Object>) remoteEvent2.getSource();
+        Assert.assertEquals("3.1", source.get(AbstractXWikiEventConverter.DOC_VERSION));
+        Assert.assertEquals("1.1", source.get(AbstractXWikiEventConverter.ORIGDOC_VERSION));
+    }
+
+    private LocalEventData newUpdate(DocumentReference reference, String previousVersion, String version)
+    {
+        XWikiDocument originalDocument = new XWikiDocument(reference);
+        originalDocument.setNew(false);
+        originalDocument.setVersion(previousVersion);
+
+        XWikiDocument document = new XWikiDocument(reference);
+        document.setNew(false);
+        document.setVersion(version);
+        document.setOriginalDocument(originalDocument);
+
+        LocalEventData localEvent = new LocalEventData();
+        localEvent.setEvent(new DocumentUpdatedEvent(reference));
+        localEvent.setSource(document);
+        localEvent.setData(getContext());
+
+        return localEvent;
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link DocumentBloomFilter}.
+ * 
+ * @version $Id$
+ */
+class DocumentBloomFilterTest
+{
+    @Test
+    void mightContain()
+    {
+        DocumentBloomFilter filter = new DocumentBloomFilter(10000, 0.01);
+
+        assertFalse(filter.mightContain("4:wiki5:space4:page"));
+
+        for (int i = 0; i < 10000; ++i) {
+            filter.put("4:wiki5:space" + String.valueOf(i).length() + ':' + i);
+        }
+
+        // No false negative
+        for (int i = 0; i < 10000; ++i) {
+            assertTrue(filter.mightContain("4:wiki5:space" + String.valueOf(i).length() + ':' + i));
+        }
+
+        // Few false positives
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; ++i) {
+            if (filter.mightContain("5:other5:space" + String.valueOf(i).length() + ':' + i)) {
+                ++falsePositives;
+            }
+        }
+        assertTrue(falsePositives < 300, "Too many false positives: " + falsePositives);
+    }
+}
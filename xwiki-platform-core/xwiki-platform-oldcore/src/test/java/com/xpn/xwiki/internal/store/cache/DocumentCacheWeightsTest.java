@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Validate {@link DocumentCacheWeights}.
+ * 
+ * @version $Id$
+ */
+class DocumentCacheWeightsTest
+{
+    private Cache<XWikiDocument> cache;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.cache = mock(Cache.class);
+    }
+
+    private XWikiDocument createDocument(String name, int contentLength)
+    {
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "space", name));
+        document.setContent(StringUtils.repeat('a', contentLength));
+
+        return document;
+    }
+
+    @Test
+    void estimate()
+    {
+        long small = DocumentCacheWeights.estimate(createDocument("small", 10));
+        long big = DocumentCacheWeights.estimate(createDocument("big", 10000));
+
+        assertTrue(big >= small + 2 * (10000 - 10));
+    }
+
+    @Test
+    void evictLeastRecentlyUsed()
+    {
+        XWikiDocument document1 = createDocument("page1", 1000);
+        XWikiDocument document2 = createDocument("page2", 1000);
+        XWikiDocument document3 = createDocument("page3", 1000);
+        long weight = DocumentCacheWeights.estimate(document1);
+
+        DocumentCacheWeights weights = new DocumentCacheWeights(this.cache, 2 * weight);
+        verify(this.cache).addCacheEntryListener(weights);
+
+        weights.set("page1", document1);
+        weights.set("page2", document2);
+
+        assertEquals(2 * weight, weights.getWeight());
+        verify(this.cache, never()).remove(anyString());
+
+        // Make page1 the most recently used
+        weights.touch("page1");
+
+        weights.set("page3", document3);
+
+        verify(this.cache).remove("page2");
+        assertEquals(2 * weight, weights.getWeight());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store.cache;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.component.XWikiDocumentFilterUtilsComponentList;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Validate {@link SerializedDocumentCache}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+@XWikiDocumentFilterUtilsComponentList
+class SerializedDocumentCacheTest
+{
+    private static final DocumentReference REFERENCE = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    /**
+     * @return a document in the same state as one loaded by the store
+     */
+    private XWikiDocument createDocument()
+    {
+        XWikiDocument document = new XWikiDocument(REFERENCE);
+        document.setContent("content");
+        document.setTitle("title");
+
+        BaseClass xclass = document.getXClass();
+        xclass.addTextField("string", "String", 30);
+        BaseObject xobject = new BaseObject();
+        xobject.setXClassReference(REFERENCE);
+        document.addXObject(xobject);
+        xobject.setStringValue("string", "value");
+
+        // What the store does when saving the document
+        document.setXClassXML(xclass.toXMLString(false));
+        document.setElements(XWikiDocument.HAS_OBJECTS);
+
+        document.setStore(this.oldcore.getMockStore());
+        document.setNew(false);
+        document.setContentDirty(false);
+        document.setMetaDataDirty(false);
+        xclass.setDirty(false);
+        document.setOriginalDocument(document.clone());
+
+        return document;
+    }
+
+    @Test
+    void roundTrip() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        XWikiDocument document = createDocument();
+
+        SerializedDocumentCache cache = new SerializedDocumentCache(Long.MAX_VALUE);
+        cache.set("key", document, xcontext);
+
+        assertNull(cache.get("other", new XWikiDocument(REFERENCE), this.oldcore.getMockStore(), xcontext));
+
+        XWikiDocument cachedDocument =
+            cache.get("key", new XWikiDocument(REFERENCE), this.oldcore.getMockStore(), xcontext);
+
+        assertNotSame(document, cachedDocument);
+        assertEquals(document, cachedDocument);
+        assertEquals("value", cachedDocument.getXObject(REFERENCE).getStringValue("string"));
+
+        // Same setup as a document loaded by the store
+        assertSame(this.oldcore.getMockStore(), cachedDocument.getStore());
+        assertEquals(document.getElements(), cachedDocument.getElements());
+        assertEquals(document.getXClassXML(), cachedDocument.getXClassXML());
+        assertEquals(document.getXClass(), cachedDocument.getXClass());
+        assertSame(cachedDocument.getXClass(), xcontext.getBaseClass(REFERENCE));
+        assertFalse(cachedDocument.isNew());
+        assertFalse(cachedDocument.isContentDirty());
+        assertFalse(cachedDocument.isMetaDataDirty());
+        assertNotNull(cachedDocument.getOriginalDocument());
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+}
@@ -20,21 +20,31 @@
 package com.xpn.xwiki.internal.template;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.velocity.VelocityContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.configuration.internal.MemoryConfigurationSource;
 import org.xwiki.environment.Environment;
+import org.xwiki.extension.ExtensionId;
+import org.xwiki.extension.event.ExtensionInstalledEvent;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.rendering.RenderingException;
 import org.xwiki.rendering.transformation.TransformationManager;
@@ -45,6 +55,7 @@
 import org.xwiki.template.Template;
 import org.xwiki.test.annotation.AfterComponent;
 import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.test.junit5.XWikiTempDir;
 import org.xwiki.test.internal.MockConfigurationSource;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectComponentManager;
@@ -58,12 +69,21 @@
 import org.xwiki.velocity.XWikiVelocityException;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.skin.WikiSkinUtils;
+import com.xpn.xwiki.objects.BaseObject;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -81,6 +101,10 @@
 
     private VelocityManager velocityManagerMock;
 
+    private ObservationManager observationMock;
+
+    private WikiDescriptorManager wikiDescriptorManagerMock;
+
     @InjectMockComponents
     private DefaultTemplateManager templateManager;
 
@@ -90,14 +114,17 @@
     @MockComponent
     private URLConfiguration urlConfiguration;
 
+    @XWikiTempDir
+    private File templatesDirectory;
+
     @AfterComponent
     void afterComponent() throws Exception
     {
         this.componentManager.registerMockComponent(ConfigurationSource.class);
         this.componentManager.registerMockComponent(TransformationManager.class);
-        this.componentManager.registerMockComponent(ObservationManager.class);
+        this.observationMock = this.componentManager.registerMockComponent(ObservationManager.class);
         this.componentManager.registerMockComponent(ContextualAuthorizationManager.class);
-        this.componentManager.registerMockComponent(WikiDescriptorManager.class);
+        this.wikiDescriptorManagerMock = this.componentManager.registerMockComponent(WikiDescriptorManager.class);
 
         this.authorizationMock = this.componentManager.registerMockComponent(AuthorizationManager.class);
         this.environmentMock = this.componentManager.registerMockComponent(Environment.class);
@@ -114,6 +141,16 @@ void before() throws Exception
         when(this.velocityManagerMock.getVelocityContext()).thenReturn(new VelocityContext());
 
         when(this.environmentMock.getResource("/templates/")).thenReturn(new URL("file://templates/"));
+        when(this.wikiDescriptorManagerMock.getCurrentWikiId()).thenReturn("wiki");
+    }
+
+    private EventListener getCacheListener()
+    {
+        ArgumentCaptor<EventListener> listenerCaptor = ArgumentCaptor.forClass(EventListener.class);
+        verify(this.observationMock, atLeastOnce()).addListener(listenerCaptor.capture());
+
+        return listenerCaptor.getAllValues().stream().filter(listener -> listener.getName().equals("templates.cache"))
+            .findFirst().get();
     }
 
     private void setTemplateContent(String content) throws UnsupportedEncodingException, MalformedURLException
@@ -189,4 +226,82 @@ void renderClassloaderTemplate() throws Exception
 
         assertEquals("OK", this.templateManager.render("classloader_template.vm"));
     }
+
+    @Test
+    void getTemplateFromCache() throws Exception
+    {
+        File templateFile = new File(this.templatesDirectory, "template");
+        FileUtils.write(templateFile, "source", StandardCharsets.UTF_8);
+        when(this.environmentMock.getResource("/templates/")).thenReturn(this.templatesDirectory.toURI().toURL());
+        when(this.environmentMock.getResource("/templates/template")).thenReturn(templateFile.toURI().toURL());
+        when(this.environmentMock.getResourceAsStream("/templates/template"))
+            .then(invocation -> new FileInputStream(templateFile));
+
+        Template template = this.templateManager.getTemplate("template");
+        assertEquals("source", template.getContent().getContent());
+        assertSame(template, this.templateManager.getTemplate("template"));
+
+        // The cached template is ignored when the template file is modified.
+        FileUtils.write(templateFile, "modified source", StandardCharsets.UTF_8);
+        templateFile.setLastModified(templateFile.lastModified() + 10000);
+
+        Template modifiedTemplate = this.templateManager.getTemplate("template");
+        assertNotSame(template, modifiedTemplate);
+        assertEquals("modified source", modifiedTemplate.getContent().getContent());
+        assertSame(modifiedTemplate, this.templateManager.getTemplate("template"));
+    }
+
+    @Test
+    void getMissingTemplateFromCache() throws Exception
+    {
+        assertNull(this.templateManager.getTemplate("missing"));
+        verify(this.environmentMock).getResource("/templates/missing");
+
+        // The resolution is not done again
+        assertNull(this.templateManager.getTemplate("missing"));
+        verify(this.environmentMock).getResource("/templates/missing");
+    }
+
+    @Test
+    void invalidateCache() throws Exception
+    {
+        setTemplateContent("source");
+
+        Template template = this.templateManager.getTemplate("template");
+        assertSame(template, this.templateManager.getTemplate("template"));
+
+        EventListener listener = getCacheListener();
+
+        // Events related to other wikis don't invalidate the cached templates
+        XWikiDocument skinDocument = mock(XWikiDocument.class);
+        when(skinDocument.getXObject(WikiSkinUtils.SKINCLASS_REFERENCE)).thenReturn(mock(BaseObject.class));
+        when(skinDocument.getDocumentReference()).thenReturn(new DocumentReference("otherwiki", "space", "skin"));
+        listener.onEvent(new DocumentUpdatedEvent(), skinDocument, null);
+        listener.onEvent(new ExtensionInstalledEvent(new ExtensionId("id", "1.0"), "wiki:otherwiki"), null, null);
+        listener.onEvent(new WikiDeletedEvent("otherwiki"), null, null);
+
+        assertSame(template, this.templateManager.getTemplate("template"));
+
+        // Nor does the update of a document which is not a skin
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(new DocumentReference("wiki", "space", "page"));
+        listener.onEvent(new DocumentUpdatedEvent(), document, null);
+
+        assertSame(template, this.templateManager.getTemplate("template"));
+
+        // The update of a skin of the current wiki invalidates its templates
+        when(skinDocument.getDocumentReference()).thenReturn(new DocumentReference("wiki", "space", "skin"));
+        listener.onEvent(new DocumentUpdatedEvent(), skinDocument, null);
+
+        setTemplateContent("source");
+        Template newTemplate = this.templateManager.getTemplate("template");
+        assertNotSame(template, newTemplate);
+        assertSame(newTemplate, this.templateManager.getTemplate("template"));
+
+        // As well as an extension installed in the current wiki
+        listener.onEvent(new ExtensionInstalledEvent(new ExtensionId("id", "1.0"), "wiki:wiki"), null, null);
+
+        setTemplateContent("source");
+        assertNotSame(newTemplate, this.templateManager.getTemplate("template"));
+    }
 }
@@ -58,6 +58,7 @@
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -66,6 +67,7 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -775,6 +777,113 @@ void downloadWhenEmptyRange() throws XWikiException, IOException
         verifyResponseExpectations(d.getTime(), this.fileContent.length);
     }
 
+    @Test
+    void downloadWhenMultipleRanges() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=0-1, 12-", -1L, DEFAULT_FILE_NAME);
+        StubServletOutputStream ssos = new StubServletOutputStream();
+        when(this.response.getOutputStream()).thenReturn(ssos);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        String expected = "\r\n--XWIKI_BYTERANGES_BOUNDARY\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/14"
+            + "\r\n\r\nab\r\n--XWIKI_BYTERANGES_BOUNDARY\r\nContent-Type: text/plain\r\nContent-Range: bytes 12-13/14"
+            + "\r\n\r\nmn\r\n--XWIKI_BYTERANGES_BOUNDARY--\r\n";
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setContentType("multipart/byteranges; boundary=XWIKI_BYTERANGES_BOUNDARY");
+        verify(this.response).setContentLengthLong(expected.length());
+        assertEquals(expected, ssos.baos.toString());
+    }
+
+    @Test
+    void downloadWhenUnorderedAndAdjacentRanges() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=12-, 2-3, 0-1", -1L, DEFAULT_FILE_NAME);
+        StubServletOutputStream ssos = new StubServletOutputStream();
+        when(this.response.getOutputStream()).thenReturn(ssos);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        // The ranges are sorted and the adjacent ones are coalesced
+        String expected = "\r\n--XWIKI_BYTERANGES_BOUNDARY\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-3/14"
+            + "\r\n\r\nabcd\r\n--XWIKI_BYTERANGES_BOUNDARY\r\nContent-Type: text/plain\r\nContent-Range: bytes 12-13/14"
+            + "\r\n\r\nmn\r\n--XWIKI_BYTERANGES_BOUNDARY--\r\n";
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setContentLengthLong(expected.length());
+        assertEquals(expected, ssos.baos.toString());
+    }
+
+    @Test
+    void downloadWhenOverlappingRanges() throws XWikiException, IOException
+    {
+        // The ranges ask for more than the whole content, so the range header is ignored
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=0-, 0-, 0-", -1L, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyOutputExpectations(0, this.fileContent.length);
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+    }
+
+    @Test
+    void downloadWhenETagMatches() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1L, DEFAULT_FILE_NAME);
+        String etag = "\"1.1-" + Long.toHexString(d.getTime()) + "-e\"";
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + etag);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setHeader("ETag", etag);
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    void downloadWhenIfRangeDoesNotMatch() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=0-3", -1L, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range")).thenReturn("\"other\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    void downloadRangeFromDiskCache() throws XWikiException, IOException
+    {
+        // Big enough to not be kept in memory
+        byte[] content = new byte[20000];
+        for (int i = 0; i < content.length; ++i) {
+            content[i] = (byte) i;
+        }
+        XWikiAttachment attachment = new XWikiAttachment(this.document, DEFAULT_FILE_NAME);
+        attachment.setContent(new ByteArrayInputStream(content));
+        attachment.setDate(new Date());
+        this.document.getAttachmentList().add(attachment);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=15000-", -1L, DEFAULT_FILE_NAME);
+        StubServletOutputStream ssos = new StubServletOutputStream();
+        when(this.response.getOutputStream()).thenReturn(ssos);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setHeader("Content-Range", "bytes 15000-19999/20000");
+        verify(this.response).setContentLengthLong(5000);
+        assertArrayEquals(Arrays.copyOfRange(content, 15000, 20000), ssos.baos.toByteArray());
+    }
+
     private static class StubServletOutputStream extends ServletOutputStream
     {
         public ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -19,7 +19,8 @@
  */
 package org.xwiki.query.internal;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -58,7 +59,8 @@ public String filterStatement(String statement, String language)
     @Override
     public List filterResults(List results)
     {
-        List<Object> filteredResults = new LinkedList<>();
+        List<Object> referencedResults = new ArrayList<>(results.size());
+        List<EntityReference> entityReferences = new ArrayList<>(results.size());
         for (Object result : results) {
             EntityReference entityReference = null;
             if (result instanceof EntityReference) {
@@ -66,10 +68,19 @@ public List filterResults(List results)
             } else if (result instanceof Object[] && ((Object[]) result)[0] instanceof EntityReference) {
                 entityReference = (EntityReference) ((Object[]) result)[0];
             }
-            if (entityReference != null && this.authorization.hasAccess(Right.VIEW, entityReference)) {
-                filteredResults.add(result);
+            if (entityReference != null) {
+                referencedResults.add(result);
+                entityReferences.add(entityReference);
             }
         }
+
+        // Check all the entities at once to share the work between entities located in the same space
+        BitSet viewable = this.authorization.hasAccessBatch(Right.VIEW, entityReferences);
+
+        List<Object> filteredResults = new ArrayList<>(viewable.cardinality());
+        for (int i = viewable.nextSetBit(0); i >= 0; i = viewable.nextSetBit(i + 1)) {
+            filteredResults.add(referencedResults.get(i));
+        }
         return filteredResults;
     }
 }
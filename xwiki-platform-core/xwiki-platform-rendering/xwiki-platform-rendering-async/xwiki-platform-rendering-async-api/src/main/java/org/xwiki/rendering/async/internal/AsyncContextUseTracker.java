@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.ContextUse;
+
+/**
+ * Gather the elements (entities, components, rights, etc.) used by an execution, to know when its cached result
+ * should be invalidated.
+ * 
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Role
+public interface AsyncContextUseTracker
+{
+    /**
+     * Push a new {@link ContextUse} in the context.
+     */
+    void pushContextUse();
+
+    /**
+     * @return the current {@link ContextUse}
+     */
+    ContextUse popContextUse();
+
+    /**
+     * Add the elements used by a nested execution to the current {@link ContextUse}, so that the result of the
+     * enclosing execution is also invalidated when one of them changes.
+     *
+     * @param status the status of the nested execution
+     */
+    void useDependencies(AsyncRendererJobStatus status);
+}
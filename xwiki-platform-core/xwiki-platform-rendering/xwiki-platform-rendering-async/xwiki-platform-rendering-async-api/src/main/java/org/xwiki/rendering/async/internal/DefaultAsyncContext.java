@@ -52,9 +52,9 @@
  * @version $Id$$
  * @since 10.10RC1
  */
-@Component
+@Component(roles = {AsyncContext.class, AsyncContextUseTracker.class})
 @Singleton
-public class DefaultAsyncContext implements AsyncContext
+public class DefaultAsyncContext implements AsyncContext, AsyncContextUseTracker
 {
     /**
      * Gather a right check (right, user, entity).
@@ -259,9 +259,7 @@ public void setEnabled(boolean enabled)
         context.setProperty(KEY_ENABLED, enabled);
     }
 
-    /**
-     * Push a new {@link ContextUse} in the context.
-     */
+    @Override
     public void pushContextUse()
     {
         ExecutionContext econtext = this.execution.getContext();
@@ -282,9 +280,7 @@ public void pushContextUse()
         }
     }
 
-    /**
-     * @return the current {@link ContextUse}
-     */
+    @Override
     public ContextUse popContextUse()
     {
         ExecutionContext econtext = this.execution.getContext();
@@ -300,6 +296,27 @@ public ContextUse popContextUse()
         return null;
     }
 
+    @Override
+    public void useDependencies(AsyncRendererJobStatus status)
+    {
+        ContextUse contextUse = getContextUse();
+
+        if (contextUse != null) {
+            contextUse.references.addAll(status.getReferences());
+            contextUse.roleTypes.addAll(status.getRoleTypes());
+            contextUse.roles.addAll(status.getRoles());
+            contextUse.rights.addAll(status.getRights());
+
+            if (status.getUses() != null) {
+                for (Map.Entry<String, Collection<Object>> entry : status.getUses().entrySet()) {
+                    for (Object value : entry.getValue()) {
+                        use(entry.getKey(), value);
+                    }
+                }
+            }
+        }
+    }
+
     private ContextUse getContextUse()
     {
         ExecutionContext econtext = this.execution.getContext();
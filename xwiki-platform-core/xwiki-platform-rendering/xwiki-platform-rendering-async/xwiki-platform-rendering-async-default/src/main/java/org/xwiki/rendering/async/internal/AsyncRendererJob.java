@@ -50,6 +50,9 @@ public class AsyncRendererJob extends AbstractJob<AsyncRendererJobRequest, Async
     @Inject
     private AsyncContext asyncContext;
 
+    @Inject
+    private AsyncContextUseTracker contextUseTracker;
+
     @Inject
     private TemplateManager templateManager;
 
@@ -91,9 +94,7 @@ protected void runInternal() throws Exception
         this.asyncContext.setEnabled(!renderer.isCacheAllowed());
 
         // Prepare to catch stuff to invalidate the cache
-        if (this.asyncContext instanceof DefaultAsyncContext) {
-            ((DefaultAsyncContext) this.asyncContext).pushContextUse();
-        }
+        this.contextUseTracker.pushContextUse();
 
         // Many UI elements expect xwikivars.vm result to be in the context so we execute it
         // FIXME: not very happy with that but can't find a better place yet
@@ -110,12 +111,13 @@ protected void runInternal() throws Exception
 
         getStatus().setResult(result);
 
-        if (this.asyncContext instanceof DefaultAsyncContext) {
-            // Remember various elements used during the execution (to invalidate the cache or restore them when needed)
-            ContextUse contextUse = ((DefaultAsyncContext) this.asyncContext).popContextUse();
+        // Remember various elements used during the execution (to invalidate the cache or restore them when needed)
+        ContextUse contextUse = this.contextUseTracker.popContextUse();
+        if (contextUse != null) {
             getStatus().setReferences(contextUse.getReferences());
             getStatus().setRoles(contextUse.getRoles());
             getStatus().setRoleTypes(contextUse.getRoleTypes());
+            getStatus().setRights(contextUse.getRights());
             getStatus().setUses(contextUse.getUses());
         }
     }
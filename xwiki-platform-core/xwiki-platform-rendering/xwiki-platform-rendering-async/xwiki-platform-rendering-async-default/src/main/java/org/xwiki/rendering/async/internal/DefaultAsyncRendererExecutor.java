@@ -80,6 +80,9 @@ public class DefaultAsyncRendererExecutor implements AsyncRendererExecutor
     @Inject
     private AsyncContext asyncContext;
 
+    @Inject
+    private AsyncContextUseTracker contextUseTracker;
+
     @Inject
     protected AuthorExecutor authorExecutor;
 
@@ -174,6 +177,9 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
 
                         injectUses(status);
 
+                        // Make sure the enclosing cached execution (if any) depends on what this cached result depends
+                        this.contextUseTracker.useDependencies(status);
+
                         return new AsyncRendererExecutorResponse(status);
                     } else if (asyncAllowed) {
                         // Already running job, associate it with another client
@@ -225,16 +231,13 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
             // If async is disabled run the renderer in the current thread
             if (renderer.isCacheAllowed()) {
                 // Prepare to catch stuff to invalidate the cache
-                if (this.asyncContext instanceof DefaultAsyncContext) {
-                    ((DefaultAsyncContext) this.asyncContext).pushContextUse();
-                }
+                this.contextUseTracker.pushContextUse();
 
                 AsyncRendererResult result = syncRender(renderer, true, configuration);
 
                 // Get suff to invalidate the cache
-                if (this.asyncContext instanceof DefaultAsyncContext) {
-                    ContextUse contextUse = ((DefaultAsyncContext) this.asyncContext).popContextUse();
-
+                ContextUse contextUse = this.contextUseTracker.popContextUse();
+                if (contextUse != null) {
                     // Create a pseudo job status
                     status = new AsyncRendererJobStatus(request, result, contextUse.getReferences(),
                         contextUse.getRoleTypes(), contextUse.getRoles(), contextUse.getRights(), contextUse.getUses());
@@ -246,6 +249,9 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
                 request.setId(jobId);
 
                 this.cache.put(status);
+
+                // Make sure the enclosing cached execution (if any) depends on what this result depends
+                this.contextUseTracker.useDependencies(status);
             } else {
                 AsyncRendererResult result = syncRender(renderer, false, configuration);
 
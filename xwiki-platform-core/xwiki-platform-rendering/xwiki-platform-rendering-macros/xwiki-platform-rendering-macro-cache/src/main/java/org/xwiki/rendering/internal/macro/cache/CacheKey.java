@@ -21,8 +21,8 @@
 
 /**
  * Key to recognize a given Cache. We need to have several caches since currently there's one cache per 
- * timeToLive/maxEntry combination. This is because currently we cannot set these configuration values at the cache
- * entry level but only for the whole cache.
+ * timeToLive/maxEntry/maxSize combination. This is because currently we cannot set these configuration values at the
+ * cache entry level but only for the whole cache.
  *
  * @version $Id$ 
  * @since 3.3M1
@@ -39,14 +39,31 @@
      */
     private int maxEntries;
 
+    /**
+     * @see #getMaxSize()
+     */
+    private int maxSize;
+
     /**
      * @param timeToLive see {@link #getTimeToLive()}
      * @param maxEntries see {@link #getMaxEntries()}
      */
     public CacheKey(int timeToLive, int maxEntries)
+    {
+        this(timeToLive, maxEntries, 0);
+    }
+
+    /**
+     * @param timeToLive see {@link #getTimeToLive()}
+     * @param maxEntries see {@link #getMaxEntries()}
+     * @param maxSize see {@link #getMaxSize()}
+     * @since 14.4RC1
+     */
+    public CacheKey(int timeToLive, int maxEntries, int maxSize)
     {
         this.timeToLive = timeToLive;
         this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
     }
 
     /**
@@ -65,6 +82,15 @@ public int getMaxEntries()
         return this.maxEntries;
     }
 
+    /**
+     * @return the maximum size in bytes of the content kept in the cache, 0 or less for no limit
+     * @since 14.4RC1
+     */
+    public int getMaxSize()
+    {
+        return this.maxSize;
+    }
+
     @Override
     public boolean equals(Object object)
     {
@@ -79,7 +105,8 @@ public boolean equals(Object object)
             } else {
                 // object must be Syntax at this point
                 CacheKey cacheKey = (CacheKey) object;
-                result = (getTimeToLive() == cacheKey.getTimeToLive() && getMaxEntries() == cacheKey.getMaxEntries());
+                result = (getTimeToLive() == cacheKey.getTimeToLive() && getMaxEntries() == cacheKey.getMaxEntries()
+                    && getMaxSize() == cacheKey.getMaxSize());
             }
         }
         return result;
@@ -93,12 +120,15 @@ public int hashCode()
         int hash = 9;
         hash = 31 * hash + getTimeToLive();
         hash = 31 * hash + getMaxEntries();
+        hash = 31 * hash + getMaxSize();
         return hash;
     }
 
     @Override
     public String toString()
     {
-        return getTimeToLive() + "s-" + getMaxEntries();
+        String key = getTimeToLive() + "s-" + getMaxEntries();
+
+        return getMaxSize() > 0 ? key + '-' + getMaxSize() + 'b' : key;
     }
 }
@@ -19,32 +19,59 @@
  */
 package org.xwiki.rendering.internal.macro.cache;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
-import org.xwiki.cache.Cache;
-import org.xwiki.cache.CacheException;
-import org.xwiki.cache.CacheManager;
-import org.xwiki.cache.config.LRUCacheConfiguration;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.async.AsyncContext;
+import org.xwiki.rendering.async.internal.AsyncContextUseTracker;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.ContextUse;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.internal.macro.cache.ContentCache.CachedContent;
+import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.macro.AbstractMacro;
 import org.xwiki.rendering.macro.MacroContentParser;
 import org.xwiki.rendering.macro.MacroExecutionException;
 import org.xwiki.rendering.macro.cache.CacheMacroParameters;
 import org.xwiki.rendering.macro.descriptor.DefaultContentDescriptor;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
 import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.renderer.printer.WriterWikiPrinter;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 
 /**
  * Provides Caching for the content of the macro.
+ * <p>
+ * The content is cached in a compact (compressed XML) form so that the size of the caches can be bounded, and it's
+ * removed from the cache when one of the documents it depends on (declared by the macro or read while executing the
+ * content) is modified.
  * 
  * @version $Id$
  * @since 3.0M1
@@ -65,10 +92,15 @@ public class CacheMacro extends AbstractMacro<CacheMacroParameters>
     private static final String CONTENT_DESCRIPTION = "the content to cache.";
 
     /**
-     * Used to create the macro content cache.
+     * The syntax used to serialize the cached content.
+     */
+    private static final String CACHE_SYNTAX = "xdom+xml/current";
+
+    /**
+     * Provide the caches.
      */
     @Inject
-    private CacheManager cacheManager;
+    private ContentCacheManager contentCacheManager;
 
     /**
      * The parser used to parse the content (when not cached).
@@ -84,10 +116,37 @@ public class CacheMacro extends AbstractMacro<CacheMacroParameters>
     private BlockRenderer plainTextBlockRenderer;
 
     /**
-     * Map of all caches. There's one cache per timeToLive/maxEntry combination since currently we cannot set these
-     * configuration values at the cache entry level but only for the whole cache.
+     * Used to serialize the cached content.
      */
-    private Map<CacheKey, Cache<List<Block>>> contentCacheMap = new ConcurrentHashMap<>();
+    @Inject
+    @Named(CACHE_SYNTAX)
+    private PrintRendererFactory cacheRendererFactory;
+
+    /**
+     * Used to read the cached content.
+     */
+    @Inject
+    @Named(CACHE_SYNTAX)
+    private Parser cacheParser;
+
+    /**
+     * Used to make the enclosing execution depend on the entities read while executing the content.
+     */
+    @Inject
+    private Provider<AsyncContext> asyncContextProvider;
+
+    /**
+     * Used to gather the entities read while executing the content.
+     */
+    @Inject
+    private Provider<AsyncContextUseTracker> contextUseTrackerProvider;
+
+    @Inject
+    @Named("current")
+    private Provider<DocumentReferenceResolver<String>> documentReferenceResolverProvider;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
 
     /**
      * Create and initialize the descriptor of the macro.
@@ -122,51 +181,115 @@ public List<Block> execute(CacheMacroParameters parameters, String content, Macr
             cacheKey = content;
         }
 
-        Cache<List<Block>> contentCache = getContentCache(parameters.getTimeToLive(), parameters.getMaxEntries());
-        List<Block> result = contentCache.get(cacheKey);
-        if (result == null) {
-            // Run the parser for the syntax on the content
-            // We run the current transformation on the cache macro content. We need to do this since we want to cache
-            // the XDOM resulting from the execution of Macros because that's where lengthy processing happens.
-            result = this.contentParser.parse(content, context, true, context.isInline()).getChildren();
-            contentCache.set(cacheKey, result);
+        ContentCache contentCache = this.contentCacheManager.getContentCache(
+            new CacheKey(parameters.getTimeToLive(), parameters.getMaxEntries(), parameters.getMaxSize()));
+        CachedContent cachedContent = contentCache.get(cacheKey);
+        List<Block> result;
+        if (cachedContent != null) {
+            result = deserialize(cachedContent.getContent());
+
+            // The enclosing cached execution (if any) also depends on what the cached content depends on
+            useEntities(cachedContent.getReferences());
+        } else {
+            // Remember the entities read while executing the content to invalidate the cache when they are modified
+            AsyncContextUseTracker contextUseTracker = this.contextUseTrackerProvider.get();
+            ContextUse contextUse;
+            contextUseTracker.pushContextUse();
+            try {
+                // Run the parser for the syntax on the content
+                // We run the current transformation on the cache macro content. We need to do this since we want to
+                // cache the XDOM resulting from the execution of Macros because that's where lengthy processing
+                // happens.
+                result = this.contentParser.parse(content, context, true, context.isInline()).getChildren();
+            } finally {
+                contextUse = contextUseTracker.popContextUse();
+            }
+
+            Set<EntityReference> references =
+                contextUse != null ? contextUse.getReferences() : Collections.<EntityReference>emptySet();
+
+            // The enclosing cached execution (if any) also depends on what the content depends on
+            useEntities(references);
+
+            contentCache.set(cacheKey,
+                new CachedContent(serialize(result), references, getTags(parameters, references)));
         }
 
         return result;
     }
 
+    private void useEntities(Set<EntityReference> references)
+    {
+        if (!references.isEmpty()) {
+            AsyncContext asyncContext = this.asyncContextProvider.get();
+
+            for (EntityReference reference : references) {
+                asyncContext.useEntity(reference);
+            }
+        }
+    }
+
     /**
-     * Get a cache matching the passed time to live and max entries.
-     * <p>
-     * Note that whenever a new cache is created it currently means a new thread is used too (since the JBoss cache used
-     * underneath uses a thread for evicting entries from the cache). We need to modify our xwiki-cache module to allow
-     * setting time to live on cache items, see https://jira.xwiki.org/browse/XWIKI-5907
-     * </p>
-     *
-     * @param lifespan the number of seconds to cache the content
-     * @param maxEntries the maximum number of entries in the cache (Least Recently Used entries are ejected)
-     * @return the matching cache (a new cache is created if no existing one is found)
-     * @throws MacroExecutionException in case we fail to create the new cache
+     * @param parameters the macro parameters
+     * @param references the entities read while executing the content
+     * @return the serialized references of the documents the content depends on
      */
-    Cache<List<Block>> getContentCache(int lifespan, int maxEntries) throws MacroExecutionException
+    private Set<String> getTags(CacheMacroParameters parameters, Set<EntityReference> references)
     {
-        CacheKey cacheKey = new CacheKey(lifespan, maxEntries);
-        Cache<List<Block>> contentCache = this.contentCacheMap.get(cacheKey);
-        if (contentCache == null) {
-            // Create Cache
-            LRUCacheConfiguration configuration =
-                new LRUCacheConfiguration(String.format("cacheMacro.%s", cacheKey.toString()), maxEntries);
-            configuration.getLRUEvictionConfiguration().setLifespan(lifespan);
+        Set<String> tags = new HashSet<>();
 
-            try {
-                contentCache = this.cacheManager.createNewLocalCache(configuration);
-            } catch (CacheException e) {
-                throw new MacroExecutionException("Failed to create content cache", e);
+        if (parameters.getDependencies() != null) {
+            DocumentReferenceResolver<String> resolver = this.documentReferenceResolverProvider.get();
+            for (String dependency : parameters.getDependencies()) {
+                tags.add(this.serializer.serialize(resolver.resolve(dependency).withoutLocale()));
             }
+        }
 
-            this.contentCacheMap.put(cacheKey, contentCache);
+        for (EntityReference reference : references) {
+            // Objects and attachments are saved with their document so invalidating the document is enough
+            EntityReference documentPart = reference.extractReference(EntityType.DOCUMENT);
+            if (documentPart != null) {
+                tags.add(this.serializer.serialize(new DocumentReference(documentPart).withoutLocale()));
+            }
         }
 
-        return contentCache;
+        return tags;
+    }
+
+    /**
+     * @param blocks the blocks to cache
+     * @return the compact form of the blocks kept in the cache
+     * @throws MacroExecutionException when failing to serialize the blocks
+     */
+    byte[] serialize(List<Block> blocks) throws MacroExecutionException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(stream), StandardCharsets.UTF_8)) {
+            PrintRenderer renderer = this.cacheRendererFactory.createRenderer(new WriterWikiPrinter(writer));
+            renderer.beginDocument(MetaData.EMPTY);
+            for (Block block : blocks) {
+                block.traverse(renderer);
+            }
+            renderer.endDocument(MetaData.EMPTY);
+        } catch (IOException e) {
+            throw new MacroExecutionException("Failed to serialize the content to cache", e);
+        }
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @param content the compact form of the cached blocks
+     * @return new instances of the cached blocks
+     * @throws MacroExecutionException when failing to parse the cached content
+     */
+    List<Block> deserialize(byte[] content) throws MacroExecutionException
+    {
+        try (Reader reader =
+            new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(content)), StandardCharsets.UTF_8)) {
+            return this.cacheParser.parse(reader).getChildren();
+        } catch (IOException | ParseException e) {
+            throw new MacroExecutionException("Failed to read the cached content", e);
+        }
     }
 }
@@ -0,0 +1,277 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * A cache of serialized macro content, bounded by the total size of the content it holds and invalidated based on
+ * tags (the serialized references of the documents the content depends on).
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+public class ContentCache implements CacheEntryListener<ContentCache.CachedContent>
+{
+    /**
+     * The cached (serialized) content and what it depends on.
+     *
+     * @version $Id$
+     */
+    public static class CachedContent
+    {
+        private final byte[] content;
+
+        private final Set<EntityReference> references;
+
+        private final Set<String> tags;
+
+        /**
+         * @param content the serialized content
+         * @param references the entities read while executing the content
+         * @param tags the serialized references of the documents the content depends on
+         */
+        public CachedContent(byte[] content, Set<EntityReference> references, Set<String> tags)
+        {
+            this.content = content;
+            this.references = references;
+            this.tags = tags;
+        }
+
+        /**
+         * @return the serialized content
+         */
+        public byte[] getContent()
+        {
+            return this.content;
+        }
+
+        /**
+         * @return the entities read while executing the content
+         */
+        public Set<EntityReference> getReferences()
+        {
+            return this.references;
+        }
+
+        /**
+         * @return the serialized references of the documents the content depends on
+         */
+        public Set<String> getTags()
+        {
+            return this.tags;
+        }
+    }
+
+    private final Cache<CachedContent> cache;
+
+    private final int maxSize;
+
+    /**
+     * The cached entries, in access order (the least recently used first). The size is tracked when setting an entry
+     * (and not when receiving the cache events) so that it's always up to date when deciding which entries to eject,
+     * whether the cache sends its events synchronously or not.
+     */
+    private final Map<String, CachedContent> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long size;
+
+    private final Map<String, Set<String>> taggedKeys = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param cache the actual cache
+     * @param maxSize the maximum size in bytes of the content kept in the cache, 0 or less for no limit
+     */
+    public ContentCache(Cache<CachedContent> cache, int maxSize)
+    {
+        this.cache = cache;
+        this.maxSize = maxSize;
+
+        this.cache.addCacheEntryListener(this);
+    }
+
+    /**
+     * @param key the key of the content
+     * @return the cached content or {@code null} if none could be found
+     */
+    public CachedContent get(String key)
+    {
+        CachedContent content = this.cache.get(key);
+
+        if (content != null) {
+            this.hits.increment();
+
+            // Mark the entry as recently used
+            synchronized (this.entries) {
+                this.entries.get(key);
+            }
+        } else {
+            this.misses.increment();
+        }
+
+        return content;
+    }
+
+    /**
+     * Cache the content and eject the least recently used entries if the cache gets too big.
+     *
+     * @param key the key of the content
+     * @param content the content to cache
+     */
+    public void set(String key, CachedContent content)
+    {
+        // Don't even try to cache a content which would eject all the others
+        if (this.maxSize > 0 && content.getContent().length > this.maxSize) {
+            return;
+        }
+
+        for (String tag : content.getTags()) {
+            this.taggedKeys.computeIfAbsent(tag, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+
+        List<String> ejected = new ArrayList<>();
+        synchronized (this.entries) {
+            CachedContent previous = this.entries.put(key, content);
+            this.size += content.getContent().length - (previous != null ? previous.getContent().length : 0);
+
+            if (this.maxSize > 0) {
+                // The entry which was just set is the most recently used one and is never ejected since it's not
+                // bigger than the whole cache
+                for (Iterator<Map.Entry<String, CachedContent>> it = this.entries.entrySet().iterator();
+                    it.hasNext() && this.size > this.maxSize;) {
+                    Map.Entry<String, CachedContent> entry = it.next();
+
+                    ejected.add(entry.getKey());
+                    this.size -= entry.getValue().getContent().length;
+                    it.remove();
+                }
+            }
+        }
+
+        this.cache.set(key, content);
+
+        for (String ejectedKey : ejected) {
+            this.cache.remove(ejectedKey);
+        }
+    }
+
+    /**
+     * Remove from the cache all the entries associated with the provided tag.
+     *
+     * @param tag the serialized reference of a modified document
+     */
+    public void invalidate(String tag)
+    {
+        Set<String> keys = this.taggedKeys.remove(tag);
+
+        if (keys != null) {
+            for (String key : keys) {
+                this.cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries found in the cache
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of entries not found in the cache
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return the size in bytes of the content kept in the cache
+     */
+    public long getSize()
+    {
+        synchronized (this.entries) {
+            return this.size;
+        }
+    }
+
+    /**
+     * Release the resources used by the cache.
+     */
+    public void dispose()
+    {
+        this.cache.dispose();
+    }
+
+    @Override
+    public void cacheEntryAdded(CacheEntryEvent<CachedContent> event)
+    {
+        // The size of the entry is tracked when setting it
+    }
+
+    @Override
+    public void cacheEntryRemoved(CacheEntryEvent<CachedContent> event)
+    {
+        String key = event.getEntry().getKey();
+        CachedContent content = event.getEntry().getValue();
+
+        synchronized (this.entries) {
+            // Make sure to not forget the size of a more recent content set with the same key
+            CachedContent current = content != null ? content : this.entries.get(key);
+            if (current != null && this.entries.remove(key, current)) {
+                this.size -= current.getContent().length;
+            }
+        }
+
+        if (content != null) {
+            for (String tag : content.getTags()) {
+                this.taggedKeys.computeIfPresent(tag, (k, keys) -> {
+                    keys.remove(key);
+
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
+    }
+
+    @Override
+    public void cacheEntryModified(CacheEntryEvent<CachedContent> event)
+    {
+        // The size of the entry is tracked when setting it
+    }
+}
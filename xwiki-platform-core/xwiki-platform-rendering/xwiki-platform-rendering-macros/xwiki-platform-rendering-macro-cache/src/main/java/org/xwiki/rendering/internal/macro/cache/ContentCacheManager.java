@@ -0,0 +1,159 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.rendering.internal.macro.cache.ContentCache.CachedContent;
+import org.xwiki.rendering.macro.MacroExecutionException;
+
+/**
+ * Keep the caches used by the Cache macro.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = ContentCacheManager.class)
+@Singleton
+public class ContentCacheManager implements Disposable
+{
+    private static final String METRIC_TAG = "cache";
+
+    /**
+     * Used to create the macro content cache.
+     */
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Map of all caches. There's one cache per timeToLive/maxEntry/maxSize combination since currently we cannot set
+     * these configuration values at the cache entry level but only for the whole cache.
+     */
+    private final Map<CacheKey, ContentCache> contentCacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * Get a cache matching the passed key.
+     * <p>
+     * Note that whenever a new cache is created it currently means a new thread is used too (since the JBoss cache used
+     * underneath uses a thread for evicting entries from the cache). We need to modify our xwiki-cache module to allow
+     * setting time to live on cache items, see https://jira.xwiki.org/browse/XWIKI-5907
+     * </p>
+     *
+     * @param cacheKey the time to live, max entries and max size of the cache
+     * @return the matching cache (a new cache is created if no existing one is found)
+     * @throws MacroExecutionException in case we fail to create the new cache
+     */
+    public ContentCache getContentCache(CacheKey cacheKey) throws MacroExecutionException
+    {
+        ContentCache contentCache = this.contentCacheMap.get(cacheKey);
+        if (contentCache == null) {
+            synchronized (this.contentCacheMap) {
+                contentCache = this.contentCacheMap.get(cacheKey);
+                if (contentCache == null) {
+                    contentCache = createContentCache(cacheKey);
+                    this.contentCacheMap.put(cacheKey, contentCache);
+                }
+            }
+        }
+
+        return contentCache;
+    }
+
+    private ContentCache createContentCache(CacheKey cacheKey) throws MacroExecutionException
+    {
+        LRUCacheConfiguration configuration = new LRUCacheConfiguration(
+            String.format("cacheMacro.%s", cacheKey.toString()), cacheKey.getMaxEntries());
+        configuration.getLRUEvictionConfiguration().setLifespan(cacheKey.getTimeToLive());
+
+        Cache<CachedContent> cache;
+        try {
+            cache = this.cacheManager.createNewLocalCache(configuration);
+        } catch (CacheException e) {
+            throw new MacroExecutionException("Failed to create content cache", e);
+        }
+
+        ContentCache contentCache = new ContentCache(cache, cacheKey.getMaxSize());
+
+        initMetrics(cacheKey, contentCache);
+
+        return contentCache;
+    }
+
+    private void initMetrics(CacheKey cacheKey, ContentCache contentCache)
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(MetricRegistry.class)) {
+            try {
+                MetricRegistry metrics = componentManager.getInstance(MetricRegistry.class);
+                String cacheId = cacheKey.toString();
+                metrics.registerCounter("xwiki_cache_macro_hits", "The number of contents found in the cache",
+                    contentCache::getHits, METRIC_TAG, cacheId);
+                metrics.registerCounter("xwiki_cache_macro_misses",
+                    "The number of contents which had to be executed", contentCache::getMisses, METRIC_TAG, cacheId);
+                metrics.registerGauge("xwiki_cache_macro_size", "The size in bytes of the contents in the cache",
+                    contentCache::getSize, METRIC_TAG, cacheId);
+            } catch (ComponentLookupException e) {
+                this.logger.warn("Failed to register the cache macro metrics", e);
+            }
+        }
+    }
+
+    /**
+     * Remove from all the caches the entries associated with the provided tag.
+     *
+     * @param tag the serialized reference of a modified document
+     */
+    public void invalidate(String tag)
+    {
+        for (ContentCache contentCache : this.contentCacheMap.values()) {
+            contentCache.invalidate(tag);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        for (ContentCache contentCache : this.contentCacheMap.values()) {
+            contentCache.dispose();
+        }
+    }
+}
@@ -19,7 +19,10 @@
  */
 package org.xwiki.rendering.macro.cache;
 
+import java.util.Set;
+
 import org.xwiki.properties.annotation.PropertyDescription;
+import org.xwiki.stability.Unstable;
 
 /**
  * Parameters for the Cache macro.
@@ -44,6 +47,16 @@
      */
     private int maxEntries = 1000;
 
+    /**
+     * @see #getMaxSize()
+     */
+    private int maxSize = 10 * 1024 * 1024;
+
+    /**
+     * @see #getDependencies()
+     */
+    private Set<String> dependencies;
+
     /**
      * @return the optional unique id to use to cache the content. If not defined then use the content itself as the id
      *         but this doesn't guarantee unicity since the same content could be located on several pages with
@@ -97,4 +110,49 @@ public void setMaxEntries(int maxEntries)
     {
         this.maxEntries = maxEntries;
     }
+
+    /**
+     * @return the maximum size in bytes of the (serialized) content kept in the cache (Least Recently Used entries are
+     *         ejected)
+     * @since 14.4RC1
+     */
+    @Unstable
+    public int getMaxSize()
+    {
+        return this.maxSize;
+    }
+
+    /**
+     * @param maxSize refer to {@link #getMaxSize()}
+     * @since 14.4RC1
+     */
+    @Unstable
+    @PropertyDescription("the maximum size in bytes of the content kept in the cache (Least Recently Used entries are "
+        + "ejected)")
+    public void setMaxSize(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the references of the documents the cached content depends on, in addition to the documents read while
+     *         executing the content; the content is removed from the cache when one of them is modified
+     * @since 14.4RC1
+     */
+    @Unstable
+    public Set<String> getDependencies()
+    {
+        return this.dependencies;
+    }
+
+    /**
+     * @param dependencies refer to {@link #getDependencies()}
+     * @since 14.4RC1
+     */
+    @Unstable
+    @PropertyDescription("the references of the documents the cached content depends on")
+    public void setDependencies(Set<String> dependencies)
+    {
+        this.dependencies = dependencies;
+    }
 }
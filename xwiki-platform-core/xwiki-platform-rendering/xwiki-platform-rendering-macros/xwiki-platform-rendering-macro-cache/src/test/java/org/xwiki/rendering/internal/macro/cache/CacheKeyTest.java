@@ -36,5 +36,8 @@ public void verifyToString()
     {
         CacheKey key = new CacheKey(300, 1000);
         assertEquals("300s-1000", key.toString());
+
+        key = new CacheKey(300, 1000, 2048);
+        assertEquals("300s-1000-2048b", key.toString());
     }
 }
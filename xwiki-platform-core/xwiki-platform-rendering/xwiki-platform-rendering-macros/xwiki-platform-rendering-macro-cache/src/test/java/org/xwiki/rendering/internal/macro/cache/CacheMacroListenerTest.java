@@ -0,0 +1,64 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.cache;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CacheMacroListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class CacheMacroListenerTest
+{
+    @InjectMockComponents
+    private CacheMacroListener listener;
+
+    @MockComponent
+    private ContentCacheManager contentCacheManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @Test
+    void onEvent()
+    {
+        DocumentReference reference = new DocumentReference("wiki", "Space", "Page");
+        DocumentModelBridge document = mock(DocumentModelBridge.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+        when(this.serializer.serialize(reference)).thenReturn("wiki:Space.Page");
+
+        this.listener.onEvent(new DocumentUpdatedEvent(reference), document, null);
+
+        verify(this.contentCacheManager).invalidate("wiki:Space.Page");
+    }
+}
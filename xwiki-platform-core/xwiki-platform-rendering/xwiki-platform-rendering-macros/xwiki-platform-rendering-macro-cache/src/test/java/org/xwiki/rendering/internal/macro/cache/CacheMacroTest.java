@@ -20,15 +20,29 @@
 package org.xwiki.rendering.internal.macro.cache;
 
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.jmock.Expectations;
 import org.junit.Test;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroMarkerBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.RawBlock;
+import org.xwiki.rendering.block.WordBlock;
 import org.xwiki.rendering.internal.transformation.macro.MacroTransformation;
 import org.xwiki.rendering.macro.Macro;
 import org.xwiki.rendering.macro.cache.CacheMacroParameters;
 import org.xwiki.rendering.macro.script.ScriptMockSetup;
+import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 import org.xwiki.rendering.transformation.Transformation;
@@ -176,7 +190,23 @@ public void executeWithIdGeneratedByVelocityMacro() throws Exception
         // is the same even the cache macro content is different.
         params.setId("generatedid");
         List<Block> result2 = this.cacheMacro.execute(params, "something else", context);
-        assertEquals(result1, result2);
+        assertEquals(render(result1), render(result2));
+    }
+
+    @Test
+    public void executeWhenContentLargerThanMaxSize() throws Exception
+    {
+        CacheMacroParameters params = new CacheMacroParameters();
+        MacroTransformationContext context = createMacroTransformationContext();
+
+        params.setId("id");
+        params.setMaxSize(1);
+        List<Block> result1 = this.cacheMacro.execute(params, "content1", context);
+
+        // Execute a second time with the same id but with different content. The first content is too big to be kept in
+        // the cache so the new content is returned.
+        List<Block> result2 = this.cacheMacro.execute(params, "content2", context);
+        assertFalse(render(result2).equals(render(result1)));
     }
 
     @Test
@@ -215,6 +245,77 @@ public void executeWithDifferentMaxEntries() throws Exception
         assertFalse(result2.equals(result1));
     }
 
+    @Test
+    public void executeWhenDependencyIsModified() throws Exception
+    {
+        DocumentReference dependency = new DocumentReference("wiki", "Space", "Page");
+        DocumentReference otherDocument = new DocumentReference("wiki", "Space", "Other");
+        getMockery().checking(new Expectations()
+        {{
+            allowing(mockSetup.documentReferenceResolver).resolve("Space.Page");
+            will(returnValue(dependency));
+        }});
+
+        CacheMacroParameters params = new CacheMacroParameters();
+        params.setId("id");
+        params.setDependencies(Collections.singleton("Space.Page"));
+        MacroTransformationContext context = createMacroTransformationContext();
+
+        List<Block> result1 = this.cacheMacro.execute(params, "content1", context);
+        assertEquals(render(result1), render(this.cacheMacro.execute(params, "content2", context)));
+
+        // The modification of another document doesn't invalidate the cached content
+        ObservationManager observation = getComponentManager().getInstance(ObservationManager.class);
+        observation.notify(new DocumentUpdatedEvent(otherDocument), document(otherDocument), null);
+
+        assertEquals(render(result1), render(this.cacheMacro.execute(params, "content2", context)));
+
+        // The modification of the dependency does
+        observation.notify(new DocumentUpdatedEvent(dependency), document(dependency), null);
+
+        List<Block> result2 = this.cacheMacro.execute(params, "content2", context);
+        assertFalse(render(result2).equals(render(result1)));
+        assertEquals(render(result2), render(this.cacheMacro.execute(params, "content3", context)));
+    }
+
+    @Test
+    public void serializeKeepsMacroMarkerAndRawBlocks() throws Exception
+    {
+        List<Block> blocks = Arrays.asList(
+            new MacroMarkerBlock("html", Collections.singletonMap("clean", "false"), "<b>raw</b>",
+                Arrays.asList(new RawBlock("<b>raw</b>", Syntax.XHTML_1_0)), false),
+            new ParagraphBlock(Arrays.asList(new WordBlock("word"))));
+
+        List<Block> result = this.cacheMacro.deserialize(this.cacheMacro.serialize(blocks));
+
+        assertEquals(render(blocks), render(result));
+        assertTrue(result.get(0) instanceof MacroMarkerBlock);
+        assertTrue(result.get(0).getChildren().get(0) instanceof RawBlock);
+        assertEquals(Syntax.XHTML_1_0, ((RawBlock) result.get(0).getChildren().get(0)).getSyntax());
+    }
+
+    private DocumentModelBridge document(DocumentReference reference)
+    {
+        DocumentModelBridge document = getMockery().mock(DocumentModelBridge.class, reference.getName());
+        getMockery().checking(new Expectations()
+        {{
+            allowing(document).getDocumentReference();
+            will(returnValue(reference));
+        }});
+
+        return document;
+    }
+
+    private String render(List<Block> blocks)
+    {
+        WikiPrinter printer = new DefaultWikiPrinter();
+        PrintRenderer renderer = this.rendererFactory.createRenderer(printer);
+        for (Block block : blocks) {
+            block.traverse(renderer);
+        }
+        return printer.toString();
+    }
+
     private MacroTransformationContext createMacroTransformationContext() throws Exception
     {
         MacroTransformation macroTransformation = getComponentManager().getInstance(Transformation.class, "macro");
@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.cache;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.rendering.internal.macro.cache.ContentCache.CachedContent;
+import org.xwiki.rendering.macro.MacroExecutionException;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ContentCacheManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class ContentCacheManagerTest
+{
+    @InjectMockComponents
+    private ContentCacheManager contentCacheManager;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @Test
+    void getContentCache() throws Exception
+    {
+        Cache<CachedContent> cache1 = mock(Cache.class);
+        Cache<CachedContent> cache2 = mock(Cache.class);
+        when(this.cacheManager.<CachedContent>createNewLocalCache(any())).thenReturn(cache1, cache2);
+
+        ContentCache contentCache = this.contentCacheManager.getContentCache(new CacheKey(300, 1000, 2048));
+
+        // The same cache is used for the same configuration
+        assertSame(contentCache, this.contentCacheManager.getContentCache(new CacheKey(300, 1000, 2048)));
+        assertNotSame(contentCache, this.contentCacheManager.getContentCache(new CacheKey(300, 1000, 4096)));
+
+        ArgumentCaptor<LRUCacheConfiguration> configuration = ArgumentCaptor.forClass(LRUCacheConfiguration.class);
+        verify(this.cacheManager, times(2)).createNewLocalCache(configuration.capture());
+        assertEquals("cacheMacro.300s-1000-2048b", configuration.getAllValues().get(0).getConfigurationId());
+        assertEquals(1000, configuration.getAllValues().get(0).getLRUEvictionConfiguration().getMaxEntries());
+        assertEquals(300, configuration.getAllValues().get(0).getLRUEvictionConfiguration().getLifespan());
+
+        this.contentCacheManager.dispose();
+
+        verify(cache1).dispose();
+        verify(cache2).dispose();
+    }
+
+    @Test
+    void getContentCacheWhenCacheCreationFails() throws Exception
+    {
+        when(this.cacheManager.createNewLocalCache(any())).thenThrow(new CacheException("error"));
+
+        assertThrows(MacroExecutionException.class,
+            () -> this.contentCacheManager.getContentCache(new CacheKey(300, 1000)));
+    }
+
+    @Test
+    void getContentCacheRegistersMetrics() throws Exception
+    {
+        MetricRegistry metrics = this.componentManager.registerMockComponent(MetricRegistry.class);
+        when(this.cacheManager.createNewLocalCache(any())).thenReturn(mock(Cache.class));
+
+        this.contentCacheManager.getContentCache(new CacheKey(300, 1000, 2048));
+
+        verify(metrics).registerCounter(eq("xwiki_cache_macro_hits"), any(), any(), eq("cache"),
+            eq("300s-1000-2048b"));
+        verify(metrics).registerCounter(eq("xwiki_cache_macro_misses"), any(), any(), eq("cache"),
+            eq("300s-1000-2048b"));
+        verify(metrics).registerGauge(eq("xwiki_cache_macro_size"), any(), any(), eq("cache"),
+            eq("300s-1000-2048b"));
+    }
+
+    @Test
+    void invalidate() throws Exception
+    {
+        Cache<CachedContent> cache1 = mock(Cache.class);
+        Cache<CachedContent> cache2 = mock(Cache.class);
+        when(this.cacheManager.<CachedContent>createNewLocalCache(any())).thenReturn(cache1, cache2);
+
+        CachedContent content = new CachedContent(new byte[1], Collections.emptySet(),
+            Collections.singleton("wiki:Space.Page"));
+        this.contentCacheManager.getContentCache(new CacheKey(300, 1000)).set("key1", content);
+        this.contentCacheManager.getContentCache(new CacheKey(600, 1000)).set("key2", content);
+
+        this.contentCacheManager.invalidate("wiki:Space.Other");
+
+        verify(cache1, times(0)).remove(any());
+        verify(cache2, times(0)).remove(any());
+
+        // The entries depending on the document are removed from all the caches
+        this.contentCacheManager.invalidate("wiki:Space.Page");
+
+        verify(cache1).remove("key1");
+        verify(cache2).remove("key2");
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheEntry;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.rendering.internal.macro.cache.ContentCache.CachedContent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ContentCache}.
+ *
+ * @version $Id$
+ */
+class ContentCacheTest
+{
+    private Cache<CachedContent> cache;
+
+    private ContentCache contentCache;
+
+    private final Map<String, CachedContent> entries = new HashMap<>();
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.cache = mock(Cache.class);
+
+        this.contentCache = new ContentCache(this.cache, 10);
+
+        // Simulate the actual cache and the events it sends
+        when(this.cache.get(any())).thenAnswer(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            this.entries.put(invocation.getArgument(0), invocation.getArgument(1));
+            this.contentCache.cacheEntryAdded(event(invocation.getArgument(0), invocation.getArgument(1)));
+            return null;
+        }).when(this.cache).set(any(), any());
+        doAnswer(invocation -> {
+            CachedContent removed = this.entries.remove(invocation.getArgument(0));
+            this.contentCache.cacheEntryRemoved(event(invocation.getArgument(0), removed));
+            return null;
+        }).when(this.cache).remove(any());
+    }
+
+    private CacheEntryEvent<CachedContent> event(String key, CachedContent content)
+    {
+        CacheEntry<CachedContent> entry = mock(CacheEntry.class);
+        when(entry.getKey()).thenReturn(key);
+        when(entry.getValue()).thenReturn(content);
+        CacheEntryEvent<CachedContent> event = mock(CacheEntryEvent.class);
+        when(event.getEntry()).thenReturn(entry);
+
+        return event;
+    }
+
+    private CachedContent content(int size, Set<String> tags)
+    {
+        return new CachedContent(new byte[size], Collections.emptySet(), tags);
+    }
+
+    @Test
+    void setWhenTooBig()
+    {
+        CachedContent content1 = content(4, Collections.emptySet());
+        CachedContent content2 = content(4, Collections.emptySet());
+        CachedContent content3 = content(4, Collections.emptySet());
+
+        this.contentCache.set("key1", content1);
+        this.contentCache.set("key2", content2);
+
+        assertEquals(8, this.contentCache.getSize());
+
+        // Make the first entry the most recently used one
+        assertSame(content1, this.contentCache.get("key1"));
+
+        this.contentCache.set("key3", content3);
+
+        verify(this.cache).remove("key2");
+        verify(this.cache, never()).remove("key1");
+        assertEquals(8, this.contentCache.getSize());
+
+        // Never cache a content bigger than the whole cache
+        this.contentCache.set("key4", content(11, Collections.emptySet()));
+
+        verify(this.cache, never()).set(eq("key4"), any());
+        assertEquals(8, this.contentCache.getSize());
+    }
+
+    @Test
+    void invalidate()
+    {
+        CachedContent content1 = content(1, Collections.singleton("wiki:Space.Page1"));
+        CachedContent content2 = content(1, Collections.singleton("wiki:Space.Page2"));
+
+        this.contentCache.set("key1", content1);
+        this.contentCache.set("key2", content2);
+
+        this.contentCache.invalidate("wiki:Space.Page1");
+
+        assertNull(this.contentCache.get("key1"));
+        assertSame(content2, this.contentCache.get("key2"));
+
+        assertEquals(1, this.contentCache.getHits());
+        assertEquals(1, this.contentCache.getMisses());
+        assertEquals(1, this.contentCache.getSize());
+    }
+
+    @Test
+    void setWhenEventsAreDelayed()
+    {
+        // A cache which does not send the events right away
+        Cache<CachedContent> delayedCache = mock(Cache.class);
+        ContentCache delayedContentCache = new ContentCache(delayedCache, 10);
+
+        CachedContent content1 = content(4, Collections.emptySet());
+        CachedContent content2 = content(4, Collections.emptySet());
+        CachedContent content3 = content(4, Collections.emptySet());
+        CachedContent content4 = content(2, Collections.emptySet());
+
+        delayedContentCache.set("key1", content1);
+        delayedContentCache.set("key2", content2);
+        delayedContentCache.set("key3", content3);
+
+        verify(delayedCache).remove("key1");
+        assertEquals(8, delayedContentCache.getSize());
+
+        delayedContentCache.set("key2", content4);
+
+        assertEquals(6, delayedContentCache.getSize());
+
+        // Events received late for entries already forgotten or replaced
+        delayedContentCache.cacheEntryAdded(event("key1", content1));
+        delayedContentCache.cacheEntryRemoved(event("key1", content1));
+        delayedContentCache.cacheEntryModified(event("key2", content4));
+        delayedContentCache.cacheEntryRemoved(event("key2", content2));
+
+        assertEquals(6, delayedContentCache.getSize());
+
+        // Entry removed by the cache itself (expired, etc.)
+        delayedContentCache.cacheEntryRemoved(event("key3", content3));
+
+        assertEquals(2, delayedContentCache.getSize());
+    }
+}
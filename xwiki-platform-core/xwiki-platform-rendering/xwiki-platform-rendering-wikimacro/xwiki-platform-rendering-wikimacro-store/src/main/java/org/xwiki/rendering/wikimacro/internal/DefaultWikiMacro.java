@@ -42,6 +42,7 @@
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.objects.BaseObject;
 
 /**
@@ -60,6 +61,8 @@ public class DefaultWikiMacro extends AbstractAsyncContentBaseObjectWikiComponen
 
     private final int macroPriority;
 
+    private final RequestProfiler requestProfiler;
+
     /**
      * Constructs a new {@link DefaultWikiMacro}.
      * 
@@ -77,6 +80,8 @@ public DefaultWikiMacro(BaseObject baseObject, MacroDescriptor descriptor, Compo
 
         this.descriptor = descriptor;
         this.macroPriority = baseObject.getIntValue(MACRO_PRIORITY_PROPERTY, 1000);
+        this.requestProfiler = componentManager.hasComponent(RequestProfiler.class)
+            ? componentManager.getInstance(RequestProfiler.class) : null;
     }
 
     @Override
@@ -104,12 +109,20 @@ public List<Block> execute(WikiMacroParameters parameters, String macroContent,
         configuration.setSecureReference(getDocumentReference(), getAuthorReference());
         configuration.setContextEntries(this.contextEntries);
 
+        if (this.requestProfiler != null) {
+            this.requestProfiler.startStep(this, "Execute wiki macro [{}]", this.descriptor.getId().getId());
+        }
+
         // Execute the renderer
         Block result;
         try {
             result = this.executor.execute(renderer, configuration);
         } catch (Exception e) {
             throw new MacroExecutionException("Failed to execute wiki macro", e);
+        } finally {
+            if (this.requestProfiler != null) {
+                this.requestProfiler.endStep(this);
+            }
         }
 
         return result instanceof CompositeBlock ? result.getChildren() : Arrays.asList(result);
@@ -19,13 +19,21 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -62,6 +70,11 @@
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
  * processes the queue.
+ * <p>
+ * When more than one indexer thread is configured, the (costly) metadata extraction is delegated to a pool of
+ * extraction threads. Each extraction thread handles a stripe of the documents (determined from the hash of the
+ * document reference) so that all the operations targeting the same document are extracted in the order they were
+ * received. The results are still sent to the Solr server and committed by the index thread, in the queue order.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -96,6 +109,20 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * The code to execute once the operations queued before are committed.
+         */
+        public Runnable callback;
+
+        /**
+         * @param callback the code to execute once the operations queued before are committed
+         */
+        public IndexQueueEntry(Runnable callback)
+        {
+            this.callback = callback;
+            this.operation = IndexOperation.COMMIT;
+        }
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -128,6 +155,9 @@ public String toString()
                 case DELETE:
                     str = "DELETE " + this.deleteQuery;
                     break;
+                case COMMIT:
+                    str = "COMMIT";
+                    break;
                 case STOP:
                     str = "STOP";
                     break;
@@ -140,6 +170,34 @@ public String toString()
         }
     }
 
+    /**
+     * An index queue entry for which the metadata extraction might have been started in a separate thread.
+     * 
+     * @version $Id$
+     */
+    private static class ExtractedEntry
+    {
+        /**
+         * The index queue entry.
+         */
+        public final IndexQueueEntry entry;
+
+        /**
+         * The result of the metadata extraction or {@code null} if the extraction should be done by the index thread.
+         */
+        public final Future<LengthSolrInputDocument> document;
+
+        /**
+         * @param entry the index queue entry
+         * @param document the result of the metadata extraction
+         */
+        ExtractedEntry(IndexQueueEntry entry, Future<LengthSolrInputDocument> document)
+        {
+            this.entry = entry;
+            this.document = document;
+        }
+    }
+
     /**
      * Resolve queue entry.
      * 
@@ -162,6 +220,20 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * The code to execute once the operations queued before are committed.
+         */
+        public Runnable callback;
+
+        /**
+         * @param callback the code to execute once the operations queued before are committed
+         */
+        public ResolveQueueEntry(Runnable callback)
+        {
+            this.callback = callback;
+            this.operation = IndexOperation.COMMIT;
+        }
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
@@ -204,7 +276,9 @@ public void runInternal()
                 }
 
                 try {
-                    if (queueEntry.operation == IndexOperation.INDEX) {
+                    if (queueEntry.operation == IndexOperation.COMMIT) {
+                        indexQueue.put(new IndexQueueEntry(queueEntry.callback));
+                    } else if (queueEntry.operation == IndexOperation.INDEX) {
                         Iterable<EntityReference> references;
                         if (queueEntry.recurse) {
                             references = solrRefereceResolver.getReferences(queueEntry.reference);
@@ -245,6 +319,11 @@ public void runInternal()
     private static final IndexQueueEntry INDEX_QUEUE_ENTRY_STOP =
         new IndexQueueEntry((String) null, IndexOperation.STOP);
 
+    /**
+     * The maximum number of entries being extracted in advance by each extraction thread.
+     */
+    private static final int EXTRACTION_WINDOW_FACTOR = 4;
+
     /**
      * Logging framework.
      */
@@ -304,6 +383,17 @@ public void runInternal()
      */
     private Thread resolveThread;
 
+    /**
+     * The threads in which the metadata are extracted, one per stripe. {@code null} when the metadata are extracted
+     * directly by the index thread.
+     */
+    private ExecutorService[] extractors;
+
+    /**
+     * The maximum number of entries for which the metadata are being extracted but which are not yet sent.
+     */
+    private int extractionWindow;
+
     /**
      * Indicate of the component has been disposed.
      */
@@ -314,6 +404,16 @@ public void runInternal()
      */
     private volatile int batchSize;
 
+    /**
+     * The length of the not yet committed batch.
+     */
+    private int batchLength;
+
+    /**
+     * Indicate if a commit failed since the last {@link IndexOperation#COMMIT} entry.
+     */
+    private boolean commitFailed;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -321,6 +421,18 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Start the extraction threads
+        int threads = this.configuration.getIndexerThreads();
+        if (threads > 1) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("XWiki Solr extract thread %d")
+                .daemon(true).priority(Thread.NORM_PRIORITY - 1).build();
+            this.extractors = new ExecutorService[threads];
+            for (int i = 0; i < threads; ++i) {
+                this.extractors[i] = Executors.newSingleThreadExecutor(factory);
+            }
+            this.extractionWindow = threads * EXTRACTION_WINDOW_FACTOR;
+        }
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -353,6 +465,14 @@ public void dispose() throws ComponentLifecycleException
         // the index queue was full) and just one entry will be added to the queue before the special stop entry.
         this.indexQueue.clear();
         this.indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
+
+        // Stop the extraction threads. The extractions already started are finished since the index thread might be
+        // waiting for them.
+        if (this.extractors != null) {
+            for (ExecutorService extractor : this.extractors) {
+                extractor.shutdown();
+            }
+        }
     }
 
     @Override
@@ -390,48 +510,36 @@ public void run()
      */
     private boolean processBatch(IndexQueueEntry queueEntry)
     {
-        int length = 0;
+        // The entries for which the metadata extraction was started, in the order they were read from the queue
+        Deque<ExtractedEntry> extractedEntries = new ArrayDeque<>();
 
         for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
-            if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
+            if (batchEntry == INDEX_QUEUE_ENTRY_STOP || Thread.currentThread().isInterrupted()) {
                 // Discard the current batch and stop the indexing thread.
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
+            if (IndexOperation.COMMIT.equals(batchEntry.operation)) {
+                // Make sure all the operations queued before are sent and committed before calling back
+                if (!processEntries(extractedEntries)) {
+                    return false;
+                }
+                commit(batchEntry.callback);
 
-            // For the current contiguous operations queue, group the changes
-            try {
-                this.ecim.initialize(new ExecutionContext());
+                continue;
+            }
 
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
+            extractedEntries.add(extract(batchEntry));
 
-                    ++this.batchSize;
-                }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
+            // Send the oldest entries (in the queue order) when enough entries are being extracted in advance
+            while (extractedEntries.size() > this.extractionWindow) {
+                processEntry(extractedEntries.poll());
             }
+        }
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
-            }
+        // Send what's left
+        if (!processEntries(extractedEntries)) {
+            return false;
         }
 
         // Commit what's left
@@ -442,6 +550,158 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * Send all the passed entries, in order.
+     * 
+     * @param extractedEntries the entries to send
+     * @return {@code false} if the indexing thread has been interrupted
+     */
+    private boolean processEntries(Deque<ExtractedEntry> extractedEntries)
+    {
+        while (!extractedEntries.isEmpty()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            processEntry(extractedEntries.poll());
+        }
+
+        return true;
+    }
+
+    /**
+     * Commit what's left and call back if all the operations since the previous callback were committed.
+     * 
+     * @param callback the code to execute
+     */
+    private void commit(Runnable callback)
+    {
+        if (this.batchSize > 0) {
+            commit();
+        }
+
+        if (this.commitFailed) {
+            this.logger.debug("Skipped a commit callback because some changes could not be committed");
+        } else {
+            try {
+                callback.run();
+            } catch (Throwable e) {
+                this.logger.error("Failed to execute a Solr commit callback", e);
+            }
+        }
+
+        this.commitFailed = false;
+    }
+
+    /**
+     * Start the metadata extraction of the passed entry in the extraction thread associated with the entry document, if
+     * any.
+     * 
+     * @param batchEntry the entry read from the index queue
+     * @return the entry for which the extraction was started, the extraction is left to the index thread when the
+     *         extraction threads are not available (anymore)
+     */
+    private ExtractedEntry extract(IndexQueueEntry batchEntry)
+    {
+        Future<LengthSolrInputDocument> document = null;
+
+        if (this.extractors != null && !this.disposed && IndexOperation.INDEX.equals(batchEntry.operation)) {
+            try {
+                document = getExtractor(batchEntry.reference).submit(() -> {
+                    try {
+                        this.ecim.initialize(new ExecutionContext());
+
+                        return getSolrDocument(batchEntry.reference);
+                    } finally {
+                        this.execution.removeContext();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The extraction threads have been stopped in the meantime (the component is being disposed)
+                this.logger.debug("Failed to start the extraction of entry [{}] in an extraction thread", batchEntry,
+                    e);
+            }
+        }
+
+        return new ExtractedEntry(batchEntry, document);
+    }
+
+    /**
+     * @param reference the reference of the entity to index
+     * @return the extraction thread in charge of the document containing the passed entity
+     */
+    private ExecutorService getExtractor(EntityReference reference)
+    {
+        // Make sure the document and all its elements are extracted by the same thread (in the queue order)
+        EntityReference documentReference = reference.extractReference(EntityType.DOCUMENT);
+        EntityReference stripeReference = documentReference != null ? documentReference : reference;
+
+        return this.extractors[Math.floorMod(stripeReference.hashCode(), this.extractors.length)];
+    }
+
+    /**
+     * Send the passed entry to the Solr server and commit when the batch is big enough.
+     * 
+     * @param extractedEntry the entry to send
+     */
+    private void processEntry(ExtractedEntry extractedEntry)
+    {
+        IndexQueueEntry batchEntry = extractedEntry.entry;
+        IndexOperation operation = batchEntry.operation;
+
+        // The metadata extraction thread takes care of its own execution context
+        boolean initializeContext = extractedEntry.document == null;
+
+        // For the current contiguous operations queue, group the changes
+        try {
+            if (initializeContext) {
+                this.ecim.initialize(new ExecutionContext());
+            }
+
+            if (IndexOperation.INDEX.equals(operation)) {
+                LengthSolrInputDocument solrDocument;
+                if (extractedEntry.document != null) {
+                    solrDocument = extractedEntry.document.get();
+                } else {
+                    solrDocument = getSolrDocument(batchEntry.reference);
+                }
+
+                if (solrDocument != null) {
+                    solrInstance.add(solrDocument);
+                    this.batchLength += solrDocument.getLength();
+                    ++this.batchSize;
+                }
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                if (batchEntry.reference == null) {
+                    solrInstance.deleteByQuery(batchEntry.deleteQuery);
+                } else {
+                    solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
+                }
+
+                ++this.batchSize;
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted", e);
+
+            // Stop the index thread
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e.getCause());
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e);
+        } finally {
+            if (initializeContext) {
+                this.execution.removeContext();
+            }
+        }
+
+        // Commit the index changes so that they become available to queries. This is a costly operation and that is
+        // the reason why we perform it at the end of the batch.
+        if (shouldCommit(this.batchLength, this.batchSize)) {
+            commit();
+        }
+    }
+
     /**
      * Commit.
      */
@@ -452,6 +712,8 @@ private void commit()
         } catch (Exception e) {
             this.logger.error("Failed to commit index changes to the Solr server. Rolling back.", e);
 
+            this.commitFailed = true;
+
             try {
                 solrInstance.rollback();
             } catch (Exception ex) {
@@ -461,6 +723,7 @@ private void commit()
         }
 
         this.batchSize = 0;
+        this.batchLength = 0;
     }
 
     /**
@@ -549,6 +812,18 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
         }
     }
 
+    @Override
+    public void commit(Runnable callback)
+    {
+        if (!this.disposed) {
+            try {
+                this.resolveQueue.put(new ResolveQueueEntry(callback));
+            } catch (InterruptedException e) {
+                this.logger.error("Failed to add a commit callback to Solr indexing queue", e);
+            }
+        }
+    }
+
     @Override
     public int getQueueSize()
     {
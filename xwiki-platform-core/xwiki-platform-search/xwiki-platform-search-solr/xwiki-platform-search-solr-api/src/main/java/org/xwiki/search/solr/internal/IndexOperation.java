@@ -39,6 +39,13 @@
 
     // General operations
 
+    /**
+     * Commit the operations queued before and call back.
+     * 
+     * @since 14.4RC1
+     */
+    COMMIT,
+
     /**
      * Stop indexing thread.
      */
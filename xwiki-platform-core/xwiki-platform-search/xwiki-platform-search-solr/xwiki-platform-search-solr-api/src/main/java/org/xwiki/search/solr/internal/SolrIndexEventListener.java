@@ -37,7 +37,6 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.WikiReference;
-import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 
@@ -56,9 +55,12 @@
 import com.xpn.xwiki.internal.event.XObjectPropertyDeletedEvent;
 import com.xpn.xwiki.internal.event.XObjectPropertyUpdatedEvent;
 import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
+import com.xpn.xwiki.internal.observation.AbstractAsyncEventListener;
 
 /**
  * Event listener that monitors changes in the wiki and updates the Solr index accordingly.
+ * <p>
+ * Since 14.4RC1 the events are handled outside of the thread which produced them.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -66,7 +68,7 @@
 @Component
 @Named("solr.update")
 @Singleton
-public class SolrIndexEventListener implements EventListener
+public class SolrIndexEventListener extends AbstractAsyncEventListener
 {
     /**
      * The events to listen to that trigger the index update.
@@ -91,20 +93,16 @@ public class SolrIndexEventListener implements EventListener
     @Inject
     private Provider<SolrIndexer> solrIndexer;
 
-    @Override
-    public List<Event> getEvents()
-    {
-        return EVENTS;
-    }
-
-    @Override
-    public String getName()
+    /**
+     * Setup the listener.
+     */
+    public SolrIndexEventListener()
     {
-        return this.getClass().getName();
+        super(SolrIndexEventListener.class.getName(), EVENTS);
     }
 
     @Override
-    public void onEvent(Event event, Object source, Object data)
+    public void onAsyncEvent(Event event, Object source, Object data)
     {
         try {
             if (event instanceof DocumentUpdatedEvent) {
@@ -0,0 +1,53 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.MetricSource;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+
+/**
+ * Expose the size of the Solr indexing queue.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Named("solr")
+@Singleton
+public class SolrMetricSource implements MetricSource
+{
+    @Inject
+    private Provider<SolrIndexer> indexerProvider;
+
+    @Override
+    public void bindTo(MetricRegistry registry)
+    {
+        registry.registerGauge("xwiki_solr_index_queue_size",
+            "The number of entities waiting to be indexed or removed from the Solr index",
+            () -> this.indexerProvider.get().getQueueSize());
+    }
+}
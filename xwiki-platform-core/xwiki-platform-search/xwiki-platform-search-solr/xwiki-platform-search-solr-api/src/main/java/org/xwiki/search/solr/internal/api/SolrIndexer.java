@@ -55,6 +55,16 @@
      */
     void delete(EntityReference reference, boolean recurse);
 
+    /**
+     * Call back once all the operations added to the queue before have been sent and committed to the Solr server.
+     * The callback is called from the index thread, and not at all if some of these operations could not be
+     * committed.
+     * 
+     * @param callback the code to execute once the operations are committed
+     * @since 14.4RC1
+     */
+    void commit(Runnable callback);
+
     /**
      * @return the number of element in the index/delete queue
      */
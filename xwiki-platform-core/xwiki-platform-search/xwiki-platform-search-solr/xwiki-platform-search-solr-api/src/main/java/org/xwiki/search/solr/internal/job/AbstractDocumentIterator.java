@@ -19,6 +19,9 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
+
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 
 /**
@@ -40,6 +43,22 @@
      */
     protected EntityReference rootReference;
 
+    /**
+     * Specifies the last document that was iterated before the iteration was interrupted. If {@code null} then the
+     * iteration starts from the first document.
+     * 
+     * @since 14.4RC1
+     */
+    protected DocumentReference resumeReference;
+
+    /**
+     * Specifies the date after which the iterated documents have been modified. If {@code null} then all the documents
+     * are iterated.
+     * 
+     * @since 14.4RC1
+     */
+    protected Date modifiedSince;
+
     @Override
     public void remove()
     {
@@ -51,4 +70,16 @@ public void setRootReference(EntityReference rootReference)
     {
         this.rootReference = rootReference;
     }
+
+    @Override
+    public void setResumeReference(DocumentReference resumeReference)
+    {
+        this.resumeReference = resumeReference;
+    }
+
+    @Override
+    public void setModifiedSince(Date modifiedSince)
+    {
+        this.modifiedSince = modifiedSince;
+    }
 }
@@ -61,6 +61,8 @@
 @Named("database")
 public class DatabaseDocumentIterator extends AbstractDocumentIterator<String>
 {
+    private static final String AND = " and ";
+
     /**
      * The current index in the list of {@link #results}.
      */
@@ -111,6 +113,11 @@ public class DatabaseDocumentIterator extends AbstractDocumentIterator<String>
      */
     private Query query;
 
+    /**
+     * The query used to fetch the documents located after the {@link #resumeReference} in its wiki.
+     */
+    private Query resumeQuery;
+
     /**
      * The query used to count the documents from the database.
      */
@@ -198,7 +205,8 @@ private void fetchNextResults()
             // We use basic pagination (absolute offset) because we don't expect the database to change too much while
             // the synchronization takes place. Also, the database is used as the reference store, meaning that we
             // update the Solr index to match the database, not the other way around.
-            results = getQuery().setWiki(wiki).setOffset(offset).execute();
+            Query wikiQuery = isResumeWiki(wiki) ? getResumeQuery() : getQuery();
+            results = wikiQuery.setWiki(wiki).setOffset(offset).execute();
             offset += LIMIT;
         } catch (QueryException e) {
             throw new IllegalStateException("Failed to query the database.", e);
@@ -212,35 +220,12 @@ private void fetchNextResults()
     private Query getQuery() throws QueryException
     {
         if (query == null) {
-            // This iterator must have the same order as the SolrDocumentIterator, otherwise the synchronization fails.
-            String select = "select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc";
-            String orderBy = " order by doc.space, doc.name, doc.language";
-
-            EntityReference spaceReference = null;
-            EntityReference documentReference = null;
-            if (rootReference != null) {
-                spaceReference = rootReference.extractReference(EntityType.SPACE);
-                documentReference = rootReference.extractReference(EntityType.DOCUMENT);
-            }
+            List<String> conditions = getConditions();
+            String whereClause = conditions.isEmpty() ? "" : " where " + StringUtils.join(conditions, AND);
 
-            String whereClause = "";
-            if (spaceReference != null) {
-                whereClause += " where doc.space = :space";
-                if (documentReference != null) {
-                    whereClause += " and doc.name = :name";
-                }
-            }
-
-            query = queryManager.createQuery(select + whereClause + orderBy, Query.HQL).setLimit(LIMIT);
+            query = createQuery(whereClause);
             countQuery = queryManager.createQuery(whereClause, Query.HQL).addFilter(countFilter);
 
-            if (spaceReference != null) {
-                query.bindValue("space", this.localEntityReferenceSerializer.serialize(spaceReference));
-                if (documentReference != null) {
-                    query.bindValue("name", documentReference.getName());
-                }
-            }
-
             for (Map.Entry<String, Object> parameter : query.getNamedParameters().entrySet()) {
                 countQuery.bindValue(parameter.getKey(), parameter.getValue());
             }
@@ -248,14 +233,106 @@ private Query getQuery() throws QueryException
         return query;
     }
 
+    /**
+     * @return the query used to fetch the documents located after the {@link #resumeReference} in its wiki
+     * @throws QueryException if creating the query fails
+     */
+    private Query getResumeQuery() throws QueryException
+    {
+        if (resumeQuery == null) {
+            // Must match the order of the documents (see #createQuery).
+            List<String> conditions = getConditions();
+            conditions.add("(doc.space > :resumeSpace or (doc.space = :resumeSpace and (doc.name > :resumeName"
+                + " or (doc.name = :resumeName and doc.language > :resumeLanguage))))");
+
+            resumeQuery = createQuery(" where " + StringUtils.join(conditions, AND));
+
+            resumeQuery.bindValue("resumeSpace",
+                this.localEntityReferenceSerializer.serialize(resumeReference.getLastSpaceReference()));
+            resumeQuery.bindValue("resumeName", resumeReference.getName());
+            resumeQuery.bindValue("resumeLanguage",
+                resumeReference.getLocale() != null ? resumeReference.getLocale().toString() : "");
+        }
+        return resumeQuery;
+    }
+
+    /**
+     * @param whereClause the where clause of the query
+     * @return the query used to fetch the documents matching the passed where clause
+     * @throws QueryException if creating the query fails
+     */
+    private Query createQuery(String whereClause) throws QueryException
+    {
+        // This iterator must have the same order as the SolrDocumentIterator, otherwise the synchronization fails.
+        String select = "select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc";
+        String orderBy = " order by doc.space, doc.name, doc.language";
+
+        Query result = queryManager.createQuery(select + whereClause + orderBy, Query.HQL).setLimit(LIMIT);
+
+        EntityReference spaceReference = null;
+        EntityReference documentReference = null;
+        if (rootReference != null) {
+            spaceReference = rootReference.extractReference(EntityType.SPACE);
+            documentReference = rootReference.extractReference(EntityType.DOCUMENT);
+        }
+
+        if (spaceReference != null) {
+            result.bindValue("space", this.localEntityReferenceSerializer.serialize(spaceReference));
+            if (documentReference != null) {
+                result.bindValue("name", documentReference.getName());
+            }
+        }
+
+        if (modifiedSince != null) {
+            result.bindValue("modifiedSince", modifiedSince);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the conditions matching the configured root entity and modification date
+     */
+    private List<String> getConditions()
+    {
+        List<String> conditions = new ArrayList<>();
+
+        if (rootReference != null && rootReference.extractReference(EntityType.SPACE) != null) {
+            conditions.add("doc.space = :space");
+            if (rootReference.extractReference(EntityType.DOCUMENT) != null) {
+                conditions.add("doc.name = :name");
+            }
+        }
+
+        if (modifiedSince != null) {
+            conditions.add("doc.date >= :modifiedSince");
+        }
+
+        return conditions;
+    }
+
+    /**
+     * @param wikiName a wiki name
+     * @return {@code true} if the iteration of the passed wiki should start after the {@link #resumeReference}
+     */
+    private boolean isResumeWiki(String wikiName)
+    {
+        return resumeReference != null && resumeReference.getWikiReference().getName().equals(wikiName);
+    }
+
     /**
      * @return the next wiki, in alphabetical order
      */
     private String getNextWiki()
     {
         if (wikisIterator == null) {
-            List<String> wikis = getWikis();
+            List<String> wikis = new ArrayList<>(getWikis());
             Collections.sort(wikis);
+            if (resumeReference != null) {
+                // Skip the wikis that were fully iterated before the iteration was interrupted.
+                String resumeWiki = resumeReference.getWikiReference().getName();
+                wikis.removeIf(wikiName -> wikiName.compareTo(resumeWiki) < 0);
+            }
             wikisIterator = wikis.iterator();
         }
         return wikisIterator.hasNext() ? wikisIterator.next() : null;
@@ -19,6 +19,7 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
 import java.util.Iterator;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -45,6 +46,25 @@
      */
     void setRootReference(EntityReference rootReference);
 
+    /**
+     * Skip all the documents up to (and including) the specified document. Used to resume an iteration that was
+     * interrupted. If the passed reference is {@code null} (or if you don't call this method) then the iteration starts
+     * from the first document.
+     * 
+     * @param resumeReference the last document that was iterated before the iteration was interrupted
+     * @since 14.4RC1
+     */
+    void setResumeReference(DocumentReference resumeReference);
+
+    /**
+     * Limit the iterator to the documents modified after the specified date. If the passed date is {@code null} (or if
+     * you don't call this method) then all the documents are iterated.
+     * 
+     * @param modifiedSince the date after which the iterated documents have been modified
+     * @since 14.4RC1
+     */
+    void setModifiedSince(Date modifiedSince);
+
     /**
      * @return estimate the size of the iterated store for showing progress information
      */
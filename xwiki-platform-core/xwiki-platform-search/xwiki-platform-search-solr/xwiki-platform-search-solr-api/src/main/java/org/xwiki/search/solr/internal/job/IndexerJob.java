@@ -20,11 +20,18 @@
 package org.xwiki.search.solr.internal.job;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.xwiki.bridge.DocumentAccessBridge;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -33,11 +40,19 @@
 import org.xwiki.job.GroupedJob;
 import org.xwiki.job.JobGroupPath;
 import org.xwiki.job.Request;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.job.DiffDocumentIterator.Action;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+import org.xwiki.wiki.manager.WikiManagerException;
 
 /**
  * Provide progress information and store logging of an advanced indexing.
@@ -60,6 +75,11 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
      */
     private static final JobGroupPath GROUP = new JobGroupPath(Arrays.asList("solr", "indexer"));
 
+    /**
+     * The number of compared documents after which the progress of the synchronization is saved.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
     /**
      * Used to send documents to index or delete to/from Solr index.
      */
@@ -77,6 +97,21 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
     @Inject
     private EntityReferenceSerializer<String> entityReferenceSerializer;
 
+    @Inject
+    private IndexerJobCheckpointStore checkpointStore;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @Inject
+    private DocumentAccessBridge documentAccessBridge;
+
     @Override
     public String getType()
     {
@@ -120,11 +155,38 @@ protected void runInternal() throws Exception
 
     /**
      * Update the Solr index to match the current state of the database.
+     * 
+     * @throws QueryException when failing to get the deleted documents
+     * @throws WikiManagerException when failing to get the wikis
      */
-    private void updateSolrIndex()
+    private void updateSolrIndex() throws QueryException, WikiManagerException
     {
+        EntityReference rootReference = getRequest().getRootReference();
+
+        // Remember when the synchronization started to not miss the documents modified during the synchronization
+        Date startDate = new Date();
+
         DiffDocumentIterator<String> iterator = new DiffDocumentIterator<>(this.solrIterator, this.databaseIterator);
-        iterator.setRootReference(getRequest().getRootReference());
+        iterator.setRootReference(rootReference);
+
+        // Only the full synchronization is checkpointed since the incremental one is supposed to be quick
+        boolean checkpoint = true;
+        Date lastSynchronizationDate = null;
+        if (getRequest().isIncremental()) {
+            lastSynchronizationDate = this.checkpointStore.getLastSynchronizationDate(rootReference);
+            if (lastSynchronizationDate != null) {
+                this.logger.info("Synchronize the documents modified since [{}].", lastSynchronizationDate);
+                iterator.setModifiedSince(lastSynchronizationDate);
+                checkpoint = false;
+            }
+        }
+        if (checkpoint && getRequest().isResume()) {
+            DocumentReference resumeReference = this.checkpointStore.getResumeReference(rootReference);
+            if (resumeReference != null) {
+                this.logger.info("Resume the synchronization after document [{}].", resumeReference);
+                iterator.setResumeReference(resumeReference);
+            }
+        }
 
         this.progressManager.pushLevelProgress(2, this);
 
@@ -138,19 +200,35 @@ private void updateSolrIndex()
             // Index
 
             this.progressManager.startStep(this);
-            updateSolrIndex(progressSize, iterator);
+            updateSolrIndex(progressSize, iterator, checkpoint);
             this.progressManager.endStep(this);
         } finally {
             this.progressManager.popLevelProgress(this);
         }
+
+        // The documents deleted since the last synchronization are not returned by the iterators filtered on the
+        // modification date
+        if (lastSynchronizationDate != null && getRequest().isRemoveMissing()) {
+            removeDeletedDocuments(rootReference, lastSynchronizationDate);
+        }
+
+        // The synchronization is finished once all the changes are committed
+        boolean finishCheckpoint = checkpoint;
+        this.indexer.commit(() -> {
+            if (finishCheckpoint) {
+                this.checkpointStore.setResumeReference(rootReference, null);
+            }
+            this.checkpointStore.setLastSynchronizationDate(rootReference, startDate);
+        });
     }
 
-    private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iterator)
+    private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iterator, boolean checkpoint)
     {
         this.progressManager.pushLevelProgress(progressSize, this);
 
         try {
             long[] counter = new long[Action.values().length];
+            int uncheckpointed = 0;
 
             while (iterator.hasNext()) {
                 this.progressManager.startStep(this);
@@ -168,6 +246,11 @@ private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iter
 
                 counter[entry.getValue().ordinal()]++;
 
+                if (checkpoint && ++uncheckpointed >= CHECKPOINT_INTERVAL) {
+                    checkpoint(entry.getKey());
+                    uncheckpointed = 0;
+                }
+
                 this.progressManager.endStep(this);
             }
 
@@ -178,4 +261,68 @@ private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iter
             this.progressManager.popLevelProgress(this);
         }
     }
+
+    /**
+     * Save the progress of the synchronization once the indexer committed all the changes sent so far.
+     * 
+     * @param reference the last compared document
+     */
+    private void checkpoint(DocumentReference reference)
+    {
+        EntityReference rootReference = getRequest().getRootReference();
+
+        // The callback comes after all the changes sent so far, including the ones still being resolved, extracted or
+        // sent by the indexer
+        this.indexer.commit(() -> this.checkpointStore.setResumeReference(rootReference, reference));
+    }
+
+    /**
+     * Remove from the index the documents moved to the recycle bin since the passed date and which don't exist anymore.
+     * The documents deleted without going through the recycle bin are only removed by a full synchronization.
+     * 
+     * @param rootReference the root reference of the synchronization
+     * @param since the date of the last synchronization
+     * @throws QueryException when failing to get the deleted documents
+     * @throws WikiManagerException when failing to get the wikis
+     */
+    private void removeDeletedDocuments(EntityReference rootReference, Date since)
+        throws QueryException, WikiManagerException
+    {
+        Collection<String> wikis = rootReference != null
+            ? Collections.singletonList(rootReference.extractReference(EntityType.WIKI).getName())
+            : this.wikiDescriptorManager.getAllIds();
+
+        int deleted = 0;
+        for (String wiki : wikis) {
+            Query query = this.queryManager.createQuery(
+                "select distinct ddoc.fullName, ddoc.language from XWikiDeletedDocument ddoc where ddoc.date >= :since",
+                Query.HQL);
+            query.setWiki(wiki);
+            query.bindValue("since", since);
+
+            for (Object[] result : query.<Object[]>execute()) {
+                DocumentReference reference =
+                    this.documentReferenceResolver.resolve((String) result[0], new WikiReference(wiki));
+                String locale = (String) result[1];
+                if (StringUtils.isNotEmpty(locale)) {
+                    reference = new DocumentReference(reference, LocaleUtils.toLocale(locale));
+                }
+
+                // Skip the documents which have been created again since
+                if (isInRoot(reference, rootReference) && !this.documentAccessBridge.exists(reference)) {
+                    this.indexer.delete(reference, true);
+                    deleted++;
+                }
+            }
+        }
+
+        this.logger.info("{} documents deleted since the last synchronization removed from the Solr index.", deleted);
+    }
+
+    private boolean isInRoot(DocumentReference reference, EntityReference rootReference)
+    {
+        return rootReference == null || rootReference.getType() == EntityType.WIKI
+            || reference.equals(rootReference) || reference.hasParent(rootReference)
+            || new DocumentReference(reference, (Locale) null).equals(rootReference);
+    }
 }
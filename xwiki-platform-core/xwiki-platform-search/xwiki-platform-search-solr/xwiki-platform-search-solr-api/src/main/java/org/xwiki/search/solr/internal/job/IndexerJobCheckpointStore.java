@@ -0,0 +1,192 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Properties;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+/**
+ * Store on the file system the progress of the {@link IndexerJob} so that an interrupted synchronization can be resumed
+ * after a restart and the next synchronization can be limited to the documents modified since the last one.
+ * <p>
+ * Only the reference of the last compared document is stored, not its version: the documents are compared in
+ * reference order and the versions of all the documents coming after the checkpoint are compared again when
+ * resuming, while the documents modified before it since the checkpoint are indexed by the Solr index listener.
+ * 
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = IndexerJobCheckpointStore.class)
+@Singleton
+public class IndexerJobCheckpointStore
+{
+    private static final String PROPERTY_REFERENCE = ".reference";
+
+    private static final String PROPERTY_LOCALE = ".locale";
+
+    private static final String PROPERTY_DATE = ".date";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private Logger logger;
+
+    private Properties properties;
+
+    /**
+     * @param rootReference the root reference of the synchronization, {@code null} for the whole farm
+     * @return the last document compared (and committed) by the interrupted synchronization, {@code null} if the last
+     *         synchronization was not interrupted
+     */
+    public synchronized DocumentReference getResumeReference(EntityReference rootReference)
+    {
+        String key = getKey(rootReference);
+
+        String reference = getProperties().getProperty(key + PROPERTY_REFERENCE);
+        if (reference != null) {
+            DocumentReference documentReference = this.resolver.resolve(reference);
+
+            String locale = getProperties().getProperty(key + PROPERTY_LOCALE);
+            if (StringUtils.isNotEmpty(locale)) {
+                documentReference = new DocumentReference(documentReference, LocaleUtils.toLocale(locale));
+            }
+
+            return documentReference;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param rootReference the root reference of the synchronization, {@code null} for the whole farm
+     * @param resumeReference the last document compared (and committed) by the synchronization, {@code null} to
+     *            indicate that the synchronization is finished
+     */
+    public synchronized void setResumeReference(EntityReference rootReference, DocumentReference resumeReference)
+    {
+        String key = getKey(rootReference);
+
+        if (resumeReference != null) {
+            getProperties().setProperty(key + PROPERTY_REFERENCE, this.serializer.serialize(resumeReference));
+            getProperties().setProperty(key + PROPERTY_LOCALE,
+                resumeReference.getLocale() != null ? resumeReference.getLocale().toString() : "");
+        } else {
+            getProperties().remove(key + PROPERTY_REFERENCE);
+            getProperties().remove(key + PROPERTY_LOCALE);
+        }
+
+        save();
+    }
+
+    /**
+     * @param rootReference the root reference of the synchronization, {@code null} for the whole farm
+     * @return the date when the last successful synchronization started, {@code null} if none is known
+     */
+    public synchronized Date getLastSynchronizationDate(EntityReference rootReference)
+    {
+        String date = getProperties().getProperty(getKey(rootReference) + PROPERTY_DATE);
+
+        return date != null ? new Date(Long.parseLong(date)) : null;
+    }
+
+    /**
+     * @param rootReference the root reference of the synchronization, {@code null} for the whole farm
+     * @param date the date when the last successful synchronization started
+     */
+    public synchronized void setLastSynchronizationDate(EntityReference rootReference, Date date)
+    {
+        getProperties().setProperty(getKey(rootReference) + PROPERTY_DATE, String.valueOf(date.getTime()));
+
+        save();
+    }
+
+    private String getKey(EntityReference rootReference)
+    {
+        return rootReference != null ? this.serializer.serialize(rootReference) : "";
+    }
+
+    private File getFile()
+    {
+        return new File(this.environment.getPermanentDirectory(), "cache/solr/indexer/checkpoints.properties");
+    }
+
+    private Properties getProperties()
+    {
+        if (this.properties == null) {
+            this.properties = new Properties();
+
+            File file = getFile();
+            if (file.exists()) {
+                try (InputStream stream = Files.newInputStream(file.toPath())) {
+                    this.properties.load(stream);
+                } catch (IOException e) {
+                    this.logger.warn("Failed to load the Solr indexer checkpoints from [{}]", file, e);
+                }
+            }
+        }
+
+        return this.properties;
+    }
+
+    private void save()
+    {
+        File file = getFile();
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try {
+            file.getParentFile().mkdirs();
+
+            // Write a temporary file first to not lose the previous checkpoint if the write is interrupted
+            try (OutputStream stream = Files.newOutputStream(tmpFile.toPath())) {
+                this.properties.store(stream, null);
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            this.logger.warn("Failed to save the Solr indexer checkpoints to [{}]", file, e);
+        }
+    }
+}
@@ -53,6 +53,16 @@ public class IndexerRequest extends AbstractRequest
      */
     private boolean removeMissing = true;
 
+    /**
+     * @see #isResume()
+     */
+    private boolean resume = true;
+
+    /**
+     * @see #isIncremental()
+     */
+    private boolean incremental;
+
     /**
      * The default constructor.
      */
@@ -118,6 +128,48 @@ public void setRemoveMissing(boolean removeMissing)
         this.removeMissing = removeMissing;
     }
 
+    /**
+     * @return if true and a previous synchronization of the same root reference was interrupted, the synchronization
+     *         continues from the last checkpoint instead of starting again from the first document
+     * @since 14.4RC1
+     */
+    public boolean isResume()
+    {
+        return this.resume;
+    }
+
+    /**
+     * @param resume if true and a previous synchronization of the same root reference was interrupted, the
+     *            synchronization continues from the last checkpoint instead of starting again from the first document
+     * @since 14.4RC1
+     */
+    public void setResume(boolean resume)
+    {
+        this.resume = resume;
+    }
+
+    /**
+     * @return if true only the documents modified since the last successful synchronization of the same root reference
+     *         are compared, if false (or if there was no successful synchronization yet) all documents are compared;
+     *         in incremental mode the deleted documents are found in the recycle bin
+     * @since 14.4RC1
+     */
+    public boolean isIncremental()
+    {
+        return this.incremental;
+    }
+
+    /**
+     * @param incremental if true only the documents modified since the last successful synchronization of the same root
+     *            reference are compared, if false (or if there was no successful synchronization yet) all documents
+     *            are compared
+     * @since 14.4RC1
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -135,6 +187,8 @@ public boolean equals(Object o)
             .appendSuper(super.equals(o))
             .append(overwrite, that.overwrite)
             .append(removeMissing, that.removeMissing)
+            .append(resume, that.resume)
+            .append(incremental, that.incremental)
             .append(rootReference, that.rootReference)
             .isEquals();
     }
@@ -147,6 +201,8 @@ public int hashCode()
             .append(rootReference)
             .append(overwrite)
             .append(removeMissing)
+            .append(resume)
+            .append(incremental)
             .toHashCode();
     }
 }
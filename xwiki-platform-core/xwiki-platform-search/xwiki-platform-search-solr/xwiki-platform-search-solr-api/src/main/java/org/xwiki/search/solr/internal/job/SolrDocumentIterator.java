@@ -32,6 +32,7 @@
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.params.CursorMarkParams;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -39,6 +40,7 @@
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
 import org.xwiki.search.solr.internal.api.SolrInstance;
@@ -85,6 +87,10 @@ public class SolrDocumentIterator extends AbstractDocumentIterator<String>
     @Inject
     private DocumentReferenceResolver<SolrDocument> solrDocumentReferenceResolver;
 
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localEntityReferenceSerializer;
+
     @Override
     public boolean hasNext()
     {
@@ -144,6 +150,12 @@ private SolrQuery getQuery() throws SolrIndexerException
             query.setFields(FieldUtils.WIKI, FieldUtils.SPACES, FieldUtils.NAME, FieldUtils.DOCUMENT_LOCALE,
                 FieldUtils.VERSION);
             query.addFilterQuery(FieldUtils.TYPE + ':' + EntityType.DOCUMENT.name());
+            if (modifiedSince != null) {
+                query.addFilterQuery(FieldUtils.DATE + ":[" + modifiedSince.toInstant() + " TO *]");
+            }
+            if (resumeReference != null) {
+                query.addFilterQuery(getResumeFilterQuery());
+            }
             // This iterator must have the same order as the database iterator, otherwise the synchronization fails.
             // Note that we had two options:
             // (A) Sort the Solr index only by id and enable docValues on the id field to improve the speed. But then we
@@ -169,4 +181,39 @@ private SolrQuery getQuery() throws SolrIndexerException
         }
         return query;
     }
+
+    /**
+     * @return the filter query matching the documents located after the {@link #resumeReference}, in the order of the
+     *         iteration
+     */
+    private String getResumeFilterQuery()
+    {
+        // Must match the order of the documents (see #getQuery).
+        String locale = resumeReference.getLocale() != null ? resumeReference.getLocale().toString() : "";
+        String[][] sortValues = new String[][] {
+            {FieldUtils.WIKI, resumeReference.getWikiReference().getName()},
+            {FieldUtils.SPACE_EXACT, this.localEntityReferenceSerializer.serialize(
+                resumeReference.getLastSpaceReference())},
+            {FieldUtils.NAME_EXACT, resumeReference.getName()},
+            {FieldUtils.DOCUMENT_LOCALE, locale}};
+
+        // field1:{value1 TO *] OR (field1:value1 AND (field2:{value2 TO *] OR (field2:value2 AND ...)))
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < sortValues.length; ++i) {
+            String field = sortValues[i][0];
+            String value = '"' + ClientUtils.escapeQueryChars(sortValues[i][1]) + '"';
+            if (i > 0) {
+                builder.append(" AND (");
+            }
+            builder.append(field).append(":{").append(value).append(" TO *]");
+            if (i < sortValues.length - 1) {
+                builder.append(" OR (").append(field).append(':').append(value);
+            }
+        }
+        for (int i = 1; i < sortValues.length; ++i) {
+            builder.append("))");
+        }
+
+        return builder.toString();
+    }
 }
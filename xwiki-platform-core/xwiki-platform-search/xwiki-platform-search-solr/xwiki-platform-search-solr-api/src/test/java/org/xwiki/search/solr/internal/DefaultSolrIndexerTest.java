@@ -0,0 +1,193 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultSolrIndexer}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultSolrIndexerTest
+{
+    private static final long TIMEOUT = 10000L;
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
+    @MockComponent
+    private SolrReferenceResolver solrReferenceResolver;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager ecim;
+
+    @MockComponent
+    private JobExecutor jobs;
+
+    @InjectMockComponents
+    private DefaultSolrIndexer indexer;
+
+    private SolrMetadataExtractor documentExtractor;
+
+    @BeforeComponent
+    void beforeComponent(MockitoComponentManager componentManager) throws Exception
+    {
+        SolrConfiguration configuration = componentManager.registerMockComponent(SolrConfiguration.class);
+        when(configuration.getIndexerThreads()).thenReturn(2);
+        when(configuration.getIndexerQueueCapacity()).thenReturn(100);
+        when(configuration.getIndexerBatchSize()).thenReturn(100);
+        when(configuration.getIndexerBatchMaxLengh()).thenReturn(Integer.MAX_VALUE);
+
+        this.documentExtractor = componentManager.registerMockComponent(SolrMetadataExtractor.class, "document");
+    }
+
+    @AfterEach
+    void afterEach() throws Exception
+    {
+        this.indexer.dispose();
+    }
+
+    private LengthSolrInputDocument solrDocument(DocumentReference reference)
+    {
+        LengthSolrInputDocument solrDocument = new LengthSolrInputDocument();
+        solrDocument.setField("id", reference.toString());
+
+        return solrDocument;
+    }
+
+    /**
+     * Block the index thread on a first operation until the passed number of entries are waiting in the index queue,
+     * so that they are all extracted in the same batch.
+     */
+    private void blockIndexThread(int waitingEntries) throws Exception
+    {
+        DocumentReference blockingReference = new DocumentReference("wiki", "space", "blocking");
+        when(this.solrReferenceResolver.getId(blockingReference)).thenReturn("blocking");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch queued = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+
+            return queued.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        }).when(this.solrInstance).delete("blocking");
+
+        this.indexer.delete(blockingReference, false);
+
+        new Thread(() -> {
+            try {
+                started.await(TIMEOUT, TimeUnit.MILLISECONDS);
+
+                long end = System.currentTimeMillis() + TIMEOUT;
+                while (this.indexer.getQueueSize() < waitingEntries && System.currentTimeMillis() < end) {
+                    Thread.sleep(10);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                queued.countDown();
+            }
+        }).start();
+    }
+
+    @Test
+    void indexInQueueOrderWhenExtractedOutOfOrder() throws Exception
+    {
+        DocumentReference first = new DocumentReference("wiki", "space", "first");
+        // Make sure the two documents are extracted by different threads
+        DocumentReference second = null;
+        for (int i = 0; second == null; i++) {
+            DocumentReference reference = new DocumentReference("wiki", "space", "second" + i);
+            if (Math.floorMod(reference.hashCode(), 2) != Math.floorMod(first.hashCode(), 2)) {
+                second = reference;
+            }
+        }
+
+        LengthSolrInputDocument firstDocument = solrDocument(first);
+        LengthSolrInputDocument secondDocument = solrDocument(second);
+
+        // The extraction of the first document only finishes after the extraction of the second one
+        List<DocumentReference> extracted = new CopyOnWriteArrayList<>();
+        CountDownLatch secondExtracted = new CountDownLatch(1);
+        when(this.documentExtractor.getSolrDocument(first)).thenAnswer(invocation -> {
+            secondExtracted.await(TIMEOUT, TimeUnit.MILLISECONDS);
+            extracted.add(first);
+
+            return firstDocument;
+        });
+        DocumentReference secondReference = second;
+        when(this.documentExtractor.getSolrDocument(second)).thenAnswer(invocation -> {
+            extracted.add(secondReference);
+            secondExtracted.countDown();
+
+            return secondDocument;
+        });
+
+        blockIndexThread(2);
+
+        this.indexer.index(first, false);
+        this.indexer.index(second, false);
+
+        verify(this.solrInstance, timeout(TIMEOUT).times(2)).commit();
+
+        assertEquals(Arrays.asList(second, first), extracted);
+
+        // The documents are still sent and committed in the order they were queued
+        InOrder inOrder = inOrder(this.solrInstance);
+        inOrder.verify(this.solrInstance).delete("blocking");
+        inOrder.verify(this.solrInstance).commit();
+        inOrder.verify(this.solrInstance).add(firstDocument);
+        inOrder.verify(this.solrInstance).add(secondDocument);
+        inOrder.verify(this.solrInstance).commit();
+    }
+}
@@ -35,11 +35,13 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.observation.AsyncEventListenerManager;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -61,6 +63,24 @@ public void setUp() throws Exception
         indexer = mocker.registerMockComponent(SolrIndexer.class);
     }
 
+    private SolrIndexEventListener getListener() throws Exception
+    {
+        return (SolrIndexEventListener) this.mocker.getComponentUnderTest();
+    }
+
+    @Test
+    public void onEvent() throws Exception
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        DocumentUpdatedEvent event = new DocumentUpdatedEvent();
+
+        getListener().onEvent(event, document, null);
+
+        verify(this.mocker.<AsyncEventListenerManager>getInstance(AsyncEventListenerManager.class))
+            .submit(getListener(), event, document, null);
+        verifyNoInteractions(this.indexer);
+    }
+
     @Test
     public void onDocumentDeleted() throws Exception
     {
@@ -70,7 +90,7 @@ public void onDocumentDeleted() throws Exception
         when(document.getDocumentReference()).thenReturn(documentReference);
         when(document.getRealLocale()).thenReturn(Locale.FRENCH);
 
-        mocker.getComponentUnderTest().onEvent(new DocumentDeletedEvent(), document, null);
+        getListener().onAsyncEvent(new DocumentDeletedEvent(), document, null);
 
         verify(indexer).delete(new DocumentReference(documentReference, Locale.FRENCH), false);
     }
@@ -82,7 +102,7 @@ public void onDocumentTranslationUpdated() throws Exception
         DocumentReference translationReference = new DocumentReference("wiki", "Path", "Page", Locale.FRENCH);
         when(translation.getDocumentReferenceWithLocale()).thenReturn(translationReference);
 
-        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), translation, null);
+        getListener().onAsyncEvent(new DocumentUpdatedEvent(), translation, null);
 
         verify(this.indexer).index(translationReference, false);
         verify(this.indexer, times(1)).index(any(EntityReference.class), any(Boolean.class));
@@ -100,7 +120,7 @@ public void onDocumentDefaultTranslationUpdated() throws Exception
         DocumentReference documentReference = new DocumentReference("wiki", "Path", "Page");
         when(document.getDocumentReference()).thenReturn(documentReference);
 
-        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), document, xcontext);
+        getListener().onAsyncEvent(new DocumentUpdatedEvent(), document, xcontext);
 
         verify(this.indexer, times(3)).index(any(EntityReference.class), any(Boolean.class));
         verify(this.indexer).index(documentReference, false);
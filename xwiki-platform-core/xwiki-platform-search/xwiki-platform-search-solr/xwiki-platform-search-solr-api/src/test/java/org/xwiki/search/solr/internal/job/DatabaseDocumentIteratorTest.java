@@ -22,6 +22,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -222,6 +223,51 @@ void iterateOneWiki() throws Exception
         verify(countQuery).bindValue("name", "C");
     }
 
+    @Test
+    void iterateModifiedSinceAfterResumeReference() throws Exception
+    {
+        Date modifiedSince = new Date();
+        DocumentReference resumeReference =
+            createDocumentReference("tennis", Arrays.asList("Main"), "Welcome", Locale.ENGLISH);
+        DocumentReference tennisXWikiSyntaxLinks =
+            createDocumentReference("tennis", Arrays.asList("XWiki", "Syntax"), "Links", Locale.FRENCH);
+
+        Query emptyQuery = mock(Query.class);
+        when(emptyQuery.execute()).thenReturn(Collections.emptyList());
+
+        Query query = mock(Query.class);
+        when(query.setLimit(anyInt())).thenReturn(query);
+        when(query.setWiki("tennis")).thenReturn(query);
+        when(query.setOffset(0)).thenReturn(query);
+        when(query.setOffset(100)).thenReturn(emptyQuery);
+        when(query.execute())
+            .thenReturn(Collections.singletonList(new Object[] { "XWiki.Syntax", "Links", "fr", "1.3" }));
+
+        String whereClause = " where doc.date >= :modifiedSince and (doc.space > :resumeSpace or (doc.space ="
+            + " :resumeSpace and (doc.name > :resumeName or (doc.name = :resumeName and doc.language >"
+            + " :resumeLanguage))))";
+        when(
+            this.queryManager.createQuery("select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc"
+                + whereClause + " order by doc.space, doc.name, doc.language", Query.HQL)).thenReturn(query);
+
+        DocumentIterator<String> iterator = this.databaseIterator;
+        iterator.setModifiedSince(modifiedSince);
+        iterator.setResumeReference(resumeReference);
+
+        List<Pair<DocumentReference, String>> actualResults = new ArrayList<>();
+        while (iterator.hasNext()) {
+            actualResults.add(iterator.next());
+        }
+
+        // The chess wiki is located before the resume reference.
+        assertEquals(Collections.singletonList(new ImmutablePair<>(tennisXWikiSyntaxLinks, "1.3")), actualResults);
+
+        verify(query).bindValue("modifiedSince", modifiedSince);
+        verify(query).bindValue("resumeSpace", "Main");
+        verify(query).bindValue("resumeName", "Welcome");
+        verify(query).bindValue("resumeLanguage", "en");
+    }
+
     private DocumentReference createDocumentReference(String wiki, List<String> spaces, String name, Locale locale)
     {
         DocumentReference documentReference = new DocumentReference(wiki, spaces, name);
@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.util.Date;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link IndexerJobCheckpointStore}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class IndexerJobCheckpointStoreTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    @MockComponent
+    private Environment environment;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @InjectMockComponents
+    private IndexerJobCheckpointStore store;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+        when(this.serializer.serialize(WIKI)).thenReturn("wiki");
+        when(this.serializer.serialize(new DocumentReference(DOCUMENT, Locale.FRENCH))).thenReturn("wiki:Space.Page");
+        when(this.resolver.resolve("wiki:Space.Page")).thenReturn(DOCUMENT);
+    }
+
+    /**
+     * Forget what was loaded to make sure the next calls read the file again, as after a restart.
+     */
+    private void reload()
+    {
+        ReflectionUtils.setFieldValue(this.store, "properties", null);
+    }
+
+    @Test
+    void resumeReference()
+    {
+        assertNull(this.store.getResumeReference(WIKI));
+
+        this.store.setResumeReference(WIKI, new DocumentReference(DOCUMENT, Locale.FRENCH));
+
+        reload();
+
+        assertEquals(new DocumentReference(DOCUMENT, Locale.FRENCH), this.store.getResumeReference(WIKI));
+        // The checkpoints are stored per root reference
+        assertNull(this.store.getResumeReference(null));
+
+        this.store.setResumeReference(WIKI, null);
+
+        reload();
+
+        assertNull(this.store.getResumeReference(WIKI));
+    }
+
+    @Test
+    void lastSynchronizationDate()
+    {
+        assertNull(this.store.getLastSynchronizationDate(null));
+
+        Date date = new Date(42);
+        this.store.setLastSynchronizationDate(null, date);
+
+        reload();
+
+        assertEquals(date, this.store.getLastSynchronizationDate(null));
+        assertNull(this.store.getLastSynchronizationDate(WIKI));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link IndexerJob}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class IndexerJobTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    @MockComponent
+    @Named("database")
+    private DocumentIterator<String> databaseIterator;
+
+    @MockComponent
+    @Named("solr")
+    private DocumentIterator<String> solrIterator;
+
+    @MockComponent
+    private SolrIndexer indexer;
+
+    @MockComponent
+    private IndexerJobCheckpointStore checkpointStore;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private DocumentAccessBridge documentAccessBridge;
+
+    @InjectMockComponents
+    private IndexerJob job;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        iterate(this.databaseIterator, Collections.emptyList());
+        iterate(this.solrIterator, Collections.emptyList());
+    }
+
+    private void iterate(DocumentIterator<String> documentIterator, List<Pair<DocumentReference, String>> entries)
+    {
+        Iterator<Pair<DocumentReference, String>> iterator = entries.iterator();
+        when(documentIterator.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(documentIterator.next()).thenAnswer(invocation -> iterator.next());
+        when(documentIterator.size()).thenReturn((long) entries.size());
+    }
+
+    private IndexerRequest request()
+    {
+        IndexerRequest request = new IndexerRequest();
+        request.setRootReference(WIKI);
+        request.setRemoveMissing(true);
+
+        return request;
+    }
+
+    private void run(IndexerRequest request) throws Exception
+    {
+        this.job.initialize(request);
+        this.job.runInternal();
+    }
+
+    @Test
+    void resume() throws Exception
+    {
+        DocumentReference resumeReference = new DocumentReference("wiki", "Space", "Page");
+        when(this.checkpointStore.getResumeReference(WIKI)).thenReturn(resumeReference);
+
+        IndexerRequest request = request();
+        request.setResume(true);
+        run(request);
+
+        verify(this.databaseIterator).setResumeReference(resumeReference);
+        verify(this.solrIterator).setResumeReference(resumeReference);
+    }
+
+    @Test
+    void checkpointOnlyOnceCommitted() throws Exception
+    {
+        List<Pair<DocumentReference, String>> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            DocumentReference reference = new DocumentReference("wiki", "Space", String.format("Page%04d", i));
+            entries.add(new ImmutablePair<>(reference, "1.1"));
+        }
+        iterate(this.databaseIterator, entries);
+
+        run(request());
+
+        verify(this.indexer, times(1000)).index(any(DocumentReference.class), anyBoolean());
+
+        // Nothing is saved before the indexer committed the changes
+        ArgumentCaptor<Runnable> callbacks = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.indexer, times(2)).commit(callbacks.capture());
+        verify(this.checkpointStore, never()).setResumeReference(any(), any());
+        verify(this.checkpointStore, never()).setLastSynchronizationDate(any(), any());
+
+        callbacks.getAllValues().get(0).run();
+
+        verify(this.checkpointStore).setResumeReference(WIKI, entries.get(999).getKey());
+        verify(this.checkpointStore, never()).setLastSynchronizationDate(any(), any());
+
+        callbacks.getAllValues().get(1).run();
+
+        verify(this.checkpointStore).setResumeReference(WIKI, null);
+        verify(this.checkpointStore).setLastSynchronizationDate(any(), any(Date.class));
+    }
+
+    @Test
+    void incrementalRemovesDeletedDocuments() throws Exception
+    {
+        Date lastSynchronizationDate = new Date(42);
+        when(this.checkpointStore.getLastSynchronizationDate(WIKI)).thenReturn(lastSynchronizationDate);
+
+        Query query = mock(Query.class);
+        when(this.queryManager.createQuery(any(), any())).thenReturn(query);
+        when(query.execute()).thenReturn(Collections.singletonList(new Object[] { "Space.Deleted", "" }),
+            Collections.singletonList(new Object[] { "Space.Restored", "" }));
+        DocumentReference deleted = new DocumentReference("wiki", "Space", "Deleted");
+        when(this.resolver.resolve("Space.Deleted", WIKI)).thenReturn(deleted);
+
+        IndexerRequest request = request();
+        request.setIncremental(true);
+        run(request);
+
+        verify(this.databaseIterator).setModifiedSince(lastSynchronizationDate);
+        verify(query).setWiki("wiki");
+        verify(query).bindValue("since", lastSynchronizationDate);
+        verify(this.indexer).delete(deleted, true);
+
+        // The deleted documents which exist again are kept
+        DocumentReference restored = new DocumentReference("wiki", "Space", "Restored");
+        when(this.resolver.resolve("Space.Restored", WIKI)).thenReturn(restored);
+        when(this.documentAccessBridge.exists(restored)).thenReturn(true);
+
+        run(request);
+
+        verify(this.indexer, never()).delete(restored, true);
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Set;
 
 import org.xwiki.component.annotation.Role;
@@ -76,6 +78,34 @@ void checkAccess(Right right, DocumentReference userReference, EntityReference e
      */
     boolean hasAccess(Right right, DocumentReference userReference, EntityReference entityReference);
 
+    /**
+     * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on each of
+     * the entities identified by {@code entityReferences}. This is equivalent to calling
+     * {@link #hasAccess(Right, DocumentReference, EntityReference)} for each entity, but implementations can share the
+     * work between entities having common ancestors, which makes it a better choice to filter lists of entities.
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReferences the entities on which to check the right
+     * @return the bits set at the index of the entities on which the user has the specified right
+     * @since 14.4RC1
+     */
+    @Unstable
+    default BitSet hasAccessBatch(Right right, DocumentReference userReference,
+        List<? extends EntityReference> entityReferences)
+    {
+        BitSet result = new BitSet(entityReferences.size());
+
+        for (int i = 0; i < entityReferences.size(); i++) {
+            if (hasAccess(right, userReference, entityReferences.get(i))) {
+                result.set(i);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Register a new custom {@link Right}.
      *
@@ -20,8 +20,11 @@
 package org.xwiki.security.authorization;
 
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -125,6 +128,51 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public BitSet hasAccessBatch(Right right, DocumentReference userReference,
+        List<? extends EntityReference> entityReferences)
+    {
+        BitSet result = new BitSet(entityReferences.size());
+
+        if (isSuperAdmin(userReference)) {
+            result.set(0, entityReferences.size());
+
+            return result;
+        }
+
+        if (right == null || right == Right.ILLEGAL || (!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
+            || (userReference == null && xwikiBridge.needsAuthentication(right))) {
+            return result;
+        }
+
+        UserSecurityReference user = securityReferenceFactory.newUserReference(userReference);
+
+        // The accesses already resolved during this batch, indexed by the level at which they are stored in the cache,
+        // so that entities sharing the same settlement (like the documents of a space without document rights) only
+        // have to walk the hierarchy until this level
+        Map<SecurityReference, SecurityAccess> accesses = new HashMap<>();
+
+        for (int i = 0; i < entityReferences.size(); i++) {
+            EntityReference entityReference = entityReferences.get(i);
+            try {
+                SecurityAccess securityAccess =
+                    getAccess(user, securityReferenceFactory.newEntityReference(entityReference), accesses);
+
+                RuleState access = securityAccess.get(right);
+                logAccess(access, userReference, entityReference, right, "batch access inquiry", true);
+                if (access == RuleState.ALLOW) {
+                    result.set(i);
+                }
+            } catch (Exception e) {
+                this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                    (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+                    (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -232,15 +280,35 @@ public void unregister(Right right) throws AuthorizationException
      */
     private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException
+    {
+        return getAccess(user, entity, null);
+    }
+
+    /**
+     * Obtain the access for the user on the given entity and load it into the cache if unavailable.
+     *
+     * @param user The user identity.
+     * @param entity The entity.  May be of type DOCUMENT, WIKI, or SPACE.
+     * @param accesses The accesses already resolved for the same user, indexed by the reference at which they are
+     *            stored, null if not in a batch.
+     * @return the cached access entry.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> accesses) throws AuthorizationException
     {
         for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
             if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
                 // Skip search on entity types that will obviously have empty/useless list of rules.
                 continue;
             }
+            if (accesses != null && accesses.containsKey(ref)) {
+                // All the levels below are empty, so the access is the one already resolved for this level
+                return accesses.get(ref);
+            }
             SecurityRuleEntry entry = securityCache.get(ref);
             if (entry == null) {
-                SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
+                SecurityAccess access = load(user, entity, accesses);
 
                 this.logger.debug("1. Loaded a new entry for user {} on {} into cache: [{}]", user, entity, access);
 
@@ -249,7 +317,7 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
             if (!entry.isEmpty()) {
                 SecurityAccessEntry accessEntry = securityCache.get(user, ref);
                 if (accessEntry == null) {
-                    SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
+                    SecurityAccess access = load(user, entity, accesses);
 
                     logger.debug("2. Loaded a new entry for user {} on {} into cache: [{}]", user, entity, access);
 
@@ -259,18 +327,34 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
 
                     logger.debug("3. Got entry for user {} on {} from cache: [{}]", user, entity, access);
 
+                    if (accesses != null) {
+                        accesses.put(ref, access);
+                    }
+
                     return access;
                 }
             } 
         }
 
-        SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
+        SecurityAccess access = load(user, entity, accesses);
 
         logger.debug("4. Loaded a new default entry for user {} on {} into cache: [{}]", user, entity, access);
 
         return access;
     }
 
+    private SecurityAccess load(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> accesses) throws AuthorizationException
+    {
+        SecurityAccessEntry accessEntry = securityCacheLoader.load(user, entity);
+
+        if (accesses != null && accessEntry.getReference() != null) {
+            accesses.put(accessEntry.getReference(), accessEntry.getAccess());
+        }
+
+        return accessEntry.getAccess();
+    }
+
     /**
      * Log access conclusion.
      * @param access The ALLOW or DENY state
@@ -25,8 +25,10 @@
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.inject.Inject;
@@ -79,14 +81,14 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private Logger logger;
 
-    /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
-
-    /** Fair read lock. */
-    private final Lock readLock = readWriteLock.readLock();
-
-    /** Fair write lock. */
-    private final Lock writeLock = readWriteLock.writeLock();
+    /**
+     * Fair lock used to serialize modifications of the cache. Readers don't take any lock: they only see entries which
+     * are fully linked to their parents when inserted, and ignore the entries which have been disposed.
+     * <p>
+     * Modifications are not striped per wiki since the entries graph crosses wikis (global users and groups are parents
+     * of entries in sub wikis) and the eviction of any entry cascades to all its children.
+     */
+    private final Lock writeLock = new ReentrantLock(true);
 
     private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock(true);
 
@@ -108,6 +110,15 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     /** The new entry being added. */
     private SecurityCacheEntry newEntry;
 
+    /** The approximate number of entries in the cache. */
+    private final LongAdder size = new LongAdder();
+
+    /** The number of access and rule entries found in the cache. */
+    private final LongAdder hits = new LongAdder();
+
+    /** The number of access and rule entries not found in the cache. */
+    private final LongAdder misses = new LongAdder();
+
     /**
      * @return a new configured security cache
      * @throws InitializationException if a CacheException arise during creation
@@ -141,12 +152,13 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
-         * Parents of this cached entry.
+         * Parents of this cached entry. The collection is never modified after being assigned to allow lock-free
+         * traversal.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
          * Children of this cached entry.
@@ -156,7 +168,7 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * True if this entry has been removed.
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -299,7 +311,7 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
                     this.parents.add(parent);
                     parent.addChild(this);
                 }
-                addParentGroups(groups, parentReference);
+                addParentGroups(this.parents, groups, parentReference);
                 logNewEntry();
             } else {
                 this.parents = null;
@@ -310,11 +322,13 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
         /**
          * Add provided groups as parent of this entry, excluding the main parent reference.
          *
+         * @param newParents the parents collection to fill.
          * @param groups the list of groups to add.
          * @param parentReference the main parent reference to exclude.
          * @throws ParentEntryEvictedException if the parents required are no more available in the cache.
          */
-        private void addParentGroups(Collection<GroupSecurityReference> groups, SecurityReference parentReference)
+        private void addParentGroups(Collection<SecurityCacheEntry> newParents,
+            Collection<GroupSecurityReference> groups, SecurityReference parentReference)
             throws ParentEntryEvictedException
         {
             for (GroupSecurityReference group : groups) {
@@ -336,7 +350,7 @@ private void addParentGroups(Collection<GroupSecurityReference> groups, Security
                     ((GroupSecurityEntry) parent.getEntry()).setGroupReference(group);
                 }
 
-                this.parents.add(parent);
+                newParents.add(parent);
                 parent.addChild(this);
             }
         }
@@ -354,15 +368,18 @@ boolean updateParentGroups(Collection<GroupSecurityReference> groups) throws Par
             }
 
             if (groups != null && !groups.isEmpty()) {
+                // Build the new parents aside before publishing them since readers don't lock
+                Collection<SecurityCacheEntry> newParents;
                 if (this.parents == null) {
-                    this.parents = new ArrayList<>(groups.size());
-                    addParentGroups(groups, null);
+                    newParents = new ArrayList<>(groups.size());
+                    addParentGroups(newParents, groups, null);
                 } else {
                     SecurityCacheEntry parent = this.parents.iterator().next();
-                    this.parents = new ArrayList<>(groups.size() + 1);
-                    this.parents.add(parent);
-                    addParentGroups(groups, parent.entry.getReference());
+                    newParents = new ArrayList<>(groups.size() + 1);
+                    newParents.add(parent);
+                    addParentGroups(newParents, groups, parent.entry.getReference());
                 }
+                this.parents = newParents;
             }
 
             return true;
@@ -420,6 +437,7 @@ public void dispose()
         {
             if (!disposed) {
                 disposed = true;
+                size.decrement();
 
                 // Try to limit the conflicts caused by cache invalidation.
                 // There is still one entry removed from the cache but retries should help deal with that.
@@ -610,12 +628,7 @@ private String getEntryKey(SecurityAccessEntry entry)
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getEntryKey(reference));
     }
 
     /**
@@ -626,12 +639,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -642,12 +650,21 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
-        readLock.lock();
-        try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getShadowEntryKey(userReference, wiki));
+    }
+
+    /**
+     * Lock-free lookup of an entry: an entry which is being disposed (by an invalidation or an eviction running in
+     * another thread) is considered as already removed.
+     *
+     * @param key the key of the cache slot to read
+     * @return the security cache entry stored with the given key, null if none is available or if it has been disposed
+     */
+    private SecurityCacheEntry getEntry(String key)
+    {
+        SecurityCacheEntry entry = cache.get(key);
+
+        return (entry != null && !entry.disposed) ? entry : null;
     }
 
     /**
@@ -704,6 +721,7 @@ private void addEntry(String key, SecurityCacheEntry entry) throws ConflictingIn
     {
         try {
             newEntry = entry;
+            size.increment();
             cache.set(key, newEntry);
             if (entry.disposed) {
                 // XWIKI-13746: The added entry have been disposed while being added, meaning that the eviction
@@ -830,6 +848,33 @@ private void internalAdd(SecurityAccessEntry entry, SecurityReference wiki)
         }
     }
 
+    /**
+     * @return the approximate number of entries in the cache
+     * @since 14.4RC1
+     */
+    public long getSize()
+    {
+        return this.size.sum();
+    }
+
+    /**
+     * @return the number of access and rule entries found in the cache
+     * @since 14.4RC1
+     */
+    public long getHits()
+    {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of access and rule entries not found in the cache
+     * @since 14.4RC1
+     */
+    public long getMisses()
+    {
+        return this.misses.sum();
+    }
+
     /**
      * Retrieve an entry from the cache directly the internal cache. Used during unit test only.
      * 
@@ -847,11 +892,13 @@ public SecurityAccessEntry get(UserSecurityReference user, SecurityReference ent
     {
         SecurityCacheEntry entry = getEntry(user, entity);
         if (entry == null) {
+            misses.increment();
             if (logger.isDebugEnabled()) {
                 logger.debug("Miss read access entry for [{}].", getEntryKey(user, entity));
             }
             return null;
         }
+        hits.increment();
         if (logger.isDebugEnabled()) {
             logger.debug("Success read access entry for [{}].", getEntryKey(user, entity));
         }
@@ -863,11 +910,13 @@ public SecurityRuleEntry get(SecurityReference entity)
     {
         SecurityCacheEntry entry = getEntry(entity);
         if (entry == null) {
+            misses.increment();
             if (logger.isDebugEnabled()) {
                 logger.debug("Miss read rule entry for [{}].", getEntryKey(entity));
             }
             return null;
         }
+        hits.increment();
         if (logger.isDebugEnabled()) {
             logger.debug("Success read rule entry for [{}].", getEntryKey(entity));
         }
@@ -962,7 +1011,10 @@ public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference use
         // Special case if the user is a shadow.
         if (entityWiki != null) {
             // We start with the parents of the original entry, and the parent of this shadow (excluding the original)
-            addParentsWhenEntryIsShadow(userEntry, user, groups, entriesToExplore);
+            if (!addParentsWhenEntryIsShadow(userEntry, user, groups, entriesToExplore)) {
+                // The original entry has been removed concurrently
+                return null;
+            }
         } else {
             // We start with the current user
             entriesToExplore.add(userEntry);
@@ -990,15 +1042,20 @@ public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference use
         return groups;
     }
 
-    private void addParentsWhenEntryIsShadow(SecurityCacheEntry shadow, UserSecurityReference user,
+    private boolean addParentsWhenEntryIsShadow(SecurityCacheEntry shadow, UserSecurityReference user,
         Collection<GroupSecurityReference> groups, Deque<SecurityCacheEntry> entriesToExplore)
     {
         SecurityCacheEntry originalEntry = getEntry(user);
+        if (originalEntry == null) {
+            return false;
+        }
 
         // We add the parents of the original (but not the original, otherwise we could have the same group twice)
         addParentsToTheListOfEntriesToExplore(originalEntry.parents, groups, entriesToExplore);
         // And we add the parent groups of the shadow
         addParentsToTheListOfEntriesToExplore(shadow.parents, groups, entriesToExplore, originalEntry);
+
+        return true;
     }
 
     /**
@@ -34,6 +34,8 @@
 
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.security.GroupSecurityReference;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.UserSecurityReference;
@@ -87,6 +89,10 @@ public class DefaultSecurityCacheLoader implements SecurityCacheLoader
     @Inject
     private UserBridge userBridge;
 
+    /** Index of the groups already read through the user bridge. */
+    @Inject
+    private GroupMembershipIndex groupMembershipIndex;
+
     /** Provide the configured authorization settler. */
     @Inject
     private Provider<AuthorizationSettler> authorizationSettlerProvider;
@@ -358,7 +364,7 @@ private Collection<GroupSecurityReference> loadUserGroups(UserSecurityReference
         throws ParentEntryEvictedException, ConflictingInsertionException, AuthorizationException
     {
         // Retrieve the list of immediate group for the user/group in either the entity wiki or the user/group wiki
-        Collection<GroupSecurityReference> groups = userBridge.getAllGroupsFor(user, wiki.getOriginalWikiReference());
+        Collection<GroupSecurityReference> groups = getAllGroupsFor(user, wiki.getOriginalWikiReference());
 
         Collection<GroupSecurityReference> immediateGroup = new ArrayList<GroupSecurityReference>();
 
@@ -402,6 +408,33 @@ private Collection<GroupSecurityReference> loadUserGroups(UserSecurityReference
         return immediateGroup;
     }
 
+    /**
+     * Get the immediate groups of a user/group from the membership index, or from the user bridge when not indexed.
+     *
+     * @param user the user/group being queried
+     * @param wiki the wiki into which the query is applied
+     * @return the immediate groups containing the user/group
+     * @throws AuthorizationException on error.
+     */
+    private Collection<GroupSecurityReference> getAllGroupsFor(UserSecurityReference user, WikiReference wiki)
+        throws AuthorizationException
+    {
+        DocumentReference member = user.getOriginalReference();
+        if (member == null) {
+            return this.userBridge.getAllGroupsFor(user, wiki);
+        }
+
+        Collection<GroupSecurityReference> groups = this.groupMembershipIndex.getGroups(member, wiki);
+        if (groups == null) {
+            // Remember the version before reading the groups to not index them if they are invalidated meanwhile
+            long version = this.groupMembershipIndex.getVersion();
+            groups = this.userBridge.getAllGroupsFor(user, wiki);
+            this.groupMembershipIndex.setGroups(member, wiki, groups, version);
+        }
+
+        return groups;
+    }
+
     /**
      * Load rules for a user/group into the cache with relations to immediate groups. Groups should be already loaded,
      * else a ParentEntryEvictedException will be thrown. The parent chain of the loaded user will be loaded as needed.
@@ -0,0 +1,227 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.cache.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.GroupSecurityReference;
+
+/**
+ * Index of the group memberships used by the security cache loader, so that the groups of a user (or group) don't
+ * have to be read again from the database each time its security cache entries have been invalidated.
+ * <p>
+ * Groups are interned as small integers and the immediate groups of each member are stored as a bitset over these
+ * identifiers, which makes it cheap to find all the memberships impacted by a modification of a group. The index is
+ * bounded both in number of members and in number of interned groups: the least recently used members are forgotten
+ * first, and the whole index is emptied when too many groups have been interned.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component(roles = GroupMembershipIndex.class)
+@Singleton
+public class GroupMembershipIndex
+{
+    /** The maximum number of members kept in the index. */
+    private static final int MAX_MEMBERS = 10000;
+
+    /** The maximum number of interned groups before the index is emptied. */
+    private static final int MAX_GROUPS = 10000;
+
+    private final Map<DocumentReference, Integer> groupIds = new HashMap<>();
+
+    private final List<GroupSecurityReference> groups = new ArrayList<>();
+
+    /**
+     * The immediate groups of each member per wiki, in least recently used order.
+     */
+    private final Map<DocumentReference, Map<String, BitSet>> memberships =
+        new LinkedHashMap<DocumentReference, Map<String, BitSet>>(16, 0.75F, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DocumentReference, Map<String, BitSet>> eldest)
+            {
+                return size() > MAX_MEMBERS;
+            }
+        };
+
+    /**
+     * Incremented on each invalidation to prevent a load started before an invalidation from indexing outdated
+     * memberships.
+     */
+    private long version;
+
+    /**
+     * @return the current version of the index, to be passed to
+     *         {@link #setGroups(DocumentReference, WikiReference, Collection, long)}
+     */
+    public synchronized long getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @param member the user or group
+     * @param wiki the wiki where the groups are located
+     * @return the groups of the given wiki in which the member is directly a member, null if not indexed
+     */
+    public synchronized List<GroupSecurityReference> getGroups(DocumentReference member, WikiReference wiki)
+    {
+        Map<String, BitSet> wikiMemberships = this.memberships.get(member);
+        BitSet ids = wikiMemberships != null ? wikiMemberships.get(wiki.getName()) : null;
+        if (ids == null) {
+            return null;
+        }
+
+        List<GroupSecurityReference> references = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            references.add(this.groups.get(id));
+        }
+
+        return references;
+    }
+
+    /**
+     * Index the immediate groups of a member, unless the index has been invalidated since the groups were read.
+     *
+     * @param member the user or group
+     * @param wiki the wiki where the groups are located
+     * @param groupReferences the groups of the given wiki in which the member is directly a member
+     * @param readVersion the version of the index (see {@link #getVersion()}) before the groups were read
+     * @return true if the groups have been indexed
+     */
+    public synchronized boolean setGroups(DocumentReference member, WikiReference wiki,
+        Collection<GroupSecurityReference> groupReferences, long readVersion)
+    {
+        if (this.version != readVersion) {
+            return false;
+        }
+
+        if (this.groups.size() + groupReferences.size() > MAX_GROUPS) {
+            // Too many groups to keep interning them, start again from an empty index
+            removeAll();
+
+            return false;
+        }
+
+        BitSet ids = new BitSet();
+        for (GroupSecurityReference group : groupReferences) {
+            ids.set(getGroupId(group));
+        }
+
+        this.memberships.computeIfAbsent(member, k -> new HashMap<>()).put(wiki.getName(), ids);
+
+        return true;
+    }
+
+    private int getGroupId(GroupSecurityReference group)
+    {
+        return this.groupIds.computeIfAbsent(group.getOriginalReference(), k -> {
+            this.groups.add(group);
+
+            return this.groups.size() - 1;
+        });
+    }
+
+    /**
+     * Remove from the index the memberships of the passed user or group and the memberships in which it appears as a
+     * group.
+     *
+     * @param reference the reference of the modified user or group
+     */
+    public synchronized void invalidate(DocumentReference reference)
+    {
+        this.version++;
+
+        this.memberships.remove(reference);
+
+        Integer id = this.groupIds.get(reference);
+        if (id != null) {
+            for (Iterator<Map<String, BitSet>> it = this.memberships.values().iterator(); it.hasNext();) {
+                Map<String, BitSet> wikiMemberships = it.next();
+
+                wikiMemberships.values().removeIf(ids -> ids.get(id));
+
+                if (wikiMemberships.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove from the index the members located in the passed wiki and the memberships in groups of this wiki.
+     *
+     * @param wiki the deleted wiki
+     */
+    public synchronized void invalidateWiki(WikiReference wiki)
+    {
+        this.version++;
+
+        for (Iterator<Map.Entry<DocumentReference, Map<String, BitSet>>> it = this.memberships.entrySet().iterator();
+            it.hasNext();) {
+            Map.Entry<DocumentReference, Map<String, BitSet>> entry = it.next();
+
+            if (entry.getKey().getWikiReference().equals(wiki)) {
+                it.remove();
+            } else {
+                entry.getValue().remove(wiki.getName());
+
+                if (entry.getValue().isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Empty the index.
+     */
+    public synchronized void removeAll()
+    {
+        this.version++;
+
+        this.memberships.clear();
+        this.groupIds.clear();
+        this.groups.clear();
+    }
+
+    /**
+     * @return the number of members in the index
+     */
+    public synchronized int getSize()
+    {
+        return this.memberships.size();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.cache.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.metrics.MetricRegistry;
+import org.xwiki.metrics.MetricSource;
+
+/**
+ * Expose the statistics of {@link DefaultSecurityCache}.
+ *
+ * @version $Id$
+ * @since 14.4RC1
+ */
+@Component
+@Named("security")
+@Singleton
+public class SecurityCacheMetricSource implements MetricSource
+{
+    @Inject
+    private Provider<SecurityCache> securityCacheProvider;
+
+    @Override
+    public void bindTo(MetricRegistry registry)
+    {
+        SecurityCache securityCache = this.securityCacheProvider.get();
+
+        if (securityCache instanceof DefaultSecurityCache) {
+            DefaultSecurityCache defaultSecurityCache = (DefaultSecurityCache) securityCache;
+
+            registry.registerGauge("xwiki_security_cache_size",
+                "The approximate number of entries in the security cache", defaultSecurityCache::getSize);
+            registry.registerCounter("xwiki_security_cache_hits",
+                "The number of access and rule entries found in the security cache", defaultSecurityCache::getHits);
+            registry.registerCounter("xwiki_security_cache_misses",
+                "The number of access and rule entries not found in the security cache",
+                defaultSecurityCache::getMisses);
+        }
+    }
+}
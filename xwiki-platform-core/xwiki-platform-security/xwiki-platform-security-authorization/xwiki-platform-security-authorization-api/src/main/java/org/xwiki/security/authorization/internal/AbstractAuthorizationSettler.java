@@ -19,8 +19,11 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -34,6 +37,7 @@
 import org.xwiki.security.authorization.RuleState;
 import org.xwiki.security.authorization.SecurityAccess;
 import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.security.authorization.SecurityRule;
 import org.xwiki.security.authorization.SecurityRuleEntry;
 import org.xwiki.security.internal.GroupSecurityEntry;
 import org.xwiki.text.XWikiToStringBuilder;
@@ -117,6 +121,89 @@ public String toString()
         }
     }
 
+    /**
+     * The rules of an entry matched once against the user and its groups, so that settling each right only has to
+     * test bits instead of matching all the groups again.
+     */
+    protected static final class RuleMatches
+    {
+        /** The rules of the entry. */
+        private final List<SecurityRule> rules;
+
+        /** The rules matching the user. */
+        private final BitSet userRules = new BitSet();
+
+        /** The rules matching one of the groups, but not the user. */
+        private final BitSet groupRules = new BitSet();
+
+        /** The first group matched by each rule. */
+        private final GroupSecurityReference[] matchedGroups;
+
+        /**
+         * @param user The user.
+         * @param groups The groups where the user is a member.
+         * @param entry The security entry to settle.
+         */
+        RuleMatches(UserSecurityReference user, Collection<GroupSecurityReference> groups, SecurityRuleEntry entry)
+        {
+            this.rules = new ArrayList<>(entry.getRules());
+            this.matchedGroups = new GroupSecurityReference[this.rules.size()];
+
+            for (int i = 0; i < this.rules.size(); i++) {
+                SecurityRule rule = this.rules.get(i);
+                if (rule.getState() == RuleState.UNDETERMINED) {
+                    continue;
+                }
+                if (rule.match(user)) {
+                    this.userRules.set(i);
+                } else {
+                    for (GroupSecurityReference group : groups) {
+                        if (rule.match(group)) {
+                            this.groupRules.set(i);
+                            this.matchedGroups[i] = group;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the rules of the entry, indexed as in the other methods
+         */
+        public List<SecurityRule> getRules()
+        {
+            return this.rules;
+        }
+
+        /**
+         * @param index the index of the rule
+         * @return true if the rule matches the user
+         */
+        public boolean matchUser(int index)
+        {
+            return this.userRules.get(index);
+        }
+
+        /**
+         * @param index the index of the rule
+         * @return true if the rule does not match the user but matches one of its groups
+         */
+        public boolean matchGroup(int index)
+        {
+            return this.groupRules.get(index);
+        }
+
+        /**
+         * @param index the index of the rule
+         * @return the first group matched by the rule, null if the rule matches the user or none of its groups
+         */
+        public GroupSecurityReference getMatchedGroup(int index)
+        {
+            return this.matchedGroups[index];
+        }
+    }
+
     /**
      * Current policies helper.
      */
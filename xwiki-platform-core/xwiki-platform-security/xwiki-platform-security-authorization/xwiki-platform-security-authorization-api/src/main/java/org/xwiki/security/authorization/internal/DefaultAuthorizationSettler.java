@@ -20,6 +20,7 @@
 package org.xwiki.security.authorization.internal;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Singleton;
@@ -57,14 +58,18 @@ protected XWikiSecurityAccess settle(UserSecurityReference user, Collection<Grou
 
         XWikiSecurityAccess access = new XWikiSecurityAccess();
 
+        RuleMatches matches = new RuleMatches(user, groups, entry);
+        List<SecurityRule> rules = matches.getRules();
+
         // Evaluate rules from current entity
         for (Right right : enabledRights) {
-            for (SecurityRule rule : entry.getRules()) {
+            for (int i = 0; i < rules.size(); i++) {
+                SecurityRule rule = rules.get(i);
                 if (rule.match(right)) {
                     if (rule.getState() == ALLOW) {
                         allowed.add(right);
                     }
-                    resolveLevel(right, user, groups, rule, access, policies, fromUser);
+                    resolveLevel(right, matches, i, rule, access, policies, fromUser);
                     if (access.get(right) == ALLOW) {
                         implyRights(right, access, enabledRights, policies, fromUser);
                     }
@@ -118,15 +123,15 @@ private void implyRights(Right right, XWikiSecurityAccess access, Set<Right> ena
      * for the given user and group, and the requested {@link Right}.
      *
      * @param right The right to settle.
-     * @param user The user to check.
-     * @param groups The groups where the user is a member.
+     * @param matches The rules matching the user and its groups.
+     * @param index The index of the currently considered rule.
      * @param rule The currently considered rule.
      * @param access The accumulated access result.
      * @param policies the current security policies.
      * @param fromUser the set of right that have been set by a user rule.
      */
-    private void resolveLevel(Right right, UserSecurityReference user, Collection<GroupSecurityReference> groups,
-        SecurityRule rule, XWikiSecurityAccess access, Policies policies, Set<Right> fromUser)
+    private void resolveLevel(Right right, RuleMatches matches, int index, SecurityRule rule,
+        XWikiSecurityAccess access, Policies policies, Set<Right> fromUser)
     {
         RuleState state = rule.getState();
 
@@ -134,7 +139,7 @@ private void resolveLevel(Right right, UserSecurityReference user, Collection<Gr
             return;
         }
 
-        if (rule.match(user)) {
+        if (matches.matchUser(index)) {
             if (!fromUser.contains(right)) {
                 // User right win over group right
                 access.set(right, state);
@@ -143,14 +148,9 @@ private void resolveLevel(Right right, UserSecurityReference user, Collection<Gr
                 // Conflict between user rights
                 resolveConflict(state, right, access, policies);
             }
-        } else if (!fromUser.contains(right)) {
-            for (GroupSecurityReference group : groups) {
-                if (rule.match(group)) {
-                    // Conflict between group rights
-                    resolveConflict(state, right, access, policies);
-                    break;
-                }
-            }
+        } else if (!fromUser.contains(right) && matches.matchGroup(index)) {
+            // Conflict between group rights
+            resolveConflict(state, right, access, policies);
         }
     }
 
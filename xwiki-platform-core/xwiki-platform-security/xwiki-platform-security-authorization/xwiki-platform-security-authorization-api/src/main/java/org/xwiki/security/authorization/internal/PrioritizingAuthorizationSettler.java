@@ -20,6 +20,7 @@
 package org.xwiki.security.authorization.internal;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -69,11 +70,15 @@ protected XWikiSecurityAccess settle(UserSecurityReference user, Collection<Grou
         SecurityReference reference = entry.getReference();
         Set<Right> enabledRights = Right.getEnabledRights(reference.getSecurityType());
 
+        RuleMatches matches = new RuleMatches(user, groups, entry);
+        List<SecurityRule> rules = matches.getRules();
+
         // Evaluate rules from current level
         for (Right right : enabledRights) {
-            for (SecurityRule obj : entry.getRules()) {
+            for (int i = 0; i < rules.size(); i++) {
+                SecurityRule obj = rules.get(i);
                 if (obj.match(right)) {
-                    resolveLevel(right, user, groups, obj, access, policies, priorities);
+                    resolveLevel(right, matches, i, obj, access, policies, priorities);
                     if (access.get(right) == ALLOW) {
                         implyRights(right, access, reference, policies, priorities);
                     }
@@ -113,16 +118,15 @@ private void implyRights(Right right, XWikiSecurityAccess access, SecurityRefere
      * for the given user and group, and the requested {@link Right}.
      *
      * @param right The right to settle.
-     * @param user The user to check.
-     * @param groups The groups where the user is a member.
+     * @param matches The rules matching the user and its groups.
+     * @param index The index of the currently considered rule.
      * @param rule The currently considered rule.
      * @param access The accumulated access result during interpretation of rules.
      * @param policies the current security policies.
      * @param priorities A map of current priorities of each rights in the current accumulated access result.
      *
      */
-    private void resolveLevel(Right right,
-        UserSecurityReference user, Collection<GroupSecurityReference> groups, SecurityRule rule,
+    private void resolveLevel(Right right, RuleMatches matches, int index, SecurityRule rule,
         XWikiSecurityAccess access, Policies policies, Map<Right, Integer> priorities)
     {
         RuleState state = rule.getState();
@@ -130,15 +134,10 @@ private void resolveLevel(Right right,
             return;
         }
 
-        if (rule.match(user)) {
+        if (matches.matchUser(index)) {
             resolveConflict(state, right, access, policies, USER_PRIORITY, priorities);
-        } else {
-            for (GroupSecurityReference group : groups) {
-                if (rule.match(group)) {
-                    resolveConflict(state, right, access, policies, getPriority(group), priorities);
-                    break;
-                }
-            }
+        } else if (matches.matchGroup(index)) {
+            resolveConflict(state, right, access, policies, getPriority(matches.getMatchedGroup(index)), priorities);
         }
     }
 
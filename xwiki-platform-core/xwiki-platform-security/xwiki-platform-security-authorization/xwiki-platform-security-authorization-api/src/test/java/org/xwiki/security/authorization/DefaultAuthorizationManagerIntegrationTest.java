@@ -21,8 +21,11 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -50,6 +53,7 @@
 import org.xwiki.security.authorization.cache.SecurityCacheRulesInvalidator;
 import org.xwiki.security.authorization.cache.internal.DefaultSecurityCache;
 import org.xwiki.security.authorization.cache.internal.DefaultSecurityCacheLoader;
+import org.xwiki.security.authorization.cache.internal.GroupMembershipIndex;
 import org.xwiki.security.authorization.cache.internal.TestCache;
 import org.xwiki.security.authorization.internal.AbstractSecurityRuleEntry;
 import org.xwiki.security.authorization.internal.DefaultAuthorizationSettler;
@@ -108,7 +112,8 @@
 @ComponentList({ DefaultSecurityCache.class, DefaultStringEntityReferenceResolver.class,
     DefaultStringEntityReferenceSerializer.class, DefaultEntityReferenceProvider.class, DefaultModelConfiguration.class,
     AuthorizationManagerConfiguration.class, DefaultSecurityReferenceFactory.class, DefaultSecurityCacheLoader.class,
-    DefaultAuthorizationSettler.class, DefaultAuthorizationManager.class, DefaultSymbolScheme.class })
+    GroupMembershipIndex.class, DefaultAuthorizationSettler.class, DefaultAuthorizationManager.class,
+    DefaultSymbolScheme.class })
 class DefaultAuthorizationManagerIntegrationTest extends AbstractAuthorizationTestCase
 {
     @InjectMockComponents
@@ -694,6 +699,24 @@ void groupAccess() throws Exception
             getXDoc("docAllowGroupB", "any space"));
     }
 
+    @Test
+    void hasAccessBatch() throws Exception
+    {
+        initialiseWikiMock("groupAccess");
+
+        List<EntityReference> references = Arrays.asList(getXDoc("any document", "any space"),
+            getXDoc("docAllowGroupB", "any space"), getXDoc("docDenyGroupA", "any space"),
+            getXDoc("docDenyGroupAAllowUserA", "any space"), getXDoc("docDenyGroupBAllowGroupA", "any space"));
+
+        BitSet access = authorizationManager.hasAccessBatch(EDIT, getXUser("userA"), references);
+
+        for (int i = 0; i < references.size(); i++) {
+            assertEquals(authorizationManager.hasAccess(EDIT, getXUser("userA"), references.get(i)), access.get(i),
+                "Unexpected batch access on " + references.get(i));
+        }
+        assertEquals(3, access.cardinality());
+    }
+
     @Test
     void checkAccess() throws Exception
     {
@@ -67,7 +67,8 @@
  * 
  * @version $Id$
  */
-@ComponentList({ DefaultSecurityCacheLoader.class, DefaultSecurityReferenceFactory.class })
+@ComponentList({ DefaultSecurityCacheLoader.class, DefaultSecurityReferenceFactory.class,
+    GroupMembershipIndex.class })
 public class DefaultSecurityCacheLoaderTest
 {
     @Rule
@@ -0,0 +1,145 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.cache.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.GroupSecurityReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupMembershipIndex}.
+ *
+ * @version $Id$
+ */
+class GroupMembershipIndexTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final WikiReference OTHER_WIKI = new WikiReference("otherwiki");
+
+    private static final DocumentReference USER = new DocumentReference("wiki", "XWiki", "user");
+
+    private static final DocumentReference OTHER_USER = new DocumentReference("otherwiki", "XWiki", "user");
+
+    private static final DocumentReference GROUP1 = new DocumentReference("wiki", "XWiki", "group1");
+
+    private static final DocumentReference GROUP2 = new DocumentReference("wiki", "XWiki", "group2");
+
+    private GroupSecurityReference group1;
+
+    private GroupSecurityReference group2;
+
+    private GroupMembershipIndex index;
+
+    private static GroupSecurityReference group(DocumentReference reference)
+    {
+        GroupSecurityReference group = mock(GroupSecurityReference.class);
+        when(group.getOriginalReference()).thenReturn(reference);
+
+        return group;
+    }
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.index = new GroupMembershipIndex();
+        this.group1 = group(GROUP1);
+        this.group2 = group(GROUP2);
+    }
+
+    @Test
+    void setGroups()
+    {
+        assertNull(this.index.getGroups(USER, WIKI));
+
+        assertTrue(
+            this.index.setGroups(USER, WIKI, Arrays.asList(this.group1, this.group2), this.index.getVersion()));
+
+        assertEquals(Arrays.asList(this.group1, this.group2), this.index.getGroups(USER, WIKI));
+        assertNull(this.index.getGroups(USER, OTHER_WIKI));
+    }
+
+    @Test
+    void invalidateGroup()
+    {
+        this.index.setGroups(USER, WIKI, Arrays.asList(this.group1), this.index.getVersion());
+        this.index.setGroups(GROUP1, WIKI, Arrays.asList(this.group2), this.index.getVersion());
+        this.index.setGroups(GROUP2, WIKI, Collections.emptyList(), this.index.getVersion());
+
+        this.index.invalidate(GROUP2);
+
+        // The group and its direct members are invalidated
+        assertNull(this.index.getGroups(GROUP2, WIKI));
+        assertNull(this.index.getGroups(GROUP1, WIKI));
+        assertEquals(Arrays.asList(this.group1), this.index.getGroups(USER, WIKI));
+    }
+
+    @Test
+    void setGroupsAfterInvalidation()
+    {
+        long version = this.index.getVersion();
+
+        this.index.invalidate(USER);
+
+        assertFalse(this.index.setGroups(USER, WIKI, Arrays.asList(this.group1), version));
+        assertNull(this.index.getGroups(USER, WIKI));
+    }
+
+    @Test
+    void invalidateWiki()
+    {
+        this.index.setGroups(USER, WIKI, Arrays.asList(this.group1), this.index.getVersion());
+        this.index.setGroups(OTHER_USER, WIKI, Arrays.asList(this.group1), this.index.getVersion());
+        this.index.setGroups(OTHER_USER, OTHER_WIKI, Collections.emptyList(), this.index.getVersion());
+
+        this.index.invalidateWiki(WIKI);
+
+        // The members of the wiki and the memberships in the groups of the wiki are removed
+        assertNull(this.index.getGroups(USER, WIKI));
+        assertNull(this.index.getGroups(OTHER_USER, WIKI));
+        assertEquals(Collections.emptyList(), this.index.getGroups(OTHER_USER, OTHER_WIKI));
+        assertEquals(1, this.index.getSize());
+    }
+
+    @Test
+    void removeAll()
+    {
+        long version = this.index.getVersion();
+        this.index.setGroups(USER, WIKI, Arrays.asList(this.group1), version);
+
+        this.index.removeAll();
+
+        assertNull(this.index.getGroups(USER, WIKI));
+        assertEquals(0, this.index.getSize());
+        assertFalse(this.index.setGroups(USER, WIKI, Arrays.asList(this.group1), version));
+    }
+}
@@ -19,8 +19,11 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -117,6 +120,27 @@ public boolean hasAccess(Right right, EntityReference entity)
         return hasAccess(right, user, entity);
     }
 
+    @Override
+    public BitSet hasAccessBatch(Right right, List<? extends EntityReference> entities)
+    {
+        if (CONTENT_AUTHOR_RIGHTS.contains(right)) {
+            // The user depends on each entity
+            return ContextualAuthorizationManager.super.hasAccessBatch(right, entities);
+        }
+
+        if (!checkPreAccess(right)) {
+            return new BitSet();
+        }
+
+        List<EntityReference> fullReferences = new ArrayList<>(entities.size());
+        for (EntityReference entity : entities) {
+            fullReferences.add(getFullReference(entity));
+        }
+
+        return this.authorizationManager.hasAccessBatch(right, this.xcontextProvider.get().getUserReference(),
+            fullReferences);
+    }
+
     private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
     {
         return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
@@ -34,6 +34,7 @@
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
@@ -47,6 +48,7 @@
 import org.xwiki.security.SecurityReferenceFactory;
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.cache.SecurityCache;
+import org.xwiki.security.authorization.cache.internal.GroupMembershipIndex;
 import org.xwiki.security.authorization.event.RightUpdatedEvent;
 import org.xwiki.security.internal.XWikiConstants;
 
@@ -89,6 +91,10 @@ public class DefaultSecurityCacheRulesInvalidatorListener extends AbstractEventL
     @Inject
     private SecurityCache securityCache;
 
+    /** The index of the groups memberships used when loading the right cache. */
+    @Inject
+    private GroupMembershipIndex groupMembershipIndex;
+
     /** The security reference factory. */
     @Inject
     private SecurityReferenceFactory securityReferenceFactory;
@@ -118,7 +124,8 @@ public class DefaultSecurityCacheRulesInvalidatorListener extends AbstractEventL
      */
     public DefaultSecurityCacheRulesInvalidatorListener()
     {
-        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
+            new WikiDeletedEvent());
     }
 
     /**
@@ -164,6 +171,7 @@ public void invalidateGroupMembers(DocumentReference group, SecurityCache securi
                     // Avoid infinite loops.
 
                     if (!memberRef.equals(group)) {
+                        this.groupMembershipIndex.invalidate(memberRef);
                         securityCache.remove(securityReferenceFactory.newUserReference(memberRef));
                     }
                 }
@@ -177,9 +185,20 @@ public void invalidateGroupMembers(DocumentReference group, SecurityCache securi
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        if (event instanceof WikiDeletedEvent) {
+            this.groupMembershipIndex.invalidateWiki(new WikiReference(((WikiDeletedEvent) event).getWikiId()));
+
+            return;
+        }
+
         XWikiDocument document = (XWikiDocument) source;
 
         DocumentReference ref = document.getDocumentReference();
+
+        // Forget the memberships of the document, and if it's a group the memberships of its previous members, before
+        // the right cache entries are removed and possibly reloaded
+        this.groupMembershipIndex.invalidate(ref);
+
         try {
             deliverUpdateEvent(ref);
             if (isGroupDocument(document)) {
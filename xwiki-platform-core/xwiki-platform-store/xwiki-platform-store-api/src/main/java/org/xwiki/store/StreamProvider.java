@@ -20,6 +20,8 @@
 package org.xwiki.store;
 
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * A generic thing which provides access to an InputStream on demand.
@@ -36,4 +38,17 @@
      * @throws Exception if something goes wrong while trying to get the stream.
      */
     InputStream getStream() throws Exception;
+
+    /**
+     * Get the data provided by this StreamProvider as a channel. Implementations backed by a file should return a
+     * {@link java.nio.channels.FileChannel} so that the data can be transferred without going through the heap.
+     *
+     * @return the channel to read the data from
+     * @throws Exception if something goes wrong while trying to get the channel.
+     * @since 14.4RC1
+     */
+    default ReadableByteChannel getChannel() throws Exception
+    {
+        return Channels.newChannel(getStream());
+    }
 }
@@ -23,6 +23,9 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.AutoCloseInputStream;
@@ -128,6 +131,16 @@ public InputStream getContentInputStream()
         }
     }
 
+    @Override
+    public ReadableByteChannel getContentChannel() throws IOException
+    {
+        if (this.getFileItem() != null) {
+            return super.getContentChannel();
+        }
+
+        return FileChannel.open(this.storageFile.toPath(), StandardOpenOption.READ);
+    }
+
     @Override
     public long getLongSize()
     {
@@ -20,12 +20,14 @@
 package org.xwiki.store.legacy.store.internal;
 
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
 
 import org.xwiki.store.StreamProvider;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 
 /**
  * A stream provider based on the content of an attachment.
@@ -65,4 +67,16 @@ public InputStream getStream() throws XWikiException
     {
         return this.attachment.getContentInputStream(this.context);
     }
+
+    @Override
+    public ReadableByteChannel getChannel() throws Exception
+    {
+        XWikiAttachmentContent content = this.attachment.getAttachment_content();
+        if (content != null) {
+            // Allow the content to be directly transferred from the temporary file holding it
+            return content.getContentChannel();
+        }
+
+        return StreamProvider.super.getChannel();
+    }
 }
@@ -20,20 +20,26 @@
 package org.xwiki.store;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
-
-import org.apache.commons.io.IOUtils;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Serialize a {@link StreamProvider} to a File.
+ * <p>
+ * The data is transferred with {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} so that it's copied
+ * directly by the operating system when the provider is itself backed by a file.
  * 
  * @version $Id$
  * @since 9.0RC1
  */
 public class StreamProviderFileSerializer implements FileSerializer
 {
+    /**
+     * The maximum number of bytes to transfer at once.
+     */
+    private static final long TRANSFER_SIZE = 8L * 1024 * 1024;
+
     private final StreamProvider provider;
 
     /**
@@ -47,9 +53,14 @@ public StreamProviderFileSerializer(StreamProvider provider)
     @Override
     public void serialize(File file) throws Exception
     {
-        try (InputStream in = this.provider.getStream()) {
-            try (OutputStream out = new FileOutputStream(file)) {
-                IOUtils.copy(in, out);
+        try (ReadableByteChannel in = this.provider.getChannel()) {
+            try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = out.transferFrom(in, position, TRANSFER_SIZE)) > 0) {
+                    position += transferred;
+                }
             }
         }
     }
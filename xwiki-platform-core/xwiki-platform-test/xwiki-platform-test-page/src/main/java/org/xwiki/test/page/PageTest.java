@@ -127,7 +127,10 @@ public void setUpComponentsForPageTest(MockitoComponentManager componentManager)
     {
         componentManager.registerMockComponent(JMXBeanRegistration.class);
         componentManager.registerMockComponent(JobProgressManager.class);
-        componentManager.registerMockComponent(RenderingCache.class);
+        RenderingCache renderingCache = componentManager.registerMockComponent(RenderingCache.class);
+        // Nothing is cached but the content still needs to be rendered
+        when(renderingCache.getRenderedContent(any(), any(), any(RenderingCache.ContentRenderer.class), any()))
+            .thenCallRealMethod();
         componentManager.registerMockComponent(EntityResourceActionLister.class);
 
         CacheManager cacheManager = componentManager.registerMockComponent(CacheManager.class);